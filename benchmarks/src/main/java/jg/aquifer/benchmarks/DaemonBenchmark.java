@@ -0,0 +1,114 @@
+package jg.aquifer.benchmarks;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import jg.aquifer.Output;
+import jg.aquifer.commands.options.Flag;
+import jg.aquifer.daemon.IntakeDaemon;
+import jg.aquifer.daemon.SocketIntake;
+
+/**
+ * Measures the round trip of a submission through a SocketIntake to an IntakeDaemon in the same JVM:
+ * sending the arguments, running the Intake and receiving its output and end.
+ *
+ * Unix domain sockets need Java 16 or later.
+ *
+ * @author Jose
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DaemonBenchmark {
+
+  @Param({"tcp", "unix"})
+  public String transport;
+
+  /**
+   * The amount of characters the Intake prints per run
+   */
+  @Param({"16", "65536"})
+  public int outputChars;
+
+  private final Map<String, String> arguments = new HashMap<>();
+
+  private Path directory;
+  private IntakeDaemon daemon;
+  private SocketIntake intake;
+  private Output output;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    final char [] printed = new char[outputChars];
+    Arrays.fill(printed, 'x');
+    final String line = new String(printed);
+    daemon = new IntakeDaemon((subcommand, submitted, runOutput) -> runOutput.out.print(line));
+
+    final SocketAddress address;
+    if (transport.equals("unix")) {
+      directory = Files.createTempDirectory("aquifer-bench");
+      address = SocketIntake.unixSocket(directory.resolve("daemon.sock"));
+    }
+    else {
+      address = new InetSocketAddress(InetAddress.getLoopbackAddress(), 0);
+    }
+    intake = new SocketIntake(daemon.start(address));
+
+    final PrintWriter discarded = new PrintWriter(new Writer() {
+      @Override
+      public void write(char[] buffer, int offset, int length) {}
+
+      @Override
+      public void flush() {}
+
+      @Override
+      public void close() {}
+    });
+    output = new Output(discarded, discarded);
+
+    arguments.put("input", "data.csv");
+    arguments.put("count", "10");
+    arguments.put("verbose", Flag.VALUE_PLACE_HOLDER);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    intake.close();
+    daemon.stop();
+    if (directory != null) {
+      Files.deleteIfExists(directory);
+    }
+  }
+
+  @Benchmark
+  public void roundTrip() {
+    intake.submitArguments("run", arguments, output);
+  }
+}
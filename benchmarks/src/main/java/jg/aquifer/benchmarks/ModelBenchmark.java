@@ -0,0 +1,75 @@
+package jg.aquifer.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import jg.aquifer.commands.Program;
+import jg.aquifer.commands.Subcommand;
+import jg.aquifer.commands.Verifier;
+import jg.aquifer.commands.options.Option;
+
+/**
+ * Measures how long it takes to build the command model of a Program.
+ *
+ * @author Jose
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ModelBenchmark {
+
+  /**
+   * The amount of Options created in total
+   */
+  @Param({"10", "1000", "100000"})
+  public int options;
+
+  /**
+   * A single Subcommand holding every Option
+   */
+  @Benchmark
+  public Subcommand buildSubcommand() {
+    final Subcommand subcommand = new Subcommand("bench");
+    for (int i = 0; i < options; i++) {
+      subcommand.addOption(createOption(i));
+    }
+    return subcommand;
+  }
+
+  /**
+   * A Program whose Options are spread across Subcommands of 10 Options each
+   */
+  @Benchmark
+  public Program buildProgram() {
+    final Program program = new Program("bench", "A benchmark program");
+
+    Subcommand subcommand = null;
+    for (int i = 0; i < options; i++) {
+      if (i % 10 == 0) {
+        subcommand = new Subcommand("sub"+(i / 10));
+        subcommand.setDescription("Subcommand number "+(i / 10));
+        program.addSubcommand(subcommand);
+      }
+      subcommand.addOption(createOption(i));
+    }
+    return program;
+  }
+
+  private static Option createOption(int i) {
+    final Option.Builder builder = Option.create("option"+i, "Option number "+i).setVerifier(Verifier.WHOLE_NUM);
+    return (i % 10 == 0 ? builder.require() : builder.optional()).build();
+  }
+}
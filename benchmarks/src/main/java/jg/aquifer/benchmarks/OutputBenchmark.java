@@ -0,0 +1,84 @@
+package jg.aquifer.benchmarks;
+
+import java.io.PrintWriter;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import jg.aquifer.Output;
+import jg.aquifer.ui.LineStore;
+import jg.aquifer.ui.MergedOutput;
+import jg.aquifer.ui.OutputLog;
+
+/**
+ * Measures how many lines per second an Intake can print through the Writers of its Output.
+ *
+ * Lines travel the same path they do in the generated UI - through a MergedOutput and into an OutputLog -
+ * with a background Thread standing in for the JavaFX pulse, draining roughly every 16ms.
+ * Once the buffers fill up, printing is throttled to the rate at which they're drained.
+ *
+ * @author Jose
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OutputBenchmark {
+
+  private MergedOutput mergedOutput;
+  private Output output;
+  private Thread pulse;
+
+  private long lineNumber;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    final OutputLog outputLog = new OutputLog(new LineStore());
+    mergedOutput = new MergedOutput(outputLog);
+    output = mergedOutput.newOutput();
+
+    pulse = new Thread(() -> {
+      while (!Thread.currentThread().isInterrupted()) {
+        mergedOutput.drain();
+        try {
+          Thread.sleep(16);
+        } catch (InterruptedException e) {
+          return;
+        }
+      }
+    }, "aquifer-bench-pulse");
+    pulse.setDaemon(true);
+    pulse.start();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws InterruptedException {
+    pulse.interrupt();
+    pulse.join();
+  }
+
+  @Benchmark
+  public void printStdOut() {
+    final PrintWriter out = output.getStdOut();
+    out.println("  --> This is "+(lineNumber++)+"th message I'm printing!!!");
+  }
+
+  @Benchmark
+  public void printInterleaved() {
+    final PrintWriter out = (lineNumber & 1) == 0 ? output.getStdOut() : output.getStdErr();
+    out.println("  --> This is "+(lineNumber++)+"th message I'm printing!!!");
+  }
+}
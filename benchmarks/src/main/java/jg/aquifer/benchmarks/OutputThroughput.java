@@ -0,0 +1,54 @@
+package jg.aquifer.benchmarks;
+
+import java.io.PrintWriter;
+import java.util.concurrent.atomic.AtomicLong;
+
+import jg.aquifer.ui.OutputBuffer;
+
+/**
+ * Measures how many lines per second an Intake can push through an OutputBuffer.
+ *
+ * A background Thread stands in for the JavaFX pulse, draining the buffer roughly every 16ms.
+ * Unlike the JMH benchmarks, this is a plain end-to-end run, started from this directory with:
+ *   java -cp target/benchmarks.jar jg.aquifer.benchmarks.OutputThroughput [lines]
+ *
+ * @author Jose
+ */
+public class OutputThroughput {
+
+  public static void main(String[] args) throws Exception {
+    final int lines = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+
+    final AtomicLong drained = new AtomicLong();
+    final OutputBuffer buffer = new OutputBuffer(s -> drained.addAndGet(s.length()));
+
+    final Thread pulse = new Thread(() -> {
+      while (!Thread.currentThread().isInterrupted()) {
+        buffer.drain();
+        try {
+          Thread.sleep(16);
+        } catch (InterruptedException e) {
+          return;
+        }
+      }
+    });
+    pulse.setDaemon(true);
+    pulse.start();
+
+    final PrintWriter out = new PrintWriter(buffer.newWriter());
+
+    final long start = System.nanoTime();
+    for (int i = 0; i < lines; i++) {
+      out.println("  --> This is "+i+"th message I'm printing!!!");
+    }
+    while (buffer.getPending() > 0) {
+      Thread.sleep(1);
+    }
+    final long elapsed = System.nanoTime() - start;
+    pulse.interrupt();
+
+    System.out.println("Lines written: "+buffer.getLinesWritten());
+    System.out.println("Chars drained: "+drained.get());
+    System.out.printf("Throughput: %.0f lines/sec%n", buffer.getLinesWritten() / (elapsed / 1e9));
+  }
+}
@@ -0,0 +1,117 @@
+package jg.aquifer.benchmarks;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import jg.aquifer.commands.VerificationResult;
+import jg.aquifer.commands.Verifier;
+
+/**
+ * Compares the sequential and parallel Verifier combinators over independent, slow checks
+ * (stand-ins for file permission checks or lookups against a local service), each blocking for 1ms.
+ *
+ * @author Jose
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParallelVerifierBenchmark {
+
+  private static final long CHECK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+  private static final long TIMEOUT_MILLIS = 1000;
+
+  /**
+   * The amount of slow checks combined
+   */
+  @Param({"2", "4"})
+  public int checks;
+
+  /**
+   * Whether the last check rejects the argument
+   */
+  @Param({"false", "true"})
+  public boolean failing;
+
+  private ExecutorService executor;
+  private Verifier [] verifiers;
+
+  private Verifier checkAll;
+  private Verifier checkAllParallel;
+  private Verifier all;
+  private Verifier allParallel;
+
+  private final VerificationResult result = new VerificationResult();
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    executor = Executors.newFixedThreadPool(checks, (runnable) -> {
+      final Thread thread = new Thread(runnable, "benchmark-verifier");
+      thread.setDaemon(true);
+      return thread;
+    });
+
+    verifiers = new Verifier[checks];
+    for (int i = 0; i < checks; i++) {
+      final boolean rejects = failing && i == checks - 1;
+      verifiers[i] = Verifier.checking((op, form, arg, result) -> {
+        LockSupport.parkNanos(CHECK_NANOS);
+        return !rejects || result.fail("Rejected");
+      });
+    }
+
+    checkAll = Verifier.checkAll(verifiers);
+    checkAllParallel = Verifier.checkAllParallel(executor, TIMEOUT_MILLIS, verifiers);
+    all = Verifier.all(verifiers);
+    allParallel = Verifier.allParallel(executor, TIMEOUT_MILLIS, verifiers);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Benchmark
+  public boolean checkAll() {
+    return check(checkAll);
+  }
+
+  @Benchmark
+  public boolean checkAllParallel() {
+    return check(checkAllParallel);
+  }
+
+  @Benchmark
+  public boolean all() {
+    return check(all);
+  }
+
+  @Benchmark
+  public boolean allParallel() {
+    return check(allParallel);
+  }
+
+  private boolean check(Verifier verifier) {
+    result.reset();
+    return verifier.check(null, null, "argument", result);
+  }
+}
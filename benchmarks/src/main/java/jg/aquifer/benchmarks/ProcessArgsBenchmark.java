@@ -0,0 +1,71 @@
+package jg.aquifer.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import jg.aquifer.commands.Subcommand;
+import jg.aquifer.commands.options.Option;
+import jg.aquifer.ui.IncompleteException;
+import jg.aquifer.ui.RawArgumentForm;
+import jg.aquifer.ui.TypedArguments;
+import jg.aquifer.ui.VerificationEngine;
+
+/**
+ * Measures how long it takes to turn a filled out RawArgumentForm into the TypedArguments handed to an Intake,
+ * as the Visualizer does on every run.
+ *
+ * Every tenth Option is required, and every Option holds a verified argument.
+ *
+ * @author Jose
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProcessArgsBenchmark {
+
+  @Param({"10", "1000", "100000"})
+  public int options;
+
+  private VerificationEngine verificationEngine;
+  private RawArgumentForm form;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    final Subcommand subcommand = new Subcommand("bench");
+    for (int i = 0; i < options; i++) {
+      subcommand.addOption(new Option("option"+i, "Option number "+i, i % 10 == 0));
+    }
+
+    verificationEngine = new VerificationEngine(1, 0);
+    form = new RawArgumentForm(subcommand, verificationEngine);
+    for (Option option : subcommand.getOptions().values()) {
+      form.setOptionArgument(option, option.getHolder().setValue("value of "+option.getOptName()).verify());
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    verificationEngine.shutdown();
+  }
+
+  @Benchmark
+  public TypedArguments processArgs() throws IncompleteException {
+    return TypedArguments.from(form);
+  }
+}
@@ -0,0 +1,118 @@
+package jg.aquifer.benchmarks;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import jg.aquifer.commands.Program;
+import jg.aquifer.commands.Subcommand;
+import jg.aquifer.commands.Verifier;
+import jg.aquifer.commands.options.Option;
+import jg.aquifer.commands.schema.ProgramLoader;
+
+/**
+ * Compares building a Program in code with loading the same Program from a declarative schema
+ * and from its compiled form (see ProgramLoader).
+ *
+ * @author Jose
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SchemaBenchmark {
+
+  /**
+   * The amount of Options declared in total, spread across Subcommands of 10 Options each
+   */
+  @Param({"1000", "10000"})
+  public int options;
+
+  private final ProgramLoader loader = new ProgramLoader();
+
+  private String schema;
+  private Path source;
+  private Path compiled;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    final StringBuilder builder = new StringBuilder("{\n  \"name\": \"bench\",\n  \"description\": \"A benchmark program\",\n  \"subcommands\": [");
+    for (int i = 0; i < options; i++) {
+      if (i % 10 == 0) {
+        builder.append(i == 0 ? "" : "]},")
+               .append("\n    {\"name\": \"sub").append(i / 10)
+               .append("\", \"description\": \"Subcommand number ").append(i / 10)
+               .append("\", \"options\": [");
+      }
+      else {
+        builder.append(',');
+      }
+      builder.append("\n      {\"name\": \"option").append(i)
+             .append("\", \"description\": \"Option number ").append(i)
+             .append("\", \"verifier\": \"WHOLE_NUM\", \"required\": ").append(i % 10 == 0)
+             .append('}');
+    }
+    schema = builder.append("]}\n  ]\n}\n").toString();
+
+    source = Files.createTempFile("aquifer-schema", ".json");
+    compiled = Files.createTempFile("aquifer-schema", ".aqs");
+    Files.write(source, schema.getBytes(StandardCharsets.UTF_8));
+    ProgramLoader.compile(source, compiled);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    Files.deleteIfExists(source);
+    Files.deleteIfExists(compiled);
+  }
+
+  @Benchmark
+  public Program buildInCode() {
+    final Program program = new Program("bench", "A benchmark program");
+
+    Subcommand subcommand = null;
+    for (int i = 0; i < options; i++) {
+      if (i % 10 == 0) {
+        subcommand = new Subcommand("sub"+(i / 10));
+        subcommand.setDescription("Subcommand number "+(i / 10));
+        program.addSubcommand(subcommand);
+      }
+      subcommand.addOption(new Option("option"+i, "Option number "+i, i % 10 == 0, Verifier.WHOLE_NUM));
+    }
+    return program;
+  }
+
+  @Benchmark
+  public Program loadDeclarative() throws IOException {
+    return loader.load(new StringReader(schema));
+  }
+
+  @Benchmark
+  public Program loadDeclarativeFile() throws IOException {
+    return loader.load(source);
+  }
+
+  @Benchmark
+  public Program loadCompiled() throws IOException {
+    return loader.loadCompiled(compiled);
+  }
+}
@@ -0,0 +1,141 @@
+package jg.aquifer.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import jg.aquifer.commands.VerificationResult;
+import jg.aquifer.commands.Verifier;
+import jg.aquifer.commands.options.VerificationException;
+
+/**
+ * Measures the bundled Verifiers and the Verifier combinators, for both accepted and rejected arguments.
+ *
+ * Each benchmark returns whether the argument was accepted. Arguments are verified either through verify(),
+ * where rejections include the cost of throwing a VerificationException, or through check(), which reports
+ * to a reused VerificationResult instead.
+ *
+ * @author Jose
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VerifierBenchmark {
+
+  /**
+   * Whether the benchmarked arguments are accepted
+   */
+  @Param({"true", "false"})
+  public boolean valid;
+
+  /**
+   * Whether arguments are verified through verify() ("exception") or check() ("result")
+   */
+  @Param({"exception", "result"})
+  public String api;
+
+  private final Verifier allVerifier = Verifier.all(Verifier.WHOLE_NUM, Verifier.NON_NEG_WHOLE, Verifier.DEC_NUM);
+  private final Verifier checkAllVerifier = Verifier.checkAll(Verifier.WHOLE_NUM, Verifier.NON_NEG_WHOLE, Verifier.DEC_NUM);
+  private final Verifier anyVerifier = Verifier.any(Verifier.WHOLE_NUM, Verifier.NON_NEG_WHOLE, Verifier.DEC_NUM);
+
+  private final VerificationResult result = new VerificationResult();
+
+  private Path file;
+
+  private String wholeArg;
+  private String decimalArg;
+  private String boolArg;
+  private String fileArg;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    file = Files.createTempFile("aquifer-bench", ".txt");
+
+    wholeArg = valid ? "1234567" : "12345x7";
+    decimalArg = valid ? "1234.567" : "1234.5x7";
+    boolArg = valid ? "false" : "fals";
+    fileArg = valid ? file.toString() : file.toString()+".missing";
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    Files.deleteIfExists(file);
+  }
+
+  @Benchmark
+  public boolean wholeNumber() {
+    return verify(Verifier.WHOLE_NUM, wholeArg);
+  }
+
+  @Benchmark
+  public boolean nonNegativeWholeNumber() {
+    return verify(Verifier.NON_NEG_WHOLE, wholeArg);
+  }
+
+  @Benchmark
+  public boolean decimalNumber() {
+    return verify(Verifier.DEC_NUM, decimalArg);
+  }
+
+  @Benchmark
+  public boolean bool() {
+    return verify(Verifier.BOOL, boolArg);
+  }
+
+  @Benchmark
+  public boolean fileExists() {
+    return verify(Verifier.FILE_EXISTS, fileArg);
+  }
+
+  @Benchmark
+  public boolean fileRead() {
+    return verify(Verifier.FILE_READ, fileArg);
+  }
+
+  @Benchmark
+  public boolean all() {
+    return verify(allVerifier, wholeArg);
+  }
+
+  @Benchmark
+  public boolean checkAll() {
+    return verify(checkAllVerifier, wholeArg);
+  }
+
+  @Benchmark
+  public boolean any() {
+    return verify(anyVerifier, wholeArg);
+  }
+
+  private boolean verify(Verifier verifier, String arg) {
+    if (api.equals("result")) {
+      result.reset();
+      return verifier.check(null, null, arg, result);
+    }
+
+    try {
+      verifier.verify(null, null, arg);
+      return true;
+    } catch (VerificationException e) {
+      return false;
+    }
+  }
+}
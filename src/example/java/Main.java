@@ -7,6 +7,7 @@ import javafx.scene.Scene;
 import javafx.scene.image.Image;
 import javafx.stage.Stage;
 import jg.aquifer.Intake;
+import jg.aquifer.IntakeExecutor;
 import jg.aquifer.Output;
 import jg.aquifer.commands.Program;
 import jg.aquifer.commands.Subcommand;
@@ -54,25 +55,27 @@ public class Main extends Application {
 
       @Override
       public void submitArguments(String subcommand, Map<String, String> arguments, Output printer) {
-        new Thread(() -> {
-          printer.out.println("  --> Argument: "+subcommand+" | "+arguments);
+        printer.out.println("  --> Argument: "+subcommand+" | "+arguments);
 
-          for(int i = 0; i < 100 ; i++) {
-            try {
-              printer.out.println("  --> This is "+i+"th message I'm printing!!!");
-              Thread.sleep(150);
-            } catch (Exception e) {
-              printer.out.println("Exception!! "+e.getMessage());
-            }
+        for(int i = 0; i < 100 && !printer.isCancelled(); i++) {
+          try {
+            printer.out.println("  --> This is "+i+"th message I'm printing!!!");
+            printer.reportProgress(i / 100.0);
+            Thread.sleep(150);
+          } catch (InterruptedException e) {
+            printer.err.println("Interrupted!! "+e.getMessage());
+            return;
           }
-          
-          Exception exception = new Exception("dummy error!");
-          exception.printStackTrace(printer.err);
-          
-        }).start();
+        }
+        
+        Exception exception = new Exception("dummy error!");
+        exception.printStackTrace(printer.err);
       }
     });
     
+    //Runs the Intake off of the JavaFX Application Thread, allowing the run to be cancelled
+    generator.setIntakeExecutor(IntakeExecutor.create());
+    
     generator.initialize();
     generator.show();
     
@@ -0,0 +1,140 @@
+package jg.aquifer;
+
+/**
+ * The diagnostics facade of Aquifer.
+ *
+ * Aquifer reports what it's doing internally (ex: arguments being processed, cells being created)
+ * as diagnostic messages. By default, diagnostics are off and nothing is reported.
+ * To receive them, set a Sink along with the least severe Level to report (see setSink()).
+ *
+ * Messages are given as patterns, whose "{}" placeholders are replaced by the given arguments.
+ * Patterns are only formatted once a message is known to be reported, so disabled diagnostics
+ * cost a single volatile read and allocate nothing. Callers whose arguments are costly to compute
+ * should check isEnabled() first.
+ *
+ * @author Jose
+ */
+public final class Diagnostics {
+
+  /**
+   * The severity of a diagnostic message
+   * @author Jose
+   */
+  public static enum Level {
+    TRACE,
+    DEBUG,
+    INFO,
+    WARN,
+    ERROR,
+
+    /**
+     * Disables diagnostics when given to setSink()
+     */
+    OFF
+  }
+
+  /**
+   * Receives diagnostic messages, on whichever Thread reports them
+   * @author Jose
+   */
+  @FunctionalInterface
+  public static interface Sink {
+
+    /**
+     * Receives a diagnostic message
+     * @param level - the Level of the message
+     * @param source - the component reporting the message (ex: "Visualizer")
+     * @param message - the formatted message
+     */
+    public void report(Level level, String source, String message);
+  }
+
+  /**
+   * A Sink that prints messages to the standard error stream
+   */
+  public static final Sink STANDARD_ERROR = (level, source, message) -> {
+    System.err.println("[aquifer "+level+"] "+source+": "+message);
+  };
+
+  private static volatile Sink sink;
+  private static volatile int threshold = Level.OFF.ordinal();
+
+  private Diagnostics() {}
+
+  /**
+   * Sets the Sink to report diagnostic messages to
+   * @param sink - the Sink to report to, or null to disable diagnostics
+   * @param level - the least severe Level to report. Level.OFF disables diagnostics.
+   */
+  public static void setSink(Sink sink, Level level) {
+    Diagnostics.sink = sink;
+    Diagnostics.threshold = sink == null ? Level.OFF.ordinal() : level.ordinal();
+  }
+
+  /**
+   * @return the Sink diagnostic messages are reported to, or null if diagnostics are disabled
+   */
+  public static Sink getSink() {
+    return threshold == Level.OFF.ordinal() ? null : sink;
+  }
+
+  /**
+   * @param level - the Level to check
+   * @return whether messages of the given Level are reported
+   */
+  public static boolean isEnabled(Level level) {
+    return level.ordinal() >= threshold;
+  }
+
+  public static void log(Level level, String source, String message) {
+    if (isEnabled(level)) {
+      report(level, source, message);
+    }
+  }
+
+  public static void log(Level level, String source, String pattern, Object arg) {
+    if (isEnabled(level)) {
+      report(level, source, format(pattern, arg));
+    }
+  }
+
+  public static void log(Level level, String source, String pattern, Object arg1, Object arg2) {
+    if (isEnabled(level)) {
+      report(level, source, format(pattern, arg1, arg2));
+    }
+  }
+
+  public static void log(Level level, String source, String pattern, Object arg1, Object arg2, Object arg3) {
+    if (isEnabled(level)) {
+      report(level, source, format(pattern, arg1, arg2, arg3));
+    }
+  }
+
+  private static void report(Level level, String source, String message) {
+    final Sink current = sink;
+    if (current != null) {
+      current.report(level, source, message);
+    }
+  }
+
+  /**
+   * Replaces the "{}" placeholders of a pattern with the given arguments, in order.
+   * Extra placeholders are left as is.
+   * @param pattern - the pattern to format
+   * @param args - the arguments to place
+   * @return the formatted pattern
+   */
+  static String format(String pattern, Object ... args) {
+    final StringBuilder builder = new StringBuilder(pattern.length() + 16 * args.length);
+
+    int arg = 0;
+    int start = 0;
+    int placeholder;
+    while (arg < args.length && (placeholder = pattern.indexOf("{}", start)) >= 0) {
+      builder.append(pattern, start, placeholder).append(args[arg++]);
+      start = placeholder + 2;
+    }
+
+    return builder.append(pattern, start, pattern.length()).toString();
+  }
+}
@@ -4,6 +4,7 @@ import java.io.OutputStream;
 import java.util.Map;
 
 import jg.aquifer.commands.Subcommand;
+import jg.aquifer.ui.TypedArguments;
 
 /**
  * Represents the "drop-off" location for arguments submitted on the generated GUI, and the 
@@ -13,8 +14,15 @@ import jg.aquifer.commands.Subcommand;
  * of the OutputStream - returned by getOutputStream() - on a separate pane. Developers are more than 
  * welcome to create a separate OutputStream for the GUI to listen on.
  * 
- * Note: It's highly suggested that the backing application be called in a separate Thread as to not block
- * the generated UI.
+ * Note: By default, submitArguments() is called on the JavaFX Application Thread, so it's highly suggested 
+ * that the backing application be called in a separate Thread as to not block the generated UI. 
+ * Alternatively, an IntakeExecutor can be given to the Visualizer, which then calls submitArguments() 
+ * on a managed Thread of its own.
+ * 
+ * The generated GUI submits through submitTypedArguments(), which passes the arguments on to
+ * submitArguments() as strings unless overridden. Applications that would otherwise parse 
+ * their arguments again (ex: numbers, booleans, file paths) can override it - or create their 
+ * Intake through typed() - to receive the values the Verifiers already parsed.
  * 
  * @author Jose
  */
@@ -33,4 +41,54 @@ public interface Intake {
    */
   public abstract void submitArguments(String subcommand, Map<String, String> arguments, Output output);
   
+  /**
+   * Submits the arguments provided on the UI, along with what their Verifiers parsed them into.
+   * 
+   * By default, this passes the arguments on to submitArguments() as strings.
+   * 
+   * @param subcommand - the subcommand being invoked
+   * @param arguments - the arguments suppled on the UI
+   * @param output - an Output object detailing the various streams of output to the generated UI
+   */
+  public default void submitTypedArguments(String subcommand, TypedArguments arguments, Output output) {
+    submitArguments(subcommand, arguments.asMap(), output);
+  }
+  
+  /**
+   * Creates an Intake that receives typed arguments only.
+   * 
+   * Arguments given to the created Intake's submitArguments() are wrapped through TypedArguments.of(),
+   * and parsed on demand.
+   * @param intake - receives the typed arguments
+   * @return the created Intake
+   */
+  public static Intake typed(Typed intake) {
+    return new Intake() {
+      @Override
+      public void submitArguments(String subcommand, Map<String, String> arguments, Output output) {
+        intake.submitTypedArguments(subcommand, TypedArguments.of(subcommand, arguments), output);
+      }
+      
+      @Override
+      public void submitTypedArguments(String subcommand, TypedArguments arguments, Output output) {
+        intake.submitTypedArguments(subcommand, arguments, output);
+      }
+    };
+  }
+  
+  /**
+   * The "drop-off" location of an Intake that only receives typed arguments (see typed())
+   * @author Jose
+   */
+  @FunctionalInterface
+  public static interface Typed {
+    
+    /**
+     * Submits the arguments provided on the UI, along with what their Verifiers parsed them into.
+     * @param subcommand - the subcommand being invoked
+     * @param arguments - the arguments suppled on the UI
+     * @param output - an Output object detailing the various streams of output to the generated UI
+     */
+    public void submitTypedArguments(String subcommand, TypedArguments arguments, Output output);
+  }
 }
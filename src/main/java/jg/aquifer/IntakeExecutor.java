@@ -0,0 +1,122 @@
+package jg.aquifer;
+
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import jg.aquifer.ui.TypedArguments;
+
+/**
+ * Runs submissions to an Intake off of the JavaFX Application Thread, on a managed ExecutorService.
+ * 
+ * Each submission is given an IntakeHandle, through which its progress and completion can
+ * be observed, and through which it can be cancelled.
+ * 
+ * @author Jose
+ */
+public class IntakeExecutor {
+  
+  private final ExecutorService service;
+  
+  /**
+   * Constructs an IntakeExecutor
+   * @param service - the ExecutorService to run submissions on
+   */
+  public IntakeExecutor(ExecutorService service) {
+    this.service = service;
+  }
+  
+  /**
+   * Creates an IntakeExecutor that runs each submission on its own virtual Thread 
+   * where the running JVM supports them, or else on a fixed pool of daemon Threads 
+   * (one per available processor).
+   * @return the created IntakeExecutor
+   */
+  public static IntakeExecutor create() {
+    try {
+      final ExecutorService virtual = (ExecutorService) Executors.class
+                                                                 .getMethod("newVirtualThreadPerTaskExecutor")
+                                                                 .invoke(null);
+      return new IntakeExecutor(virtual);
+    } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+      //Virtual threads aren't available (or enabled). Fall back to platform threads
+    }
+    
+    final AtomicInteger threadCount = new AtomicInteger();
+    return new IntakeExecutor(Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), (runnable) -> {
+      final Thread thread = new Thread(runnable, "aquifer-intake-"+threadCount.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    }));
+  }
+  
+  /**
+   * Submits arguments to an Intake, to be run asynchronously.
+   * @param intake - the Intake to submit to
+   * @param subcommand - the subcommand being invoked
+   * @param arguments - the arguments supplied on the UI
+   * @param output - the Output whose streams the Intake should print to
+   * @return the IntakeHandle of this submission
+   */
+  public IntakeHandle submit(Intake intake, String subcommand, Map<String, String> arguments, Output output) {
+    return submit(subcommand, output, (runOutput) -> intake.submitArguments(subcommand, arguments, runOutput));
+  }
+  
+  /**
+   * Submits arguments, along with what their Verifiers parsed them into, to an Intake, to be run asynchronously.
+   * @param intake - the Intake to submit to
+   * @param subcommand - the subcommand being invoked
+   * @param arguments - the arguments supplied on the UI
+   * @param output - the Output whose streams the Intake should print to
+   * @return the IntakeHandle of this submission
+   */
+  public IntakeHandle submit(Intake intake, String subcommand, TypedArguments arguments, Output output) {
+    return submit(subcommand, output, (runOutput) -> intake.submitTypedArguments(subcommand, arguments, runOutput));
+  }
+  
+  private IntakeHandle submit(String subcommand, Output output, Consumer<Output> submission) {
+    final IntakeHandle handle = new IntakeHandle(subcommand);
+    final Output runOutput = new Output(output.out, output.err, handle);
+    
+    service.execute(() -> {
+      if (!handle.start()) {
+        return;
+      }
+      
+      Throwable failure = null;
+      try {
+        submission.accept(runOutput);
+      } catch (Throwable e) {
+        failure = e;
+      } finally {
+        runOutput.out.flush();
+        runOutput.err.flush();
+      }
+      
+      //Only complete once the Intake has returned, even if it was cancelled long before
+      if (!handle.finish()) {
+        if (failure == null) {
+          handle.complete();
+        }
+        else {
+          handle.fail(failure);
+        }
+      }
+    });
+    
+    return handle;
+  }
+  
+  /**
+   * Stops accepting new submissions. Runs that are in progress are left to finish.
+   */
+  public void shutdown() {
+    service.shutdown();
+  }
+  
+  public ExecutorService getService() {
+    return service;
+  }
+}
@@ -0,0 +1,137 @@
+package jg.aquifer;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * A handle to a single submission of arguments to an Intake, 
+ * as submitted through an IntakeExecutor.
+ * 
+ * The handle reports the progress of the run, completes when the Intake returns 
+ * and allows the run to be cancelled.
+ * 
+ * A cancelled run only completes once the Intake's Thread has actually returned, 
+ * so nothing it prints after being cancelled can end up amid the output of a later run.
+ * 
+ * @author Jose
+ */
+public class IntakeHandle {
+  
+  private final String subcommand;
+  private final CompletableFuture<Void> completion;
+  
+  private volatile double progress;
+  private volatile boolean cancelRequested;
+  
+  /**
+   * The Thread currently running the Intake, or null if it hasn't started or has returned.
+   * Guarded by this handle's lock, so that cancel() never interrupts a Thread that has moved on.
+   */
+  private Thread runner;
+  
+  IntakeHandle(String subcommand) {
+    this.subcommand = subcommand;
+    this.completion = new CompletableFuture<>();
+    this.progress = -1;
+  }
+  
+  /**
+   * Marks the calling Thread as the one running the Intake
+   * @return false if this run was cancelled before it started, in which case it has been completed
+   */
+  synchronized boolean start() {
+    if (cancelRequested) {
+      completion.cancel(false);
+      return false;
+    }
+    runner = Thread.currentThread();
+    return true;
+  }
+  
+  /**
+   * Releases the calling Thread from this run, and completes the run as cancelled 
+   * if cancellation was requested while it ran.
+   * @return true if the run was completed as cancelled
+   */
+  synchronized boolean finish() {
+    runner = null;
+    //Don't let an interrupt meant for this run leak into the next task of the Thread
+    Thread.interrupted();
+    
+    if (cancelRequested) {
+      completion.cancel(false);
+      return true;
+    }
+    return false;
+  }
+  
+  void setProgress(double progress) {
+    this.progress = progress > 1 ? 1 : progress;
+  }
+  
+  void complete() {
+    progress = 1;
+    completion.complete(null);
+  }
+  
+  void fail(Throwable cause) {
+    completion.completeExceptionally(cause);
+  }
+  
+  /**
+   * Cancels this run, interrupting the Thread running the Intake.
+   * 
+   * Intakes that don't respond to interruption should check Output.isCancelled() periodically.
+   * The run completes - with a CancellationException - once the Intake returns.
+   * @return true if this call cancelled the run, 
+   *         false if the run had already completed or was already cancelled
+   */
+  public synchronized boolean cancel() {
+    if (cancelRequested || completion.isDone()) {
+      return false;
+    }
+    
+    cancelRequested = true;
+    if (runner != null) {
+      runner.interrupt();
+    }
+    return true;
+  }
+  
+  /**
+   * @return the last reported progress of this run, from 0 to 1 - or a negative value if unknown.
+   */
+  public double getProgress() {
+    return progress;
+  }
+  
+  /**
+   * @return whether this run has been cancelled. The Intake may still be running, see isDone()
+   */
+  public boolean isCancelled() {
+    return cancelRequested;
+  }
+  
+  /**
+   * @return whether this run has completed - normally, exceptionally or by cancellation.
+   *         A cancelled run is only done once its Intake has returned.
+   */
+  public boolean isDone() {
+    return completion.isDone();
+  }
+  
+  /**
+   * Returns a CompletionStage that completes when this run completes.
+   * 
+   * If the Intake threw an exception, the stage completes exceptionally with it. 
+   * If this run was cancelled, the stage completes exceptionally with a CancellationException.
+   * @return the CompletionStage of this run
+   */
+  public CompletionStage<Void> getCompletion() {
+    return completion;
+  }
+  
+  public String getSubcommand() {
+    return subcommand;
+  }
+}
@@ -1,11 +1,14 @@
 package jg.aquifer;
 
 import java.io.PrintWriter;
-import java.io.Writer;
 
 /**
  * Holds IO streams to print strings to the generated UI
  * 
+ * When arguments are submitted through an IntakeExecutor, the Output is also tied to 
+ * the IntakeHandle of the run, allowing the backing application to report its progress
+ * and to check whether the run has been cancelled.
+ * 
  * @author Jose
  */
 public class Output {
@@ -13,9 +16,22 @@ public class Output {
   public final PrintWriter out;
   public final PrintWriter err;
   
+  private final IntakeHandle handle;
+  
   public Output(PrintWriter standardOut, PrintWriter errorOut) {
+    this(standardOut, errorOut, null);
+  }
+  
+  /**
+   * Constructs an Output tied to a run
+   * @param standardOut - the standard output stream
+   * @param errorOut - the standard error stream
+   * @param handle - the IntakeHandle of the run, or null if there's none
+   */
+  public Output(PrintWriter standardOut, PrintWriter errorOut, IntakeHandle handle) {
     this.out = standardOut;
     this.err = errorOut;
+    this.handle = handle;
   }
 
   public PrintWriter getStdOut() {
@@ -25,4 +41,31 @@ public class Output {
   public PrintWriter getStdErr() {
     return err;
   }
+  
+  /**
+   * Reports the progress of the current run, to be displayed on the generated UI.
+   * 
+   * Does nothing if this Output isn't tied to a run.
+   * @param progress - the progress of the run, from 0 to 1 - or a negative value if unknown
+   */
+  public void reportProgress(double progress) {
+    if (handle != null) {
+      handle.setProgress(progress);
+    }
+  }
+  
+  /**
+   * @return whether the current run has been cancelled. The backing application should 
+   *         stop at its earliest convenience once this returns true.
+   */
+  public boolean isCancelled() {
+    return handle != null && handle.isCancelled();
+  }
+  
+  /**
+   * @return the IntakeHandle of the current run, or null if this Output isn't tied to one
+   */
+  public IntakeHandle getHandle() {
+    return handle;
+  }
 }
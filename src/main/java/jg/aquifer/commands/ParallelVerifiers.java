@@ -0,0 +1,183 @@
+package jg.aquifer.commands;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import jg.aquifer.commands.options.Option;
+import jg.aquifer.ui.RawArgumentForm;
+
+/**
+ * Runs the Verifiers of Verifier.checkAllParallel() and Verifier.allParallel() concurrently.
+ *
+ * The first Verifier is run on the calling Thread while the others run on the given ExecutorService,
+ * each checking into a VerificationResult of its own. Verifiers still running once the deadline
+ * passes - or once the calling Thread is interrupted - are cancelled, and the argument fails transiently
+ * (see VerificationResult.failTransiently()), so that the failure isn't cached.
+ *
+ * @author Jose
+ */
+final class ParallelVerifiers {
+
+  /**
+   * Failure message of arguments whose Verifiers didn't finish before the deadline
+   */
+  static final String TIMED_OUT = "Verification timed out";
+
+  private ParallelVerifiers() {}
+
+  /**
+   * Runs every Verifier, collecting the messages of all failures in the order of the given Verifiers
+   */
+  static boolean checkAll(ExecutorService executor,
+                          long timeoutMillis,
+                          Verifier [] verifiers,
+                          Option option,
+                          RawArgumentForm form,
+                          String arg,
+                          VerificationResult result) {
+    if (verifiers.length == 0) {
+      return true;
+    }
+
+    final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+    final VerificationResult [] results = new VerificationResult[verifiers.length];
+    final List<Future<?>> futures = new ArrayList<>(verifiers.length - 1);
+    for (int i = 1; i < verifiers.length; i++) {
+      results[i] = new VerificationResult();
+      futures.add(executor.submit(task(verifiers[i], option, form, arg, results[i])));
+    }
+
+    results[0] = new VerificationResult();
+    task(verifiers[0], option, form, arg, results[0]).run();
+
+    for (int i = 1; i < verifiers.length; i++) {
+      final Future<?> future = futures.get(i - 1);
+      try {
+        future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+      } catch (TimeoutException e) {
+        future.cancel(true);
+        //The cancelled Verifier may still be writing to its own result
+        results[i] = timedOut();
+      } catch (InterruptedException e) {
+        cancel(futures);
+        Thread.currentThread().interrupt();
+        return result.failTransiently("Verification was interrupted");
+      } catch (ExecutionException e) {
+        //Verifier failures are caught by the task itself
+        results[i] = new VerificationResult();
+        results[i].fail("Verification failed: "+e.getCause());
+      }
+    }
+
+    boolean passed = true;
+    for (VerificationResult current : results) {
+      passed &= merge(current, result);
+    }
+    return passed;
+  }
+
+  /**
+   * Runs every Verifier, failing at - and cancelling the remaining Verifiers on - the first failure to complete
+   */
+  static boolean all(ExecutorService executor,
+                     long timeoutMillis,
+                     Verifier [] verifiers,
+                     Option option,
+                     RawArgumentForm form,
+                     String arg,
+                     VerificationResult result) {
+    if (verifiers.length == 0) {
+      return true;
+    }
+
+    final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+    final ExecutorCompletionService<Integer> completion = new ExecutorCompletionService<>(executor);
+    final VerificationResult [] results = new VerificationResult[verifiers.length];
+    final List<Future<?>> futures = new ArrayList<>(verifiers.length - 1);
+    for (int i = 1; i < verifiers.length; i++) {
+      results[i] = new VerificationResult();
+      futures.add(completion.submit(task(verifiers[i], option, form, arg, results[i]), i));
+    }
+
+    results[0] = new VerificationResult();
+    task(verifiers[0], option, form, arg, results[0]).run();
+    if (!results[0].isPassed()) {
+      cancel(futures);
+      return merge(results[0], result);
+    }
+
+    for (int remaining = futures.size(); remaining > 0; remaining--) {
+      final Future<Integer> done;
+      try {
+        done = completion.poll(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+      } catch (InterruptedException e) {
+        cancel(futures);
+        Thread.currentThread().interrupt();
+        return result.failTransiently("Verification was interrupted");
+      }
+
+      if (done == null) {
+        cancel(futures);
+        return merge(timedOut(), result);
+      }
+
+      final VerificationResult current;
+      try {
+        current = results[done.get()];
+      } catch (InterruptedException | ExecutionException e) {
+        cancel(futures);
+        return result.fail("Verification failed: "+e);
+      }
+
+      if (!current.isPassed()) {
+        cancel(futures);
+        return merge(current, result);
+      }
+    }
+
+    for (VerificationResult current : results) {
+      merge(current, result);
+    }
+    return true;
+  }
+
+  private static Runnable task(Verifier verifier, Option option, RawArgumentForm form, String arg, VerificationResult result) {
+    return () -> {
+      try {
+        verifier.check(option, form, arg, result);
+      } catch (RuntimeException e) {
+        result.fail("Verification failed: "+e);
+      }
+    };
+  }
+
+  /**
+   * Records a Verifier's result into the combined result
+   * @return whether the Verifier passed
+   */
+  private static boolean merge(VerificationResult from, VerificationResult into) {
+    if (from.isPassed()) {
+      from.copyTo(into);
+      return true;
+    }
+    return from.isTransient() ? into.failTransiently(from.getMessage()) : into.fail(from.getMessage());
+  }
+
+  private static VerificationResult timedOut() {
+    final VerificationResult timedOut = new VerificationResult();
+    timedOut.failTransiently(TIMED_OUT);
+    return timedOut;
+  }
+
+  private static void cancel(List<Future<?>> futures) {
+    for (Future<?> future : futures) {
+      future.cancel(true);
+    }
+  }
+}
@@ -0,0 +1,30 @@
+package jg.aquifer.commands;
+
+/**
+ * Receives the parsed form of an argument from a Verifier that parses the arguments it verifies
+ * (ex: a whole number Verifier handing over the number as a long).
+ *
+ * Primitives are received through their own methods, so that parsed values don't need to be boxed.
+ * Every method does nothing by default.
+ *
+ * @author Jose
+ */
+public interface ParseTarget {
+
+  /**
+   * A ParseTarget that discards parsed values
+   */
+  public static final ParseTarget NONE = new ParseTarget() {};
+
+  public default void setLong(long value) {}
+
+  public default void setDouble(double value) {}
+
+  public default void setBoolean(boolean value) {}
+
+  /**
+   * Receives a parsed value that isn't a primitive (ex: a Path, or an enum constant)
+   * @param value - the parsed value
+   */
+  public default void setObject(Object value) {}
+}
@@ -0,0 +1,100 @@
+package jg.aquifer.commands;
+
+/**
+ * Holds the parsed form of an argument, with primitives kept unboxed.
+ *
+ * A ParsedValue holds at most one value: setting a value replaces the previous one.
+ *
+ * @author Jose
+ */
+public class ParsedValue implements ParseTarget {
+
+  /**
+   * Kind of a ParsedValue that holds nothing
+   */
+  public static final int NONE = 0;
+  public static final int LONG = 1;
+  public static final int DOUBLE = 2;
+  public static final int BOOLEAN = 3;
+  public static final int OBJECT = 4;
+
+  private int kind;
+  private long bits;
+  private Object object;
+
+  @Override
+  public void setLong(long value) {
+    set(LONG, value, null);
+  }
+
+  @Override
+  public void setDouble(double value) {
+    set(DOUBLE, Double.doubleToRawLongBits(value), null);
+  }
+
+  @Override
+  public void setBoolean(boolean value) {
+    set(BOOLEAN, value ? 1 : 0, null);
+  }
+
+  @Override
+  public void setObject(Object value) {
+    set(value == null ? NONE : OBJECT, 0, value);
+  }
+
+  public void clear() {
+    set(NONE, 0, null);
+  }
+
+  private void set(int kind, long bits, Object object) {
+    this.kind = kind;
+    this.bits = bits;
+    this.object = object;
+  }
+
+  /**
+   * Hands the value held by this ParsedValue over to a ParseTarget
+   * @param target - the ParseTarget to hand the value to
+   */
+  public void copyTo(ParseTarget target) {
+    switch (kind) {
+    case LONG:
+      target.setLong(bits);
+      break;
+    case DOUBLE:
+      target.setDouble(Double.longBitsToDouble(bits));
+      break;
+    case BOOLEAN:
+      target.setBoolean(bits != 0);
+      break;
+    case OBJECT:
+      target.setObject(object);
+      break;
+    default:
+      break;
+    }
+  }
+
+  /**
+   * @return the kind of value held - NONE, LONG, DOUBLE, BOOLEAN or OBJECT
+   */
+  public int getKind() {
+    return kind;
+  }
+
+  public long getLong() {
+    return bits;
+  }
+
+  public double getDouble() {
+    return Double.longBitsToDouble(bits);
+  }
+
+  public boolean getBoolean() {
+    return bits != 0;
+  }
+
+  public Object getObject() {
+    return object;
+  }
+}
@@ -0,0 +1,232 @@
+package jg.aquifer.commands;
+
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Hand-written parsers for the bundled Verifiers, which report malformed arguments by returning false
+ * (or null) rather than throwing. Parsing a number or a boolean never allocates.
+ *
+ * Each parser accepts exactly what its java.lang counterpart accepts (ex: parseLong() and Long.parseLong()).
+ *
+ * @author Jose
+ */
+final class Parsers {
+
+  private Parsers() {}
+
+  /**
+   * Parses a whole number, as Long.parseLong() would
+   * @param arg - the argument to parse
+   * @param target - the ParseTarget to hand the parsed number to
+   * @return true if the argument is a whole number that fits a long
+   */
+  static boolean parseLong(String arg, ParseTarget target) {
+    if (arg == null || arg.isEmpty()) {
+      return false;
+    }
+
+    final int length = arg.length();
+    int i = 0;
+    boolean negative = false;
+    long limit = -Long.MAX_VALUE;
+
+    final char first = arg.charAt(0);
+    if (first < '0') {
+      if (first == '-') {
+        negative = true;
+        limit = Long.MIN_VALUE;
+      }
+      else if (first != '+') {
+        return false;
+      }
+
+      if (length == 1) {
+        return false;
+      }
+      i++;
+    }
+
+    //Accumulated negatively, as the negative range is the larger one
+    final long multiplyLimit = limit / 10;
+    long result = 0;
+    while (i < length) {
+      final int digit = Character.digit(arg.charAt(i++), 10);
+      if (digit < 0 || result < multiplyLimit) {
+        return false;
+      }
+      result *= 10;
+      if (result < limit + digit) {
+        return false;
+      }
+      result -= digit;
+    }
+
+    target.setLong(negative ? result : -result);
+    return true;
+  }
+
+  /**
+   * Parses a decimal number, as Double.parseDouble() would.
+   * The argument is only handed to Double.parseDouble() once it's known to be well-formed.
+   * @param arg - the argument to parse
+   * @param target - the ParseTarget to hand the parsed number to
+   * @return true if the argument is a decimal number
+   */
+  static boolean parseDouble(String arg, ParseTarget target) {
+    if (!isDouble(arg)) {
+      return false;
+    }
+
+    target.setDouble(Double.parseDouble(arg));
+    return true;
+  }
+
+  /**
+   * Parses a boolean - strictly 'true' or 'false', ignoring case and surrounding whitespace
+   * @param arg - the argument to parse
+   * @param target - the ParseTarget to hand the parsed boolean to
+   * @return true if the argument is a boolean
+   */
+  static boolean parseBoolean(String arg, ParseTarget target) {
+    if (arg == null) {
+      return false;
+    }
+
+    final int start = trimStart(arg);
+    final int end = trimEnd(arg, start);
+    if (end - start == 4 && arg.regionMatches(true, start, "true", 0, 4)) {
+      target.setBoolean(true);
+      return true;
+    }
+    else if (end - start == 5 && arg.regionMatches(true, start, "false", 0, 5)) {
+      target.setBoolean(false);
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Parses a file path, failing the given VerificationResult if the argument isn't a valid path
+   * @param arg - the argument to parse
+   * @param result - the VerificationResult to fail
+   * @return the argument as a Path, or null if it isn't a valid path
+   */
+  static Path parsePath(String arg, VerificationResult result) {
+    try {
+      return Paths.get(arg);
+    } catch (InvalidPathException e) {
+      result.fail("Invalid file path: "+e.getReason());
+      return null;
+    }
+  }
+
+  /**
+   * Checks whether an argument is accepted by Double.parseDouble() - a decimal or hexadecimal
+   * floating-point literal, "NaN" or "Infinity", optionally signed and surrounded by whitespace
+   * @param arg - the argument to check
+   * @return true if Double.parseDouble() accepts the argument
+   */
+  static boolean isDouble(String arg) {
+    if (arg == null) {
+      return false;
+    }
+
+    int i = trimStart(arg);
+    final int end = trimEnd(arg, i);
+    if (i == end) {
+      return false;
+    }
+
+    if (arg.charAt(i) == '+' || arg.charAt(i) == '-') {
+      i++;
+    }
+
+    if (end - i == 3 && arg.startsWith("NaN", i)) {
+      return true;
+    }
+    if (end - i == 8 && arg.startsWith("Infinity", i)) {
+      return true;
+    }
+
+    final boolean hex = end - i > 2 && arg.charAt(i) == '0' && (arg.charAt(i + 1) == 'x' || arg.charAt(i + 1) == 'X');
+    if (hex) {
+      i += 2;
+    }
+
+    final int radix = hex ? 16 : 10;
+    int digits = 0;
+    while (i < end && isDigit(arg.charAt(i), radix)) {
+      i++;
+      digits++;
+    }
+    if (i < end && arg.charAt(i) == '.') {
+      i++;
+      while (i < end && isDigit(arg.charAt(i), radix)) {
+        i++;
+        digits++;
+      }
+    }
+    if (digits == 0) {
+      return false;
+    }
+
+    //Hexadecimal literals require a binary exponent
+    final char exponent = hex ? 'p' : 'e';
+    if (i < end && Character.toLowerCase(arg.charAt(i)) == exponent) {
+      i++;
+      if (i < end && (arg.charAt(i) == '+' || arg.charAt(i) == '-')) {
+        i++;
+      }
+
+      final int exponentStart = i;
+      while (i < end && isDigit(arg.charAt(i), 10)) {
+        i++;
+      }
+      if (i == exponentStart) {
+        return false;
+      }
+    }
+    else if (hex) {
+      return false;
+    }
+
+    if (i < end) {
+      final char suffix = arg.charAt(i++);
+      if (suffix != 'f' && suffix != 'F' && suffix != 'd' && suffix != 'D') {
+        return false;
+      }
+    }
+    return i == end;
+  }
+
+  private static boolean isDigit(char c, int radix) {
+    if (c >= '0' && c <= '9') {
+      return true;
+    }
+    return radix == 16 && ((c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F'));
+  }
+
+  /**
+   * @return the index of the first character of the argument past leading whitespace (as String.trim() sees it)
+   */
+  private static int trimStart(String arg) {
+    int start = 0;
+    while (start < arg.length() && arg.charAt(start) <= ' ') {
+      start++;
+    }
+    return start;
+  }
+
+  /**
+   * @return the index past the last character of the argument before trailing whitespace (as String.trim() sees it)
+   */
+  private static int trimEnd(String arg, int start) {
+    int end = arg.length();
+    while (end > start && arg.charAt(end - 1) <= ' ') {
+      end--;
+    }
+    return end;
+  }
+}
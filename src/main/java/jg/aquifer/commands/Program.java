@@ -11,6 +11,9 @@ import jg.aquifer.commands.options.Option;
  * The program itself is represented as a Subcommand - which can be retrieved using getProgramOptions().
  * This instance can be used to add Options specific to the program itself.
  * 
+ * A Program doesn't require JavaFX unless its icon is requested, so that it can also be 
+ * run without a display (see CommandLineRunner).
+ * 
  * @author Jose Guaro
  */
 public class Program {
@@ -18,6 +21,7 @@ public class Program {
   private String programName;
   private String description;
   private Image image;
+  private String imageUrl;
   
   private Map<String, Subcommand> subcommands;
 
@@ -44,6 +48,19 @@ public class Program {
 	 */
 	public void setIcon(Image image) {
 	  this.image = image;
+	  this.imageUrl = null;
+	}
+	
+	/**
+	 * Sets the icon to display on the GUI, to be loaded from the given URL once it's first displayed.
+	 * 
+	 * Note: This image will be resized to 40x40 pixels (ratio preserved)
+	 * 
+	 * @param url - the URL of the program icon (ex: "file:sample_icon.png", or the URL of a classpath resource)
+	 */
+	public void setIconUrl(String url) {
+	  this.image = null;
+	  this.imageUrl = url;
 	}
 	
 	public void setDescription(String description) {
@@ -78,7 +95,13 @@ public class Program {
     return programName;
   }
 	
+	/**
+	 * @return the program icon - loading it if it was set through setIconUrl() - or null if there's none
+	 */
 	public Image getImage() {
+	  if (image == null && imageUrl != null) {
+	    image = new Image(imageUrl);
+	  }
     return image;
   }
 }
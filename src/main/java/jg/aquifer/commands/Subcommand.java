@@ -1,7 +1,11 @@
 package jg.aquifer.commands;
 
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.Map;
+import java.util.Set;
 
 import jg.aquifer.commands.options.Option;
 
@@ -14,6 +18,9 @@ import jg.aquifer.commands.options.Option;
  * 
  * Each Option under a Subcommand must be unique in name.
  * 
+ * Options whose Verifiers read the arguments of other Options (ex: "end" must be greater than "start")
+ * declare so through addDependency(), so that they're re-verified whenever those arguments change.
+ * 
  * @author Jose Guaro
  */
 public class Subcommand {
@@ -23,12 +30,16 @@ public class Subcommand {
 
   private Map<String, Option> requiredOptions;
   private Map<String, Option> allOptions;
+  private Map<String, Set<String>> dependencies;
+  
+  private volatile SubcommandSchema schema;
   
   public Subcommand(String name) {
     this.name = name;
     this.description = "";
     this.requiredOptions = new HashMap<>();
     this.allOptions = new HashMap<>();
+    this.dependencies = new LinkedHashMap<>();
   }
   
   @Override
@@ -61,6 +72,43 @@ public class Subcommand {
       requiredOptions.put(option.getOptName(), option);
     }
     allOptions.put(option.getOptName(), option);
+    schema = null;
+  }
+  
+  /**
+   * Declares that an Option's Verifier reads the arguments of other Options of this Subcommand
+   * (through the RawArgumentForm), so that the Option is re-verified whenever their arguments change.
+   * 
+   * Options can also declare their dependencies themselves (see Option.Builder.dependsOn()).
+   * @param optName - the name of the dependent Option
+   * @param dependencies - the names of the Options it depends on
+   */
+  public void addDependency(String optName, String ... dependencies) {
+    final Set<String> current = this.dependencies.computeIfAbsent(optName, (name) -> new LinkedHashSet<>());
+    Collections.addAll(current, dependencies);
+    schema = null;
+  }
+  
+  /**
+   * @return the dependencies declared through addDependency(), keyed by the name of the dependent Option
+   */
+  public Map<String, Set<String>> getDependencies() {
+    return Collections.unmodifiableMap(dependencies);
+  }
+  
+  /**
+   * Returns the compiled schema of this Subcommand's Options, compiling it if needed.
+   * 
+   * Note: Adding an Option or a dependency invalidates the schema. RawArgumentForms keep the schema they were created with.
+   * @return the SubcommandSchema of this Subcommand
+   */
+  public SubcommandSchema getSchema() {
+    SubcommandSchema current = schema;
+    if (current == null) {
+      current = new SubcommandSchema(this);
+      schema = current;
+    }
+    return current;
   }
   
   public String getDescription() {
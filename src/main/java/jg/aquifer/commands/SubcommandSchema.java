@@ -0,0 +1,396 @@
+package jg.aquifer.commands;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import jg.aquifer.Diagnostics;
+import jg.aquifer.Diagnostics.Level;
+import jg.aquifer.commands.options.Option;
+
+/**
+ * A compiled, indexed view of a Subcommand's Options.
+ *
+ * Each Option is given a dense id (from 0 to size() - 1), so that per-Option state
+ * can be kept in arrays indexed by id rather than in maps keyed by Option.
+ * Required Options are marked in a bitset - an array of longs, each holding 64 ids - which
+ * sets of given Options (in the same layout) can be checked against without allocating.
+ *
+ * Dependencies between Options (see Subcommand.addDependency()) are compiled into a topological order,
+ * along with the transitive dependents of each Option, so that re-verifying the Options affected by a change
+ * doesn't require walking the dependency graph. Options that depend on each other in a cycle
+ * (ex: mutually exclusive Flags) are ordered by id.
+ *
+ * A SubcommandSchema is immutable. Retrieve it through Subcommand.getSchema(),
+ * which compiles a new one whenever Options are added.
+ *
+ * @author Jose
+ */
+public class SubcommandSchema {
+
+  private final Subcommand subcommand;
+  private final Option [] options;
+  private final Map<String, Integer> ids;
+  private final long [] required;
+  private final int requiredCount;
+
+  /**
+   * Topological rank of each id, or null if no Option has dependencies
+   */
+  private final int [] ranks;
+  private final int [][] dependents;
+
+  private static final int [] NO_DEPENDENTS = new int[0];
+
+  SubcommandSchema(Subcommand subcommand) {
+    this.subcommand = subcommand;
+    this.options = subcommand.getOptions().values().toArray(new Option[0]);
+    this.ids = new HashMap<>(options.length * 4 / 3 + 1);
+    this.required = newBitSet(options.length);
+
+    int requiredCount = 0;
+    for (int id = 0; id < options.length; id++) {
+      ids.put(options[id].getOptName(), id);
+      if (options[id].isRequired()) {
+        set(required, id);
+        requiredCount++;
+      }
+    }
+    this.requiredCount = requiredCount;
+
+    final List<int []> edges = collectDependencies();
+    if (edges.isEmpty()) {
+      this.ranks = null;
+      this.dependents = null;
+    }
+    else {
+      final int [][] direct = toAdjacency(edges);
+      this.ranks = rank(direct);
+      this.dependents = transitiveDependents(direct);
+    }
+  }
+
+  /**
+   * @return the dependencies of this schema's Options, as {dependency id, dependent id} pairs
+   */
+  private List<int []> collectDependencies() {
+    final List<int []> edges = new ArrayList<>();
+    for (int id = 0; id < options.length; id++) {
+      for (String dependency : options[id].getDependencies()) {
+        addDependency(edges, id, dependency);
+      }
+    }
+
+    for (Map.Entry<String, Set<String>> entry : subcommand.getDependencies().entrySet()) {
+      final int id = getId(entry.getKey());
+      if (id < 0) {
+        Diagnostics.log(Level.WARN, "SubcommandSchema", "Ignoring the dependencies of unknown option '{}' of '{}'", entry.getKey(), subcommand);
+        continue;
+      }
+
+      for (String dependency : entry.getValue()) {
+        addDependency(edges, id, dependency);
+      }
+    }
+    return edges;
+  }
+
+  private void addDependency(List<int []> edges, int dependent, String dependency) {
+    final int id = getId(dependency);
+    if (id < 0) {
+      Diagnostics.log(Level.WARN, "SubcommandSchema", "'{}' of '{}' depends on unknown option '{}'", options[dependent].getOptName(), subcommand, dependency);
+    }
+    else if (id != dependent) {
+      edges.add(new int[] {id, dependent});
+    }
+  }
+
+  /**
+   * @return for each id, the ids that directly depend on it
+   */
+  private int [][] toAdjacency(List<int []> edges) {
+    final int [] counts = new int[options.length];
+    for (int [] edge : edges) {
+      counts[edge[0]]++;
+    }
+
+    final int [][] direct = new int[options.length][];
+    for (int id = 0; id < options.length; id++) {
+      direct[id] = counts[id] == 0 ? NO_DEPENDENTS : new int[counts[id]];
+      counts[id] = 0;
+    }
+    for (int [] edge : edges) {
+      direct[edge[0]][counts[edge[0]]++] = edge[1];
+    }
+    return direct;
+  }
+
+  /**
+   * Orders the ids topologically, by ranking the strongly connected components of the dependency graph
+   * (found through an iterative Tarjan's algorithm) so that each comes after the components it depends on.
+   * The ids of a component - Options that depend on each other in a cycle - are ranked by id,
+   * and Options that merely depend on a cycle still come after all of it.
+   * @return the rank of each id
+   */
+  private static int [] rank(int [][] direct) {
+    final int size = direct.length;
+    final int [] index = new int[size];
+    final int [] lowLink = new int[size];
+    final int [] component = new int[size];
+    final boolean [] onStack = new boolean[size];
+    final int [] stack = new int[size];
+    final int [] calls = new int[size];
+    final int [] nextEdge = new int[size];
+
+    int visited = 0;
+    int components = 0;
+    int stackTop = 0;
+    for (int root = 0; root < size; root++) {
+      if (index[root] != 0) {
+        continue;
+      }
+
+      int callTop = 0;
+      index[root] = lowLink[root] = ++visited;
+      stack[stackTop++] = root;
+      onStack[root] = true;
+      calls[callTop++] = root;
+
+      while (callTop > 0) {
+        final int id = calls[callTop - 1];
+        if (nextEdge[id] < direct[id].length) {
+          final int target = direct[id][nextEdge[id]++];
+          if (index[target] == 0) {
+            index[target] = lowLink[target] = ++visited;
+            stack[stackTop++] = target;
+            onStack[target] = true;
+            calls[callTop++] = target;
+          }
+          else if (onStack[target]) {
+            lowLink[id] = Math.min(lowLink[id], index[target]);
+          }
+          continue;
+        }
+
+        callTop--;
+        if (callTop > 0) {
+          final int caller = calls[callTop - 1];
+          lowLink[caller] = Math.min(lowLink[caller], lowLink[id]);
+        }
+
+        if (lowLink[id] == index[id]) {
+          int member;
+          do {
+            member = stack[--stackTop];
+            onStack[member] = false;
+            component[member] = components;
+          } while (member != id);
+          components++;
+        }
+      }
+    }
+
+    //Components are found after every component that depends on them, so they're ranked in reverse
+    final long [] packed = new long[size];
+    for (int id = 0; id < size; id++) {
+      packed[id] = ((long) (components - 1 - component[id]) << 32) | id;
+    }
+    final int [] order = sortedIds(packed, size);
+
+    final int [] ranks = new int[size];
+    for (int rank = 0; rank < size; rank++) {
+      ranks[order[rank]] = rank;
+    }
+    return ranks;
+  }
+
+  /**
+   * @return for each id, the ids that depend on it directly or transitively, in topological order
+   */
+  private int [][] transitiveDependents(int [][] direct) {
+    final int [][] transitive = new int[options.length][];
+    final int [] visitedBy = new int[options.length];
+    final int [] stack = new int[options.length];
+    final long [] found = new long[options.length];
+
+    for (int id = 0; id < options.length; id++) {
+      if (direct[id].length == 0) {
+        transitive[id] = NO_DEPENDENTS;
+        continue;
+      }
+
+      int count = 0;
+      int top = 0;
+      visitedBy[id] = id + 1;
+      stack[top++] = id;
+      while (top > 0) {
+        for (int target : direct[stack[--top]]) {
+          if (visitedBy[target] != id + 1) {
+            visitedBy[target] = id + 1;
+            stack[top++] = target;
+            found[count++] = ((long) ranks[target] << 32) | target;
+          }
+        }
+      }
+
+      transitive[id] = sortedIds(found, count);
+    }
+    return transitive;
+  }
+
+  /**
+   * Decodes ids packed with their rank ((rank << 32) | id), in order of rank
+   */
+  private static int [] sortedIds(long [] packed, int count) {
+    Arrays.sort(packed, 0, count);
+    final int [] ids = new int[count];
+    for (int i = 0; i < count; i++) {
+      ids[i] = (int) packed[i];
+    }
+    return ids;
+  }
+
+  /**
+   * Creates an empty bitset large enough to hold the ids of a schema
+   * @param size - the amount of ids to hold
+   * @return the created bitset
+   */
+  public static long [] newBitSet(int size) {
+    return new long[(size + 63) >>> 6];
+  }
+
+  /**
+   * Marks an id in a bitset
+   * @param bitSet - the bitset to mark
+   * @param id - the id to mark
+   */
+  public static void set(long [] bitSet, int id) {
+    bitSet[id >>> 6] |= 1L << id;
+  }
+
+  /**
+   * @param bitSet - the bitset to check
+   * @param id - the id to check
+   * @return whether the id is marked in the bitset
+   */
+  public static boolean isSet(long [] bitSet, int id) {
+    return (bitSet[id >>> 6] & (1L << id)) != 0;
+  }
+
+  /**
+   * Returns the id of an Option
+   * @param option - the Option whose id to return
+   * @return the id of the Option, or -1 if it isn't an Option of this schema's Subcommand
+   */
+  public int getId(Option option) {
+    return getId(option.getOptName());
+  }
+
+  /**
+   * Returns the id of an Option
+   * @param optName - the name of the Option whose id to return
+   * @return the id of the Option, or -1 if it isn't an Option of this schema's Subcommand
+   */
+  public int getId(String optName) {
+    final Integer id = ids.get(optName);
+    return id == null ? -1 : id;
+  }
+
+  public Option getOption(int id) {
+    return options[id];
+  }
+
+  public boolean isRequired(int id) {
+    return isSet(required, id);
+  }
+
+  /**
+   * Checks whether every required Option has been given
+   * @param given - the bitset of given Options (see newBitSet())
+   * @return true if every required Option is marked in the given bitset
+   */
+  public boolean isSatisfiedBy(long [] given) {
+    for (int i = 0; i < required.length; i++) {
+      if ((required[i] & ~given[i]) != 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Collects the names of the required Options that haven't been given
+   * @param given - the bitset of given Options (see newBitSet())
+   * @return the names of the missing required Options
+   */
+  public Set<String> getMissing(long [] given) {
+    final Set<String> missing = new LinkedHashSet<>();
+    for (int id = 0; id < options.length; id++) {
+      if (isSet(required, id) && !isSet(given, id)) {
+        missing.add(options[id].getOptName());
+      }
+    }
+    return missing;
+  }
+
+  /**
+   * Returns the Options to re-verify once an Option's argument changes: the Options that depend on it, 
+   * directly or through other Options, in topological order (each after the Options it depends on)
+   * @param id - the id of the changed Option
+   * @return the ids of the dependent Options. The returned array must not be modified.
+   */
+  public int [] getDependents(int id) {
+    return dependents == null ? NO_DEPENDENTS : dependents[id];
+  }
+
+  /**
+   * @return whether any Option of this schema depends on another
+   */
+  public boolean hasDependencies() {
+    return dependents != null;
+  }
+
+  /**
+   * Orders the ids marked in a bitset topologically
+   * @param bitSet - the bitset of ids (see newBitSet())
+   * @return the marked ids, each after the ids it depends on
+   */
+  public int [] inTopologicalOrder(long [] bitSet) {
+    int count = 0;
+    for (long word : bitSet) {
+      count += Long.bitCount(word);
+    }
+
+    final long [] packed = new long[count];
+    int next = 0;
+    for (int i = 0; i < bitSet.length; i++) {
+      for (long word = bitSet[i]; word != 0; word &= word - 1) {
+        final int id = (i << 6) + Long.numberOfTrailingZeros(word);
+        packed[next++] = ((long) (ranks == null ? id : ranks[id]) << 32) | id;
+      }
+    }
+    return sortedIds(packed, count);
+  }
+
+  /**
+   * @return the amount of Options in this schema
+   */
+  public int size() {
+    return options.length;
+  }
+
+  /**
+   * @return the amount of required Options in this schema
+   */
+  public int getRequiredCount() {
+    return requiredCount;
+  }
+
+  public Subcommand getSubcommand() {
+    return subcommand;
+  }
+}
@@ -0,0 +1,255 @@
+package jg.aquifer.commands;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import jg.aquifer.commands.options.Option;
+import jg.aquifer.commands.options.VerificationException;
+import jg.aquifer.ui.RawArgumentForm;
+
+/**
+ * A bounded cache of verification results, keyed by Verifier and argument.
+ *
+ * Only Verifiers that declare a cache lifetime (see Verifier.getCacheLifetime()) are cached.
+ * Results of pure Verifiers are kept until they're evicted, while results of time-sensitive Verifiers
+ * (such as the file Verifiers) expire after their lifetime. Once the cache is full,
+ * the least recently used result is evicted. Transient failures (see VerificationResult.failTransiently())
+ * are never cached.
+ *
+ * Along with whether an argument passed, the cache keeps what the Verifier parsed it into
+ * (see Verifier.verify() with a ParseTarget), so cached arguments aren't parsed again either.
+ *
+ * A VerificationCache is thread-safe.
+ *
+ * @author Jose Guaro
+ */
+public class VerificationCache {
+
+  /**
+   * The default amount of results a VerificationCache holds
+   */
+  public static final int DEFAULT_CAPACITY = 1024;
+
+  private final Map<Key, Result> results;
+
+  private final LongAdder hits;
+  private final LongAdder misses;
+  private final LongAdder evictions;
+
+  /**
+   * Constructs a VerificationCache that holds at most DEFAULT_CAPACITY results
+   */
+  public VerificationCache() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  /**
+   * Constructs a VerificationCache
+   * @param capacity - the maximum amount of results to hold
+   */
+  public VerificationCache(int capacity) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("Capacity must be positive: "+capacity);
+    }
+
+    this.hits = new LongAdder();
+    this.misses = new LongAdder();
+    this.evictions = new LongAdder();
+    this.results = new LinkedHashMap<Key, Result>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Key, Result> eldest) {
+        if (size() > capacity) {
+          evictions.increment();
+          return true;
+        }
+        return false;
+      }
+    };
+  }
+
+  /**
+   * Verifies an argument with the given Verifier, reusing a previous result if one is cached and still valid.
+   * @param verifier - the Verifier to verify with
+   * @param option - the Option the provided argument was meant for
+   * @param form - the RawArgumentForm that the given Option is filling out
+   * @param arg - the supplied argument
+   * @throws VerificationException if arg doesn't match
+   */
+  public void verify(Verifier verifier, Option option, RawArgumentForm form, String arg) throws VerificationException {
+    verify(verifier, option, form, arg, ParseTarget.NONE);
+  }
+
+  /**
+   * Verifies an argument with the given Verifier, reusing a previous result if one is cached and still valid.
+   * The parsed form of a passing argument - whether cached or not - is handed to the given ParseTarget.
+   * @param verifier - the Verifier to verify with
+   * @param option - the Option the provided argument was meant for
+   * @param form - the RawArgumentForm that the given Option is filling out
+   * @param arg - the supplied argument
+   * @param target - the ParseTarget to hand the parsed argument to
+   * @throws VerificationException if arg doesn't match
+   */
+  public void verify(Verifier verifier, Option option, RawArgumentForm form, String arg, ParseTarget target) throws VerificationException {
+    final VerificationResult result = new VerificationResult();
+    if (!check(verifier, option, form, arg, result)) {
+      throw result.toException();
+    }
+    result.copyTo(target);
+  }
+
+  /**
+   * Verifies an argument with the given Verifier without throwing (see Verifier.check()), 
+   * reusing a previous result if one is cached and still valid.
+   * @param verifier - the Verifier to verify with
+   * @param option - the Option the provided argument was meant for
+   * @param form - the RawArgumentForm that the given Option is filling out
+   * @param arg - the supplied argument
+   * @param result - the VerificationResult to record failures and the parsed argument in
+   * @return whether the Verifier passed the argument
+   */
+  public boolean check(Verifier verifier, Option option, RawArgumentForm form, String arg, VerificationResult result) {
+    final long lifetime = verifier.getCacheLifetime();
+    if (lifetime <= 0) {
+      return verifier.check(option, form, arg, result);
+    }
+
+    final Key key = new Key(verifier, arg);
+    final long now = System.nanoTime();
+
+    final Result cached;
+    synchronized (results) {
+      cached = results.get(key);
+    }
+
+    if (cached != null && cached.isValid(now)) {
+      hits.increment();
+      if (cached.failure != null) {
+        return result.fail(cached.failure);
+      }
+      cached.parsed.copyTo(result);
+      return true;
+    }
+
+    misses.increment();
+
+    final VerificationResult checked = new VerificationResult();
+    if (!verifier.check(option, form, arg, checked)) {
+      final String failure = checked.getMessage();
+      if (checked.isTransient()) {
+        return result.failTransiently(failure);
+      }
+      store(key, failure, null, now, lifetime);
+      return result.fail(failure);
+    }
+    store(key, null, checked, now, lifetime);
+    checked.copyTo(result);
+    return true;
+  }
+
+  private void store(Key key, String failure, ParsedValue parsed, long now, long lifetime) {
+    final long expiresAt = lifetime == Verifier.PURE ? Long.MAX_VALUE : now + TimeUnit.MILLISECONDS.toNanos(lifetime);
+    synchronized (results) {
+      results.put(key, new Result(failure, parsed, expiresAt));
+    }
+  }
+
+  /**
+   * Returns a Verifier that verifies through this cache
+   * @param verifier - the Verifier to wrap
+   * @return a Verifier that reuses cached results of the given Verifier
+   */
+  public Verifier wrap(Verifier verifier) {
+    return Verifier.checking((op, form, arg, result) -> check(verifier, op, form, arg, result));
+  }
+
+  /**
+   * Removes all cached results
+   */
+  public void clear() {
+    synchronized (results) {
+      results.clear();
+    }
+  }
+
+  public int size() {
+    synchronized (results) {
+      return results.size();
+    }
+  }
+
+  /**
+   * @return the amount of verifications answered from this cache
+   */
+  public long getHitCount() {
+    return hits.sum();
+  }
+
+  /**
+   * @return the amount of cacheable verifications that had to run their Verifier
+   */
+  public long getMissCount() {
+    return misses.sum();
+  }
+
+  /**
+   * @return the amount of results evicted to make room for newer ones
+   */
+  public long getEvictionCount() {
+    return evictions.sum();
+  }
+
+  /**
+   * Returns the shortest cache lifetime among the given Verifiers
+   * @param verifiers - the Verifiers to check
+   * @return the shortest cache lifetime, or Verifier.PURE if no Verifiers were given
+   */
+  static long shortestLifetime(Verifier ... verifiers) {
+    long lifetime = Verifier.PURE;
+    for (Verifier verifier : verifiers) {
+      lifetime = Math.min(lifetime, verifier.getCacheLifetime());
+    }
+    return lifetime;
+  }
+
+  private static class Key {
+    private final Verifier verifier;
+    private final String arg;
+
+    private Key(Verifier verifier, String arg) {
+      this.verifier = verifier;
+      this.arg = arg;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (obj instanceof Key) {
+        final Key other = (Key) obj;
+        return other.verifier == verifier && other.arg.equals(arg);
+      }
+      return false;
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * System.identityHashCode(verifier) + arg.hashCode();
+    }
+  }
+
+  private static class Result {
+    private final String failure;
+    private final ParsedValue parsed;
+    private final long expiresAt;
+
+    private Result(String failure, ParsedValue parsed, long expiresAt) {
+      this.failure = failure;
+      this.parsed = parsed;
+      this.expiresAt = expiresAt;
+    }
+
+    private boolean isValid(long now) {
+      return expiresAt == Long.MAX_VALUE || now - expiresAt < 0;
+    }
+  }
+}
@@ -0,0 +1,93 @@
+package jg.aquifer.commands;
+
+import jg.aquifer.commands.options.VerificationException;
+
+/**
+ * The outcome of verifying an argument without throwing (see Verifier.check()):
+ * whether it passed, the messages of the checks it failed and - as a ParsedValue - what it was parsed into.
+ *
+ * Failure messages accumulate, separated by newline, so that several Verifiers checking into
+ * the same VerificationResult report all of their failures (see Verifier.checkAll()).
+ * A VerificationResult can be reused for another argument once reset.
+ *
+ * @author Jose
+ */
+public class VerificationResult extends ParsedValue {
+
+  private final StringBuilder messages;
+  private boolean failed;
+  private boolean failedTransiently;
+
+  public VerificationResult() {
+    this.messages = new StringBuilder();
+  }
+
+  /**
+   * Records a failed check
+   * @param message - a concise message detailing the requirements the argument didn't meet
+   * @return false, so that checks can end with "return result.fail(...)"
+   */
+  public boolean fail(String message) {
+    if (failed) {
+      messages.append(System.lineSeparator());
+    }
+    messages.append(message);
+    failed = true;
+    return false;
+  }
+
+  /**
+   * Records a failed check whose failure may not recur for the same argument (ex: a timeout),
+   * so that a VerificationCache doesn't keep it
+   * @param message - a concise message detailing why the argument wasn't verified
+   * @return false, so that checks can end with "return result.failTransiently(...)"
+   */
+  public boolean failTransiently(String message) {
+    failedTransiently = true;
+    return fail(message);
+  }
+
+  /**
+   * @return whether a check has failed transiently (see failTransiently())
+   */
+  public boolean isTransient() {
+    return failedTransiently;
+  }
+
+  /**
+   * @return whether no check has failed
+   */
+  public boolean isPassed() {
+    return !failed;
+  }
+
+  /**
+   * @return the messages of the failed checks, separated by newline, or null if no check has failed
+   */
+  public String getMessage() {
+    return failed ? messages.toString() : null;
+  }
+
+  /**
+   * @return a VerificationException carrying the messages of the failed checks,
+   *         or null if no check has failed
+   */
+  public VerificationException toException() {
+    return failed ? new VerificationException(getMessage()) : null;
+  }
+
+  /**
+   * Clears this VerificationResult, so that it can be reused
+   */
+  public void reset() {
+    clear();
+    messages.setLength(0);
+    failed = false;
+    failedTransiently = false;
+  }
+
+  @Override
+  public String toString() {
+    return failed ? "failed: "+messages : "passed";
+  }
+}
@@ -1,8 +1,12 @@
 package jg.aquifer.commands;
 
 import java.nio.file.Files;
-import java.nio.file.Paths;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
 
+import jg.aquifer.Diagnostics;
+import jg.aquifer.Diagnostics.Level;
 import jg.aquifer.commands.options.Option;
 import jg.aquifer.commands.options.VerificationException;
 import jg.aquifer.ui.RawArgumentForm;
@@ -19,137 +23,171 @@ import jg.aquifer.ui.RawArgumentForm;
  * This interface is meant to be used with VerifiableOption, with each VerifiableOption instance being
  * supplied with it's own Verifier.
  * 
+ * Verifiers can declare whether their results may be cached by a VerificationCache (see getCacheLifetime()).
+ * The bundled numerical and boolean Verifiers are pure, while the bundled file Verifiers are cached 
+ * for FILE_CACHE_LIFETIME milliseconds.
+ * 
+ * Verifiers may also hand the parsed form of the arguments they pass to a ParseTarget 
+ * (see the four-arg verify() and checking()), so that the parsed value reaches the Intake 
+ * without being parsed again. The bundled numerical Verifiers parse to longs and doubles, 
+ * BOOL parses to a boolean and the bundled file Verifiers parse to a Path.
+ * 
+ * Rejecting an argument by throwing is costly - and, as arguments are verified while they're typed, 
+ * most verified arguments are rejected. Verifiers can instead report to a VerificationResult without 
+ * throwing (see check() and checking()). The bundled Verifiers and combinators all do, while Verifiers 
+ * that throw keep working as before.
+ * 
  * @author Jose Guaro
  */
 public interface Verifier {
   
+  /**
+   * Cache lifetime of Verifiers whose results must never be cached
+   */
+  public static final long NOT_CACHEABLE = 0;
+  
+  /**
+   * Cache lifetime of pure Verifiers - whose result only depends on the argument
+   */
+  public static final long PURE = Long.MAX_VALUE;
+  
+  /**
+   * Cache lifetime, in milliseconds, of the bundled file Verifiers
+   */
+  public static final long FILE_CACHE_LIFETIME = 2000;
+  
   /**
    * Passive Verifier. Will accept any argument.
    */
-  public static final Verifier STR_VERIFIER = (op, form, arg) -> {
-  };
+  public static final Verifier STR_VERIFIER = pure(checking((op, form, arg, result) -> true));
   
   /**
    * Accepts only negative whole numbers (negative integers). Rejects the number 0.
    */
-  public static final Verifier NEG_WHOLE = (op, form, arg) -> {
-    try {
-      if(Long.parseLong(arg) >= 0) {
-        throw new VerificationException("Expected a negative whole number");
-      }
-    } catch (NumberFormatException e) {
-      throw new VerificationException("Expected a negative whole number");
+  public static final Verifier NEG_WHOLE = pure(checking((op, form, arg, result) -> {
+    if (!Parsers.parseLong(arg, result) || result.getLong() >= 0) {
+      return result.fail("Expected a negative whole number");
     }
-  };
+    return true;
+  }));
   
   /**
    * Accepts only non-negative whole numbers (positive integers).
    */
-  public static final Verifier NON_NEG_WHOLE = (op, form, arg) -> {
-    try {
-      if(Long.parseLong(arg) < 0) {
-        throw new VerificationException("Expected a non-negative whole number");
-      }
-    } catch (NumberFormatException e) {
-      throw new VerificationException("Expected a non-negative whole number");
+  public static final Verifier NON_NEG_WHOLE = pure(checking((op, form, arg, result) -> {
+    if (!Parsers.parseLong(arg, result) || result.getLong() < 0) {
+      return result.fail("Expected a non-negative whole number");
     }
-  };
+    return true;
+  }));
   
   /**
    * Accepts only whole numbers (integers).
    */
-  public static final Verifier WHOLE_NUM = (op, form, arg) -> {
-    try {
-      Long.parseLong(arg);
-    } catch (NumberFormatException e) {
-      throw new VerificationException("Expected a whole number");
-    }
-  };
+  public static final Verifier WHOLE_NUM = pure(checking((op, form, arg, result) -> {
+    return Parsers.parseLong(arg, result) || result.fail("Expected a whole number");
+  }));
   
   /**
    * Accepts only negative decimal numbers. Rejects the number 0.
    */
-  public static final Verifier NEG_DEC = (op, form, arg) -> {
-    try {
-      if(Double.parseDouble(arg) >= 0) {
-        throw new VerificationException("Expected a negative decimal number");
-      }
-    } catch (NumberFormatException e) {
-      throw new VerificationException("Expected a negative decimal number");
+  public static final Verifier NEG_DEC = pure(checking((op, form, arg, result) -> {
+    if (!Parsers.parseDouble(arg, result) || result.getDouble() >= 0) {
+      return result.fail("Expected a negative decimal number");
     }
-  };
+    return true;
+  }));
   
   /**
    * Accepts only non-negative decimal numbers.
    */
-  public static final Verifier NON_NEG_DEC = (op, form, arg) -> {
-    try {
-      if(Double.parseDouble(arg) < 0) {
-        throw new VerificationException("Expected a non-negative decimal number");
-      }
-    } catch (NumberFormatException e) {
-      throw new VerificationException("Expected a non-negative decimal number");
+  public static final Verifier NON_NEG_DEC = pure(checking((op, form, arg, result) -> {
+    if (!Parsers.parseDouble(arg, result) || result.getDouble() < 0) {
+      return result.fail("Expected a non-negative decimal number");
     }
-  };
+    return true;
+  }));
   
   /**
    * Accepts only decimal numbers.
    */
-  public static final Verifier DEC_NUM = (op, form, arg) -> {
-    try {
-      Double.parseDouble(arg);
-    } catch (NumberFormatException e) {
-      throw new VerificationException("Expected a decimal number");
-    }
-  };
+  public static final Verifier DEC_NUM = pure(checking((op, form, arg, result) -> {
+    return Parsers.parseDouble(arg, result) || result.fail("Expected a decimal number");
+  }));
   
   /**
    * Accepts only boolean values - strictly 'true' and 'false'
    */
-  public static final Verifier BOOL = (op, form, arg) -> {
-    if(!arg.trim().equalsIgnoreCase("true") && !arg.trim().equalsIgnoreCase("false")) {
-      throw new VerificationException("Expected a boolean value");
-    }
-  };
+  public static final Verifier BOOL = pure(checking((op, form, arg, result) -> {
+    return Parsers.parseBoolean(arg, result) || result.fail("Expected a boolean value");
+  }));
   
   /**
    * Accepts only files/directories that exists.
    */
-  public static final Verifier FILE_EXISTS = (op, form, arg) -> {
-    if (Files.notExists(Paths.get(arg))) {
-      throw new VerificationException("The file does not exist.");
+  public static final Verifier FILE_EXISTS = timeSensitive(FILE_CACHE_LIFETIME, checking((op, form, arg, result) -> {
+    final Path path = Parsers.parsePath(arg, result);
+    if (path == null) {
+      return false;
+    }
+    
+    if (Files.notExists(path)) {
+      return result.fail("The file does not exist.");
     }
-    else if (!Files.exists(Paths.get(arg))) {
-      throw new VerificationException("The existance of this file can't be verfied.");
+    else if (!Files.exists(path)) {
+      return result.fail("The existance of this file can't be verfied.");
     }
-  };
+    result.setObject(path);
+    return true;
+  }));
   
   /**
    * Accepts only files (not directories) that can be read from
    */
-  public static final Verifier FILE_READ = (op, form, arg) -> {
-    if (!Files.isReadable(Paths.get(arg))) {
-      throw new VerificationException("The file cannot be read");
+  public static final Verifier FILE_READ = timeSensitive(FILE_CACHE_LIFETIME, checking((op, form, arg, result) -> {
+    final Path path = Parsers.parsePath(arg, result);
+    if (path == null) {
+      return false;
+    }
+    
+    if (!Files.isReadable(path)) {
+      return result.fail("The file cannot be read");
     }
-  };
+    result.setObject(path);
+    return true;
+  }));
 
   /**
    * Accepts only files (not directories) that can be written to
    */
-  public static final Verifier FILE_WRITE = (op, form, arg) -> {
-    if (!Files.isWritable(Paths.get(arg))) {
-      throw new VerificationException("The file cannot be read");
+  public static final Verifier FILE_WRITE = timeSensitive(FILE_CACHE_LIFETIME, checking((op, form, arg, result) -> {
+    final Path path = Parsers.parsePath(arg, result);
+    if (path == null) {
+      return false;
     }
-  };
+    
+    if (!Files.isWritable(path)) {
+      return result.fail("The file cannot be read");
+    }
+    result.setObject(path);
+    return true;
+  }));
   
   /**
    * Accepts only files (not directories) that can be executed
    */
-  public static final Verifier FILE_EXEC = (op, form, arg) -> {
-    if (!Files.isExecutable(Paths.get(arg))) {
-      throw new VerificationException("The file cannot be read");
+  public static final Verifier FILE_EXEC = timeSensitive(FILE_CACHE_LIFETIME, checking((op, form, arg, result) -> {
+    final Path path = Parsers.parsePath(arg, result);
+    if (path == null) {
+      return false;
+    }
+    
+    if (!Files.isExecutable(path)) {
+      return result.fail("The file cannot be read");
     }
-  };
+    result.setObject(path);
+    return true;
+  }));
   
   /**
    * Verifies whether the provided argument - as a string - matches
@@ -161,50 +199,170 @@ public interface Verifier {
    */
   public void verify(Option option, RawArgumentForm form, String arg) throws VerificationException;
   
+  /**
+   * Verifies whether the provided argument matches the requirements of the given Option, 
+   * handing its parsed form over to the given ParseTarget if it does.
+   * 
+   * By default, this delegates to the three-arg verify() and hands nothing over.
+   * @param option - the Option the provided argument was meant for
+   * @param form - the RawArgumentForm that the given Option is filling out
+   * @param arg - the supplied argument
+   * @param target - the ParseTarget to hand the parsed argument to
+   * @throws VerificationException if arg doesn't match 
+   */
+  public default void verify(Option option, RawArgumentForm form, String arg, ParseTarget target) throws VerificationException {
+    verify(option, form, arg);
+  }
+  
+  /**
+   * Verifies whether the provided argument matches the requirements of the given Option without throwing: 
+   * failures are recorded in the given VerificationResult, which also receives the parsed argument.
+   * 
+   * By default, this delegates to the four-arg verify() and records the message of the thrown VerificationException.
+   * @param option - the Option the provided argument was meant for
+   * @param form - the RawArgumentForm that the given Option is filling out
+   * @param arg - the supplied argument
+   * @param result - the VerificationResult to record failures and the parsed argument in
+   * @return whether this Verifier passed the argument, regardless of failures already recorded in the result
+   */
+  public default boolean check(Option option, RawArgumentForm form, String arg, VerificationResult result) {
+    try {
+      verify(option, form, arg, result);
+      return true;
+    } catch (VerificationException e) {
+      return result.fail(e.getMessage());
+    }
+  }
+  
+  /**
+   * Returns how long, in milliseconds, a result of this Verifier stays valid once cached by a VerificationCache.
+   * 
+   * By default, Verifiers aren't cacheable, as their result may depend on more than the argument
+   * (ex: other arguments in the RawArgumentForm). Use pure() or timeSensitive() to declare otherwise.
+   * @return the cache lifetime of this Verifier's results - NOT_CACHEABLE, PURE or a lifetime in milliseconds
+   */
+  public default long getCacheLifetime() {
+    return NOT_CACHEABLE;
+  }
+  
+  /**
+   * Declares a Verifier as pure - its result only depends on the argument - 
+   * allowing a VerificationCache to keep its results indefinitely.
+   * @param verifier - the pure Verifier
+   * @return a Verifier that delegates to the given Verifier, declared as pure
+   */
+  public static Verifier pure(Verifier verifier) {
+    return timeSensitive(PURE, verifier);
+  }
+  
+  /**
+   * Declares a Verifier as time-sensitive - its result only depends on the argument
+   * and on the state of the outside world (ex: the file system) - allowing a VerificationCache
+   * to keep its results for the given lifetime.
+   * @param lifetime - the cache lifetime of the Verifier's results, in milliseconds
+   * @param verifier - the time-sensitive Verifier
+   * @return a Verifier that delegates to the given Verifier, declared with the given lifetime
+   */
+  public static Verifier timeSensitive(long lifetime, Verifier verifier) {
+    return new Verifier() {
+      @Override
+      public void verify(Option option, RawArgumentForm form, String arg) throws VerificationException {
+        verifier.verify(option, form, arg);
+      }
+      
+      @Override
+      public void verify(Option option, RawArgumentForm form, String arg, ParseTarget target) throws VerificationException {
+        verifier.verify(option, form, arg, target);
+      }
+      
+      @Override
+      public boolean check(Option option, RawArgumentForm form, String arg, VerificationResult result) {
+        return verifier.check(option, form, arg, result);
+      }
+      
+      @Override
+      public long getCacheLifetime() {
+        return lifetime;
+      }
+    };
+  }
+  
+  /**
+   * Creates a Verifier that reports to a VerificationResult rather than throwing, 
+   * and hands the parsed form of the arguments it passes over through the same VerificationResult.
+   * 
+   * When verified through verify(), a VerificationException is only created for rejected arguments.
+   * If the given Checking rejects an argument without recording a failure, "Invalid argument" is recorded for it.
+   * @param verifier - the checking Verifier
+   * @return a Verifier that delegates to the given checking Verifier
+   */
+  public static Verifier checking(Checking verifier) {
+    return new Verifier() {
+      @Override
+      public void verify(Option option, RawArgumentForm form, String arg) throws VerificationException {
+        verify(option, form, arg, ParseTarget.NONE);
+      }
+      
+      @Override
+      public void verify(Option option, RawArgumentForm form, String arg, ParseTarget target) throws VerificationException {
+        final VerificationResult result = new VerificationResult();
+        if (!check(option, form, arg, result)) {
+          throw result.toException();
+        }
+        result.copyTo(target);
+      }
+      
+      @Override
+      public boolean check(Option option, RawArgumentForm form, String arg, VerificationResult result) {
+        final boolean passedBefore = result.isPassed();
+        if (verifier.check(option, form, arg, result)) {
+          return true;
+        }
+        
+        //A Checking that rejects without saying why still has to leave the result failed
+        return passedBefore && result.isPassed() ? result.fail("Invalid argument") : false;
+      }
+    };
+  }
+  
   /**
    * Returns a single Verifier that 
-   * iterates over the provided Verifiers and fails at the first VerificationException
+   * iterates over the provided Verifiers and fails at the first failure
    * @param verifiers - the Verifiers to invoke
-   * @return a Verifier that fails at the first VerificationException
+   * @return a Verifier that fails at the first failure
    */
   public static Verifier all(Verifier ... verifiers) {
-    return (op, form, arg) -> {
+    return timeSensitive(VerificationCache.shortestLifetime(verifiers), checking((op, form, arg, result) -> {
       for (Verifier v : verifiers) {
-        v.verify(op, form, arg);
+        if (!v.check(op, form, arg, result)) {
+          return false;
+        }
       }
-    };
+      return true;
+    }));
   }
   
   /**
    * Returns a single Verifier that 
-   * iterates over all of the provided Verifiers and collects the message of each VerificationException
-   * thrown into a larger VerificationException containing all messages separated by newline
+   * iterates over all of the provided Verifiers and collects the message of each failure
+   * into a single failure containing all messages separated by newline
    * @param verifiers - the Verifiers to invoke
-   * @return a Verifier that collects the messages of all thrown VerificationExceptions
+   * @return a Verifier that collects the messages of all failures
    */
   public static Verifier checkAll(Verifier ... verifiers) {
-    return (op, form, arg) -> {
-      
-      String mess = null;
+    return timeSensitive(VerificationCache.shortestLifetime(verifiers), checking((op, form, arg, result) -> {
       
-      System.out.println("---checkall!!!!");
+      boolean passed = true;
       
       for (Verifier v : verifiers) {
-        try {
-          v.verify(op, form, arg);
-          System.out.println("passed!!!");
-        } catch (VerificationException e) {
-          mess = mess == null ? e.getMessage() + System.lineSeparator() :
-                                mess + e.getMessage() + System.lineSeparator();
-        }      
+        passed &= v.check(op, form, arg, result);
       }
       
-      System.out.println("        --> "+mess);
-      
-      if (mess != null) {
-        throw new VerificationException(mess);
+      if (!passed && Diagnostics.isEnabled(Level.TRACE)) {
+        Diagnostics.log(Level.TRACE, "Verifier", "checkAll rejected {}: {}", arg, result.getMessage());
       }
-    };
+      return passed;
+    }));
   }
   
   /**
@@ -214,11 +372,102 @@ public interface Verifier {
    * @return a Verifier that returns at the first success
    */
   public static Verifier any(Verifier ... verifiers) {
-    return (op, form, arg) -> {
+    return timeSensitive(VerificationCache.shortestLifetime(verifiers), checking((op, form, arg, result) -> {
       for (Verifier v : verifiers) {
-        v.verify(op, form, arg);
-        return;
+        return v.check(op, form, arg, result);
       }
-    };
+      return true;
+    }));
+  }
+  
+  /**
+   * Returns a single Verifier that runs the provided Verifiers concurrently on the common ForkJoinPool,
+   * collecting the messages of all failures as checkAll() does.
+   * 
+   * Note: Verifiers that block (ex: on the file system) are better run on an ExecutorService of their own
+   * @param timeoutMillis - how long, in milliseconds, to wait for the Verifiers before failing the argument
+   * @param verifiers - the Verifiers to invoke
+   * @return a Verifier that collects the messages of all failures
+   * @see #checkAllParallel(ExecutorService, long, Verifier...)
+   */
+  public static Verifier checkAllParallel(long timeoutMillis, Verifier ... verifiers) {
+    return checkAllParallel(ForkJoinPool.commonPool(), timeoutMillis, verifiers);
+  }
+  
+  /**
+   * Returns a single Verifier that runs the provided Verifiers concurrently 
+   * and collects the messages of all failures, in the order of the provided Verifiers, as checkAll() does.
+   * 
+   * The first Verifier runs on the verifying Thread, while the others run on the given ExecutorService.
+   * Verifiers that haven't finished once the timeout passes are cancelled, and fail with the message
+   * "Verification timed out". Such failures aren't cached by a VerificationCache.
+   * 
+   * Note: The ExecutorService shouldn't be the one the argument is verified on (ex: by a VerificationEngine),
+   *       as Verifiers queued behind the verifying Thread would only time out.
+   * @param executor - the ExecutorService to run the Verifiers on
+   * @param timeoutMillis - how long, in milliseconds, to wait for the Verifiers before failing the argument
+   * @param verifiers - the Verifiers to invoke
+   * @return a Verifier that collects the messages of all failures
+   */
+  public static Verifier checkAllParallel(ExecutorService executor, long timeoutMillis, Verifier ... verifiers) {
+    return timeSensitive(VerificationCache.shortestLifetime(verifiers), checking((op, form, arg, result) -> {
+      return ParallelVerifiers.checkAll(executor, timeoutMillis, verifiers, op, form, arg, result);
+    }));
+  }
+  
+  /**
+   * Returns a single Verifier that runs the provided Verifiers concurrently on the common ForkJoinPool,
+   * failing at the first failure as all() does.
+   * 
+   * Note: Verifiers that block (ex: on the file system) are better run on an ExecutorService of their own
+   * @param timeoutMillis - how long, in milliseconds, to wait for the Verifiers before failing the argument
+   * @param verifiers - the Verifiers to invoke
+   * @return a Verifier that fails at the first failure
+   * @see #allParallel(ExecutorService, long, Verifier...)
+   */
+  public static Verifier allParallel(long timeoutMillis, Verifier ... verifiers) {
+    return allParallel(ForkJoinPool.commonPool(), timeoutMillis, verifiers);
+  }
+  
+  /**
+   * Returns a single Verifier that runs the provided Verifiers concurrently 
+   * and fails at the first failure, cancelling the Verifiers that are still running.
+   * 
+   * Unlike all(), the reported failure is the first one to complete, which isn't 
+   * necessarily the failure of the first provided Verifier to fail.
+   * 
+   * The first Verifier runs on the verifying Thread, while the others run on the given ExecutorService.
+   * If the Verifiers haven't all finished once the timeout passes, they're cancelled and the argument
+   * fails with the message "Verification timed out". Such failures aren't cached by a VerificationCache.
+   * 
+   * Note: The ExecutorService shouldn't be the one the argument is verified on (ex: by a VerificationEngine),
+   *       as Verifiers queued behind the verifying Thread would only time out.
+   * @param executor - the ExecutorService to run the Verifiers on
+   * @param timeoutMillis - how long, in milliseconds, to wait for the Verifiers before failing the argument
+   * @param verifiers - the Verifiers to invoke
+   * @return a Verifier that fails at the first failure
+   */
+  public static Verifier allParallel(ExecutorService executor, long timeoutMillis, Verifier ... verifiers) {
+    return timeSensitive(VerificationCache.shortestLifetime(verifiers), checking((op, form, arg, result) -> {
+      return ParallelVerifiers.all(executor, timeoutMillis, verifiers, op, form, arg, result);
+    }));
+  }
+  
+  /**
+   * A Verifier that reports to a VerificationResult rather than throwing (see checking())
+   * @author Jose
+   */
+  @FunctionalInterface
+  public static interface Checking {
+    
+    /**
+     * Verifies an argument, recording any failure - and the parsed argument - in the given VerificationResult
+     * @param option - the Option the provided argument was meant for
+     * @param form - the RawArgumentForm that the given Option is filling out
+     * @param arg - the supplied argument
+     * @param result - the VerificationResult to record failures and the parsed argument in
+     * @return whether the argument passed (ex: "return result.fail(...)" on failure)
+     */
+    public boolean check(Option option, RawArgumentForm form, String arg, VerificationResult result);
   }
 }
@@ -4,24 +4,13 @@ import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
 
-import javafx.event.Event;
-import javafx.event.EventHandler;
 import javafx.scene.Node;
 import javafx.scene.control.Button;
-import javafx.scene.control.Label;
-import javafx.scene.control.TextField;
-import javafx.scene.layout.HBox;
-import javafx.scene.layout.VBox;
-import javafx.scene.paint.Color;
-import javafx.scene.text.Font;
-import javafx.scene.text.FontPosture;
-import javafx.scene.text.FontWeight;
-import javafx.scene.text.Text;
-import javafx.scene.text.TextFlow;
 import javafx.stage.FileChooser;
 import javafx.stage.FileChooser.ExtensionFilter;
 import jg.aquifer.commands.Subcommand;
 import jg.aquifer.commands.Verifier;
+import jg.aquifer.ui.OptionEditor;
 import jg.aquifer.ui.RawArgumentForm;
 
 /**
@@ -30,11 +19,16 @@ import jg.aquifer.ui.RawArgumentForm;
  * 
  * Visually, the user has the option to manually enter a file's/directory's path
  * as their argument, or choose to open a file chooser to choose a file/directory.
+ * The file chooser isn't created until it's first opened.
  * 
  * @author Jose
  */
 public class FileOption extends Option {
   
+  private final File startingDirectory;
+  private final ExtensionFilter [] extensionFilters;
+  private final List<String []> declaredFilters;
+  
   private FileChooser fileChooser;
   
   /**
@@ -46,7 +40,29 @@ public class FileOption extends Option {
   public FileOption(Option option,
                     File startingDirectory,
                     ExtensionFilter ... extensionFilters) {
-    this(option.getOptName(), option.getDescription(), option.isRequired(), option.getVerifier(), startingDirectory, extensionFilters);
+    super(option.getOptName(), option.getDescription(), option.isRequired(), option.getVerifier(), option.getDependencies());
+    this.startingDirectory = startingDirectory;
+    this.extensionFilters = extensionFilters;
+    this.declaredFilters = new ArrayList<>();
+  }
+  
+  /**
+   * Constructs an FileOption without extension filters (see addExtensionFilter())
+   * @param optName - the name of this FileOption
+   * @param description - the description of this FileOption
+   * @param isRequired - whether this FileOption is required
+   * @param verifier - the Verifier to use to validate arguments to this FileOption
+   * @param startingDirectory - the directory to start the file chooser at
+   */
+  public FileOption(String optName, 
+                    String description, 
+                    boolean isRequired, 
+                    Verifier verifier,
+                    File startingDirectory) {
+    super(optName, description, isRequired, verifier);
+    this.startingDirectory = startingDirectory;
+    this.extensionFilters = null;
+    this.declaredFilters = new ArrayList<>();
   }
 
   /**
@@ -65,76 +81,90 @@ public class FileOption extends Option {
                     File startingDirectory,
                     ExtensionFilter ... extensionFilters) {
     super(optName, description, isRequired, verifier);
+    this.startingDirectory = startingDirectory;
+    this.extensionFilters = extensionFilters;
+    this.declaredFilters = new ArrayList<>();
+  }
+  
+  /**
+   * Adds a file extension filter to filter file listings by.
+   * 
+   * Unlike an ExtensionFilter given on construction, the filter isn't created until the file chooser is first opened,
+   * so that FileOptions can be created without JavaFX (see CommandLineRunner).
+   * @param description - the description of the filter (ex: "Text files")
+   * @param extensions - the extensions to filter by (ex: "*.txt")
+   * @throws IllegalArgumentException if no extensions are given, or one is empty
+   */
+  public void addExtensionFilter(String description, String ... extensions) throws IllegalArgumentException {
+    if (extensions.length == 0) {
+      throw new IllegalArgumentException("At least one extension must be given");
+    }
+    for (String extension : extensions) {
+      if (extension == null || extension.isEmpty()) {
+        throw new IllegalArgumentException("Extensions can't be empty");
+      }
+    }
     
-    this.fileChooser = new FileChooser();
-    fileChooser.setTitle("Browse...");
-    fileChooser.getExtensionFilters().addAll(extensionFilters);
-    fileChooser.setInitialDirectory(startingDirectory);
+    final String [] filter = new String[extensions.length + 1];
+    filter[0] = description;
+    System.arraycopy(extensions, 0, filter, 1, extensions.length);
+    declaredFilters.add(filter);
+    fileChooser = null;
   }
 
   @Override
   protected Node generateDisplay(RawArgumentForm argumentForm, Subcommand subcommand) {
-    final VBox mainCellLayout = new VBox(5);
-    
-    final Text argumentName = new Text(getOptName());
-    argumentName.setFont(Font.font("System Regular", FontWeight.BOLD, 14));
-    
-    final Text argumentDescription = new Text(getDescription());
-    argumentDescription.setFont(Font.font("System Regular", FontPosture.ITALIC, 14));
-    
-    final TextFlow flow = new TextFlow(argumentName, new Text(System.lineSeparator()), argumentDescription);
-    mainCellLayout.getChildren().add(flow);
-    
-    final HBox entryCellHBox = new HBox(5);
-    final TextField argEntry = new TextField("Enter file path");
-    
-    argEntry.setOnMouseClicked(new EventHandler<Event>() {
-      private boolean justInitialized = true;
-      
-      @Override
-      public void handle(Event event) {
-        if (justInitialized) {
-          argEntry.setText("");
-          justInitialized = false;
-        }
+    final OptionEditor editor = new Editor();
+    editor.bind(this, argumentForm);
+    return editor.getNode();
+  }
+  
+  @Override
+  public OptionEditor createEditor() {
+    return overridesDisplay(FileOption.class) ? null : new Editor();
+  }
+  
+  /**
+   * Returns the file chooser to browse for files with, creating it on the first call
+   * @return the file chooser of this FileOption
+   */
+  public FileChooser getFileChooser() {
+    if (fileChooser == null) {
+      final FileChooser chooser = new FileChooser();
+      chooser.setTitle("Browse...");
+      if (extensionFilters != null) {
+        chooser.getExtensionFilters().addAll(extensionFilters);
       }
-    });
-    
-    final Label exceptionLabel = new Label();
-    exceptionLabel.setTextFill(Color.RED);
+      for (String [] filter : declaredFilters) {
+        final String [] extensions = new String[filter.length - 1];
+        System.arraycopy(filter, 1, extensions, 0, extensions.length);
+        chooser.getExtensionFilters().add(new ExtensionFilter(filter[0], extensions));
+      }
+      chooser.setInitialDirectory(startingDirectory);
+      fileChooser = chooser;
+    }
+    return fileChooser;
+  }
+  
+  /**
+   * Reusable editor for a FileOption: a regular Option's editor, 
+   * with a button to browse for a file next to the text field.
+   * @author Jose
+   */
+  public static class Editor extends Option.Editor {
     
-    argEntry.textProperty().addListener((observable, oldValue, newValue) -> { 
-      argumentForm.setOptionArgument(this, getHolder());
+    public Editor() {
+      argEntry.setPromptText("Enter file path");
       
-      if (!newValue.isEmpty()) {
-        try {
-          getVerifier().verify(this, argumentForm, newValue);
-          exceptionLabel.setText("");
-          getHolder().setValue(newValue).verify();
-          mainCellLayout.getChildren().remove(exceptionLabel);
-        } catch (VerificationException e) {
-          if(!mainCellLayout.getChildren().contains(exceptionLabel)) {
-            exceptionLabel.setText(e.getMessage());
-            mainCellLayout.getChildren().add(exceptionLabel);
-          }
-          
-          getHolder().unverify();
+      final Button browseFilesButton = new Button("Browse...");
+      browseFilesButton.setOnAction((event) -> {
+        final FileOption option = (FileOption) getOption();
+        if (option != null) {
+          File chosen = option.getFileChooser().showOpenDialog(((Node) event.getTarget()).getScene().getWindow());
+          argEntry.setText(chosen == null ? "" : chosen.getAbsolutePath());
         }
-      }
-    });
-    entryCellHBox.getChildren().add(argEntry);
-    
-    final Button browseFilesButton = new Button("Browse...");
-    browseFilesButton.setOnAction((event) -> {
-      File chosen = fileChooser.showOpenDialog(((Node) event.getTarget()).getScene().getWindow());
-      argEntry.setText(chosen == null ? "" : chosen.getAbsolutePath());
-    });
-    entryCellHBox.getChildren().add(browseFilesButton);
-    
-    
-    mainCellLayout.getChildren().add(entryCellHBox);
-    //mainCellLayout.getChildren().add(exceptionLabel);
-    
-    return mainCellLayout;
+      });
+      entryCellHBox.getChildren().add(browseFilesButton);
+    }
   }
 }
@@ -5,18 +5,28 @@ import javafx.beans.value.ObservableValue;
 import javafx.geometry.Pos;
 import javafx.scene.Node;
 import javafx.scene.control.CheckBox;
+import javafx.scene.control.Label;
 import javafx.scene.layout.HBox;
-import javafx.scene.layout.VBox;
+import javafx.scene.paint.Color;
 import javafx.scene.text.Font;
 import javafx.scene.text.FontPosture;
 import javafx.scene.text.FontWeight;
 import javafx.scene.text.Text;
 import javafx.scene.text.TextFlow;
 import jg.aquifer.commands.Subcommand;
+import jg.aquifer.commands.Verifier;
+import jg.aquifer.ui.OptionEditor;
 import jg.aquifer.ui.RawArgumentForm;
+import jg.aquifer.ui.Value;
 
 /**
  * A flag is an optional argument/option that has no arguments.
+ * 
+ * A Flag's Value is parsed as a boolean: true if it's been selected.
+ * 
+ * A Flag may be given a Verifier (ex: to reject a Flag that's mutually exclusive with another, 
+ * see Subcommand.addDependency()). Selecting such a Flag has it verified like any other Option,
+ * while Flags without one are verified as soon as they're selected.
  * @author Jose
  */
 public class Flag extends Option {
@@ -25,45 +35,127 @@ public class Flag extends Option {
    * The string used to signify that a Flag has been selected
    */
   public static final String VALUE_PLACE_HOLDER = "selected";
+  
+  /**
+   * Verifier of Flags that weren't given one. Parses selected Flags as true.
+   */
+  private static final Verifier SELECTED = Verifier.pure(Verifier.checking((op, form, arg, result) -> {
+    result.setBoolean(true);
+    return true;
+  }));
 
   /**
-   * Constructs an optional Option with a passive Verifier (Verifier.STR_VERIFIER)
-   * @param optName - the name of this Option
-   * @param description - the description of this Option
+   * Constructs a Flag
+   * @param optName - the name of this Flag
+   * @param description - the description of this Flag
    */
   public Flag(String optName, String description) throws IllegalArgumentException {
-    super(optName, description, false);
+    super(optName, description, false, SELECTED);
+  }
+  
+  /**
+   * Constructs a Flag whose selection is verified
+   * @param optName - the name of this Flag
+   * @param description - the description of this Flag
+   * @param verifier - the Verifier to use to validate the selection of this Flag. 
+   *                   Its argument is always VALUE_PLACE_HOLDER.
+   */
+  public Flag(String optName, String description, Verifier verifier) throws IllegalArgumentException {
+    super(optName, description, false, Verifier.all(verifier, SELECTED));
   }
 
   @Override
   public Node generateDisplay(RawArgumentForm argumentForm, Subcommand subcommand) {
-    final HBox mainLayout = new HBox();
-    mainLayout.setAlignment(Pos.CENTER_LEFT);
-        
-    final CheckBox checkBox = new CheckBox();
-    checkBox.selectedProperty().addListener(new ChangeListener<Boolean>() {
-      @Override
-      public void changed(ObservableValue<? extends Boolean> observable, Boolean oldValue, Boolean newValue) {
-        if (newValue == Boolean.TRUE) {
-          getHolder().setValue(VALUE_PLACE_HOLDER).verify();
-        }
-        else {
-          getHolder().setValue(null).verify();
-        }
-      }
-    });
-    mainLayout.getChildren().add(checkBox);
-    
-    final Text argumentName = new Text(getOptName());
-    argumentName.setFont(Font.font("System Regular", FontWeight.BOLD, 14));
+    final OptionEditor editor = new Editor();
+    editor.bind(this, argumentForm);
+    return editor.getNode();
+  }
+  
+  @Override
+  public OptionEditor createEditor() {
+    return overridesDisplay(Flag.class) ? null : new Editor();
+  }
+  
+  /**
+   * Reusable editor for a Flag: a check box next to the Flag's name and description.
+   * @author Jose
+   */
+  public static class Editor extends OptionEditor {
     
-    final Text argumentDescription = new Text(getDescription());
-    argumentDescription.setFont(Font.font("System Regular", FontPosture.ITALIC, 14));
+    protected final HBox mainLayout;
+    protected final CheckBox checkBox;
+    protected final Text argumentName;
+    protected final Text argumentDescription;
+    protected final Label exceptionLabel;
     
-    final TextFlow flow = new TextFlow(argumentName, new Text(System.lineSeparator()), argumentDescription);
-    mainLayout.getChildren().add(flow);
+    private boolean refreshing;
     
-    return mainLayout;
-  }
+    public Editor() {
+      mainLayout = new HBox();
+      mainLayout.setAlignment(Pos.CENTER_LEFT);
+          
+      checkBox = new CheckBox();
+      checkBox.selectedProperty().addListener(new ChangeListener<Boolean>() {
+        @Override
+        public void changed(ObservableValue<? extends Boolean> observable, Boolean oldValue, Boolean newValue) {
+          if (refreshing || getOption() == null) {
+            return;
+          }
+          
+          if (newValue == Boolean.TRUE && getOption().getVerifier() != SELECTED) {
+            getOption().enterArgument(getForm(), VALUE_PLACE_HOLDER);
+            return;
+          }
+          
+          final Value holder = getOption().getHolder();
+          if (newValue == Boolean.TRUE) {
+            holder.setValue(VALUE_PLACE_HOLDER).setBoolean(true);
+          }
+          else {
+            holder.setValue(null).setBoolean(false);
+          }
+          holder.verify();
+          getForm().getVerificationEngine().cancel(getOption());
+          getForm().argumentChanged(getOption());
+        }
+      });
+      mainLayout.getChildren().add(checkBox);
+      
+      argumentName = new Text();
+      argumentName.setFont(Font.font("System Regular", FontWeight.BOLD, 14));
+      
+      argumentDescription = new Text();
+      argumentDescription.setFont(Font.font("System Regular", FontPosture.ITALIC, 14));
+      
+      final TextFlow flow = new TextFlow(argumentName, new Text(System.lineSeparator()), argumentDescription);
+      mainLayout.getChildren().add(flow);
+      
+      exceptionLabel = new Label();
+      exceptionLabel.setTextFill(Color.RED);
+      exceptionLabel.setVisible(false);
+      exceptionLabel.managedProperty().bind(exceptionLabel.visibleProperty());
+      mainLayout.getChildren().add(exceptionLabel);
+    }
+
+    @Override
+    public Node getNode() {
+      return mainLayout;
+    }
 
+    @Override
+    protected void refresh(Option option, RawArgumentForm form) {
+      refreshing = true;
+      try {
+        argumentName.setText(option.getOptName());
+        argumentDescription.setText(option.getDescription());
+        checkBox.setSelected(VALUE_PLACE_HOLDER.equals(option.getHolder().getValue()));
+        
+        final String message = option.getHolder().getMessage();
+        exceptionLabel.setText(message == null ? "" : message);
+        exceptionLabel.setVisible(message != null);
+      } finally {
+        refreshing = false;
+      }
+    }
+  }
 }
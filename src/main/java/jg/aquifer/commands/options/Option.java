@@ -1,7 +1,5 @@
 package jg.aquifer.commands.options;
 
-import javafx.event.Event;
-import javafx.event.EventHandler;
 import javafx.scene.Node;
 import javafx.scene.control.Label;
 import javafx.scene.control.TextField;
@@ -14,7 +12,9 @@ import javafx.scene.text.FontWeight;
 import javafx.scene.text.Text;
 import javafx.scene.text.TextFlow;
 import jg.aquifer.commands.Subcommand;
+import jg.aquifer.commands.VerificationResult;
 import jg.aquifer.commands.Verifier;
+import jg.aquifer.ui.OptionEditor;
 import jg.aquifer.ui.RawArgumentForm;
 import jg.aquifer.ui.Value;
 
@@ -25,6 +25,9 @@ import jg.aquifer.ui.Value;
  * is then passed to the Option's Verifier. If the Verifier throws a VerificationException, 
  * the exception's message is displayed.
  * 
+ * The argument - and the outcome of its verification - is held by the Option's Value,
+ * while the graphics are provided by a reusable OptionEditor (see createEditor()).
+ * 
  * @author Jose
  */
 public class Option {  
@@ -38,11 +41,13 @@ public class Option {
     private String description;
     private boolean isRequired;
     private Verifier verifier;
+    private String [] dependencies;
     
     protected Builder(String optName) {
       this.optName = optName;
       this.description = "";
       this.verifier = Verifier.STR_VERIFIER;
+      this.dependencies = new String[0];
     }
     
     public Builder setOptName(String optName) {
@@ -70,8 +75,19 @@ public class Option {
       return this;
     }
     
+    /**
+     * Declares that the Verifier reads the arguments of other Options, 
+     * so that the built Option is re-verified whenever their arguments change
+     * @param dependencies - the names of the Options the Verifier reads
+     * @return this Builder
+     */
+    public Builder dependsOn(String ... dependencies) {
+      this.dependencies = dependencies.clone();
+      return this;
+    }
+    
     public Option build() {
-      return new Option(optName, description, isRequired, verifier);
+      return new Option(optName, description, isRequired, verifier, dependencies);
     }
   }
   
@@ -80,6 +96,7 @@ public class Option {
   private final boolean isRequired;
   private final Value holder;
   private final Verifier verifier;
+  private final String [] dependencies;
   
   private Node display;
   
@@ -110,11 +127,24 @@ public class Option {
    * @param verifier - the Verifier to use to validate arguments to this Option
    */
   public Option(String optName, String description, boolean isRequired, Verifier verifier) {
+    this(optName, description, isRequired, verifier, new String[0]);
+  }
+  
+  /**
+   * Constructs an Option with a custom Verifier that reads the arguments of other Options
+   * @param optName - the name of this Option
+   * @param description - the description of this Option
+   * @param isRequired - whether this Option is required
+   * @param verifier - the Verifier to use to validate arguments to this Option
+   * @param dependencies - the names of the Options the Verifier reads (see Builder.dependsOn())
+   */
+  protected Option(String optName, String description, boolean isRequired, Verifier verifier, String [] dependencies) {
     this.optName = optName;
     this.description = description;   
     this.isRequired = isRequired;
     this.verifier = verifier;
     this.holder = new Value();
+    this.dependencies = dependencies.clone();
   }
   
   @Override
@@ -130,6 +160,15 @@ public class Option {
     return optName.hashCode();
   }
   
+  /**
+   * Returns the graphics of this Option, generating them on the first call.
+   * 
+   * Note: The generated UI only uses this method for custom Option types that override generateDisplay(),
+   *       but not createEditor(). Other Options are displayed through reusable OptionEditors.
+   * @param argumentForm - the RawArgumentForm that the inputed argument will be applied to
+   * @param subcommand - the Subcommand this Option belongs to.
+   * @return the Node that holds the graphics for this Option
+   */
   public final Node makeDisplay(RawArgumentForm argumentForm, Subcommand subcommand) {
     if (display == null) {
       display = generateDisplay(argumentForm, subcommand);
@@ -145,62 +184,79 @@ public class Option {
    * @return the Node that holds the graphics for this VerifiableOption
    */
   protected Node generateDisplay(RawArgumentForm argumentForm, Subcommand subcommand) {    
-    final VBox mainCellLayout = new VBox(5);
-    
-    final Text argumentName = new Text(optName);
-    argumentName.setFont(Font.font("System Regular", FontWeight.BOLD, 14));
-    
-    final Text argumentDescription = new Text(description);
-    argumentDescription.setFont(Font.font("System Regular", FontPosture.ITALIC, 14));
-    
-    final TextFlow flow = new TextFlow(argumentName, new Text(System.lineSeparator()), argumentDescription);
-    mainCellLayout.getChildren().add(flow);
-    
-    final HBox entryCellHBox = new HBox(5);
-    final TextField argEntry = new TextField("Enter value");
-    
-    argEntry.setOnMouseClicked(new EventHandler<Event>() {
-      private boolean justInitialized = true;
-      
-      @Override
-      public void handle(Event event) {
-        if (justInitialized) {
-          argEntry.setText("");
-          justInitialized = false;
-        }
-      }
-    });
-    
-    final Label exceptionLabel = new Label();
-    exceptionLabel.setTextFill(Color.RED);
-    
-    argEntry.textProperty().addListener((observable, oldValue, newValue) -> { 
-      argumentForm.setOptionArgument(this, holder);
-      
-      if (!newValue.isEmpty()) {
-        try {
-          verifier.verify(this, argumentForm, newValue);
-          exceptionLabel.setText("");
-          holder.setValue(newValue).verify();
-          mainCellLayout.getChildren().remove(exceptionLabel);
-        } catch (VerificationException e) {
-          if(!mainCellLayout.getChildren().contains(exceptionLabel)) {
-            exceptionLabel.setText(e.getMessage());
-            mainCellLayout.getChildren().add(exceptionLabel);
-          }
-          
-          holder.unverify();
-        }
+    final OptionEditor editor = new Editor();
+    editor.bind(this, argumentForm);
+    return editor.getNode();
+  }
+  
+  /**
+   * Creates an OptionEditor that can display this Option - and any other Option of the same class.
+   * 
+   * Custom Option types that override generateDisplay() should override this method as well 
+   * to have their graphics reused across Options. Otherwise, this method returns null and 
+   * the generated UI falls back to makeDisplay().
+   * @return a new OptionEditor, or null if this Option can only be displayed through makeDisplay()
+   */
+  public OptionEditor createEditor() {
+    return overridesDisplay(Option.class) ? null : new Editor();
+  }
+  
+  /**
+   * Checks whether generateDisplay() is overridden by a class extending the given bundled Option type
+   * @param bundledType - the bundled Option type whose createEditor() is being called
+   * @return true if the class of this Option overrides generateDisplay() past the given type
+   */
+  protected final boolean overridesDisplay(Class<? extends Option> bundledType) {
+    for (Class<?> current = getClass(); current != bundledType; current = current.getSuperclass()) {
+      try {
+        current.getDeclaredMethod("generateDisplay", RawArgumentForm.class, Subcommand.class);
+        return true;
+      } catch (NoSuchMethodException e) {
+        //Not declared at this level. Keep looking up the hierarchy
       }
-    });
+    }
+    return false;
+  }
+  
+  /**
+   * Records an argument entered on the UI in this Option's Value, and schedules its verification.
+   * 
+   * The Value is unverified until the Verifier passes the argument - storing what it was parsed into, if anything - 
+   * after which its listener is notified. An empty argument is never verified.
+   * @param argumentForm - the RawArgumentForm that the argument will be applied to
+   * @param arg - the entered argument
+   */
+  protected void enterArgument(RawArgumentForm argumentForm, String arg) {
+    argumentForm.setOptionArgument(this, holder);
     
-    entryCellHBox.getChildren().add(argEntry);
+    //Verification runs off of the UI thread. Until it comes back, the argument isn't verified
+    holder.setValue(arg).unverify().setMessage(null);
+    argumentForm.argumentChanged(this);
     
+    if (arg == null || arg.isEmpty()) {
+      argumentForm.getVerificationEngine().cancel(this);
+      return;
+    }
     
-    mainCellLayout.getChildren().add(entryCellHBox);
-    //mainCellLayout.getChildren().add(exceptionLabel);
+    argumentForm.getVerificationEngine().submit(this, argumentForm, arg, (verifiedArg, result) -> recordVerification(result));
+  }
+  
+  /**
+   * Records the outcome of verifying the argument held by this Option's Value, and notifies the Value's listener.
+   * 
+   * Note: This is called on the JavaFX Application Thread, once a verification submitted 
+   *       by enterArgument() - or by the re-verification of a dependent Option - comes back.
+   * @param result - the outcome of the verification
+   */
+  public void recordVerification(VerificationResult result) {
+    if (result.isPassed()) {
+      holder.setParsed(result).verify();
+    }
+    else {
+      holder.unverify().setMessage(result.getMessage());
+    }
     
-    return mainCellLayout;
+    holder.notifyListener();
   }
   
   public Value getHolder() {
@@ -223,6 +279,13 @@ public class Option {
     return verifier;
   }
   
+  /**
+   * @return the names of the Options whose arguments this Option's Verifier reads (see Builder.dependsOn())
+   */
+  public String [] getDependencies() {
+    return dependencies.clone();
+  }
+  
   @Override
   public String toString() {
     return optName+" : "+description;
@@ -231,4 +294,80 @@ public class Option {
   public static Builder create(String name, String desc) {
     return new Builder(name).setDescription(desc);
   }
+  
+  /**
+   * Reusable editor for a regular Option: its name and description above a text field.
+   * @author Jose
+   */
+  public static class Editor extends OptionEditor {
+    
+    protected final VBox mainCellLayout;
+    protected final Text argumentName;
+    protected final Text argumentDescription;
+    protected final HBox entryCellHBox;
+    protected final TextField argEntry;
+    protected final Label exceptionLabel;
+    
+    /**
+     * Set while the editor is updating its own graphics, so that it doesn't mistake it for user input
+     */
+    private boolean refreshing;
+    
+    public Editor() {
+      mainCellLayout = new VBox(5);
+      
+      argumentName = new Text();
+      argumentName.setFont(Font.font("System Regular", FontWeight.BOLD, 14));
+      
+      argumentDescription = new Text();
+      argumentDescription.setFont(Font.font("System Regular", FontPosture.ITALIC, 14));
+      
+      final TextFlow flow = new TextFlow(argumentName, new Text(System.lineSeparator()), argumentDescription);
+      mainCellLayout.getChildren().add(flow);
+      
+      entryCellHBox = new HBox(5);
+      argEntry = new TextField();
+      argEntry.setPromptText("Enter value");
+      argEntry.textProperty().addListener((observable, oldValue, newValue) -> { 
+        if (!refreshing && getOption() != null) {
+          getOption().enterArgument(getForm(), newValue);
+          refresh(getOption(), getForm());
+        }
+      });
+      entryCellHBox.getChildren().add(argEntry);
+      
+      mainCellLayout.getChildren().add(entryCellHBox);
+      
+      exceptionLabel = new Label();
+      exceptionLabel.setTextFill(Color.RED);
+      exceptionLabel.setVisible(false);
+      exceptionLabel.managedProperty().bind(exceptionLabel.visibleProperty());
+      mainCellLayout.getChildren().add(exceptionLabel);
+    }
+
+    @Override
+    public Node getNode() {
+      return mainCellLayout;
+    }
+
+    @Override
+    protected void refresh(Option option, RawArgumentForm form) {
+      refreshing = true;
+      try {
+        argumentName.setText(option.getOptName());
+        argumentDescription.setText(option.getDescription());
+        
+        final String value = option.getHolder().getValue();
+        if (!argEntry.getText().equals(value == null ? "" : value)) {
+          argEntry.setText(value == null ? "" : value);
+        }
+        
+        final String message = option.getHolder().getMessage();
+        exceptionLabel.setText(message == null ? "" : message);
+        exceptionLabel.setVisible(message != null);
+      } finally {
+        refreshing = false;
+      }
+    }
+  }
 }
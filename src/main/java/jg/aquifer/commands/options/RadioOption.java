@@ -1,11 +1,12 @@
 package jg.aquifer.commands.options;
 
+import java.util.Arrays;
+
 import javafx.beans.value.ChangeListener;
 import javafx.beans.value.ObservableValue;
 import javafx.scene.Node;
 import javafx.scene.control.Label;
 import javafx.scene.control.RadioButton;
-import javafx.scene.control.TextField;
 import javafx.scene.control.Toggle;
 import javafx.scene.control.ToggleGroup;
 import javafx.scene.layout.HBox;
@@ -18,6 +19,7 @@ import javafx.scene.text.Text;
 import javafx.scene.text.TextFlow;
 import jg.aquifer.commands.Subcommand;
 import jg.aquifer.commands.Verifier;
+import jg.aquifer.ui.OptionEditor;
 import jg.aquifer.ui.RawArgumentForm;
 
 /**
@@ -27,6 +29,11 @@ import jg.aquifer.ui.RawArgumentForm;
  * This is synonymous to radio buttons in common UI toolkits, where
  * users are onyl allowed to select one button in a group of buttons.
  * 
+ * The generated UI only offers the choices, but arguments entered by other means 
+ * (ex: CommandLineRunner) are passed as-is unless the RadioOption was created through strict(), 
+ * or from an enum, in which case arguments other than the choices are rejected. When the choices 
+ * are the constants of an enum, the chosen argument is parsed into its constant.
+ * 
  * @author Jose
  *
  */
@@ -42,67 +49,184 @@ public class RadioOption extends Option {
    * @param choices - the possible choices, as Strings, for this RadioOption
    */
   public RadioOption(String optName, String description, boolean isRequired, String ... choices) {
-    super(optName, description, isRequired);
+    this(optName, description, isRequired, Verifier.STR_VERIFIER, choices);
+  }
+  
+  private RadioOption(String optName, String description, boolean isRequired, Verifier verifier, String [] choices) {
+    super(optName, description, isRequired, verifier);
     this.choices = choices;
   }
   
+  /**
+   * Creates a RadioOption that rejects arguments other than its choices
+   * @param optName - the name of the RadioOption
+   * @param description - the description of the RadioOption
+   * @param isRequired - whether the RadioOption is required
+   * @param choices - the possible choices, as Strings, for the RadioOption
+   * @return the created RadioOption
+   */
+  public static RadioOption strict(String optName, String description, boolean isRequired, String ... choices) {
+    return new RadioOption(optName, description, isRequired, choiceVerifier(choices, null), choices);
+  }
+  
+  /**
+   * Constructs a RadioOption whose choices are the constants of an enum, shown by name.
+   * 
+   * The chosen argument is parsed into its enum constant.
+   * @param optName - the name of this RadioOption
+   * @param description - the description of this RadioOption
+   * @param isRequired - whether this RadioOption is required
+   * @param choices - the enum whose constants are the possible choices for this RadioOption
+   */
+  public <E extends Enum<E>> RadioOption(String optName, String description, boolean isRequired, Class<E> choices) {
+    this(optName, description, isRequired, choices.getEnumConstants());
+  }
+  
+  private RadioOption(String optName, String description, boolean isRequired, Enum<?> [] constants) {
+    super(optName, description, isRequired, choiceVerifier(namesOf(constants), constants));
+    this.choices = namesOf(constants);
+  }
+  
+  /**
+   * Creates a Verifier that only accepts the given choices
+   * @param choices - the possible choices
+   * @param parsedChoices - what each choice is parsed into, or null if choices aren't parsed
+   * @return the created Verifier
+   */
+  private static Verifier choiceVerifier(String [] choices, Object [] parsedChoices) {
+    return Verifier.pure(Verifier.checking((op, form, arg, result) -> {
+      for (int i = 0; i < choices.length; i++) {
+        if (choices[i].equals(arg)) {
+          if (parsedChoices != null) {
+            result.setObject(parsedChoices[i]);
+          }
+          return true;
+        }
+      }
+      return result.fail("Expected one of "+Arrays.toString(choices));
+    }));
+  }
+  
+  private static String [] namesOf(Enum<?> [] constants) {
+    final String [] names = new String[constants.length];
+    for (int i = 0; i < constants.length; i++) {
+      names[i] = constants[i].name();
+    }
+    return names;
+  }
+  
   @Override
   public Node generateDisplay(RawArgumentForm argumentForm, Subcommand subcommand) {
-    final VBox mainCellLayout = new VBox(5);
-    
-    final Text argumentName = new Text(getOptName());
-    argumentName.setFont(Font.font("System Regular", FontWeight.BOLD, 14));
-    
-    final Text argumentDescription = new Text(getDescription());
-    argumentDescription.setFont(Font.font("System Regular", FontPosture.ITALIC, 14));
-    
-    final TextFlow flow = new TextFlow(argumentName, new Text(System.lineSeparator()), argumentDescription);
-    mainCellLayout.getChildren().add(flow);
+    final OptionEditor editor = new Editor();
+    editor.bind(this, argumentForm);
+    return editor.getNode();
+  }
+  
+  @Override
+  public OptionEditor createEditor() {
+    return overridesDisplay(RadioOption.class) ? null : new Editor();
+  }
+
+  public String[] getChoices() {
+    return choices;
+  }
+  
+  /**
+   * Reusable editor for a RadioOption: a radio button for each choice,
+   * below the RadioOption's name and description.
+   * 
+   * The radio buttons are only rebuilt when the editor is bound to 
+   * a RadioOption with different choices.
+   * @author Jose
+   */
+  public static class Editor extends OptionEditor {
     
-    final HBox entryCellHBox = new HBox(5);
+    protected final VBox mainCellLayout;
+    protected final Text argumentName;
+    protected final Text argumentDescription;
+    protected final HBox entryCellHBox;
+    protected final ToggleGroup selectionGroup;
+    protected final Label exceptionLabel;
     
-    final Label exceptionLabel = new Label();
-    exceptionLabel.setTextFill(Color.RED);
+    private String [] shownChoices;
+    private boolean refreshing;
     
-    final ToggleGroup selectionGroup = new ToggleGroup();
-    for (String string : choices) {
-      RadioButton radioButton = new RadioButton(string);
-      radioButton.setToggleGroup(selectionGroup);
+    public Editor() {
+      mainCellLayout = new VBox(5);
       
-      entryCellHBox.getChildren().add(radioButton);
-    }
-    
-    final Option currentOption = this;
-    
-    selectionGroup.selectedToggleProperty().addListener(new ChangeListener<Toggle>() {
+      argumentName = new Text();
+      argumentName.setFont(Font.font("System Regular", FontWeight.BOLD, 14));
       
-      @Override
-      public void changed(ObservableValue<? extends Toggle> observable, Toggle oldValue, Toggle newValue) {
-        RadioButton selectedButton = (RadioButton) newValue;
-        final String selectedValue = selectedButton.getText();
-        
-        try {
-          getVerifier().verify(currentOption, argumentForm, selectedValue);
-          exceptionLabel.setText("");
-          getHolder().setValue(selectedValue).verify();
-        } catch (VerificationException e) {
-          if(!mainCellLayout.getChildren().contains(exceptionLabel)) {
-            exceptionLabel.setText(e.getMessage());
-            mainCellLayout.getChildren().add(exceptionLabel);
+      argumentDescription = new Text();
+      argumentDescription.setFont(Font.font("System Regular", FontPosture.ITALIC, 14));
+      
+      final TextFlow flow = new TextFlow(argumentName, new Text(System.lineSeparator()), argumentDescription);
+      mainCellLayout.getChildren().add(flow);
+      
+      entryCellHBox = new HBox(5);
+      
+      exceptionLabel = new Label();
+      exceptionLabel.setTextFill(Color.RED);
+      exceptionLabel.setVisible(false);
+      exceptionLabel.managedProperty().bind(exceptionLabel.visibleProperty());
+      
+      selectionGroup = new ToggleGroup();
+      selectionGroup.selectedToggleProperty().addListener(new ChangeListener<Toggle>() {
+        @Override
+        public void changed(ObservableValue<? extends Toggle> observable, Toggle oldValue, Toggle newValue) {
+          if (refreshing || newValue == null || getOption() == null) {
+            return;
           }
           
-          getHolder().unverify();
-        }   
-      }
-    });    
-    
-    mainCellLayout.getChildren().add(entryCellHBox);
-    mainCellLayout.getChildren().add(exceptionLabel);
-    
-    return mainCellLayout;
-  }
+          final RadioButton selectedButton = (RadioButton) newValue;
+          getOption().enterArgument(getForm(), selectedButton.getText());
+          refresh(getOption(), getForm());
+        }
+      });
+      
+      mainCellLayout.getChildren().add(entryCellHBox);
+      mainCellLayout.getChildren().add(exceptionLabel);
+    }
 
-  public String[] getChoices() {
-    return choices;
+    @Override
+    public Node getNode() {
+      return mainCellLayout;
+    }
+
+    @Override
+    protected void refresh(Option option, RawArgumentForm form) {
+      refreshing = true;
+      try {
+        argumentName.setText(option.getOptName());
+        argumentDescription.setText(option.getDescription());
+        
+        final String [] choices = ((RadioOption) option).getChoices();
+        if (!Arrays.equals(choices, shownChoices)) {
+          selectionGroup.getToggles().clear();
+          entryCellHBox.getChildren().clear();
+          for (String string : choices) {
+            RadioButton radioButton = new RadioButton(string);
+            radioButton.setToggleGroup(selectionGroup);
+            
+            entryCellHBox.getChildren().add(radioButton);
+          }
+          shownChoices = choices;
+        }
+        
+        final String value = option.getHolder().getValue();
+        selectionGroup.selectToggle(null);
+        for (Toggle toggle : selectionGroup.getToggles()) {
+          if (((RadioButton) toggle).getText().equals(value)) {
+            selectionGroup.selectToggle(toggle);
+          }
+        }
+        
+        final String message = option.getHolder().getMessage();
+        exceptionLabel.setText(message == null ? "" : message);
+        exceptionLabel.setVisible(message != null);
+      } finally {
+        refreshing = false;
+      }
+    }
   }
 }
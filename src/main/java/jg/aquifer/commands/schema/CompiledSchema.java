@@ -0,0 +1,322 @@
+package jg.aquifer.commands.schema;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * The compact, binary form of a schema.
+ *
+ * A compiled schema starts with a header identifying the format and the declarative file it was compiled from
+ * (by size and a CRC-32 of its content, so that an edit is noticed however its modification time turns out),
+ * followed by a table of every distinct string of the schema, in UTF-8.
+ * The declarations follow as tagged records, in the order a SchemaHandler receives them, referring to strings
+ * by their index in the table. Strings shared by many Options (ex: Verifier names) are thus only decoded once,
+ * and reading a compiled schema involves no parsing beyond reading fixed-width integers.
+ *
+ * @author Jose
+ */
+final class CompiledSchema {
+
+  private static final int MAGIC = 0x41515346; //"AQSF"
+  private static final short VERSION = 2;
+
+  /**
+   * Magic, version, then the size and the CRC-32 of the content of the declarative file
+   */
+  static final int HEADER_SIZE = 4 + 2 + 8 + 8;
+
+  //Record tags
+  private static final byte PROGRAM = 1;
+  private static final byte SUBCOMMAND = 2;
+  private static final byte END_SUBCOMMAND = 3;
+  private static final byte OPTION = 4;
+  private static final byte DEPENDENCY = 5;
+  private static final byte END = 6;
+
+  private CompiledSchema() {}
+
+  /**
+   * A SchemaHandler writing the declarations it receives as a compiled schema
+   * @author Jose
+   */
+  static final class Writer implements SchemaHandler {
+
+    private final Map<String, Integer> indices;
+    private final List<String> strings;
+    private final ByteArrayOutputStream recordBytes;
+    private final DataOutputStream records;
+
+    Writer() {
+      this.indices = new HashMap<>();
+      this.strings = new ArrayList<>();
+      this.recordBytes = new ByteArrayOutputStream(4096);
+      this.records = new DataOutputStream(recordBytes);
+    }
+
+    @Override
+    public void program(String name, String description) throws IOException {
+      records.writeByte(PROGRAM);
+      writeString(name);
+      writeString(description);
+    }
+
+    @Override
+    public void subcommand(String name, String description) throws IOException {
+      records.writeByte(SUBCOMMAND);
+      writeString(name);
+      writeString(description);
+    }
+
+    @Override
+    public void endSubcommand() throws IOException {
+      records.writeByte(END_SUBCOMMAND);
+    }
+
+    @Override
+    public void option(OptionSpec option) throws IOException {
+      records.writeByte(OPTION);
+      records.writeByte(option.type);
+      writeString(option.name);
+      writeString(option.description);
+      records.writeBoolean(option.required);
+      writeStrings(option.verifiers);
+      writeStrings(option.choices);
+      writeString(option.directory);
+      writeStrings(option.extensionDescriptions);
+      for (String [] patterns : option.extensionPatterns) {
+        writeStrings(patterns);
+      }
+      writeStrings(option.dependsOn);
+    }
+
+    @Override
+    public void dependency(String optName, String [] dependencies) throws IOException {
+      records.writeByte(DEPENDENCY);
+      writeString(optName);
+      writeStrings(dependencies);
+    }
+
+    @Override
+    public void end() throws IOException {
+      records.writeByte(END);
+    }
+
+    /**
+     * Writes the compiled schema, replacing the target file at once
+     * so that a concurrent reader never sees it half-written
+     * @param target - the file to write to
+     * @param source - the content of the declarative file compiled from
+     */
+    void writeTo(Path target, byte [] source) throws IOException {
+      final Path absolute = target.toAbsolutePath();
+      final Path temporary = Files.createTempFile(absolute.getParent(), absolute.getFileName().toString(), ".tmp");
+      try {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+          out.writeInt(MAGIC);
+          out.writeShort(VERSION);
+          out.writeLong(source.length);
+          out.writeLong(checksum(source));
+
+          out.writeInt(strings.size());
+          for (String string : strings) {
+            final byte [] bytes = string.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+          }
+
+          recordBytes.writeTo(out);
+        }
+
+        try {
+          Files.move(temporary, absolute, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+          Files.move(temporary, absolute, StandardCopyOption.REPLACE_EXISTING);
+        }
+      } finally {
+        Files.deleteIfExists(temporary);
+      }
+    }
+
+    private void writeString(String string) throws IOException {
+      if (string == null) {
+        records.writeInt(-1);
+        return;
+      }
+
+      Integer index = indices.get(string);
+      if (index == null) {
+        index = strings.size();
+        indices.put(string, index);
+        strings.add(string);
+      }
+      records.writeInt(index);
+    }
+
+    private void writeStrings(String [] strings) throws IOException {
+      records.writeInt(strings.length);
+      for (String string : strings) {
+        writeString(string);
+      }
+    }
+  }
+
+  /**
+   * Checks whether a compiled schema was compiled from the current version of a declarative file
+   * @param compiled - the compiled schema
+   * @param source - the current content of the declarative file
+   * @return true if the compiled schema is of this format and was compiled from the given content
+   */
+  static boolean isCompiledFrom(Path compiled, byte [] source) throws IOException {
+    try (FileChannel channel = FileChannel.open(compiled, StandardOpenOption.READ)) {
+      final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+      while (header.hasRemaining() && channel.read(header) >= 0) {
+        //Keep reading until the header is complete or the file ends
+      }
+      if (header.hasRemaining()) {
+        return false;
+      }
+
+      //Called through Buffer, as ByteBuffer's covariant overrides don't exist on Java 8
+      ((Buffer) header).flip();
+      return header.getInt() == MAGIC &&
+             header.getShort() == VERSION &&
+             header.getLong() == source.length &&
+             header.getLong() == checksum(source);
+    }
+  }
+
+  private static long checksum(byte [] source) {
+    final CRC32 crc = new CRC32();
+    crc.update(source, 0, source.length);
+    return crc.getValue();
+  }
+
+  /**
+   * Reads a compiled schema, handing its declarations to a SchemaHandler
+   * @param compiled - the compiled schema
+   * @param handler - the SchemaHandler to hand declarations to
+   * @throws SchemaException if the file isn't a compiled schema of this format, or is truncated
+   * @throws IOException if the file couldn't be read
+   */
+  static void read(Path compiled, SchemaHandler handler) throws IOException {
+    //Read onto the heap rather than mapped, as a lingering mapping keeps the file from being replaced on Windows
+    final ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(compiled));
+
+    try {
+      if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC || buffer.getShort() != VERSION) {
+        throw new SchemaException("Not a compiled schema of version "+VERSION+": "+compiled);
+      }
+      ((Buffer) buffer).position(HEADER_SIZE);
+
+      final String [] strings = readTable(buffer);
+      while (true) {
+        final byte tag = buffer.get();
+        switch (tag) {
+        case PROGRAM:
+          handler.program(readString(buffer, strings), readString(buffer, strings));
+          break;
+        case SUBCOMMAND:
+          handler.subcommand(readString(buffer, strings), readString(buffer, strings));
+          break;
+        case END_SUBCOMMAND:
+          handler.endSubcommand();
+          break;
+        case OPTION:
+          handler.option(readOption(buffer, strings));
+          break;
+        case DEPENDENCY:
+          handler.dependency(readString(buffer, strings), readStrings(buffer, strings));
+          break;
+        case END:
+          handler.end();
+          return;
+        default:
+          throw new SchemaException("Corrupted compiled schema (unknown record "+tag+"): "+compiled);
+        }
+      }
+    } catch (BufferUnderflowException | IndexOutOfBoundsException | NegativeArraySizeException e) {
+      throw new SchemaException("Corrupted compiled schema: "+compiled);
+    }
+  }
+
+  private static String [] readTable(ByteBuffer buffer) {
+    final String [] strings = new String[checkedLength(buffer, 4)];
+
+    byte [] bytes = new byte[256];
+    for (int i = 0; i < strings.length; i++) {
+      final int length = checkedLength(buffer, 1);
+      if (length > bytes.length) {
+        bytes = new byte[Math.max(length, bytes.length * 2)];
+      }
+      buffer.get(bytes, 0, length);
+      strings[i] = new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+    return strings;
+  }
+
+  /**
+   * Reads the length of an array, making sure that the remaining records could hold it,
+   * so that a corrupted length fails the read rather than allocating a huge array
+   * @param elementSize - the least amount of bytes each element takes
+   */
+  private static int checkedLength(ByteBuffer buffer, int elementSize) {
+    final int length = buffer.getInt();
+    if (length < 0 || length > buffer.remaining() / elementSize) {
+      throw new BufferUnderflowException();
+    }
+    return length;
+  }
+
+  private static OptionSpec readOption(ByteBuffer buffer, String [] strings) {
+    final OptionSpec option = new OptionSpec();
+    option.type = buffer.get();
+    option.name = readString(buffer, strings);
+    option.description = readString(buffer, strings);
+    option.required = buffer.get() != 0;
+    option.verifiers = readStrings(buffer, strings);
+    option.choices = readStrings(buffer, strings);
+    option.directory = readString(buffer, strings);
+    option.extensionDescriptions = readStrings(buffer, strings);
+    option.extensionPatterns = new String[option.extensionDescriptions.length][];
+    for (int i = 0; i < option.extensionPatterns.length; i++) {
+      option.extensionPatterns[i] = readStrings(buffer, strings);
+    }
+    option.dependsOn = readStrings(buffer, strings);
+    return option;
+  }
+
+  private static String readString(ByteBuffer buffer, String [] strings) {
+    final int index = buffer.getInt();
+    return index < 0 ? null : strings[index];
+  }
+
+  private static String [] readStrings(ByteBuffer buffer, String [] strings) {
+    final int length = checkedLength(buffer, 4);
+    if (length == 0) {
+      return OptionSpec.NONE;
+    }
+
+    final String [] read = new String[length];
+    for (int i = 0; i < length; i++) {
+      read[i] = readString(buffer, strings);
+    }
+    return read;
+  }
+}
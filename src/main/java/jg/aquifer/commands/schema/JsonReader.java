@@ -0,0 +1,435 @@
+package jg.aquifer.commands.schema;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * A streaming reader of JSON text (RFC 8259), pulling one token at a time from a Reader.
+ *
+ * Only the current token is ever held, so a schema is read in a single pass with a fixed-size buffer,
+ * however large it is. Strings are decoded straight out of the buffer unless they contain escapes
+ * or straddle a refill. Numbers are only ever skipped, as schemas don't hold any.
+ *
+ * Malformed text is reported as a SchemaException locating the error by line and column.
+ *
+ * @author Jose
+ */
+final class JsonReader implements Closeable {
+
+  static final int BEGIN_OBJECT = 1;
+  static final int END_OBJECT = 2;
+  static final int BEGIN_ARRAY = 3;
+  static final int END_ARRAY = 4;
+  static final int NAME = 5;
+  static final int STRING = 6;
+  static final int NUMBER = 7;
+  static final int BOOLEAN = 8;
+  static final int NULL = 9;
+  static final int END_DOCUMENT = 10;
+
+  //What the reader is in the middle of
+  private static final int EMPTY_DOCUMENT = 1;
+  private static final int NONEMPTY_DOCUMENT = 2;
+  private static final int EMPTY_ARRAY = 3;
+  private static final int NONEMPTY_ARRAY = 4;
+  private static final int EMPTY_OBJECT = 5;
+  private static final int DANGLING_NAME = 6;
+  private static final int NONEMPTY_OBJECT = 7;
+
+  private final Reader in;
+  private final char [] buffer;
+  private final StringBuilder builder;
+
+  private int pos;
+  private int limit;
+
+  //For locating errors
+  private long bufferStart;
+  private long lineStart;
+  private int line;
+
+  private int [] stack;
+  private int depth;
+  private int peeked;
+
+  JsonReader(Reader in) {
+    this.in = in;
+    this.buffer = new char[8192];
+    this.builder = new StringBuilder();
+    this.line = 1;
+    this.stack = new int[32];
+    this.stack[depth++] = EMPTY_DOCUMENT;
+  }
+
+  /**
+   * @return the kind of the next token, without consuming it
+   */
+  int peek() throws IOException {
+    if (peeked == 0) {
+      peeked = nextToken();
+    }
+    return peeked;
+  }
+
+  /**
+   * @return whether the current object or array has more elements
+   */
+  boolean hasNext() throws IOException {
+    final int token = peek();
+    return token != END_OBJECT && token != END_ARRAY && token != END_DOCUMENT;
+  }
+
+  void beginObject() throws IOException {
+    expect(BEGIN_OBJECT, "an object");
+    pos++;
+    push(EMPTY_OBJECT);
+    peeked = 0;
+  }
+
+  void endObject() throws IOException {
+    expect(END_OBJECT, "the end of an object");
+    depth--;
+    peeked = 0;
+  }
+
+  void beginArray() throws IOException {
+    expect(BEGIN_ARRAY, "an array");
+    pos++;
+    push(EMPTY_ARRAY);
+    peeked = 0;
+  }
+
+  void endArray() throws IOException {
+    expect(END_ARRAY, "the end of an array");
+    depth--;
+    peeked = 0;
+  }
+
+  String nextName() throws IOException {
+    expect(NAME, "a name");
+    peeked = 0;
+    return readString();
+  }
+
+  /**
+   * @return the next string, or null if the next value is null
+   */
+  String nextString() throws IOException {
+    if (peek() == NULL) {
+      consumeLiteral("null");
+      return null;
+    }
+    expect(STRING, "a string");
+    peeked = 0;
+    return readString();
+  }
+
+  boolean nextBoolean() throws IOException {
+    expect(BOOLEAN, "true or false");
+    final boolean value = buffer[pos] == 't';
+    consumeLiteral(value ? "true" : "false");
+    return value;
+  }
+
+  /**
+   * Skips the next value, along with everything it contains
+   */
+  void skipValue() throws IOException {
+    int nesting = 0;
+    do {
+      switch (peek()) {
+      case BEGIN_OBJECT:
+        beginObject();
+        nesting++;
+        break;
+      case BEGIN_ARRAY:
+        beginArray();
+        nesting++;
+        break;
+      case END_OBJECT:
+        endObject();
+        nesting--;
+        break;
+      case END_ARRAY:
+        endArray();
+        nesting--;
+        break;
+      case NAME:
+        nextName();
+        break;
+      case STRING:
+      case NULL:
+        nextString();
+        break;
+      case BOOLEAN:
+        nextBoolean();
+        break;
+      case NUMBER:
+        skipNumber();
+        break;
+      default:
+        throw error("Expected a value");
+      }
+    } while (nesting > 0);
+  }
+
+  /**
+   * Creates a SchemaException locating the given message at the current position
+   * @param message - a concise message detailing what's wrong
+   * @return the created SchemaException
+   */
+  SchemaException error(String message) {
+    final long column = bufferStart + pos - lineStart + 1;
+    return new SchemaException(message+" (at line "+line+", column "+column+")");
+  }
+
+  @Override
+  public void close() throws IOException {
+    in.close();
+  }
+
+  private void expect(int token, String description) throws IOException {
+    if (peek() != token) {
+      throw error("Expected "+description);
+    }
+  }
+
+  private void push(int context) {
+    if (depth == stack.length) {
+      stack = Arrays.copyOf(stack, depth * 2);
+    }
+    stack[depth++] = context;
+  }
+
+  /**
+   * Moves past the separators leading to the next token
+   * @return the kind of the next token
+   */
+  private int nextToken() throws IOException {
+    final int context = stack[depth - 1];
+    switch (context) {
+    case EMPTY_DOCUMENT:
+      stack[depth - 1] = NONEMPTY_DOCUMENT;
+      break;
+    case NONEMPTY_DOCUMENT:
+      if (nextNonWhitespace() != -1) {
+        throw error("Expected the end of the document");
+      }
+      return END_DOCUMENT;
+    case EMPTY_ARRAY:
+      stack[depth - 1] = NONEMPTY_ARRAY;
+      if (nextNonWhitespace() == ']') {
+        pos++;
+        return END_ARRAY;
+      }
+      break;
+    case NONEMPTY_ARRAY: {
+      final int c = nextNonWhitespace();
+      if (c == ']') {
+        pos++;
+        return END_ARRAY;
+      }
+      if (c != ',') {
+        throw error("Expected ',' or ']'");
+      }
+      pos++;
+      break;
+    }
+    case EMPTY_OBJECT:
+    case NONEMPTY_OBJECT: {
+      int c = nextNonWhitespace();
+      if (c == '}') {
+        pos++;
+        return END_OBJECT;
+      }
+      if (context == NONEMPTY_OBJECT) {
+        if (c != ',') {
+          throw error("Expected ',' or '}'");
+        }
+        pos++;
+        c = nextNonWhitespace();
+      }
+      if (c != '"') {
+        throw error("Expected a name");
+      }
+      stack[depth - 1] = DANGLING_NAME;
+      return NAME;
+    }
+    case DANGLING_NAME:
+      if (nextNonWhitespace() != ':') {
+        throw error("Expected ':'");
+      }
+      pos++;
+      stack[depth - 1] = NONEMPTY_OBJECT;
+      break;
+    }
+
+    final int c = nextNonWhitespace();
+    switch (c) {
+    case '{':
+      return BEGIN_OBJECT;
+    case '[':
+      return BEGIN_ARRAY;
+    case '"':
+      return STRING;
+    case 't':
+    case 'f':
+      return BOOLEAN;
+    case 'n':
+      return NULL;
+    case -1:
+      throw error("Unexpected end of the document");
+    default:
+      if (c == '-' || (c >= '0' && c <= '9')) {
+        return NUMBER;
+      }
+      throw error("Unexpected character '"+(char) c+"'");
+    }
+  }
+
+  /**
+   * Skips whitespace
+   * @return the next character - without consuming it - or -1 at the end of the document
+   */
+  private int nextNonWhitespace() throws IOException {
+    while (pos < limit || fill()) {
+      final char c = buffer[pos];
+      if (c == '\n') {
+        line++;
+        lineStart = bufferStart + pos + 1;
+      }
+      else if (c != ' ' && c != '\t' && c != '\r') {
+        return c;
+      }
+      pos++;
+    }
+    return -1;
+  }
+
+  /**
+   * Reads the string starting at the current quote, consuming its closing quote
+   */
+  private String readString() throws IOException {
+    pos++;
+
+    //Most strings have no escapes and fit the buffer
+    for (int i = pos; i < limit; i++) {
+      final char c = buffer[i];
+      if (c == '"') {
+        final String string = new String(buffer, pos, i - pos);
+        pos = i + 1;
+        return string;
+      }
+      if (c == '\\' || c < ' ') {
+        break;
+      }
+    }
+
+    builder.setLength(0);
+    while (true) {
+      if (pos == limit && !fill()) {
+        throw error("Unterminated string");
+      }
+
+      final char c = buffer[pos++];
+      if (c == '"') {
+        return builder.toString();
+      }
+      else if (c == '\\') {
+        builder.append(readEscape());
+      }
+      else if (c < ' ') {
+        pos--;
+        throw error("Unescaped control character in string");
+      }
+      else {
+        builder.append(c);
+      }
+    }
+  }
+
+  private char readEscape() throws IOException {
+    if (pos == limit && !fill()) {
+      throw error("Unterminated escape sequence");
+    }
+
+    final char c = buffer[pos++];
+    switch (c) {
+    case '"':
+    case '\\':
+    case '/':
+      return c;
+    case 'b':
+      return '\b';
+    case 'f':
+      return '\f';
+    case 'n':
+      return '\n';
+    case 'r':
+      return '\r';
+    case 't':
+      return '\t';
+    case 'u':
+      int unicode = 0;
+      for (int i = 0; i < 4; i++) {
+        if (pos == limit && !fill()) {
+          throw error("Unterminated escape sequence");
+        }
+        final int digit = Character.digit(buffer[pos++], 16);
+        if (digit < 0) {
+          throw error("Malformed unicode escape");
+        }
+        unicode = (unicode << 4) | digit;
+      }
+      return (char) unicode;
+    default:
+      throw error("Invalid escape sequence '\\"+c+"'");
+    }
+  }
+
+  private void consumeLiteral(String literal) throws IOException {
+    for (int i = 0; i < literal.length(); i++) {
+      if ((pos == limit && !fill()) || buffer[pos] != literal.charAt(i)) {
+        throw error("Expected '"+literal+"'");
+      }
+      pos++;
+    }
+    if ((pos < limit || fill()) && Character.isLetterOrDigit(buffer[pos])) {
+      throw error("Expected '"+literal+"'");
+    }
+    peeked = 0;
+  }
+
+  private void skipNumber() throws IOException {
+    while (pos < limit || fill()) {
+      final char c = buffer[pos];
+      if ((c < '0' || c > '9') && c != '-' && c != '+' && c != '.' && c != 'e' && c != 'E') {
+        break;
+      }
+      pos++;
+    }
+    peeked = 0;
+  }
+
+  /**
+   * Refills the buffer once it's been consumed
+   * @return whether there are more characters to read
+   */
+  private boolean fill() throws IOException {
+    bufferStart += limit;
+    pos = 0;
+    limit = 0;
+
+    int read;
+    while ((read = in.read(buffer, 0, buffer.length)) == 0) {
+      //Readers may return nothing without having reached the end
+    }
+    if (read > 0) {
+      limit = read;
+      return true;
+    }
+    return false;
+  }
+}
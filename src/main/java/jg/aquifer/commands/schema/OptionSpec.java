@@ -0,0 +1,55 @@
+package jg.aquifer.commands.schema;
+
+/**
+ * The declaration of an Option in a schema, before its Verifier is resolved
+ * and the Option itself is created.
+ *
+ * @author Jose
+ */
+final class OptionSpec {
+
+  //Types of Options
+  static final byte OPTION = 0;
+  static final byte FLAG = 1;
+  static final byte RADIO = 2;
+  static final byte FILE = 3;
+
+  static final String [] NONE = new String[0];
+
+  byte type;
+  String name;
+  String description;
+  boolean required;
+
+  /**
+   * The names of the Verifiers the argument must pass, none meaning Verifier.STR_VERIFIER
+   */
+  String [] verifiers;
+
+  /**
+   * The choices of a RadioOption
+   */
+  String [] choices;
+
+  /**
+   * The starting directory of a FileOption, or null
+   */
+  String directory;
+
+  /**
+   * The extension filters of a FileOption, as a description and its patterns
+   */
+  String [] extensionDescriptions;
+  String [][] extensionPatterns;
+
+  String [] dependsOn;
+
+  OptionSpec() {
+    this.description = "";
+    this.verifiers = NONE;
+    this.choices = NONE;
+    this.extensionDescriptions = NONE;
+    this.extensionPatterns = new String[0][];
+    this.dependsOn = NONE;
+  }
+}
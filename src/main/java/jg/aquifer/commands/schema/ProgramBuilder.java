@@ -0,0 +1,165 @@
+package jg.aquifer.commands.schema;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import jg.aquifer.commands.Program;
+import jg.aquifer.commands.Subcommand;
+import jg.aquifer.commands.Verifier;
+import jg.aquifer.commands.options.FileOption;
+import jg.aquifer.commands.options.Flag;
+import jg.aquifer.commands.options.Option;
+import jg.aquifer.commands.options.RadioOption;
+
+/**
+ * A SchemaHandler building the Program a schema declares
+ *
+ * @author Jose
+ */
+final class ProgramBuilder implements SchemaHandler {
+
+  private final Map<String, Verifier> verifiers;
+
+  /**
+   * Verifiers already resolved from a list of names (see resolve())
+   */
+  private final Map<String, Verifier> combined;
+
+  private Program program;
+  private Subcommand current;
+
+  /**
+   * Constructs a ProgramBuilder
+   * @param verifiers - the Verifiers Options may refer to, by name
+   */
+  ProgramBuilder(Map<String, Verifier> verifiers) {
+    this.verifiers = verifiers;
+    this.combined = new HashMap<>();
+  }
+
+  @Override
+  public void program(String name, String description) throws IOException {
+    program = new Program(name, description == null ? "" : description);
+    current = program.getProgramOptions();
+  }
+
+  @Override
+  public void subcommand(String name, String description) throws IOException {
+    final Subcommand subcommand = new Subcommand(name);
+    if (description != null) {
+      subcommand.setDescription(description);
+    }
+    if (!program.addSubcommand(subcommand)) {
+      throw new SchemaException("Duplicate subcommand '"+name+"'");
+    }
+    current = subcommand;
+  }
+
+  @Override
+  public void endSubcommand() throws IOException {
+    current = program.getProgramOptions();
+  }
+
+  @Override
+  public void option(OptionSpec option) throws IOException {
+    if (current.hasOption(option.name)) {
+      throw new SchemaException("Duplicate option '"+option.name+"' in '"+current.getName()+"'");
+    }
+
+    try {
+      current.addOption(create(option));
+    } catch (IllegalArgumentException e) {
+      throw new SchemaException("Invalid option '"+option.name+"' in '"+current.getName()+"': "+e.getMessage());
+    }
+
+    if (option.dependsOn.length > 0) {
+      current.addDependency(option.name, option.dependsOn);
+    }
+  }
+
+  @Override
+  public void dependency(String optName, String [] dependencies) throws IOException {
+    current.addDependency(optName, dependencies);
+  }
+
+  @Override
+  public void end() throws IOException {
+    if (program == null) {
+      throw new SchemaException("The schema declares no program");
+    }
+  }
+
+  /**
+   * @return the built Program
+   */
+  Program getProgram() {
+    return program;
+  }
+
+  private Option create(OptionSpec option) throws SchemaException {
+    switch (option.type) {
+    case OptionSpec.FLAG:
+      if (option.required) {
+        throw new SchemaException("Flag '"+option.name+"' can't be required");
+      }
+      return option.verifiers.length == 0 ?
+          new Flag(option.name, option.description) :
+          new Flag(option.name, option.description, resolve(option));
+    case OptionSpec.RADIO:
+      if (option.verifiers.length > 0) {
+        throw new SchemaException("Radio option '"+option.name+"' can't have a verifier, as only its choices are accepted");
+      }
+      return RadioOption.strict(option.name, option.description, option.required, option.choices);
+    case OptionSpec.FILE:
+      final FileOption fileOption = new FileOption(option.name,
+                                                   option.description,
+                                                   option.required,
+                                                   resolve(option),
+                                                   option.directory == null ? null : new File(option.directory));
+      for (int i = 0; i < option.extensionDescriptions.length; i++) {
+        fileOption.addExtensionFilter(option.extensionDescriptions[i], option.extensionPatterns[i]);
+      }
+      return fileOption;
+    case OptionSpec.OPTION:
+      return new Option(option.name, option.description, option.required, resolve(option));
+    default:
+      throw new SchemaException("Unknown type of option '"+option.name+"'");
+    }
+  }
+
+  /**
+   * Resolves the Verifier of an Option from the names it lists.
+   * Several names resolve to a Verifier.checkAll() of their Verifiers.
+   */
+  private Verifier resolve(OptionSpec option) throws SchemaException {
+    final String [] names = option.verifiers;
+    if (names.length == 0) {
+      return Verifier.STR_VERIFIER;
+    }
+    if (names.length == 1) {
+      return lookup(option, names[0]);
+    }
+
+    final String key = String.join(",", names);
+    Verifier verifier = combined.get(key);
+    if (verifier == null) {
+      final Verifier [] all = new Verifier[names.length];
+      for (int i = 0; i < names.length; i++) {
+        all[i] = lookup(option, names[i]);
+      }
+      verifier = Verifier.checkAll(all);
+      combined.put(key, verifier);
+    }
+    return verifier;
+  }
+
+  private Verifier lookup(OptionSpec option, String name) throws SchemaException {
+    final Verifier verifier = verifiers.get(name);
+    if (verifier == null) {
+      throw new SchemaException("Unknown verifier '"+name+"' of option '"+option.name+"' in '"+current.getName()+"'");
+    }
+    return verifier;
+  }
+}
@@ -0,0 +1,223 @@
+package jg.aquifer.commands.schema;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import jg.aquifer.Diagnostics;
+import jg.aquifer.Diagnostics.Level;
+import jg.aquifer.commands.Program;
+import jg.aquifer.commands.Verifier;
+
+/**
+ * Loads a Program - along with its Subcommands and Options - from a schema file rather than building it in code.
+ *
+ * Schemas are written declaratively as JSON (see SchemaParser for the format), and read in a single streaming pass.
+ * A schema can also be compiled into a compact binary form (see compile()), which is read without any parsing.
+ * load(Path, Path) keeps such a compiled form next to the declarative file, recompiling it whenever the content
+ * of the declarative file changes, so that tools with thousands of Options only pay for parsing once.
+ *
+ * Options refer to their Verifiers by name. The bundled Verifiers are known by the names of their constants
+ * (ex: "WHOLE_NUM", "FILE_READ"), while others must be added through addVerifier() before loading.
+ *
+ * @author Jose
+ */
+public class ProgramLoader {
+
+  private static final String SOURCE = "ProgramLoader";
+
+  private static final Map<String, Verifier> BUNDLED_VERIFIERS;
+  static {
+    final Map<String, Verifier> bundled = new HashMap<>();
+    bundled.put("STR_VERIFIER", Verifier.STR_VERIFIER);
+    bundled.put("NEG_WHOLE", Verifier.NEG_WHOLE);
+    bundled.put("NON_NEG_WHOLE", Verifier.NON_NEG_WHOLE);
+    bundled.put("WHOLE_NUM", Verifier.WHOLE_NUM);
+    bundled.put("NEG_DEC", Verifier.NEG_DEC);
+    bundled.put("NON_NEG_DEC", Verifier.NON_NEG_DEC);
+    bundled.put("DEC_NUM", Verifier.DEC_NUM);
+    bundled.put("BOOL", Verifier.BOOL);
+    bundled.put("FILE_EXISTS", Verifier.FILE_EXISTS);
+    bundled.put("FILE_READ", Verifier.FILE_READ);
+    bundled.put("FILE_WRITE", Verifier.FILE_WRITE);
+    bundled.put("FILE_EXEC", Verifier.FILE_EXEC);
+    BUNDLED_VERIFIERS = Collections.unmodifiableMap(bundled);
+  }
+
+  private final Map<String, Verifier> verifiers;
+
+  /**
+   * Constructs a ProgramLoader knowing of the bundled Verifiers
+   */
+  public ProgramLoader() {
+    this.verifiers = new HashMap<>(BUNDLED_VERIFIERS);
+  }
+
+  /**
+   * Makes a Verifier available to the Options of loaded schemas
+   * @param name - the name Options refer to the Verifier by
+   * @param verifier - the Verifier
+   */
+  public void addVerifier(String name, Verifier verifier) {
+    verifiers.put(name, verifier);
+  }
+
+  /**
+   * Loads a Program from a declarative schema
+   * @param source - the schema's text
+   * @return the loaded Program
+   * @throws SchemaException if the schema is malformed or describes an invalid Program
+   * @throws IOException if the schema couldn't be read
+   */
+  public Program load(Reader source) throws IOException {
+    final ProgramBuilder builder = new ProgramBuilder(verifiers);
+    SchemaParser.parse(source, builder);
+    return builder.getProgram();
+  }
+
+  /**
+   * Loads a Program from a declarative schema file, encoded in UTF-8
+   * @param source - the schema file
+   * @return the loaded Program
+   * @throws SchemaException if the schema is malformed or describes an invalid Program
+   * @throws IOException if the schema couldn't be read
+   */
+  public Program load(Path source) throws IOException {
+    try (Reader reader = new InputStreamReader(Files.newInputStream(source), StandardCharsets.UTF_8)) {
+      return load(reader);
+    }
+  }
+
+  /**
+   * Loads a Program from a compiled schema (see compile())
+   * @param compiled - the compiled schema file
+   * @return the loaded Program
+   * @throws SchemaException if the file isn't a compiled schema or describes an invalid Program
+   * @throws IOException if the file couldn't be read
+   */
+  public Program loadCompiled(Path compiled) throws IOException {
+    final ProgramBuilder builder = new ProgramBuilder(verifiers);
+    CompiledSchema.read(compiled, builder);
+    return builder.getProgram();
+  }
+
+  /**
+   * Loads a Program from a declarative schema file, through its compiled form when it's up to date.
+   *
+   * Otherwise, the declarative file is parsed and compiled anew. Failing to write the compiled form
+   * is only reported as a diagnostic, as the Program is loaded regardless.
+   * @param source - the declarative schema file, encoded in UTF-8
+   * @param compiled - the file to keep the compiled schema in
+   * @return the loaded Program
+   * @throws SchemaException if the schema is malformed or describes an invalid Program
+   * @throws IOException if the declarative schema couldn't be read
+   */
+  public Program load(Path source, Path compiled) throws IOException {
+    //Checked against the compiled form by content, as sizes and modification times can stay the same across edits
+    final byte [] content = Files.readAllBytes(source);
+
+    if (Files.isRegularFile(compiled)) {
+      try {
+        if (CompiledSchema.isCompiledFrom(compiled, content)) {
+          return loadCompiled(compiled);
+        }
+        Diagnostics.log(Level.INFO, SOURCE, "Recompiling {}, as {} has changed", compiled, source);
+      } catch (IOException e) {
+        Diagnostics.log(Level.WARN, SOURCE, "Recompiling {}, as it couldn't be read: {}", compiled, e);
+      }
+    }
+
+    final ProgramBuilder builder = new ProgramBuilder(verifiers);
+    final CompiledSchema.Writer writer = new CompiledSchema.Writer();
+    try (Reader reader = readerOf(content)) {
+      SchemaParser.parse(reader, new Tee(builder, writer));
+    }
+
+    try {
+      writer.writeTo(compiled, content);
+    } catch (IOException e) {
+      Diagnostics.log(Level.WARN, SOURCE, "Couldn't write compiled schema {}: {}", compiled, e);
+    }
+    return builder.getProgram();
+  }
+
+  /**
+   * Compiles a declarative schema file into its binary form, to be loaded through loadCompiled() or load(Path, Path).
+   *
+   * Note: Verifier names aren't resolved until the compiled schema is loaded.
+   * @param source - the declarative schema file, encoded in UTF-8
+   * @param compiled - the file to write the compiled schema to
+   * @throws SchemaException if the schema is malformed
+   * @throws IOException if the declarative schema couldn't be read, or the compiled one written
+   */
+  public static void compile(Path source, Path compiled) throws IOException {
+    final byte [] content = Files.readAllBytes(source);
+    final CompiledSchema.Writer writer = new CompiledSchema.Writer();
+    try (Reader reader = readerOf(content)) {
+      SchemaParser.parse(reader, writer);
+    }
+    writer.writeTo(compiled, content);
+  }
+
+  private static Reader readerOf(byte [] content) {
+    return new InputStreamReader(new ByteArrayInputStream(content), StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Hands every declaration to two SchemaHandlers, so that a schema is built and compiled in the same pass
+   * @author Jose
+   */
+  private static class Tee implements SchemaHandler {
+
+    private final SchemaHandler first;
+    private final SchemaHandler second;
+
+    Tee(SchemaHandler first, SchemaHandler second) {
+      this.first = first;
+      this.second = second;
+    }
+
+    @Override
+    public void program(String name, String description) throws IOException {
+      first.program(name, description);
+      second.program(name, description);
+    }
+
+    @Override
+    public void subcommand(String name, String description) throws IOException {
+      first.subcommand(name, description);
+      second.subcommand(name, description);
+    }
+
+    @Override
+    public void endSubcommand() throws IOException {
+      first.endSubcommand();
+      second.endSubcommand();
+    }
+
+    @Override
+    public void option(OptionSpec option) throws IOException {
+      first.option(option);
+      second.option(option);
+    }
+
+    @Override
+    public void dependency(String optName, String [] dependencies) throws IOException {
+      first.dependency(optName, dependencies);
+      second.dependency(optName, dependencies);
+    }
+
+    @Override
+    public void end() throws IOException {
+      first.end();
+      second.end();
+    }
+  }
+}
@@ -0,0 +1,17 @@
+package jg.aquifer.commands.schema;
+
+import java.io.IOException;
+
+/**
+ * Thrown when a schema file - declarative or compiled - is malformed
+ * or describes an invalid Program (ex: an unknown Verifier, a duplicate Option)
+ *
+ * @author Jose
+ */
+public class SchemaException extends IOException {
+
+  public SchemaException(String reason) {
+    super(reason);
+  }
+
+}
@@ -0,0 +1,32 @@
+package jg.aquifer.commands.schema;
+
+import java.io.IOException;
+
+/**
+ * Receives the declarations of a schema in the order they're read, whether from
+ * a declarative file (see SchemaParser) or a compiled one (see CompiledSchema).
+ *
+ * program() is received first and end() last. Options and dependencies received between
+ * subcommand() and endSubcommand() belong to that Subcommand, and to the Program itself otherwise.
+ *
+ * @author Jose
+ */
+interface SchemaHandler {
+
+  public void program(String name, String description) throws IOException;
+
+  public void subcommand(String name, String description) throws IOException;
+
+  public void endSubcommand() throws IOException;
+
+  public void option(OptionSpec option) throws IOException;
+
+  /**
+   * Receives the dependencies of an Option on other Options (see Subcommand.addDependency())
+   * @param optName - the name of the dependent Option
+   * @param dependencies - the names of the Options it depends on
+   */
+  public void dependency(String optName, String [] dependencies) throws IOException;
+
+  public void end() throws IOException;
+}
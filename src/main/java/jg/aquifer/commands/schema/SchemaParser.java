@@ -0,0 +1,290 @@
+package jg.aquifer.commands.schema;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streams the declarations of a declarative (JSON) schema to a SchemaHandler.
+ *
+ * A schema is an object describing the Program:
+ * <pre>
+ * {
+ *   "name": "git",
+ *   "description": "The stupid content tracker",
+ *   "options": [ ... ],
+ *   "subcommands": [
+ *     {
+ *       "name": "log",
+ *       "description": "Shows commit logs",
+ *       "options": [
+ *         { "name": "max-count", "verifier": "NON_NEG_WHOLE" },
+ *         { "name": "oneline", "type": "flag" },
+ *         { "name": "format", "type": "radio", "choices": ["short", "full"], "required": true },
+ *         { "name": "output", "type": "file", "directory": ".", "extensions": { "Logs": ["*.log"] } }
+ *       ],
+ *       "dependencies": { "format": ["oneline"] }
+ *     }
+ *   ]
+ * }
+ * </pre>
+ *
+ * Options are of type "option" (the default), "flag", "radio" or "file". A "verifier" is the name of a Verifier,
+ * or an array of names whose Verifiers must all pass. Options may also list the Options they depend on
+ * as "dependsOn" - the same as their Subcommand's "dependencies".
+ *
+ * Keys may come in any order, except that the name and description of the Program and of each Subcommand
+ * must precede its options and subcommands, so that nothing has to be held back while streaming.
+ * Unknown keys are rejected, so that misspelled ones aren't silently ignored.
+ *
+ * @author Jose
+ */
+final class SchemaParser {
+
+  private final JsonReader reader;
+  private final SchemaHandler handler;
+
+  private SchemaParser(JsonReader reader, SchemaHandler handler) {
+    this.reader = reader;
+    this.handler = handler;
+  }
+
+  /**
+   * Parses a declarative schema, handing its declarations to a SchemaHandler
+   * @param source - the schema's text
+   * @param handler - the SchemaHandler to hand declarations to
+   * @throws SchemaException if the schema is malformed
+   * @throws IOException if the schema couldn't be read
+   */
+  static void parse(Reader source, SchemaHandler handler) throws IOException {
+    final JsonReader reader = new JsonReader(source);
+    new SchemaParser(reader, handler).parseProgram();
+    reader.peek();
+    handler.end();
+  }
+
+  private void parseProgram() throws IOException {
+    reader.beginObject();
+
+    String name = null;
+    String description = null;
+    boolean declared = false;
+    while (reader.hasNext()) {
+      final String key = reader.nextName();
+      switch (key) {
+      case "name":
+        requireUndeclared(declared, key);
+        name = nextString(key);
+        break;
+      case "description":
+        requireUndeclared(declared, key);
+        description = reader.nextString();
+        break;
+      case "options":
+        declared = declareProgram(declared, name, description);
+        parseOptions();
+        break;
+      case "dependencies":
+        declared = declareProgram(declared, name, description);
+        parseDependencies();
+        break;
+      case "subcommands":
+        declared = declareProgram(declared, name, description);
+        parseSubcommands();
+        break;
+      default:
+        throw reader.error("Unknown key '"+key+"' in the program");
+      }
+    }
+
+    declareProgram(declared, name, description);
+    reader.endObject();
+  }
+
+  private boolean declareProgram(boolean declared, String name, String description) throws IOException {
+    if (!declared) {
+      if (name == null) {
+        throw reader.error("The program's 'name' must precede its options and subcommands");
+      }
+      handler.program(name, description);
+    }
+    return true;
+  }
+
+  private void parseSubcommands() throws IOException {
+    reader.beginArray();
+    while (reader.hasNext()) {
+      parseSubcommand();
+    }
+    reader.endArray();
+  }
+
+  private void parseSubcommand() throws IOException {
+    reader.beginObject();
+
+    String name = null;
+    String description = null;
+    boolean declared = false;
+    while (reader.hasNext()) {
+      final String key = reader.nextName();
+      switch (key) {
+      case "name":
+        requireUndeclared(declared, key);
+        name = nextString(key);
+        break;
+      case "description":
+        requireUndeclared(declared, key);
+        description = reader.nextString();
+        break;
+      case "options":
+        declared = declareSubcommand(declared, name, description);
+        parseOptions();
+        break;
+      case "dependencies":
+        declared = declareSubcommand(declared, name, description);
+        parseDependencies();
+        break;
+      default:
+        throw reader.error("Unknown key '"+key+"' in "+(name == null ? "a subcommand" : "subcommand '"+name+"'"));
+      }
+    }
+
+    declareSubcommand(declared, name, description);
+    reader.endObject();
+    handler.endSubcommand();
+  }
+
+  private boolean declareSubcommand(boolean declared, String name, String description) throws IOException {
+    if (!declared) {
+      if (name == null) {
+        throw reader.error("A subcommand's 'name' must precede its options");
+      }
+      handler.subcommand(name, description);
+    }
+    return true;
+  }
+
+  private void requireUndeclared(boolean declared, String key) throws SchemaException {
+    if (declared) {
+      throw reader.error("'"+key+"' must precede 'options', 'dependencies' and 'subcommands'");
+    }
+  }
+
+  private void parseOptions() throws IOException {
+    reader.beginArray();
+    while (reader.hasNext()) {
+      handler.option(parseOption());
+    }
+    reader.endArray();
+  }
+
+  private OptionSpec parseOption() throws IOException {
+    reader.beginObject();
+
+    final OptionSpec option = new OptionSpec();
+    while (reader.hasNext()) {
+      final String key = reader.nextName();
+      switch (key) {
+      case "name":
+        option.name = nextString(key);
+        break;
+      case "description":
+        final String description = reader.nextString();
+        option.description = description == null ? "" : description;
+        break;
+      case "type":
+        option.type = parseType(nextString(key));
+        break;
+      case "required":
+        option.required = reader.nextBoolean();
+        break;
+      case "verifier":
+        option.verifiers = reader.peek() == JsonReader.BEGIN_ARRAY ? nextStrings(key) : new String[] {nextString(key)};
+        break;
+      case "choices":
+        option.choices = nextStrings(key);
+        break;
+      case "directory":
+        option.directory = reader.nextString();
+        break;
+      case "extensions":
+        parseExtensions(option);
+        break;
+      case "dependsOn":
+        option.dependsOn = nextStrings(key);
+        break;
+      default:
+        throw reader.error("Unknown key '"+key+"' in "+(option.name == null ? "an option" : "option '"+option.name+"'"));
+      }
+    }
+
+    if (option.name == null) {
+      throw reader.error("Option without a 'name'");
+    }
+    if (option.type == OptionSpec.RADIO && option.choices.length == 0) {
+      throw reader.error("Radio option '"+option.name+"' without 'choices'");
+    }
+
+    reader.endObject();
+    return option;
+  }
+
+  private byte parseType(String type) throws SchemaException {
+    switch (type) {
+    case "option":
+      return OptionSpec.OPTION;
+    case "flag":
+      return OptionSpec.FLAG;
+    case "radio":
+      return OptionSpec.RADIO;
+    case "file":
+      return OptionSpec.FILE;
+    default:
+      throw reader.error("Unknown option type '"+type+"'");
+    }
+  }
+
+  private void parseExtensions(OptionSpec option) throws IOException {
+    final List<String> descriptions = new ArrayList<>();
+    final List<String []> patterns = new ArrayList<>();
+
+    reader.beginObject();
+    while (reader.hasNext()) {
+      final String description = reader.nextName();
+      descriptions.add(description);
+      patterns.add(nextStrings(description));
+    }
+    reader.endObject();
+
+    option.extensionDescriptions = descriptions.toArray(new String[descriptions.size()]);
+    option.extensionPatterns = patterns.toArray(new String[patterns.size()][]);
+  }
+
+  private void parseDependencies() throws IOException {
+    reader.beginObject();
+    while (reader.hasNext()) {
+      final String optName = reader.nextName();
+      handler.dependency(optName, nextStrings(optName));
+    }
+    reader.endObject();
+  }
+
+  private String nextString(String key) throws IOException {
+    final String string = reader.nextString();
+    if (string == null) {
+      throw reader.error("'"+key+"' can't be null");
+    }
+    return string;
+  }
+
+  private String [] nextStrings(String key) throws IOException {
+    final List<String> strings = new ArrayList<>();
+    reader.beginArray();
+    while (reader.hasNext()) {
+      strings.add(nextString(key));
+    }
+    reader.endArray();
+    return strings.toArray(new String[strings.size()]);
+  }
+}
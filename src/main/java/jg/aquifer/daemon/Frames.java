@@ -0,0 +1,184 @@
+package jg.aquifer.daemon;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.ProtocolException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The framed binary protocol spoken between a SocketIntake and an IntakeDaemon.
+ *
+ * A connection opens with MAGIC, sent by the SocketIntake, followed by the secret shared with the daemon
+ * as a string (null if there's none) - see hello(). What follows, both ways, are frames: a type byte,
+ * the length of the payload as a big-endian int, then the payload. Strings are encoded as their UTF-8 length
+ * (-1 for null) followed by their UTF-8 bytes.
+ * <pre>
+ * SUBMIT   (to the daemon)   subcommand, argument count, then each argument's name and value
+ * CANCEL   (to the daemon)   -
+ * OUT, ERR (from the daemon) output, as UTF-8 - always whole characters
+ * PROGRESS (from the daemon) progress of the run, as a double
+ * END      (from the daemon) status byte (COMPLETED, FAILED or CANCELLED), then a message
+ * </pre>
+ * A connection carries one run at a time: a SUBMIT, then frames from the daemon up to an END.
+ * It may then carry another run.
+ *
+ * @author Jose
+ */
+final class Frames {
+
+  static final byte [] MAGIC = {'A', 'Q', 'D', 2};
+
+  static final byte SUBMIT = 1;
+  static final byte CANCEL = 2;
+  static final byte OUT = 3;
+  static final byte ERR = 4;
+  static final byte PROGRESS = 5;
+  static final byte END = 6;
+
+  static final byte COMPLETED = 0;
+  static final byte FAILED = 1;
+  static final byte CANCELLED = 2;
+
+  /**
+   * Size, in bytes, of a frame's type and length
+   */
+  static final int HEADER_SIZE = 5;
+
+  /**
+   * The largest payload accepted, in bytes
+   */
+  static final int MAX_PAYLOAD = 16 * 1024 * 1024;
+
+  /**
+   * The longest secret accepted, in UTF-8 bytes
+   */
+  static final int MAX_SECRET = 1024;
+
+  private Frames() {}
+
+  /**
+   * @return what opens a connection: MAGIC, then the shared secret
+   */
+  static ByteBuffer hello(String secret) {
+    final ByteBuffer hello = ByteBuffer.allocate(MAGIC.length + stringSize(secret));
+    hello.put(MAGIC);
+    putString(hello, secret);
+    //Buffer methods are called through Buffer, as ByteBuffer's covariant overrides don't exist on Java 8
+    ((Buffer) hello).flip();
+    return hello;
+  }
+
+  /**
+   * @return a frame with no payload
+   */
+  static ByteBuffer empty(byte type) {
+    final ByteBuffer frame = ByteBuffer.allocate(HEADER_SIZE);
+    frame.put(type).putInt(0);
+    ((Buffer) frame).flip();
+    return frame;
+  }
+
+  static ByteBuffer submit(String subcommand, Map<String, String> arguments) {
+    int size = 4 + stringSize(subcommand);
+    for (Map.Entry<String, String> argument : arguments.entrySet()) {
+      size += stringSize(argument.getKey()) + stringSize(argument.getValue());
+    }
+
+    final ByteBuffer frame = ByteBuffer.allocate(HEADER_SIZE + size);
+    frame.put(SUBMIT).putInt(size);
+    putString(frame, subcommand);
+    frame.putInt(arguments.size());
+    for (Map.Entry<String, String> argument : arguments.entrySet()) {
+      putString(frame, argument.getKey());
+      putString(frame, argument.getValue());
+    }
+    ((Buffer) frame).flip();
+    return frame;
+  }
+
+  /**
+   * Reads the arguments of a SUBMIT payload, following its subcommand
+   */
+  static Map<String, String> getArguments(ByteBuffer payload) throws ProtocolException {
+    final int count = payload.getInt();
+    if (count < 0 || count > payload.remaining() / 8) {
+      throw new ProtocolException("Invalid argument count: "+count);
+    }
+
+    final Map<String, String> arguments = new LinkedHashMap<>(count * 2);
+    for (int i = 0; i < count; i++) {
+      arguments.put(getString(payload), getString(payload));
+    }
+    return arguments;
+  }
+
+  static ByteBuffer progress(double progress) {
+    final ByteBuffer frame = ByteBuffer.allocate(HEADER_SIZE + 8);
+    frame.put(PROGRESS).putInt(8).putDouble(progress);
+    ((Buffer) frame).flip();
+    return frame;
+  }
+
+  static ByteBuffer end(byte status, String message) {
+    final int size = 1 + stringSize(message);
+    final ByteBuffer frame = ByteBuffer.allocate(HEADER_SIZE + size);
+    frame.put(END).putInt(size).put(status);
+    putString(frame, message);
+    ((Buffer) frame).flip();
+    return frame;
+  }
+
+  private static int stringSize(String string) {
+    return 4 + (string == null ? 0 : StandardCharsets.UTF_8.encode(string).remaining());
+  }
+
+  static void putString(ByteBuffer buffer, String string) {
+    if (string == null) {
+      buffer.putInt(-1);
+      return;
+    }
+    final byte [] bytes = string.getBytes(StandardCharsets.UTF_8);
+    buffer.putInt(bytes.length).put(bytes);
+  }
+
+  static String getString(ByteBuffer buffer) throws ProtocolException {
+    final int length = buffer.getInt();
+    if (length == -1) {
+      return null;
+    }
+    if (length < 0 || length > buffer.remaining()) {
+      throw new ProtocolException("Invalid string length: "+length);
+    }
+
+    final String string = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+    ((Buffer) buffer).position(buffer.position() + length);
+    return string;
+  }
+
+  /**
+   * Checks the length of a frame's payload, as read from its header
+   */
+  static int checkLength(int length) throws ProtocolException {
+    if (length < 0 || length > MAX_PAYLOAD) {
+      throw new ProtocolException("Invalid frame length: "+length);
+    }
+    return length;
+  }
+
+  /**
+   * Fills a buffer from a blocking channel
+   * @throws EOFException if the channel ended before the buffer was filled
+   */
+  static void readFully(ReadableByteChannel channel, ByteBuffer buffer) throws IOException {
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer) < 0) {
+        throw new EOFException();
+      }
+    }
+  }
+}
@@ -0,0 +1,524 @@
+package jg.aquifer.daemon;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ProtocolException;
+import java.net.SocketAddress;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import jg.aquifer.Diagnostics;
+import jg.aquifer.Diagnostics.Level;
+import jg.aquifer.Intake;
+import jg.aquifer.IntakeExecutor;
+import jg.aquifer.IntakeHandle;
+import jg.aquifer.Output;
+
+/**
+ * Serves an Intake to SocketIntakes, over a local socket - letting the backing application run as
+ * a long-lived daemon of its own, apart from the UI submitting to it.
+ *
+ * Each connection is served by a Thread of its own, reading the submissions and cancellations sent over it.
+ * Submissions are run on an IntakeExecutor, whose Output writes back over the connection: output as
+ * the Intake flushes it (println() flushes), and progress as it changes. Once the run completes, fails or is
+ * cancelled, its end is reported and the connection may carry the next submission.
+ * <pre>
+ * IntakeDaemon daemon = new IntakeDaemon(new ProgramIntake());
+ * daemon.start(new InetSocketAddress(InetAddress.getLoopbackAddress(), 7070));
+ * </pre>
+ * It's also a stand-in for daemons written in other languages, which only need to speak the same protocol.
+ *
+ * Anyone who can connect can run the Intake, so a daemon only listens on loopback addresses or on Unix domain
+ * sockets, whose files are made readable and writable by their owner alone before anyone can connect
+ * (where the file system supports it).
+ * To keep other local users out of a TCP daemon, set a secret that SocketIntakes must present (see setSecret()).
+ *
+ * @author Jose
+ */
+public class IntakeDaemon {
+
+  /**
+   * Period, in milliseconds, at which the progress of runs is checked and sent
+   */
+  static final long PROGRESS_MILLIS = 100;
+
+  /**
+   * The most characters sent in a single frame of output
+   */
+  static final int CHUNK_CHARS = 8192;
+
+  private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+  private final Intake intake;
+  private final IntakeExecutor executor;
+  private final boolean ownsExecutor;
+  private final Set<Connection> connections;
+
+  private ExecutorService connectionThreads;
+  private ScheduledExecutorService progressThread;
+  private ServerSocketChannel server;
+  private Thread acceptor;
+  private SocketAddress address;
+  private volatile byte [] secret;
+
+  /**
+   * Constructs an IntakeDaemon running submissions on its own IntakeExecutor (see IntakeExecutor.create())
+   * @param intake - the Intake served
+   */
+  public IntakeDaemon(Intake intake) {
+    this(intake, IntakeExecutor.create(), true);
+  }
+
+  /**
+   * Constructs an IntakeDaemon
+   * @param intake - the Intake served
+   * @param executor - the IntakeExecutor submissions are run on
+   */
+  public IntakeDaemon(Intake intake, IntakeExecutor executor) {
+    this(intake, executor, false);
+  }
+
+  private IntakeDaemon(Intake intake, IntakeExecutor executor, boolean ownsExecutor) {
+    this.intake = intake;
+    this.executor = executor;
+    this.ownsExecutor = ownsExecutor;
+    this.connections = ConcurrentHashMap.newKeySet();
+  }
+
+  /**
+   * Sets the secret SocketIntakes must present when connecting (see SocketIntake.setSecret()).
+   * Connections presenting another are dropped. By default, there's none and any connection is served.
+   * @param secret - the secret, or null for none
+   */
+  public void setSecret(String secret) {
+    this.secret = secret == null ? null : secret.getBytes(StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Starts serving, in the background
+   * @param address - the address to listen on: a loopback InetSocketAddress (port 0 picks a free port),
+   *                  or a Unix domain socket (see SocketIntake.unixSocket())
+   * @return the address listened on
+   * @throws IOException if the address couldn't be bound
+   * @throws IllegalArgumentException if the address is an InetSocketAddress, but not a loopback one
+   * @throws IllegalStateException if this IntakeDaemon was already started
+   */
+  public synchronized SocketAddress start(SocketAddress address) throws IOException, IllegalArgumentException, IllegalStateException {
+    if (server != null) {
+      throw new IllegalStateException("Already started");
+    }
+    if (address instanceof InetSocketAddress) {
+      final InetAddress host = ((InetSocketAddress) address).getAddress();
+      if (host == null || !host.isLoopbackAddress()) {
+        throw new IllegalArgumentException("An IntakeDaemon only listens on loopback addresses, not "+address);
+      }
+    }
+
+    final ServerSocketChannel channel = LocalSockets.openServer(address);
+    final Path path = LocalSockets.pathOf(address);
+    try {
+      if (path == null) {
+        channel.bind(address);
+      }
+      else {
+        bindToOwner(channel, path);
+      }
+    } catch (IOException e) {
+      channel.close();
+      throw e;
+    }
+    this.server = channel;
+    this.address = path == null ? channel.getLocalAddress() : address;
+
+    connectionThreads = Executors.newCachedThreadPool((runnable) -> {
+      final Thread thread = new Thread(runnable, "aquifer-daemon-"+THREAD_COUNT.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+    progressThread = Executors.newSingleThreadScheduledExecutor((runnable) -> {
+      final Thread thread = new Thread(runnable, "aquifer-daemon-progress");
+      thread.setDaemon(true);
+      return thread;
+    });
+    progressThread.scheduleWithFixedDelay(() -> connections.forEach(Connection::sendProgress),
+                                          PROGRESS_MILLIS, PROGRESS_MILLIS, TimeUnit.MILLISECONDS);
+
+    acceptor = new Thread(() -> accept(channel), "aquifer-daemon-accept");
+    acceptor.setDaemon(true);
+    acceptor.start();
+
+    Diagnostics.log(Level.INFO, "IntakeDaemon", "Listening on {}", this.address);
+    return this.address;
+  }
+
+  /**
+   * Stops serving: closes every connection, cancelling the runs in progress.
+   * Once this returns, the address is free to be listened on again.
+   */
+  public synchronized void stop() {
+    if (server == null) {
+      return;
+    }
+
+    try {
+      server.close();
+      //The socket is only released once the Thread blocked accepting on it has let go
+      acceptor.join(1000);
+    } catch (IOException e) {
+      Diagnostics.log(Level.WARN, "IntakeDaemon", "Couldn't close the server socket: {}", e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    connections.forEach(Connection::close);
+    connectionThreads.shutdownNow();
+    progressThread.shutdownNow();
+    if (ownsExecutor) {
+      executor.shutdown();
+    }
+
+    final Path path = LocalSockets.pathOf(address);
+    if (path != null) {
+      try {
+        Files.deleteIfExists(path);
+      } catch (IOException e) {
+        Diagnostics.log(Level.WARN, "IntakeDaemon", "Couldn't delete {}: {}", path, e);
+      }
+    }
+    server = null;
+  }
+
+  /**
+   * Binds a Unix domain socket so that no one else can connect to it before its file is restricted to its owner.
+   *
+   * A socket's file takes the permissions of the umask when bound, and anyone allowed to connect in the meantime
+   * would be queued up to be served. The socket is thus bound within a directory only its owner can enter,
+   * restricted there, and only then moved to its path. Where the file system has no POSIX permissions,
+   * the socket is bound at its path directly - leaving it to the directory it's in to keep other users out.
+   * @throws FileAlreadyExistsException if the path is taken
+   */
+  private static void bindToOwner(ServerSocketChannel channel, Path path) throws IOException {
+    final Path directory;
+    try {
+      directory = Files.createTempDirectory(path.toAbsolutePath().getParent(), ".aquifer-",
+          PosixFilePermissions.asFileAttribute(EnumSet.of(PosixFilePermission.OWNER_READ,
+                                                          PosixFilePermission.OWNER_WRITE,
+                                                          PosixFilePermission.OWNER_EXECUTE)));
+    } catch (UnsupportedOperationException e) {
+      Diagnostics.log(Level.DEBUG, "IntakeDaemon", "Couldn't restrict the permissions of {}: {}", path, e);
+      channel.bind(LocalSockets.unixDomain(path));
+      return;
+    }
+
+    //Kept short, as the paths of Unix domain sockets are limited to around a hundred bytes
+    final Path bound = directory.resolve("s");
+    try {
+      channel.bind(LocalSockets.unixDomain(bound));
+      Files.setPosixFilePermissions(bound, EnumSet.of(PosixFilePermission.OWNER_READ, PosixFilePermission.OWNER_WRITE));
+      Files.move(bound, path);
+    } finally {
+      Files.deleteIfExists(bound);
+      Files.delete(directory);
+    }
+  }
+
+  /**
+   * @return the address listened on, or null if this IntakeDaemon was never started
+   */
+  public synchronized SocketAddress getAddress() {
+    return address;
+  }
+
+  private void accept(ServerSocketChannel channel) {
+    while (channel.isOpen()) {
+      final SocketChannel accepted;
+      try {
+        accepted = channel.accept();
+        LocalSockets.setNoDelay(accepted, address);
+      } catch (ClosedChannelException e) {
+        return;
+      } catch (IOException e) {
+        Diagnostics.log(Level.WARN, "IntakeDaemon", "Couldn't accept a connection: {}", e);
+        continue;
+      }
+
+      final Connection connection = new Connection(accepted);
+      connections.add(connection);
+      try {
+        connectionThreads.execute(connection::serve);
+      } catch (RuntimeException e) {
+        //Stopped in the meantime
+        connection.close();
+      }
+    }
+  }
+
+  /**
+   * A run of the Intake, submitted over a connection
+   */
+  private static final class Run {
+
+    Output output;
+    IntakeHandle handle;
+    double sentProgress = -1;
+    boolean ended;
+  }
+
+  /**
+   * A connection from a SocketIntake. Frames are written to it by the Threads of its runs, under its lock.
+   */
+  private final class Connection {
+
+    private final SocketChannel channel;
+
+    private volatile Run run;
+
+    Connection(SocketChannel channel) {
+      this.channel = channel;
+    }
+
+    void serve() {
+      try {
+        final ByteBuffer magic = ByteBuffer.allocate(Frames.MAGIC.length);
+        Frames.readFully(channel, magic);
+        if (!Arrays.equals(magic.array(), Frames.MAGIC)) {
+          throw new ProtocolException("Not a SocketIntake");
+        }
+        checkSecret();
+
+        final ByteBuffer header = ByteBuffer.allocate(Frames.HEADER_SIZE);
+        while (true) {
+          //Buffer methods are called through Buffer, as ByteBuffer's covariant overrides don't exist on Java 8
+          ((Buffer) header).clear();
+          Frames.readFully(channel, header);
+          final byte type = header.get(0);
+          final ByteBuffer payload = ByteBuffer.allocate(Frames.checkLength(header.getInt(1)));
+          Frames.readFully(channel, payload);
+          ((Buffer) payload).flip();
+
+          if (type == Frames.SUBMIT) {
+            submit(payload);
+          }
+          else if (type == Frames.CANCEL) {
+            final Run current = run;
+            if (current != null && current.handle != null) {
+              current.handle.cancel();
+            }
+          }
+          else {
+            throw new ProtocolException("Unexpected frame type: "+type);
+          }
+        }
+      } catch (EOFException | ClosedChannelException e) {
+        //The SocketIntake hung up
+      } catch (IOException e) {
+        Diagnostics.log(Level.WARN, "IntakeDaemon", "Dropping a connection: {}", e);
+      } finally {
+        close();
+      }
+    }
+
+    /**
+     * Reads the secret presented by the SocketIntake, and checks it against the daemon's - in constant time
+     */
+    private void checkSecret() throws IOException {
+      final ByteBuffer length = ByteBuffer.allocate(4);
+      Frames.readFully(channel, length);
+      final int size = length.getInt(0);
+      if (size < -1 || size > Frames.MAX_SECRET) {
+        throw new ProtocolException("Invalid secret length: "+size);
+      }
+
+      final ByteBuffer presented = ByteBuffer.allocate(Math.max(0, size));
+      Frames.readFully(channel, presented);
+
+      final byte [] expected = secret;
+      if (expected != null && (size < 0 || !MessageDigest.isEqual(expected, presented.array()))) {
+        throw new ProtocolException("Wrong secret");
+      }
+    }
+
+    private void submit(ByteBuffer payload) throws ProtocolException {
+      if (run != null) {
+        throw new ProtocolException("A run is already in progress");
+      }
+      final String subcommand = Frames.getString(payload);
+      final Map<String, String> arguments = Frames.getArguments(payload);
+      Diagnostics.log(Level.DEBUG, "IntakeDaemon", "Running '{}' with {}", subcommand, arguments);
+
+      final Run submitted = new Run();
+      submitted.output = new Output(new PrintWriter(new FrameWriter(submitted, Frames.OUT), true),
+                                    new PrintWriter(new FrameWriter(submitted, Frames.ERR), true));
+      run = submitted;
+      submitted.handle = executor.submit(intake, subcommand, arguments, submitted.output);
+      submitted.handle.getCompletion().whenComplete((result, failure) -> end(submitted, failure));
+    }
+
+    private void end(Run ended, Throwable failure) {
+      //What the Intake printed up to its end is sent before it
+      ended.output.out.flush();
+      ended.output.err.flush();
+
+      final Throwable cause = failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+      final ByteBuffer frame;
+      if (cause == null) {
+        frame = Frames.end(Frames.COMPLETED, null);
+      }
+      else if (cause instanceof CancellationException) {
+        frame = Frames.end(Frames.CANCELLED, null);
+      }
+      else {
+        Diagnostics.log(Level.DEBUG, "IntakeDaemon", "Run failed: {}", cause);
+        frame = Frames.end(Frames.FAILED, cause.toString());
+      }
+
+      synchronized (this) {
+        //Anything a cancelled Intake prints from now on is dropped, rather than sent into the next run
+        ended.ended = true;
+        run = null;
+        try {
+          write(frame);
+        } catch (IOException e) {
+          close();
+        }
+      }
+    }
+
+    void sendProgress() {
+      final Run current = run;
+      if (current == null || current.handle == null) {
+        return;
+      }
+
+      final double progress = current.handle.getProgress();
+      if (progress != current.sentProgress) {
+        current.sentProgress = progress;
+        try {
+          send(current, Frames.progress(progress));
+        } catch (IOException e) {
+          close();
+        }
+      }
+    }
+
+    synchronized void send(Run sender, ByteBuffer frame) throws IOException {
+      if (!sender.ended) {
+        write(frame);
+      }
+    }
+
+    private void write(ByteBuffer frame) throws IOException {
+      while (frame.hasRemaining()) {
+        channel.write(frame);
+      }
+    }
+
+    void close() {
+      connections.remove(this);
+      try {
+        channel.close();
+      } catch (IOException e) {
+        //Already closed
+      }
+
+      final Run current = run;
+      if (current != null && current.handle != null) {
+        current.handle.cancel();
+      }
+    }
+
+    /**
+     * Sends what's written to it as OUT or ERR frames, once flushed or once CHUNK_CHARS are buffered
+     */
+    private final class FrameWriter extends Writer {
+
+      private final Run sender;
+      private final byte type;
+      private final CharBuffer chars;
+      private final ByteBuffer frame;
+      private final CharsetEncoder encoder;
+
+      FrameWriter(Run sender, byte type) {
+        this.sender = sender;
+        this.type = type;
+        this.chars = CharBuffer.allocate(CHUNK_CHARS);
+        this.frame = ByteBuffer.allocate(Frames.HEADER_SIZE + CHUNK_CHARS * 3);
+        this.encoder = StandardCharsets.UTF_8.newEncoder()
+                                             .onMalformedInput(CodingErrorAction.REPLACE)
+                                             .onUnmappableCharacter(CodingErrorAction.REPLACE);
+      }
+
+      @Override
+      public void write(char[] buffer, int offset, int length) throws IOException {
+        synchronized (lock) {
+          while (length > 0) {
+            final int put = Math.min(length, chars.remaining());
+            chars.put(buffer, offset, put);
+            offset += put;
+            length -= put;
+            if (!chars.hasRemaining()) {
+              sendChars();
+            }
+          }
+        }
+      }
+
+      @Override
+      public void flush() throws IOException {
+        synchronized (lock) {
+          sendChars();
+        }
+      }
+
+      @Override
+      public void close() throws IOException {
+        flush();
+      }
+
+      private void sendChars() throws IOException {
+        ((Buffer) chars).flip();
+        ((Buffer) frame).clear();
+        ((Buffer) frame).position(Frames.HEADER_SIZE);
+
+        //A high surrogate whose pair isn't written yet is kept for the next frame
+        encoder.encode(chars, frame, false);
+        chars.compact();
+
+        final int length = frame.position() - Frames.HEADER_SIZE;
+        if (length > 0) {
+          frame.put(0, type).putInt(1, length);
+          ((Buffer) frame).flip();
+          send(sender, frame);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,84 @@
+package jg.aquifer.daemon;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.net.InetSocketAddress;
+import java.net.ProtocolFamily;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.StandardSocketOptions;
+import java.nio.channels.NetworkChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.file.Path;
+
+/**
+ * Opens the sockets of SocketIntakes and IntakeDaemons, over TCP or - where the running JVM supports them
+ * (Java 16 and later) - Unix domain sockets, which are reached reflectively.
+ *
+ * @author Jose
+ */
+final class LocalSockets {
+
+  private LocalSockets() {}
+
+  /**
+   * @return the address of a Unix domain socket
+   * @throws UnsupportedOperationException if the running JVM doesn't support Unix domain sockets
+   */
+  static SocketAddress unixDomain(Path path) throws UnsupportedOperationException {
+    try {
+      return (SocketAddress) Class.forName("java.net.UnixDomainSocketAddress")
+                                  .getMethod("of", Path.class)
+                                  .invoke(null, path);
+    } catch (ReflectiveOperationException e) {
+      throw new UnsupportedOperationException("Unix domain sockets need Java 16 or later", e);
+    }
+  }
+
+  /**
+   * @return the path of a Unix domain socket's address, or null if the address isn't one
+   */
+  static Path pathOf(SocketAddress address) {
+    if (address == null || address instanceof InetSocketAddress) {
+      return null;
+    }
+    try {
+      return (Path) address.getClass().getMethod("getPath").invoke(address);
+    } catch (ReflectiveOperationException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Opens an unbound server socket for an address
+   */
+  static ServerSocketChannel openServer(SocketAddress address) throws IOException {
+    if (address instanceof InetSocketAddress) {
+      //So that a restarted daemon can bind its port again while the connections of the last one linger
+      final ServerSocketChannel channel = ServerSocketChannel.open();
+      channel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+      return channel;
+    }
+
+    try {
+      final ProtocolFamily unix = StandardProtocolFamily.valueOf("UNIX");
+      return (ServerSocketChannel) ServerSocketChannel.class.getMethod("open", ProtocolFamily.class).invoke(null, unix);
+    } catch (InvocationTargetException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw new UnsupportedOperationException("Couldn't open a Unix domain socket", e.getCause());
+    } catch (IllegalArgumentException | ReflectiveOperationException e) {
+      throw new UnsupportedOperationException("Unix domain sockets need Java 16 or later", e);
+    }
+  }
+
+  /**
+   * Disables Nagle's algorithm on TCP sockets, whose small frames would otherwise be held back
+   */
+  static void setNoDelay(NetworkChannel channel, SocketAddress address) throws IOException {
+    if (address instanceof InetSocketAddress) {
+      channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+    }
+  }
+}
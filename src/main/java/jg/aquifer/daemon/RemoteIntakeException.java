@@ -0,0 +1,16 @@
+package jg.aquifer.daemon;
+
+/**
+ * Thrown out of a SocketIntake when the Intake its daemon runs fails,
+ * so that the run is reported as failed
+ *
+ * @author Jose
+ */
+public class RemoteIntakeException extends RuntimeException {
+
+  private static final long serialVersionUID = 1L;
+
+  public RemoteIntakeException(String message) {
+    super(message);
+  }
+}
@@ -0,0 +1,390 @@
+package jg.aquifer.daemon;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.net.ProtocolException;
+import java.net.SocketAddress;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.TimeUnit;
+
+import jg.aquifer.Diagnostics;
+import jg.aquifer.Diagnostics.Level;
+import jg.aquifer.Intake;
+import jg.aquifer.Output;
+
+/**
+ * An Intake forwarding submissions to a long-lived daemon over a local socket (see IntakeDaemon) - so that
+ * neither a process is launched per run, nor the backing application runs inside the UI's JVM.
+ *
+ * The arguments are sent as a single frame, and the submitting Thread then writes the daemon's output into
+ * the Output as it comes, and reports its progress, until the daemon reports the run's end. Cancelling
+ * the run cancels it on the daemon. A run that failed on the daemon is thrown as a RemoteIntakeException.
+ * <pre>
+ * new SocketIntake(new InetSocketAddress(InetAddress.getLoopbackAddress(), 7070))
+ * new SocketIntake(SocketIntake.unixSocket(Paths.get("/tmp/tool.sock")))   //Java 16 and later
+ * </pre>
+ * Connections are kept open between runs, and reused by the next ones (see setMaxIdleConnections()).
+ * A daemon guarded by a secret drops connections that don't present it (see setSecret()).
+ *
+ * @author Jose
+ */
+public class SocketIntake implements Intake {
+
+  /**
+   * Time, in milliseconds, the daemon is given to end a cancelled run before its connection is dropped
+   */
+  public static final long CANCEL_GRACE_MILLIS = 2000;
+
+  /**
+   * Period, in milliseconds, at which a run waiting on the daemon is checked for cancellation
+   */
+  private static final long SAMPLE_MILLIS = 50;
+
+  /**
+   * Initial size, in bytes, of a connection's input buffer. It grows to fit larger frames.
+   */
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private final SocketAddress address;
+  private final ConcurrentLinkedDeque<Connection> idle;
+
+  private volatile int maxIdleConnections;
+  private volatile String secret;
+
+  /**
+   * Constructs a SocketIntake
+   * @param address - the address the daemon listens on: a loopback InetSocketAddress, or a Unix domain socket (see unixSocket())
+   */
+  public SocketIntake(SocketAddress address) {
+    this.address = address;
+    this.idle = new ConcurrentLinkedDeque<>();
+    this.maxIdleConnections = 4;
+  }
+
+  /**
+   * Creates the address of a Unix domain socket
+   * @param path - the path of the socket file
+   * @return the address
+   * @throws UnsupportedOperationException if the running JVM doesn't support Unix domain sockets (Java 16 and later do)
+   */
+  public static SocketAddress unixSocket(Path path) throws UnsupportedOperationException {
+    return LocalSockets.unixDomain(path);
+  }
+
+  /**
+   * Sets how many connections are kept open between runs - 4 by default
+   */
+  public void setMaxIdleConnections(int maxIdleConnections) {
+    this.maxIdleConnections = maxIdleConnections;
+    while (idle.size() > maxIdleConnections) {
+      final Connection connection = idle.pollLast();
+      if (connection != null) {
+        connection.close();
+      }
+    }
+  }
+
+  /**
+   * Sets the secret presented to the daemon when connecting (see IntakeDaemon.setSecret()). By default, there's none.
+   * Connections already kept open aren't affected.
+   * @param secret - the secret, or null for none
+   */
+  public void setSecret(String secret) {
+    this.secret = secret;
+  }
+
+  /**
+   * Closes the connections kept open between runs. Runs in progress are left to finish.
+   */
+  public void close() {
+    Connection connection;
+    while ((connection = idle.poll()) != null) {
+      connection.close();
+    }
+  }
+
+  /**
+   * @return the address the daemon listens on
+   */
+  public SocketAddress getAddress() {
+    return address;
+  }
+
+  @Override
+  public void submitArguments(String subcommand, Map<String, String> arguments, Output output) {
+    final ByteBuffer submission = Frames.submit(subcommand, arguments);
+
+    Connection connection;
+    while (true) {
+      connection = takeIdle();
+      final boolean reused = connection != null;
+      try {
+        if (!reused) {
+          connection = new Connection(address, secret);
+        }
+        connection.write(submission.duplicate());
+        break;
+      } catch (IOException e) {
+        if (connection != null) {
+          connection.close();
+        }
+        if (!reused) {
+          throw new UncheckedIOException("Couldn't submit to the daemon at "+address, e);
+        }
+        Diagnostics.log(Level.DEBUG, "SocketIntake", "An idle connection was dropped by the daemon: {}", e);
+      }
+    }
+
+    try {
+      await(connection, output);
+    } catch (ClosedByInterruptException e) {
+      //Interrupted (a cancellation) while reading, on JVMs that close channels even when non-blocking
+      connection.close();
+    } catch (IOException e) {
+      connection.close();
+      throw new UncheckedIOException("Lost the connection to the daemon at "+address, e);
+    } finally {
+      output.out.flush();
+      output.err.flush();
+    }
+  }
+
+  /**
+   * Writes the output of the daemon's run into an Output until the run ends, then keeps the connection for the next run
+   * @throws RemoteIntakeException if the run failed on the daemon
+   */
+  private void await(Connection connection, Output output) throws IOException {
+    //Waiting despite an interruption (a cancellation), until the daemon ends the run
+    boolean interrupted = false;
+    boolean cancelled = false;
+    long cancelDeadline = 0;
+    try {
+      while (true) {
+        final ByteBuffer input = connection.input;
+        //Buffer methods are called through Buffer, as ByteBuffer's covariant overrides don't exist on Java 8
+        ((Buffer) input).flip();
+
+        boolean written = false;
+        while (input.remaining() >= Frames.HEADER_SIZE) {
+          final int start = input.position();
+          final byte type = input.get(start);
+          final int length = Frames.checkLength(input.getInt(start + 1));
+          if (input.remaining() < Frames.HEADER_SIZE + length) {
+            break;
+          }
+
+          final ByteBuffer payload = input.duplicate();
+          ((Buffer) payload).position(start + Frames.HEADER_SIZE).limit(start + Frames.HEADER_SIZE + length);
+          ((Buffer) input).position(start + Frames.HEADER_SIZE + length);
+
+          if (type == Frames.OUT || type == Frames.ERR) {
+            connection.decode(payload, type == Frames.OUT ? output.out : output.err);
+            written = true;
+          }
+          else if (type == Frames.PROGRESS) {
+            output.reportProgress(payload.getDouble());
+          }
+          else if (type == Frames.END) {
+            final byte status = payload.get();
+            final String message = Frames.getString(payload);
+            input.compact();
+            release(connection);
+
+            if (status == Frames.FAILED) {
+              throw new RemoteIntakeException("The daemon's run failed: "+message);
+            }
+            return;
+          }
+          else {
+            throw new ProtocolException("Unexpected frame type: "+type);
+          }
+        }
+
+        input.compact();
+        if (written) {
+          output.out.flush();
+          output.err.flush();
+        }
+        connection.fit();
+
+        if (Thread.interrupted()) {
+          interrupted = true;
+        }
+        if (!cancelled && (interrupted || output.isCancelled())) {
+          cancelled = true;
+          cancelDeadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(CANCEL_GRACE_MILLIS);
+          connection.write(Frames.empty(Frames.CANCEL));
+        }
+        else if (cancelled && System.nanoTime() - cancelDeadline > 0) {
+          Diagnostics.log(Level.WARN, "SocketIntake", "The daemon didn't end a cancelled run in time. Dropping its connection.");
+          connection.close();
+          return;
+        }
+
+        if (!connection.read(SAMPLE_MILLIS)) {
+          throw new EOFException("The daemon closed the connection");
+        }
+      }
+    } finally {
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  /**
+   * Keeps a connection for the next run, unless enough are kept already
+   */
+  private void release(Connection connection) {
+    if (connection.input.position() == 0 && idle.size() < maxIdleConnections) {
+      idle.push(connection);
+    }
+    else {
+      connection.close();
+    }
+  }
+
+  /**
+   * Takes a connection kept from a previous run, skipping those the daemon closed since
+   * @return the connection, or null if none is kept
+   */
+  private Connection takeIdle() {
+    Connection connection;
+    while ((connection = idle.poll()) != null) {
+      if (connection.isReusable()) {
+        return connection;
+      }
+      connection.close();
+    }
+    return null;
+  }
+
+  /**
+   * A connection to the daemon, non-blocking so that a run can be cancelled while waiting on it
+   */
+  private static final class Connection {
+
+    private final SocketChannel channel;
+    private final Selector selector;
+    private final SelectionKey key;
+    private final CharsetDecoder decoder;
+    private final CharBuffer chars;
+
+    ByteBuffer input;
+
+    Connection(SocketAddress address, String secret) throws IOException {
+      this.channel = SocketChannel.open(address);
+      try {
+        LocalSockets.setNoDelay(channel, address);
+        final ByteBuffer hello = Frames.hello(secret);
+        while (hello.hasRemaining()) {
+          channel.write(hello);
+        }
+        channel.configureBlocking(false);
+        this.selector = Selector.open();
+        this.key = channel.register(selector, SelectionKey.OP_READ);
+      } catch (IOException e) {
+        channel.close();
+        throw e;
+      }
+
+      this.decoder = StandardCharsets.UTF_8.newDecoder()
+                                           .onMalformedInput(CodingErrorAction.REPLACE)
+                                           .onUnmappableCharacter(CodingErrorAction.REPLACE);
+      this.chars = CharBuffer.allocate(IntakeDaemon.CHUNK_CHARS);
+      this.input = ByteBuffer.allocate(BUFFER_SIZE);
+    }
+
+    /**
+     * Waits for the daemon to send something, and reads it
+     * @param timeout - the longest wait, in milliseconds
+     * @return false if the daemon closed the connection
+     */
+    boolean read(long timeout) throws IOException {
+      if (selector.select(timeout) > 0) {
+        selector.selectedKeys().clear();
+      }
+      return channel.read(input) >= 0;
+    }
+
+    void write(ByteBuffer frame) throws IOException {
+      channel.write(frame);
+      if (frame.hasRemaining()) {
+        key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+        try {
+          while (frame.hasRemaining()) {
+            selector.select(SAMPLE_MILLIS);
+            selector.selectedKeys().clear();
+            channel.write(frame);
+          }
+        } finally {
+          key.interestOps(SelectionKey.OP_READ);
+        }
+      }
+    }
+
+    /**
+     * Grows the input buffer to fit the frame at its start
+     */
+    void fit() throws ProtocolException {
+      if (input.position() >= Frames.HEADER_SIZE) {
+        final int size = Frames.HEADER_SIZE + Frames.checkLength(input.getInt(1));
+        if (size > input.capacity()) {
+          ((Buffer) input).flip();
+          input = ByteBuffer.allocate(size).put(input);
+        }
+      }
+    }
+
+    /**
+     * Decodes an OUT or ERR payload into a PrintWriter. Payloads hold whole characters.
+     */
+    void decode(ByteBuffer payload, PrintWriter target) {
+      decoder.reset();
+      boolean overflow;
+      do {
+        overflow = decoder.decode(payload, chars, true).isOverflow();
+        if (!overflow) {
+          decoder.flush(chars);
+        }
+        ((Buffer) chars).flip();
+        target.write(chars.array(), chars.arrayOffset(), chars.remaining());
+        ((Buffer) chars).clear();
+      } while (overflow);
+    }
+
+    /**
+     * @return whether this idle connection is still open on the daemon's side
+     */
+    boolean isReusable() {
+      try {
+        return channel.read(input) == 0;
+      } catch (IOException e) {
+        return false;
+      }
+    }
+
+    void close() {
+      try {
+        selector.close();
+        channel.close();
+      } catch (IOException e) {
+        //Already closed
+      }
+    }
+  }
+}
@@ -0,0 +1,139 @@
+package jg.aquifer.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A thread-safe histogram of non-negative values (ex: durations in nanoseconds).
+ *
+ * Values are counted in log-linear buckets: each power of two is split into 8 buckets,
+ * so reported percentiles are within 12.5% of the recorded values. Recording never allocates.
+ *
+ * @author Jose
+ */
+public class Histogram {
+
+  private static final int SUB_BUCKET_BITS = 3;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+  /**
+   * Values below this are counted exactly
+   */
+  private static final int LINEAR_LIMIT = SUB_BUCKETS * 2;
+
+  private static final int BUCKETS = LINEAR_LIMIT + (63 - 4) * SUB_BUCKETS;
+
+  private final AtomicLongArray buckets;
+  private final LongAdder count;
+  private final LongAdder sum;
+  private final AtomicLong max;
+
+  public Histogram() {
+    this.buckets = new AtomicLongArray(BUCKETS);
+    this.count = new LongAdder();
+    this.sum = new LongAdder();
+    this.max = new AtomicLong();
+  }
+
+  /**
+   * Records a value
+   * @param value - the value to record. Negative values are recorded as 0.
+   */
+  public void record(long value) {
+    if (value < 0) {
+      value = 0;
+    }
+
+    buckets.incrementAndGet(bucketOf(value));
+    count.increment();
+    sum.add(value);
+
+    long currentMax = max.get();
+    while (value > currentMax && !max.compareAndSet(currentMax, value)) {
+      currentMax = max.get();
+    }
+  }
+
+  /**
+   * Returns the value at the given percentile
+   * @param percentile - the percentile, from 0 to 100
+   * @return the (approximate) value that the given percentage of recorded values are less than or equal to,
+   *         or 0 if no values were recorded
+   */
+  public long getPercentile(double percentile) {
+    final long total = getCount();
+    if (total == 0) {
+      return 0;
+    }
+
+    final long target = Math.max(1, (long) Math.ceil(total * Math.min(100, Math.max(0, percentile)) / 100));
+    long seen = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      seen += buckets.get(i);
+      if (seen >= target) {
+        return Math.min(upperBoundOf(i), getMax());
+      }
+    }
+    return getMax();
+  }
+
+  public long getCount() {
+    return count.sum();
+  }
+
+  public long getSum() {
+    return sum.sum();
+  }
+
+  public long getMax() {
+    return max.get();
+  }
+
+  /**
+   * @return the mean of the recorded values, or 0 if no values were recorded
+   */
+  public double getMean() {
+    final long total = getCount();
+    return total == 0 ? 0 : (double) getSum() / total;
+  }
+
+  /**
+   * Forgets all recorded values
+   */
+  public void reset() {
+    for (int i = 0; i < BUCKETS; i++) {
+      buckets.set(i, 0);
+    }
+    count.reset();
+    sum.reset();
+    max.set(0);
+  }
+
+  @Override
+  public String toString() {
+    return String.format("count=%d, mean=%.1f, p50=%d, p90=%d, p99=%d, max=%d",
+                         getCount(), getMean(), getPercentile(50), getPercentile(90), getPercentile(99), getMax());
+  }
+
+  private static int bucketOf(long value) {
+    if (value < LINEAR_LIMIT) {
+      return (int) value;
+    }
+
+    final int exponent = 63 - Long.numberOfLeadingZeros(value);
+    final int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+    return LINEAR_LIMIT + (exponent - 4) * SUB_BUCKETS + subBucket;
+  }
+
+  private static long upperBoundOf(int bucket) {
+    if (bucket < LINEAR_LIMIT) {
+      return bucket;
+    }
+
+    final int exponent = (bucket - LINEAR_LIMIT) / SUB_BUCKETS + 4;
+    final int subBucket = (bucket - LINEAR_LIMIT) % SUB_BUCKETS;
+    final long lowerBound = (long) (SUB_BUCKETS + subBucket) << (exponent - SUB_BUCKET_BITS);
+    return lowerBound + (1L << (exponent - SUB_BUCKET_BITS)) - 1;
+  }
+}
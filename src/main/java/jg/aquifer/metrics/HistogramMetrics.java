@@ -0,0 +1,191 @@
+package jg.aquifer.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metrics that record into in-memory Histograms, to be read back by the application
+ * (ex: to expose them to a monitoring system, or to print them on exit).
+ *
+ * @author Jose
+ */
+public class HistogramMetrics implements Metrics {
+
+  private final Map<String, Map<String, Histogram>> verifyLatencies;
+  private final Map<String, Histogram> sceneBuildTimes;
+
+  private final Histogram processArgsTime;
+  private final Histogram intakeRunTime;
+  private final Histogram timeToFirstOutput;
+  private final Histogram pulseLag;
+  private final Histogram workerAcquireTime;
+
+  private final LongAdder submissions;
+  private final LongAdder failedRuns;
+  private final LongAdder outputChars;
+  private final LongAdder warmHits;
+  private final LongAdder coldStarts;
+  private final AtomicLong firstOutputAt;
+  private volatile long lastOutputAt;
+
+  public HistogramMetrics() {
+    this.verifyLatencies = new ConcurrentHashMap<>();
+    this.sceneBuildTimes = new ConcurrentHashMap<>();
+    this.processArgsTime = new Histogram();
+    this.intakeRunTime = new Histogram();
+    this.timeToFirstOutput = new Histogram();
+    this.pulseLag = new Histogram();
+    this.workerAcquireTime = new Histogram();
+    this.submissions = new LongAdder();
+    this.failedRuns = new LongAdder();
+    this.outputChars = new LongAdder();
+    this.warmHits = new LongAdder();
+    this.coldStarts = new LongAdder();
+    this.firstOutputAt = new AtomicLong();
+  }
+
+  @Override
+  public void verified(String subcommand, String option, long nanos, boolean passed) {
+    getVerifyLatency(subcommand, option).record(nanos);
+  }
+
+  @Override
+  public void argumentsProcessed(String subcommand, int arguments, long nanos) {
+    processArgsTime.record(nanos);
+  }
+
+  @Override
+  public void intakeSubmitted(String subcommand) {
+    submissions.increment();
+  }
+
+  @Override
+  public void intakeFinished(String subcommand, long nanos, boolean failed) {
+    intakeRunTime.record(nanos);
+    if (failed) {
+      failedRuns.increment();
+    }
+  }
+
+  @Override
+  public void firstOutput(String subcommand, long nanos) {
+    timeToFirstOutput.record(nanos);
+  }
+
+  @Override
+  public void outputDrained(int chars) {
+    final long now = System.nanoTime();
+    firstOutputAt.compareAndSet(0, now);
+    lastOutputAt = now;
+    outputChars.add(chars);
+  }
+
+  @Override
+  public void pulse(long lagNanos) {
+    pulseLag.record(lagNanos);
+  }
+
+  @Override
+  public void sceneBuilt(String scene, long nanos) {
+    getSceneBuildTime(scene).record(nanos);
+  }
+
+  @Override
+  public void workerAcquired(String subcommand, boolean warm, long nanos) {
+    workerAcquireTime.record(nanos);
+    (warm ? warmHits : coldStarts).increment();
+  }
+
+  /**
+   * Returns the verification latencies of an Option
+   * @param subcommand - the name of the Subcommand the Option belongs to
+   * @param option - the name of the Option
+   * @return the Histogram of the Option's verification latencies
+   */
+  public Histogram getVerifyLatency(String subcommand, String option) {
+    return verifyLatencies.computeIfAbsent(subcommand, (s) -> new ConcurrentHashMap<>())
+                          .computeIfAbsent(option, (o) -> new Histogram());
+  }
+
+  /**
+   * @return the verification latencies of every Option verified so far,
+   *         keyed by Subcommand name and then by Option name
+   */
+  public Map<String, Map<String, Histogram>> getVerifyLatencies() {
+    return Collections.unmodifiableMap(verifyLatencies);
+  }
+
+  /**
+   * Returns the build times of a part of the scene graph
+   * @param scene - the part of the scene graph (see Metrics.sceneBuilt())
+   * @return the Histogram of the part's build times
+   */
+  public Histogram getSceneBuildTime(String scene) {
+    return sceneBuildTimes.computeIfAbsent(scene, (s) -> new Histogram());
+  }
+
+  public Map<String, Histogram> getSceneBuildTimes() {
+    return Collections.unmodifiableMap(sceneBuildTimes);
+  }
+
+  public Histogram getProcessArgsTime() {
+    return processArgsTime;
+  }
+
+  public Histogram getIntakeRunTime() {
+    return intakeRunTime;
+  }
+
+  public Histogram getTimeToFirstOutput() {
+    return timeToFirstOutput;
+  }
+
+  public Histogram getPulseLag() {
+    return pulseLag;
+  }
+
+  public Histogram getWorkerAcquireTime() {
+    return workerAcquireTime;
+  }
+
+  public long getSubmissions() {
+    return submissions.sum();
+  }
+
+  public long getFailedRuns() {
+    return failedRuns.sum();
+  }
+
+  public long getOutputChars() {
+    return outputChars.sum();
+  }
+
+  /**
+   * @return the average rate at which output was shown, in characters per second,
+   *         between the first and the latest pulse that showed output
+   */
+  public double getOutputCharsPerSecond() {
+    final long elapsed = lastOutputAt - firstOutputAt.get();
+    return elapsed <= 0 ? 0 : getOutputChars() * 1e9 / elapsed;
+  }
+
+  public long getWarmHits() {
+    return warmHits.sum();
+  }
+
+  public long getColdStarts() {
+    return coldStarts.sum();
+  }
+
+  /**
+   * @return the share of WorkerPool submissions handed to a pre-started process, from 0 to 1
+   */
+  public double getWarmHitRatio() {
+    final long hits = getWarmHits();
+    final long total = hits + getColdStarts();
+    return total == 0 ? 0 : (double) hits / total;
+  }
+}
@@ -0,0 +1,256 @@
+package jg.aquifer.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Metrics that emit Java Flight Recorder events, under the "Aquifer" category.
+ *
+ * An event object is allocated on every call, but it's only filled in and committed while a recording
+ * that enables it is running. This keeps the cost low enough to leave on in production,
+ * and profile with any JFR recording (ex: -XX:StartFlightRecording).
+ *
+ * Note: JFR's event API (jdk.jfr) is available from Java 11 onwards, as well as on Java 8 builds
+ * that have backported it (8u262 and later). Check isSupported() before using JfrMetrics on older JVMs.
+ *
+ * @author Jose
+ */
+public class JfrMetrics implements Metrics {
+
+  /**
+   * @return whether the running JVM supports Java Flight Recorder events
+   */
+  public static boolean isSupported() {
+    try {
+      return FlightRecorder.isAvailable();
+    } catch (LinkageError e) {
+      return false;
+    }
+  }
+
+  @Override
+  public void verified(String subcommand, String option, long nanos, boolean passed) {
+    final VerificationEvent event = new VerificationEvent();
+    if (event.isEnabled()) {
+      event.subcommand = subcommand;
+      event.option = option;
+      event.latency = nanos;
+      event.passed = passed;
+      event.commit();
+    }
+  }
+
+  @Override
+  public void argumentsProcessed(String subcommand, int arguments, long nanos) {
+    final ProcessArgsEvent event = new ProcessArgsEvent();
+    if (event.isEnabled()) {
+      event.subcommand = subcommand;
+      event.arguments = arguments;
+      event.time = nanos;
+      event.commit();
+    }
+  }
+
+  @Override
+  public void intakeSubmitted(String subcommand) {
+    final IntakeSubmittedEvent event = new IntakeSubmittedEvent();
+    if (event.isEnabled()) {
+      event.subcommand = subcommand;
+      event.commit();
+    }
+  }
+
+  @Override
+  public void intakeFinished(String subcommand, long nanos, boolean failed) {
+    final IntakeFinishedEvent event = new IntakeFinishedEvent();
+    if (event.isEnabled()) {
+      event.subcommand = subcommand;
+      event.runTime = nanos;
+      event.failed = failed;
+      event.commit();
+    }
+  }
+
+  @Override
+  public void firstOutput(String subcommand, long nanos) {
+    final FirstOutputEvent event = new FirstOutputEvent();
+    if (event.isEnabled()) {
+      event.subcommand = subcommand;
+      event.timeToFirstOutput = nanos;
+      event.commit();
+    }
+  }
+
+  @Override
+  public void outputDrained(int chars) {
+    final OutputEvent event = new OutputEvent();
+    if (event.isEnabled()) {
+      event.chars = chars;
+      event.commit();
+    }
+  }
+
+  @Override
+  public void pulse(long lagNanos) {
+    //On-time pulses would only add noise to recordings
+    if (lagNanos > 0) {
+      final PulseLagEvent event = new PulseLagEvent();
+      if (event.isEnabled()) {
+        event.lag = lagNanos;
+        event.commit();
+      }
+    }
+  }
+
+  @Override
+  public void sceneBuilt(String scene, long nanos) {
+    final SceneBuildEvent event = new SceneBuildEvent();
+    if (event.isEnabled()) {
+      event.scene = scene;
+      event.buildTime = nanos;
+      event.commit();
+    }
+  }
+
+  @Override
+  public void workerAcquired(String subcommand, boolean warm, long nanos) {
+    final WorkerAcquiredEvent event = new WorkerAcquiredEvent();
+    if (event.isEnabled()) {
+      event.subcommand = subcommand;
+      event.warm = warm;
+      event.acquireTime = nanos;
+      event.commit();
+    }
+  }
+
+  @Name("jg.aquifer.Verification")
+  @Label("Verification")
+  @Category("Aquifer")
+  @StackTrace(false)
+  static class VerificationEvent extends Event {
+    @Label("Subcommand")
+    String subcommand;
+
+    @Label("Option")
+    String option;
+
+    @Label("Latency")
+    @Timespan(Timespan.NANOSECONDS)
+    long latency;
+
+    @Label("Passed")
+    boolean passed;
+  }
+
+  @Name("jg.aquifer.ProcessArgs")
+  @Label("Process Arguments")
+  @Category("Aquifer")
+  @StackTrace(false)
+  static class ProcessArgsEvent extends Event {
+    @Label("Subcommand")
+    String subcommand;
+
+    @Label("Arguments")
+    int arguments;
+
+    @Label("Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long time;
+  }
+
+  @Name("jg.aquifer.IntakeSubmitted")
+  @Label("Intake Submitted")
+  @Category("Aquifer")
+  @StackTrace(false)
+  static class IntakeSubmittedEvent extends Event {
+    @Label("Subcommand")
+    String subcommand;
+  }
+
+  @Name("jg.aquifer.IntakeFinished")
+  @Label("Intake Finished")
+  @Category("Aquifer")
+  @StackTrace(false)
+  static class IntakeFinishedEvent extends Event {
+    @Label("Subcommand")
+    String subcommand;
+
+    @Label("Run Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long runTime;
+
+    @Label("Failed")
+    boolean failed;
+  }
+
+  @Name("jg.aquifer.FirstOutput")
+  @Label("First Output")
+  @Description("Time between a submission and its first output being shown")
+  @Category("Aquifer")
+  @StackTrace(false)
+  static class FirstOutputEvent extends Event {
+    @Label("Subcommand")
+    String subcommand;
+
+    @Label("Time To First Output")
+    @Timespan(Timespan.NANOSECONDS)
+    long timeToFirstOutput;
+  }
+
+  @Name("jg.aquifer.Output")
+  @Label("Output Shown")
+  @Description("Application output moved onto the output pane in a single pulse")
+  @Category("Aquifer")
+  @StackTrace(false)
+  static class OutputEvent extends Event {
+    @Label("Characters")
+    int chars;
+  }
+
+  @Name("jg.aquifer.PulseLag")
+  @Label("Pulse Lag")
+  @Description("How much later than scheduled a JavaFX pulse came")
+  @Category("Aquifer")
+  @StackTrace(false)
+  static class PulseLagEvent extends Event {
+    @Label("Lag")
+    @Timespan(Timespan.NANOSECONDS)
+    long lag;
+  }
+
+  @Name("jg.aquifer.SceneBuild")
+  @Label("Scene Build")
+  @Category("Aquifer")
+  @StackTrace(false)
+  static class SceneBuildEvent extends Event {
+    @Label("Scene")
+    String scene;
+
+    @Label("Build Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long buildTime;
+  }
+
+  @Name("jg.aquifer.WorkerAcquired")
+  @Label("Worker Acquired")
+  @Description("A backend process handed a submission by a WorkerPool")
+  @Category("Aquifer")
+  @StackTrace(false)
+  static class WorkerAcquiredEvent extends Event {
+    @Label("Subcommand")
+    String subcommand;
+
+    @Label("Warm")
+    boolean warm;
+
+    @Label("Acquire Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long acquireTime;
+  }
+}
@@ -0,0 +1,92 @@
+package jg.aquifer.metrics;
+
+/**
+ * Receives timing metrics from the generated UI.
+ *
+ * A Visualizer (and its VerificationEngine) reports into the Metrics given to Visualizer.setMetrics().
+ * A WorkerPool reports into the Metrics given to WorkerPool.setMetrics().
+ * Every method has an empty default implementation, so implementations only override what they record.
+ *
+ * Methods may be called from several Threads at once (ex: verifications are reported from
+ * the verification Threads), and are called on hot paths. Implementations should be thread-safe and cheap.
+ *
+ * Aquifer bundles two implementations: HistogramMetrics, which records into in-memory histograms,
+ * and JfrMetrics, which emits Java Flight Recorder events.
+ *
+ * All durations are in nanoseconds.
+ *
+ * @author Jose
+ */
+public interface Metrics {
+
+  /**
+   * Metrics that record nothing - the default
+   */
+  public static final Metrics NONE = new Metrics() {};
+
+  /**
+   * Called once an argument has been verified
+   * @param subcommand - the name of the Subcommand the Option belongs to
+   * @param option - the name of the verified Option
+   * @param nanos - how long the verification took
+   * @param passed - whether the argument passed verification
+   */
+  public default void verified(String subcommand, String option, long nanos, boolean passed) {}
+
+  /**
+   * Called once a RawArgumentForm has been processed into the arguments handed to an Intake
+   * @param subcommand - the name of the Subcommand whose form was processed
+   * @param arguments - the amount of arguments collected
+   * @param nanos - how long processing took
+   */
+  public default void argumentsProcessed(String subcommand, int arguments, long nanos) {}
+
+  /**
+   * Called once arguments have been submitted to an Intake
+   * @param subcommand - the name of the Subcommand invoked
+   */
+  public default void intakeSubmitted(String subcommand) {}
+
+  /**
+   * Called once an Intake has returned from a submission
+   * @param subcommand - the name of the Subcommand invoked
+   * @param nanos - how long the Intake ran
+   * @param failed - whether the Intake threw (or was cancelled)
+   */
+  public default void intakeFinished(String subcommand, long nanos, boolean failed) {}
+
+  /**
+   * Called once the first output of a submission has been shown
+   * @param subcommand - the name of the Subcommand invoked
+   * @param nanos - the time between the submission and its first output being shown
+   */
+  public default void firstOutput(String subcommand, long nanos) {}
+
+  /**
+   * Called on each pulse that moved application output onto the output pane
+   * @param chars - the amount of characters moved
+   */
+  public default void outputDrained(int chars) {}
+
+  /**
+   * Called on each JavaFX pulse
+   * @param lagNanos - how much later than scheduled the pulse came (0 if it was on time)
+   */
+  public default void pulse(long lagNanos) {}
+
+  /**
+   * Called once part of the UI's scene graph has been built
+   * @param scene - the part built: "options", "output", or "subcommand:" followed by a Subcommand's name
+   * @param nanos - how long building took
+   */
+  public default void sceneBuilt(String scene, long nanos) {}
+
+  /**
+   * Called once a WorkerPool has handed a submission to a backend process
+   * @param subcommand - the name of the Subcommand invoked
+   * @param warm - whether the process had been started ahead of the submission (a warm hit),
+   *               rather than started for it
+   * @param nanos - how long acquiring the process took
+   */
+  public default void workerAcquired(String subcommand, boolean warm, long nanos) {}
+}
@@ -0,0 +1,56 @@
+package jg.aquifer.process;
+
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Samples the CPU time of a child process, where the running JVM can (Java 9 and later, through ProcessHandle).
+ *
+ * @author Jose
+ */
+final class CpuTime {
+
+  private static final Method TO_HANDLE;
+  private static final Method INFO;
+  private static final Method TOTAL_CPU_DURATION;
+
+  static {
+    Method toHandle = null;
+    Method info = null;
+    Method totalCpuDuration = null;
+    try {
+      toHandle = Process.class.getMethod("toHandle");
+      info = toHandle.getReturnType().getMethod("info");
+      totalCpuDuration = info.getReturnType().getMethod("totalCpuDuration");
+    } catch (ReflectiveOperationException e) {
+      //ProcessHandle isn't available. CPU time is unknown
+      toHandle = null;
+    }
+    TO_HANDLE = toHandle;
+    INFO = info;
+    TOTAL_CPU_DURATION = totalCpuDuration;
+  }
+
+  private CpuTime() {}
+
+  /**
+   * Samples the CPU time a process has used so far.
+   *
+   * Note: Once a process has exited, its CPU time is usually gone with it - it should be sampled while it runs.
+   * @param process - the process to sample
+   * @return the CPU time, in nanoseconds, or -1 if it's unknown
+   */
+  static long sample(Process process) {
+    if (TO_HANDLE == null) {
+      return -1;
+    }
+
+    try {
+      final Optional<?> duration = (Optional<?>) TOTAL_CPU_DURATION.invoke(INFO.invoke(TO_HANDLE.invoke(process)));
+      return duration.isPresent() ? ((Duration) duration.get()).toNanos() : -1;
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      return -1;
+    }
+  }
+}
@@ -0,0 +1,26 @@
+package jg.aquifer.process;
+
+/**
+ * Thrown out of a ProcessIntake when the process it launched exits with a non-zero status,
+ * so that the run is reported as failed
+ *
+ * @author Jose
+ */
+public class ProcessFailedException extends RuntimeException {
+
+  private static final long serialVersionUID = 1L;
+
+  private final ProcessResult result;
+
+  public ProcessFailedException(ProcessResult result) {
+    super("'"+result.getCommand().get(0)+"' failed: "+result);
+    this.result = result;
+  }
+
+  /**
+   * @return how the process ended
+   */
+  public ProcessResult getResult() {
+    return result;
+  }
+}
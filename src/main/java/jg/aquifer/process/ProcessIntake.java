@@ -0,0 +1,330 @@
+package jg.aquifer.process;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+
+import jg.aquifer.Diagnostics;
+import jg.aquifer.Diagnostics.Level;
+import jg.aquifer.Intake;
+import jg.aquifer.Output;
+import jg.aquifer.commands.Program;
+import jg.aquifer.commands.Subcommand;
+import jg.aquifer.commands.options.Flag;
+import jg.aquifer.commands.options.Option;
+
+/**
+ * An Intake launching a command line program with the submitted arguments - for Programs describing an existing CLI.
+ *
+ * The arguments are turned back into command line tokens: the command, then the Subcommand's name
+ * (unless the Program's own Options were submitted), then each argument as "--option value", in order
+ * of Option name. Selected Flags are passed as "--flag" alone:
+ * <pre>
+ * new ProcessIntake(program, "git")   //git log --max-count 5 --oneline
+ * </pre>
+ *
+ * The process' standard output and error are pumped into the Output as they come, on dedicated pump Threads
+ * (see StreamPump), and the submitting Thread returns once both have ended. Cancelling the run destroys the process.
+ * When the process ends, its exit code, wall time and CPU time are logged and handed to the result listener
+ * (and, if asked for through setReportToOutput(), printed to the Output's error stream). A non-zero exit code
+ * is thrown as a ProcessFailedException, failing the run.
+ *
+ * The CPU time is sampled every 50 milliseconds while the process runs, so it's only a lower bound - the time used
+ * after the last sample is missed - and it's unknown (-1) where the JVM can't sample it, as on Java 8 (see ProcessResult).
+ *
+ * @author Jose
+ */
+public class ProcessIntake implements Intake {
+
+  /**
+   * Time, in milliseconds, a cancelled process is given to exit before it's destroyed forcibly
+   */
+  public static final long DESTROY_GRACE_MILLIS = 2000;
+
+  /**
+   * Period, in milliseconds, at which a running process is checked for cancellation and its CPU time sampled
+   */
+  private static final long SAMPLE_MILLIS = 50;
+
+  private final Program program;
+  private final List<String> command;
+  private final Map<String, String> environment;
+
+  private File directory;
+  private Charset charset;
+  private String optionPrefix;
+  private boolean joinedValues;
+  private boolean reportToOutput;
+  private Consumer<ProcessResult> resultListener;
+
+  /**
+   * Constructs a ProcessIntake
+   * @param program - the Program whose Subcommands are submitted
+   * @param command - the command launched, and any arguments preceding the Subcommand's name (ex: "python", "tool.py")
+   */
+  public ProcessIntake(Program program, String ... command) {
+    if (command.length == 0) {
+      throw new IllegalArgumentException("No command given");
+    }
+    this.program = program;
+    this.command = Collections.unmodifiableList(new ArrayList<>(Arrays.asList(command)));
+    this.environment = new HashMap<>();
+    this.charset = Charset.defaultCharset();
+    this.optionPrefix = "--";
+  }
+
+  /**
+   * Sets the working directory of launched processes. By default, it's that of this JVM.
+   */
+  public void setDirectory(File directory) {
+    this.directory = directory;
+  }
+
+  /**
+   * Sets an environment variable of launched processes, on top of this JVM's environment
+   */
+  public void setEnvironmentVariable(String name, String value) {
+    environment.put(name, value);
+  }
+
+  /**
+   * Sets the charset the output of launched processes is decoded with. By default, it's the platform's.
+   */
+  public void setCharset(Charset charset) {
+    this.charset = charset;
+  }
+
+  /**
+   * Sets how Options are passed
+   * @param optionPrefix - what precedes an Option's name (ex: "--", "-" or "/")
+   * @param joinedValues - whether arguments are joined to their Option's name as "--option=value",
+   *                       rather than passed as the next token
+   */
+  public void setOptionStyle(String optionPrefix, boolean joinedValues) {
+    this.optionPrefix = optionPrefix;
+    this.joinedValues = joinedValues;
+  }
+
+  /**
+   * Sets whether how a process ended is printed to the Output's error stream once it does - false by default,
+   * so that the output of a run is only what the process itself printed
+   */
+  public void setReportToOutput(boolean reportToOutput) {
+    this.reportToOutput = reportToOutput;
+  }
+
+  /**
+   * Sets the listener handed how each launched process ended, on the submitting Thread
+   * @param resultListener - the listener, or null to remove the current one
+   */
+  public void setResultListener(Consumer<ProcessResult> resultListener) {
+    this.resultListener = resultListener;
+  }
+
+  /**
+   * Turns submitted arguments back into the command line launched for them
+   * @param subcommand - the name of the Subcommand invoked
+   * @param arguments - the arguments submitted, keyed by Option name
+   * @return the command line
+   * @throws IllegalArgumentException if the Subcommand isn't part of the Program
+   */
+  public List<String> toCommandLine(String subcommand, Map<String, String> arguments) throws IllegalArgumentException {
+    final Subcommand target = program.getSubcommands().get(subcommand);
+    if (target == null) {
+      throw new IllegalArgumentException("'"+subcommand+"' isn't a subcommand of '"+program.getName()+"'");
+    }
+
+    final List<String> commandLine = new ArrayList<>(command.size() + 1 + arguments.size() * 2);
+    commandLine.addAll(command);
+    if (target != program.getProgramOptions()) {
+      commandLine.add(subcommand);
+    }
+
+    for (Map.Entry<String, String> argument : new TreeMap<>(arguments).entrySet()) {
+      final String value = argument.getValue();
+      final Option option = target.getOptions().get(argument.getKey());
+      if (option instanceof Flag) {
+        if (Flag.VALUE_PLACE_HOLDER.equals(value)) {
+          commandLine.add(optionPrefix+argument.getKey());
+        }
+      }
+      else if (value != null && !value.isEmpty()) {
+        if (joinedValues) {
+          commandLine.add(optionPrefix+argument.getKey()+"="+value);
+        }
+        else {
+          commandLine.add(optionPrefix+argument.getKey());
+          commandLine.add(value);
+        }
+      }
+    }
+    return commandLine;
+  }
+
+  @Override
+  public void submitArguments(String subcommand, Map<String, String> arguments, Output output) {
+    final ProcessResult result;
+    try {
+      result = launch(toCommandLine(subcommand, arguments), output);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Couldn't launch '"+command.get(0)+"'", e);
+    }
+
+    check(result);
+  }
+
+  /**
+   * Launches a command line, pumping its output into an Output until the process ends
+   * @param commandLine - the command line to launch
+   * @param output - the Output to pump into
+   * @return how the process ended
+   * @throws IOException if the process couldn't be launched
+   */
+  public ProcessResult launch(List<String> commandLine, Output output) throws IOException {
+    Diagnostics.log(Level.DEBUG, "ProcessIntake", "Launching {}", commandLine);
+    final long start = System.nanoTime();
+    final Process process = newProcessBuilder(commandLine).start();
+    process.getOutputStream().close();
+    return await(process, commandLine, start, 0, output);
+  }
+
+  /**
+   * @return a ProcessBuilder for a command line, set up with this ProcessIntake's directory and environment
+   */
+  ProcessBuilder newProcessBuilder(List<String> commandLine) {
+    final ProcessBuilder builder = new ProcessBuilder(commandLine);
+    if (directory != null) {
+      builder.directory(directory);
+    }
+    builder.environment().putAll(environment);
+    return builder;
+  }
+
+  /**
+   * Pumps the output of a started process into an Output until it ends, destroying it if the run is cancelled
+   * @param process - the started process, whose standard input has been closed
+   * @param commandLine - the command line the process runs
+   * @param start - when the run started, as of System.nanoTime()
+   * @param cpuBaseline - the CPU time, in nanoseconds, the process had used before the run started
+   * @param output - the Output to pump into
+   * @return how the process ended
+   */
+  ProcessResult await(Process process, List<String> commandLine, long start, long cpuBaseline, Output output) {
+    final Future<?> outPump = StreamPump.start(process.getInputStream(), charset, output.out);
+    final Future<?> errPump = StreamPump.start(process.getErrorStream(), charset, output.err);
+
+    long cpuNanos = -1;
+    boolean cancelled = false;
+    try {
+      while (!process.waitFor(SAMPLE_MILLIS, TimeUnit.MILLISECONDS)) {
+        cpuNanos = Math.max(cpuNanos, CpuTime.sample(process));
+        if (output.isCancelled()) {
+          cancelled = true;
+          break;
+        }
+      }
+    } catch (InterruptedException e) {
+      cancelled = true;
+      Thread.currentThread().interrupt();
+    }
+
+    if (cancelled) {
+      destroy(process);
+    }
+    awaitPump(outPump, cancelled);
+    awaitPump(errPump, cancelled);
+    final long wallNanos = System.nanoTime() - start;
+
+    //A process quick enough to never be sampled may still be sampled once exited
+    if (cpuNanos < 0) {
+      cpuNanos = CpuTime.sample(process);
+    }
+
+    final ProcessResult result = new ProcessResult(Collections.unmodifiableList(commandLine),
+                                                   cancelled ? -1 : process.exitValue(),
+                                                   wallNanos,
+                                                   cpuNanos < 0 ? -1 : Math.max(0, cpuNanos - cpuBaseline),
+                                                   cancelled);
+    Diagnostics.log(Level.INFO, "ProcessIntake", "'{}' ended: {}", commandLine.get(0), result);
+
+    if (reportToOutput) {
+      output.err.println("["+result+"]");
+      output.err.flush();
+    }
+    final Consumer<ProcessResult> listener = resultListener;
+    if (listener != null) {
+      listener.accept(result);
+    }
+    return result;
+  }
+
+  /**
+   * @return the command launched, and any arguments preceding the Subcommand's name
+   */
+  public List<String> getCommand() {
+    return command;
+  }
+
+  Charset getCharset() {
+    return charset;
+  }
+
+  /**
+   * Fails a run whose process exited with a non-zero status
+   */
+  static void check(ProcessResult result) throws ProcessFailedException {
+    if (!result.isSuccess() && !result.isCancelled()) {
+      throw new ProcessFailedException(result);
+    }
+  }
+
+  private static void destroy(Process process) {
+    process.destroy();
+    try {
+      if (!process.waitFor(DESTROY_GRACE_MILLIS, TimeUnit.MILLISECONDS)) {
+        process.destroyForcibly();
+      }
+    } catch (InterruptedException e) {
+      process.destroyForcibly();
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Waits for a pump to write all of a stream. A cancelled process' streams may be held open
+   * by its own children, so they're only waited on for a while.
+   */
+  private static void awaitPump(Future<?> pump, boolean cancelled) {
+    //Waiting despite an interruption (a cancellation), so the output isn't cut short
+    final boolean interrupted = Thread.interrupted();
+    try {
+      if (cancelled) {
+        pump.get(DESTROY_GRACE_MILLIS, TimeUnit.MILLISECONDS);
+      }
+      else {
+        pump.get();
+      }
+    } catch (InterruptedException | TimeoutException e) {
+      pump.cancel(true);
+    } catch (ExecutionException e) {
+      Diagnostics.log(Level.WARN, "ProcessIntake", "Output pump failed: {}", e.getCause());
+    } finally {
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+}
@@ -0,0 +1,78 @@
+package jg.aquifer.process;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * How a process launched by a ProcessIntake ended
+ *
+ * @author Jose
+ */
+public final class ProcessResult {
+
+  private final List<String> command;
+  private final int exitCode;
+  private final long wallNanos;
+  private final long cpuNanos;
+  private final boolean cancelled;
+
+  ProcessResult(List<String> command, int exitCode, long wallNanos, long cpuNanos, boolean cancelled) {
+    this.command = command;
+    this.exitCode = exitCode;
+    this.wallNanos = wallNanos;
+    this.cpuNanos = cpuNanos;
+    this.cancelled = cancelled;
+  }
+
+  /**
+   * @return the command line the process was launched with
+   */
+  public List<String> getCommand() {
+    return command;
+  }
+
+  public int getExitCode() {
+    return exitCode;
+  }
+
+  /**
+   * @return the time, in nanoseconds, from launching the process to the end of its output
+   */
+  public long getWallNanos() {
+    return wallNanos;
+  }
+
+  /**
+   * Returns a lower bound of the CPU time used by the process. It's sampled every 50 milliseconds while
+   * the process runs, so the time used after the last sample - for a short process, possibly all of it - is missed.
+   * @return the CPU time, in nanoseconds, the process was last seen to have used - or -1 if it's unknown,
+   *         as it always is on Java 8
+   */
+  public long getCpuNanos() {
+    return cpuNanos;
+  }
+
+  /**
+   * @return whether the process was destroyed because its run was cancelled
+   */
+  public boolean isCancelled() {
+    return cancelled;
+  }
+
+  /**
+   * @return whether the process exited normally, with a status of 0
+   */
+  public boolean isSuccess() {
+    return !cancelled && exitCode == 0;
+  }
+
+  @Override
+  public String toString() {
+    final StringBuilder builder = new StringBuilder(cancelled ? "cancelled" : "exit "+exitCode);
+    builder.append(String.format(Locale.ROOT, ", %.3fs wall", wallNanos / 1e9));
+    if (cpuNanos >= 0) {
+      builder.append(String.format(Locale.ROOT, ", >=%.3fs CPU", cpuNanos / 1e9));
+    }
+    return builder.toString();
+  }
+}
@@ -0,0 +1,129 @@
+package jg.aquifer.process;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pumps the output of a child process into a PrintWriter of an Output, on a dedicated pump Thread.
+ *
+ * Bytes are read straight into the backing array of a large ByteBuffer, decoded into a CharBuffer
+ * and written from its backing array - no String is made of the output, whatever its line structure.
+ * Pump Threads are pooled, and each keeps its buffers across the processes it pumps.
+ *
+ * @author Jose
+ */
+final class StreamPump {
+
+  /**
+   * Size, in bytes, of the buffer each pump Thread reads into
+   */
+  static final int BUFFER_SIZE = 64 * 1024;
+
+  private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+  private static final ExecutorService PUMPS = Executors.newCachedThreadPool((runnable) -> {
+    final Thread thread = new Thread(runnable, "aquifer-pump-"+THREAD_COUNT.incrementAndGet());
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  private static final ThreadLocal<Buffers> BUFFERS = new ThreadLocal<Buffers>() {
+    @Override
+    protected Buffers initialValue() {
+      return new Buffers();
+    }
+  };
+
+  private StreamPump() {}
+
+  /**
+   * Starts pumping a stream until its end
+   * @param source - the stream to pump (ex: Process.getInputStream())
+   * @param charset - the charset the stream is encoded in
+   * @param target - the PrintWriter to write to. It's flushed after each read.
+   * @return a Future completing once the stream has ended and all of it was written
+   */
+  static Future<?> start(InputStream source, Charset charset, PrintWriter target) {
+    return PUMPS.submit(() -> pump(source, charset, target));
+  }
+
+  private static void pump(InputStream source, Charset charset, PrintWriter target) {
+    final Buffers buffers = BUFFERS.get();
+    final ByteBuffer bytes = buffers.bytes;
+    final CharBuffer chars = buffers.chars;
+    final CharsetDecoder decoder = buffers.decoder(charset);
+
+    //Buffer methods are called through Buffer, as the covariant overrides of ByteBuffer and CharBuffer don't exist on Java 8
+    ((Buffer) bytes).clear();
+    try {
+      int read;
+      while ((read = source.read(bytes.array(), bytes.arrayOffset() + bytes.position(), bytes.remaining())) >= 0) {
+        ((Buffer) bytes).position(bytes.position() + read);
+        ((Buffer) bytes).flip();
+        decode(decoder, bytes, chars, target, false);
+
+        //Keep a partial character for the next read
+        bytes.compact();
+      }
+    } catch (IOException e) {
+      //The stream was closed under us (ex: the process was destroyed). Keep what was read.
+    } finally {
+      ((Buffer) bytes).flip();
+      decode(decoder, bytes, chars, target, true);
+      decoder.flush(chars);
+      drain(chars, target);
+      try {
+        source.close();
+      } catch (IOException e) {
+        //Already at its end
+      }
+    }
+  }
+
+  private static void decode(CharsetDecoder decoder, ByteBuffer bytes, CharBuffer chars, PrintWriter target, boolean endOfInput) {
+    //Overflows until the CharBuffer has room for everything decoded
+    while (decoder.decode(bytes, chars, endOfInput).isOverflow()) {
+      drain(chars, target);
+    }
+    drain(chars, target);
+  }
+
+  private static void drain(CharBuffer chars, PrintWriter target) {
+    if (chars.position() > 0) {
+      target.write(chars.array(), chars.arrayOffset(), chars.position());
+      target.flush();
+      ((Buffer) chars).clear();
+    }
+  }
+
+  /**
+   * The buffers of a pump Thread
+   */
+  private static final class Buffers {
+
+    final ByteBuffer bytes = ByteBuffer.allocate(BUFFER_SIZE);
+    final CharBuffer chars = CharBuffer.allocate(BUFFER_SIZE);
+
+    private CharsetDecoder decoder;
+
+    CharsetDecoder decoder(Charset charset) {
+      if (decoder == null || !decoder.charset().equals(charset)) {
+        decoder = charset.newDecoder()
+                         .onMalformedInput(CodingErrorAction.REPLACE)
+                         .onUnmappableCharacter(CodingErrorAction.REPLACE);
+      }
+      return decoder.reset();
+    }
+  }
+}
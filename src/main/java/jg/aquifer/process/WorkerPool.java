@@ -0,0 +1,379 @@
+package jg.aquifer.process;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import jg.aquifer.Diagnostics;
+import jg.aquifer.Diagnostics.Level;
+import jg.aquifer.Intake;
+import jg.aquifer.Output;
+import jg.aquifer.metrics.Metrics;
+
+/**
+ * An Intake handing each submission to a backend process started ahead of it - for backends that are slow
+ * to start (ex: a JVM), whose startup would otherwise be paid on every run.
+ *
+ * The pool keeps a number of backend processes started and idle. A submission is handed to one of them
+ * (a warm hit), and a replacement is started in the background. When none is idle, one is started
+ * for the submission (a cold start). Workers idle for longer than the idle timeout are let go, and
+ * the pool is only refilled by the next submission.
+ *
+ * Workers are started with the ProcessIntake's command alone, and read their arguments from their standard
+ * input: HANDOFF_HEADER, then the amount of arguments in decimal, then the command line tokens following
+ * the command (see ProcessIntake.toCommandLine()) - each terminated by a NUL character. Each worker serves
+ * a single submission, as if launched with those tokens, and exits. A worker whose input ends before the hand-off
+ * is complete was orphaned (ex: its pool's JVM died), and must exit rather than run. Java backends can wait
+ * for their arguments through awaitArguments(), which throws in that case:
+ * <pre>
+ * public static void main(String[] args) throws IOException {
+ *   if (args.length == 0) {
+ *     args = WorkerPool.awaitArguments(System.in, StandardCharsets.UTF_8);
+ *   }
+ *   ...
+ * }
+ * </pre>
+ * Output, cancellation and how the process ended are handled as by the ProcessIntake itself.
+ *
+ * shutdown() must be called once the pool is no longer needed. Should the JVM exit first, a shutdown hook
+ * destroys the idle workers, though one that's killed outright leaves them to notice their input ending.
+ *
+ * @author Jose
+ */
+public class WorkerPool implements Intake {
+
+  /**
+   * The first token handed to a worker, identifying the hand-off and its version
+   */
+  public static final String HANDOFF_HEADER = "aquifer-worker/1";
+
+  private final ProcessIntake backend;
+  private final int size;
+  private final LinkedBlockingDeque<Worker> idle;
+  private final ScheduledExecutorService refiller;
+  private final AtomicLong warmHits;
+  private final AtomicLong coldStarts;
+  private final Thread shutdownHook;
+
+  private volatile long idleTimeoutNanos;
+  private volatile Metrics metrics;
+  private volatile boolean cold;
+  private volatile boolean shutdown;
+
+  /**
+   * Constructs a WorkerPool
+   * @param backend - the ProcessIntake whose command is started as workers, and whose settings they run with
+   * @param size - the amount of workers kept idle
+   */
+  public WorkerPool(ProcessIntake backend, int size) {
+    if (size < 0) {
+      throw new IllegalArgumentException("Negative pool size");
+    }
+    this.backend = backend;
+    this.size = size;
+    this.idle = new LinkedBlockingDeque<>();
+    this.refiller = Executors.newSingleThreadScheduledExecutor((runnable) -> {
+      final Thread thread = new Thread(runnable, "aquifer-worker-refill");
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.warmHits = new AtomicLong();
+    this.coldStarts = new AtomicLong();
+    this.shutdownHook = new Thread(this::destroyIdle, "aquifer-worker-shutdown");
+    this.metrics = Metrics.NONE;
+  }
+
+  /**
+   * Sets how long a worker may stay idle before it's let go. By default, workers are kept until shutdown().
+   * @param timeout - the idle timeout, or 0 to keep workers until shutdown()
+   * @param unit - the unit of the timeout
+   */
+  public void setIdleTimeout(long timeout, TimeUnit unit) {
+    this.idleTimeoutNanos = unit.toNanos(timeout);
+  }
+
+  /**
+   * Sets the Metrics warm hits and cold starts are reported to (see Metrics.workerAcquired())
+   */
+  public void setMetrics(Metrics metrics) {
+    this.metrics = metrics == null ? Metrics.NONE : metrics;
+  }
+
+  /**
+   * Starts filling the pool, in the background. shutdown() must be called once the pool is no longer needed.
+   */
+  public void start() {
+    Runtime.getRuntime().addShutdownHook(shutdownHook);
+    refiller.scheduleWithFixedDelay(this::retireIdle, 100, 100, TimeUnit.MILLISECONDS);
+    refill();
+  }
+
+  /**
+   * Stops refilling the pool, and destroys its idle workers. Runs in progress are left to finish.
+   */
+  public void shutdown() {
+    try {
+      Runtime.getRuntime().removeShutdownHook(shutdownHook);
+    } catch (IllegalStateException e) {
+      //The JVM is already shutting down, and the hook destroys the idle workers
+    }
+
+    shutdown = true;
+    refiller.shutdownNow();
+    try {
+      refiller.awaitTermination(ProcessIntake.DESTROY_GRACE_MILLIS, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    destroyIdle();
+  }
+
+  private void destroyIdle() {
+    shutdown = true;
+    Worker worker;
+    while ((worker = idle.poll()) != null) {
+      worker.process.destroy();
+    }
+  }
+
+  @Override
+  public void submitArguments(String subcommand, Map<String, String> arguments, Output output) {
+    final List<String> commandLine = backend.toCommandLine(subcommand, arguments);
+    final byte [] handed = encode(commandLine.subList(backend.getCommand().size(), commandLine.size()), backend.getCharset());
+
+    final long start = System.nanoTime();
+    Worker worker;
+    boolean warm;
+    long cpuBaseline;
+    while (true) {
+      worker = takeIdle();
+      warm = worker != null;
+      if (!warm) {
+        try {
+          worker = startWorker();
+        } catch (IOException e) {
+          throw new UncheckedIOException("Couldn't launch '"+backend.getCommand().get(0)+"'", e);
+        }
+      }
+
+      //What the worker used while starting isn't part of the run
+      cpuBaseline = Math.max(0, CpuTime.sample(worker.process));
+      try (OutputStream input = worker.process.getOutputStream()) {
+        input.write(handed);
+        break;
+      } catch (IOException e) {
+        worker.process.destroyForcibly();
+        if (!warm) {
+          throw new UncheckedIOException("'"+backend.getCommand().get(0)+"' exited before taking its arguments", e);
+        }
+        Diagnostics.log(Level.WARN, "WorkerPool", "A worker exited before taking its arguments: {}", e);
+      }
+    }
+
+    cold = false;
+    refill();
+
+    final long acquired = System.nanoTime() - start;
+    (warm ? warmHits : coldStarts).incrementAndGet();
+    metrics.workerAcquired(subcommand, warm, acquired);
+    Diagnostics.log(Level.DEBUG, "WorkerPool", "Handed {} to a {} worker", commandLine, warm ? "warm" : "cold");
+
+    ProcessIntake.check(backend.await(worker.process, commandLine, start, cpuBaseline, output));
+  }
+
+  /**
+   * Takes an idle worker, skipping those that exited while idle
+   * @return the worker, or null if none is idle
+   */
+  private Worker takeIdle() {
+    Worker worker;
+    while ((worker = idle.poll()) != null) {
+      if (worker.process.isAlive()) {
+        return worker;
+      }
+      Diagnostics.log(Level.WARN, "WorkerPool", "A worker exited while idle, with status {}", worker.process.exitValue());
+    }
+    return null;
+  }
+
+  private Worker startWorker() throws IOException {
+    Diagnostics.log(Level.DEBUG, "WorkerPool", "Starting a worker: {}", backend.getCommand());
+    return new Worker(backend.newProcessBuilder(backend.getCommand()).start());
+  }
+
+  private void refill() {
+    if (shutdown || cold) {
+      return;
+    }
+
+    try {
+      refiller.execute(() -> {
+        while (!shutdown && !cold && idle.size() < size) {
+          final Worker worker;
+          try {
+            worker = startWorker();
+          } catch (IOException e) {
+            Diagnostics.log(Level.WARN, "WorkerPool", "Couldn't start a worker: {}", e);
+            return;
+          }
+
+          idle.add(worker);
+          if (shutdown && idle.remove(worker)) {
+            worker.process.destroy();
+          }
+        }
+      });
+    } catch (RuntimeException e) {
+      //Shut down in the meantime
+    }
+  }
+
+  /**
+   * Lets go of the workers idle for longer than the idle timeout, leaving the pool cold until the next submission
+   */
+  private void retireIdle() {
+    final long timeout = idleTimeoutNanos;
+    if (timeout <= 0) {
+      return;
+    }
+
+    final long now = System.nanoTime();
+    final List<Worker> retired = new ArrayList<>();
+    final Iterator<Worker> iterator = idle.iterator();
+    while (iterator.hasNext()) {
+      final Worker worker = iterator.next();
+      if (now - worker.idleSince > timeout && idle.remove(worker)) {
+        retired.add(worker);
+      }
+    }
+
+    if (!retired.isEmpty()) {
+      cold = true;
+      for (Worker worker : retired) {
+        worker.process.destroy();
+      }
+      Diagnostics.log(Level.DEBUG, "WorkerPool", "Retired {} idle workers", retired.size());
+    }
+  }
+
+  /**
+   * @return the amount of workers currently idle
+   */
+  public int getIdleCount() {
+    return idle.size();
+  }
+
+  /**
+   * @return the amount of submissions handed to an idle worker
+   */
+  public long getWarmHits() {
+    return warmHits.get();
+  }
+
+  /**
+   * @return the amount of submissions a worker had to be started for
+   */
+  public long getColdStarts() {
+    return coldStarts.get();
+  }
+
+  /**
+   * Encodes command line tokens as handed to a worker: the header, their amount, then the tokens themselves
+   */
+  static byte [] encode(List<String> tokens, Charset charset) {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    writeToken(bytes, HANDOFF_HEADER, charset);
+    writeToken(bytes, Integer.toString(tokens.size()), charset);
+    for (String token : tokens) {
+      if (token.indexOf('\0') >= 0) {
+        throw new IllegalArgumentException("Arguments can't contain NUL characters");
+      }
+      writeToken(bytes, token, charset);
+    }
+    return bytes.toByteArray();
+  }
+
+  private static void writeToken(ByteArrayOutputStream bytes, String token, Charset charset) {
+    final byte [] encoded = token.getBytes(charset);
+    bytes.write(encoded, 0, encoded.length);
+    bytes.write(0);
+  }
+
+  /**
+   * Reads the arguments a WorkerPool hands a worker - for backends to call from their main().
+   * Returns as soon as the hand-off is complete, without waiting for the input to end.
+   *
+   * Note: A worker whose input ends before the hand-off is complete was orphaned by its pool, and should exit.
+   * @param input - the worker's standard input
+   * @param charset - the charset the arguments are encoded in (see ProcessIntake.setCharset())
+   * @return the arguments
+   * @throws EOFException if the input ended before the hand-off was complete
+   * @throws IOException if the input couldn't be read, or isn't a hand-off of this version
+   */
+  public static String [] awaitArguments(InputStream input, Charset charset) throws IOException {
+    final ByteArrayOutputStream token = new ByteArrayOutputStream();
+    final String header = readToken(input, charset, token);
+    if (!header.equals(HANDOFF_HEADER)) {
+      throw new IOException("Not handed arguments by a WorkerPool (expected '"+HANDOFF_HEADER+"')");
+    }
+
+    final int count;
+    try {
+      count = Integer.parseInt(readToken(input, charset, token));
+    } catch (NumberFormatException e) {
+      throw new IOException("Malformed amount of arguments", e);
+    }
+    if (count < 0) {
+      throw new IOException("Negative amount of arguments");
+    }
+
+    final String [] arguments = new String[count];
+    for (int i = 0; i < count; i++) {
+      arguments[i] = readToken(input, charset, token);
+    }
+    return arguments;
+  }
+
+  /**
+   * Reads a NUL-terminated token
+   * @param token - where the token's bytes are gathered, reused across tokens
+   */
+  private static String readToken(InputStream input, Charset charset, ByteArrayOutputStream token) throws IOException {
+    token.reset();
+    int b;
+    while ((b = input.read()) != 0) {
+      if (b < 0) {
+        throw new EOFException("The input ended before the arguments were handed over");
+      }
+      token.write(b);
+    }
+    return new String(token.toByteArray(), charset);
+  }
+
+  /**
+   * A started backend process, waiting for its arguments
+   */
+  private static final class Worker {
+
+    final Process process;
+    final long idleSince;
+
+    Worker(Process process) {
+      this.process = process;
+      this.idleSince = System.nanoTime();
+    }
+  }
+}
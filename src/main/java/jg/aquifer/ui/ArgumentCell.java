@@ -1,6 +1,8 @@
 package jg.aquifer.ui;
 
-import javafx.scene.Node;
+import java.util.HashMap;
+import java.util.Map;
+
 import javafx.scene.control.ListCell;
 import jg.aquifer.commands.Subcommand;
 import jg.aquifer.commands.options.Option;
@@ -11,29 +13,55 @@ import jg.aquifer.commands.options.Option;
  * This allows us to create custom graphics for each different
  * child of Option.
  * 
+ * Each cell keeps one OptionEditor per Option class it has displayed, and rebinds it 
+ * whenever the cell is given a new Option. As ListViews only create cells for visible rows, 
+ * the graphics alive scale with the amount of visible rows rather than the amount of Options.
+ * 
  * @author Jose
  */
 public class ArgumentCell extends ListCell<Option> {
   
   private final Subcommand subcommand;
   private final RawArgumentForm argumentForm;
+  private final Map<Class<?>, OptionEditor> editors;
+  
+  private OptionEditor boundEditor;
     
   public ArgumentCell(Subcommand subcommand, RawArgumentForm argumentForm) {
-    // TODO Auto-generated constructor stub
     this.subcommand = subcommand;
     this.argumentForm = argumentForm;
+    this.editors = new HashMap<>();
   }
 
   @Override
   protected void updateItem(Option item, boolean empty) {
-    // TODO Auto-generated method stub
     super.updateItem(item, empty);
+    
+    if (boundEditor != null) {
+      boundEditor.unbind();
+      boundEditor = null;
+    }
 
     if (empty || item == null) {
       setText(null);
       setGraphic(null);
-    } else {     
-      setGraphic(item.makeDisplay(argumentForm, subcommand));
+    } 
+    else {
+      OptionEditor editor = editors.get(item.getClass());
+      if (editor == null && !editors.containsKey(item.getClass())) {
+        editor = item.createEditor();
+        editors.put(item.getClass(), editor);
+      }
+      
+      if (editor == null) {
+        //Custom Option types without an editor keep a single display of their own
+        setGraphic(item.makeDisplay(argumentForm, subcommand));
+      }
+      else {
+        editor.bind(item, argumentForm);
+        boundEditor = editor;
+        setGraphic(editor.getNode());
+      }
     }
   }
 }
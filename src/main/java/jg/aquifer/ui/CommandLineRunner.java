@@ -0,0 +1,305 @@
+package jg.aquifer.ui;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import jg.aquifer.Diagnostics;
+import jg.aquifer.Diagnostics.Level;
+import jg.aquifer.Intake;
+import jg.aquifer.Output;
+import jg.aquifer.commands.Program;
+import jg.aquifer.commands.Subcommand;
+import jg.aquifer.commands.SubcommandSchema;
+import jg.aquifer.commands.options.Flag;
+import jg.aquifer.commands.options.Option;
+import jg.aquifer.commands.options.RadioOption;
+
+/**
+ * Runs a Program from its command line arguments, without a GUI - the headless counterpart of Visualizer.
+ *
+ * The arguments are parsed against the same Program, verified by the same Verifiers and submitted
+ * to the same Intake as they would be on the generated GUI:
+ * <pre>
+ * program [subcommand] [--option value | --option=value | --flag]...
+ * </pre>
+ * Options may also be given with a single dash (ex: -option value). Without a subcommand, the arguments are for
+ * the Program's own Options. "--help" prints the usage of the Program, or of the given subcommand - wherever an option
+ * is expected, so that it can still be the argument of an Option (ex: --pattern --help).
+ *
+ * Options are verified in dependency order (see Subcommand.addDependency()), so that Verifiers reading the arguments
+ * of other Options through the RawArgumentForm see them verified. The Intake is called on the calling Thread.
+ *
+ * A CommandLineRunner never touches JavaFX, so it can run where no display - or no JavaFX - is available,
+ * without paying for the toolkit's initialization. To keep it so, the class launching it must not extend
+ * javafx.application.Application, and the Program's icon should be set through Program.setIconUrl().
+ *
+ * @author Jose
+ */
+public class CommandLineRunner {
+
+  /**
+   * Exit status of a run whose Intake returned normally
+   */
+  public static final int SUCCESS = 0;
+
+  /**
+   * Exit status of a run whose Intake threw
+   */
+  public static final int FAILURE = 1;
+
+  /**
+   * Exit status of a run whose arguments were invalid, incomplete or unknown
+   */
+  public static final int USAGE = 2;
+
+  private final Program program;
+  private final Intake intake;
+
+  private PrintWriter out;
+  private PrintWriter err;
+
+  /**
+   * Constructs a CommandLineRunner printing to the standard output and error streams
+   * @param program - the Program to run
+   * @param intake - the Intake to submit arguments to
+   */
+  public CommandLineRunner(Program program, Intake intake) {
+    this.program = program;
+    this.intake = intake;
+    this.out = new PrintWriter(System.out, true);
+    this.err = new PrintWriter(System.err, true);
+  }
+
+  /**
+   * Sets the streams handed to the Intake, which usage and errors are also printed to
+   * @param out - the standard output stream
+   * @param err - the standard error stream
+   */
+  public void setOutput(PrintWriter out, PrintWriter err) {
+    this.out = out;
+    this.err = err;
+  }
+
+  /**
+   * Parses and verifies command line arguments, then submits them to the Intake.
+   * @param argv - the command line arguments, without the program's name
+   * @return the exit status of the run: SUCCESS, FAILURE or USAGE
+   */
+  public int run(String ... argv) {
+    Subcommand subcommand = program.getProgramOptions();
+    int start = 0;
+    if (argv.length > 0 && !argv[0].startsWith("-")) {
+      final Subcommand named = program.getSubcommands().get(argv[0]);
+      if (named == null || named == subcommand) {
+        err.println("Unknown subcommand '"+argv[0]+"'");
+        printUsage(err, subcommand);
+        return finish(USAGE);
+      }
+      subcommand = named;
+      start = 1;
+    }
+
+    if (asksForHelp(subcommand, argv, start)) {
+      printUsage(out, subcommand);
+      return finish(SUCCESS);
+    }
+
+    final TypedArguments arguments;
+    try {
+      arguments = parse(subcommand, Arrays.copyOfRange(argv, start, argv.length));
+    } catch (IllegalArgumentException | IncompleteException e) {
+      err.println(e.getMessage());
+      err.println("Run with --help for usage");
+      return finish(USAGE);
+    }
+
+    Diagnostics.log(Level.DEBUG, "CommandLineRunner", "Submitting {}", arguments);
+
+    try {
+      intake.submitTypedArguments(subcommand.getName(), arguments, new Output(out, err));
+      return finish(SUCCESS);
+    } catch (RuntimeException e) {
+      e.printStackTrace(err);
+      return finish(FAILURE);
+    }
+  }
+
+  /**
+   * Parses and verifies the command line arguments to a Subcommand
+   * @param subcommand - the Subcommand the arguments are for
+   * @param args - the arguments, past the subcommand's name
+   * @return the verified arguments
+   * @throws IllegalArgumentException if an argument is unknown, malformed or rejected by its Verifier
+   * @throws IncompleteException if a required Option wasn't given
+   */
+  public TypedArguments parse(Subcommand subcommand, String ... args) throws IllegalArgumentException, IncompleteException {
+    final SubcommandSchema schema = subcommand.getSchema();
+    final RawArgumentForm form = new RawArgumentForm(subcommand, null);
+    final long [] given = SubcommandSchema.newBitSet(schema.size());
+
+    for (int i = 0; i < args.length; i++) {
+      final String arg = args[i];
+      if (arg.equals("--") || !arg.startsWith("-") || arg.equals("-")) {
+        throw new IllegalArgumentException("Unexpected argument '"+arg+"'");
+      }
+
+      final String name = arg.substring(arg.startsWith("--") ? 2 : 1);
+      final int separator = name.indexOf('=');
+      final String optName = separator < 0 ? name : name.substring(0, separator);
+
+      final int id = schema.getId(optName);
+      if (id < 0) {
+        throw new IllegalArgumentException("Unknown option '"+optName+"' of '"+subcommand.getName()+"'");
+      }
+      if (SubcommandSchema.isSet(given, id)) {
+        throw new IllegalArgumentException("'"+optName+"' was given more than once");
+      }
+
+      final Option option = schema.getOption(id);
+      final String value;
+      if (option instanceof Flag) {
+        if (separator >= 0) {
+          throw new IllegalArgumentException("'"+optName+"' is a flag, and takes no argument");
+        }
+        value = Flag.VALUE_PLACE_HOLDER;
+      }
+      else if (separator >= 0) {
+        value = name.substring(separator + 1);
+      }
+      else if (i + 1 < args.length) {
+        value = args[++i];
+      }
+      else {
+        throw new IllegalArgumentException("'"+optName+"' expects an argument");
+      }
+
+      SubcommandSchema.set(given, id);
+      form.setOptionArgument(option, new Value().setValue(value));
+    }
+
+    final Map<String, String> rejections = form.verifyAll();
+    if (!rejections.isEmpty()) {
+      final StringBuilder message = new StringBuilder();
+      for (Map.Entry<String, String> rejection : rejections.entrySet()) {
+        if (message.length() > 0) {
+          message.append(System.lineSeparator());
+        }
+        message.append("Invalid argument to '").append(rejection.getKey()).append("': ").append(rejection.getValue());
+      }
+      throw new IllegalArgumentException(message.toString());
+    }
+    return TypedArguments.from(form);
+  }
+
+  /**
+   * Checks whether "--help" is given where an option is expected, rather than as the argument of an Option
+   * @param subcommand - the Subcommand the arguments are for
+   * @param argv - the command line arguments
+   * @param start - the index of the first argument past the subcommand's name
+   * @return true if the usage should be printed
+   */
+  private static boolean asksForHelp(Subcommand subcommand, String [] argv, int start) {
+    final SubcommandSchema schema = subcommand.getSchema();
+    for (int i = start; i < argv.length; i++) {
+      final String arg = argv[i];
+      if (arg.equals("--help")) {
+        return true;
+      }
+      if (!arg.startsWith("-") || arg.indexOf('=') >= 0) {
+        continue;
+      }
+
+      //Skip over the argument of an Option, as parse() would
+      final int id = schema.getId(arg.substring(arg.startsWith("--") ? 2 : 1));
+      if (id >= 0 && !(schema.getOption(id) instanceof Flag)) {
+        i++;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Prints the usage of the Program, or of one of its Subcommands
+   * @param writer - the stream to print to
+   * @param subcommand - the Subcommand whose Options are listed
+   */
+  public void printUsage(PrintWriter writer, Subcommand subcommand) {
+    final boolean isProgram = subcommand == program.getProgramOptions();
+    writer.println("Usage: "+program.getName()+(isProgram ? " [subcommand]" : " "+subcommand.getName())+" [options]");
+
+    final String description = isProgram ? program.getDescription() : subcommand.getDescription();
+    if (description != null && !description.isEmpty()) {
+      writer.println();
+      writer.println(description);
+    }
+
+    if (isProgram && program.getSubcommands().size() > 1) {
+      final List<Subcommand> subcommands = new ArrayList<>(program.getSubcommands().values());
+      subcommands.remove(subcommand);
+      subcommands.sort((a, b) -> a.getName().compareTo(b.getName()));
+
+      final String [] names = new String[subcommands.size()];
+      final String [] descriptions = new String[subcommands.size()];
+      for (int i = 0; i < names.length; i++) {
+        names[i] = subcommands.get(i).getName();
+        descriptions[i] = subcommands.get(i).getDescription();
+      }
+
+      writer.println();
+      writer.println("Subcommands:");
+      printColumns(writer, names, descriptions);
+    }
+
+    final List<Option> options = new ArrayList<>(subcommand.getOptions().values());
+    if (!options.isEmpty()) {
+      //Required Options first
+      options.sort((a, b) -> a.isRequired() != b.isRequired() ? (a.isRequired() ? -1 : 1) : a.getOptName().compareTo(b.getOptName()));
+
+      final String [] syntaxes = new String[options.size()];
+      final String [] descriptions = new String[options.size()];
+      for (int i = 0; i < syntaxes.length; i++) {
+        final Option option = options.get(i);
+        if (option instanceof RadioOption) {
+          syntaxes[i] = "--"+option.getOptName()+" <"+String.join("|", ((RadioOption) option).getChoices())+">";
+        }
+        else {
+          syntaxes[i] = "--"+option.getOptName()+(option instanceof Flag ? "" : " <value>");
+        }
+        descriptions[i] = option.isRequired() ? option.getDescription()+" (required)" : option.getDescription();
+      }
+
+      writer.println();
+      writer.println("Options:");
+      printColumns(writer, syntaxes, descriptions);
+    }
+  }
+
+  /**
+   * Prints names and their descriptions in two aligned columns
+   */
+  private static void printColumns(PrintWriter writer, String [] names, String [] descriptions) {
+    int width = 0;
+    for (String name : names) {
+      width = Math.max(width, name.length());
+    }
+
+    final StringBuilder line = new StringBuilder();
+    for (int i = 0; i < names.length; i++) {
+      line.setLength(0);
+      line.append("  ").append(names[i]);
+      for (int pad = names[i].length(); pad < width + 2; pad++) {
+        line.append(' ');
+      }
+      writer.println(line.append(descriptions[i]));
+    }
+  }
+
+  private int finish(int status) {
+    out.flush();
+    err.flush();
+    return status;
+  }
+}
@@ -0,0 +1,182 @@
+package jg.aquifer.ui;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An append-only store of lines with a bounded scrollback.
+ *
+ * Lines are kept in fixed-size chunks, so appending a line never copies previously stored lines.
+ * Once the store holds more lines - or characters - than its limits allow,
+ * the oldest lines are evicted, and whole chunks are released as they empty out.
+ *
+ * Each line may carry a small tag (ex: the stream it was written to), stored alongside it.
+ *
+ * @author Jose
+ */
+public class LineStore {
+
+  /**
+   * The default maximum amount of lines retained by a LineStore
+   */
+  public static final int DEFAULT_MAX_LINES = 100_000;
+
+  /**
+   * The default maximum amount of characters retained by a LineStore
+   */
+  public static final long DEFAULT_MAX_CHARS = 16L << 20;
+
+  private static final int CHUNK_SIZE = 1024;
+
+  private final int maxLines;
+  private final long maxChars;
+
+  private final List<String []> chunks;
+  private final List<byte []> tagChunks;
+
+  /**
+   * Index of the first retained line in the first chunk
+   */
+  private int headOffset;
+  private int size;
+  private long chars;
+
+  /**
+   * Constructs a LineStore with a limit of DEFAULT_MAX_LINES lines and DEFAULT_MAX_CHARS characters
+   */
+  public LineStore() {
+    this(DEFAULT_MAX_LINES, DEFAULT_MAX_CHARS);
+  }
+
+  /**
+   * Constructs a LineStore
+   * @param maxLines - the maximum amount of lines to retain
+   * @param maxChars - the maximum amount of characters to retain
+   */
+  public LineStore(int maxLines, long maxChars) {
+    if (maxLines <= 0 || maxChars <= 0) {
+      throw new IllegalArgumentException("Scrollback limits must be positive");
+    }
+    this.maxLines = maxLines;
+    this.maxChars = maxChars;
+    this.chunks = new ArrayList<>();
+    this.tagChunks = new ArrayList<>();
+  }
+
+  /**
+   * Appends an untagged line to the end of this store.
+   *
+   * Note: This doesn't evict lines. Call isOverLimit() and removeFirst() to do so.
+   * @param line - the line to append
+   */
+  public void add(String line) {
+    add(line, 0);
+  }
+
+  /**
+   * Appends a line to the end of this store.
+   *
+   * Note: This doesn't evict lines. Call isOverLimit() and removeFirst() to do so.
+   * @param line - the line to append
+   * @param tag - the tag of the line, which must fit in a byte
+   */
+  public void add(String line, int tag) {
+    final int index = headOffset + size;
+    if (index == chunks.size() * CHUNK_SIZE) {
+      chunks.add(new String[CHUNK_SIZE]);
+      tagChunks.add(new byte[CHUNK_SIZE]);
+    }
+
+    chunks.get(index / CHUNK_SIZE)[index % CHUNK_SIZE] = line;
+    tagChunks.get(index / CHUNK_SIZE)[index % CHUNK_SIZE] = (byte) tag;
+    size++;
+    chars += line.length();
+  }
+
+  /**
+   * Replaces the last line of this store
+   * @param line - the replacing line
+   * @return the replaced line
+   */
+  public String setLast(String line) {
+    if (size == 0) {
+      throw new IllegalStateException("LineStore is empty");
+    }
+
+    final int index = headOffset + size - 1;
+    final String [] chunk = chunks.get(index / CHUNK_SIZE);
+    final String old = chunk[index % CHUNK_SIZE];
+    chunk[index % CHUNK_SIZE] = line;
+    chars += line.length() - old.length();
+
+    return old;
+  }
+
+  /**
+   * Evicts the oldest line of this store
+   * @return the evicted line
+   */
+  public String removeFirst() {
+    if (size == 0) {
+      throw new IllegalStateException("LineStore is empty");
+    }
+
+    final String [] chunk = chunks.get(0);
+    final String old = chunk[headOffset];
+    chunk[headOffset] = null;
+
+    headOffset++;
+    size--;
+    chars -= old.length();
+
+    if (headOffset == CHUNK_SIZE || size == 0) {
+      chunks.remove(0);
+      tagChunks.remove(0);
+      headOffset = 0;
+    }
+
+    return old;
+  }
+
+  /**
+   * @return whether this store holds more lines or characters than its limits allow.
+   *         A store with a single line is never over its limits.
+   */
+  public boolean isOverLimit() {
+    return size > 1 && (size > maxLines || chars > maxChars);
+  }
+
+  public String get(int index) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException("Index: "+index+", Size: "+size);
+    }
+
+    final int actual = headOffset + index;
+    return chunks.get(actual / CHUNK_SIZE)[actual % CHUNK_SIZE];
+  }
+
+  public int getTag(int index) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException("Index: "+index+", Size: "+size);
+    }
+
+    final int actual = headOffset + index;
+    return tagChunks.get(actual / CHUNK_SIZE)[actual % CHUNK_SIZE];
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public long getChars() {
+    return chars;
+  }
+
+  public int getMaxLines() {
+    return maxLines;
+  }
+
+  public long getMaxChars() {
+    return maxChars;
+  }
+}
@@ -0,0 +1,182 @@
+package jg.aquifer.ui;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import jg.aquifer.Output;
+
+/**
+ * Pairs a standard output and a standard error OutputBuffer, and merges
+ * what's drained from both back into the order it was written.
+ *
+ * Each stream has its own buffer - and thus its own lock - so heavy writing on one stream
+ * never stalls writers of the other. The two buffers only share the sequence used to stamp writes.
+ *
+ * @author Jose
+ */
+public class MergedOutput {
+
+  /**
+   * Receives merged output, one segment at a time
+   * @author Jose
+   */
+  @FunctionalInterface
+  public static interface Sink {
+
+    /**
+     * Accepts a segment of text
+     * @param channel - the stream the text was written to (STDOUT or STDERR)
+     * @param text - the text written
+     */
+    public void accept(int channel, String text);
+
+    /**
+     * Called before the first segment of a drain is accepted
+     */
+    public default void beginDrain() {}
+
+    /**
+     * Called after the last segment of a drain has been accepted
+     */
+    public default void endDrain() {}
+  }
+
+  /**
+   * Channel of text written to standard output
+   */
+  public static final int STDOUT = 0;
+
+  /**
+   * Channel of text written to standard error
+   */
+  public static final int STDERR = 1;
+
+  private final AtomicLong sequence;
+  private final OutputBuffer stdOut;
+  private final OutputBuffer stdErr;
+  private final Sink sink;
+
+  private final Pending pendingOut;
+  private final Pending pendingErr;
+
+  /**
+   * Constructs a MergedOutput whose buffers each have a capacity of OutputBuffer.DEFAULT_CAPACITY characters
+   * @param sink - the Sink that receives merged output
+   */
+  public MergedOutput(Sink sink) {
+    this(OutputBuffer.DEFAULT_CAPACITY, sink);
+  }
+
+  /**
+   * Constructs a MergedOutput
+   * @param capacity - the capacity, in characters, of each stream's buffer
+   * @param sink - the Sink that receives merged output
+   */
+  public MergedOutput(int capacity, Sink sink) {
+    this.sequence = new AtomicLong();
+    this.sink = sink;
+    this.pendingOut = new Pending();
+    this.pendingErr = new Pending();
+    this.stdOut = new OutputBuffer(capacity, sequence, pendingOut::add);
+    this.stdErr = new OutputBuffer(capacity, sequence, pendingErr::add);
+  }
+
+  /**
+   * Drains both streams and hands their text to this MergedOutput's sink, in the order it was written.
+   *
+   * All segments of a drain are handed over between a single beginDrain() and endDrain() call,
+   * so a Sink can publish them as one update.
+   *
+   * The two buffers are drained one after the other, so a write to the first may land between
+   * the two drains with a lower sequence number than what the second drain picks up.
+   * Only segments stamped before the drain began are handed over; later ones are held
+   * until the next drain, where they're merged with whatever the other stream wrote alongside them.
+   *
+   * Only one Thread should call this method.
+   * @return the amount of characters drained
+   */
+  public int drain() {
+    final long last = sequence.get();
+    final int drained = stdOut.drain() + stdErr.drain();
+
+    final int outReady = pendingOut.countUpTo(last);
+    final int errReady = pendingErr.countUpTo(last);
+    if (outReady == 0 && errReady == 0) {
+      return drained;
+    }
+
+    int o = 0;
+    int e = 0;
+    sink.beginDrain();
+    try {
+      while (o < outReady || e < errReady) {
+        if (e == errReady ||
+            (o < outReady && pendingOut.sequences[o] < pendingErr.sequences[e])) {
+          sink.accept(STDOUT, pendingOut.texts.get(o++));
+        }
+        else {
+          sink.accept(STDERR, pendingErr.texts.get(e++));
+        }
+      }
+    } finally {
+      pendingOut.removeFirst(o);
+      pendingErr.removeFirst(e);
+      sink.endDrain();
+    }
+
+    return drained;
+  }
+
+  /**
+   * Creates an Output whose streams write into this MergedOutput's buffers.
+   * @return the Output to hand to an Intake
+   */
+  public Output newOutput() {
+    return new Output(new PrintWriter(stdOut.newWriter()), new PrintWriter(stdErr.newWriter()));
+  }
+
+  public OutputBuffer getStdOut() {
+    return stdOut;
+  }
+
+  public OutputBuffer getStdErr() {
+    return stdErr;
+  }
+
+  /**
+   * Segments drained from a single stream that haven't been merged yet, in sequence order
+   */
+  private static class Pending {
+    private long [] sequences = new long[16];
+    private final List<String> texts = new ArrayList<>();
+    private int size;
+
+    private void add(long sequence, String text) {
+      if (size == sequences.length) {
+        sequences = Arrays.copyOf(sequences, size * 2);
+      }
+      sequences[size++] = sequence;
+      texts.add(text);
+    }
+
+    /**
+     * @return the amount of leading segments stamped with a sequence number no greater than the given one
+     */
+    private int countUpTo(long last) {
+      int count = 0;
+      while (count < size && sequences[count] <= last) {
+        count++;
+      }
+      return count;
+    }
+
+    private void removeFirst(int count) {
+      System.arraycopy(sequences, count, sequences, 0, size - count);
+      texts.subList(0, count).clear();
+      size -= count;
+    }
+  }
+}
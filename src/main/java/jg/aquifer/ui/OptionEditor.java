@@ -0,0 +1,84 @@
+package jg.aquifer.ui;
+
+import javafx.scene.Node;
+import jg.aquifer.commands.options.Option;
+
+/**
+ * A reusable editor for the arguments of Options.
+ *
+ * An OptionEditor builds its graphics once, and is then bound to one Option at a time.
+ * Binding shows the Option's current argument (as held by its Value), edits are written
+ * back to that Value, and the editor listens to the Value for changes such as a completed verification.
+ * ArgumentCells keep their editors across Options, so the amount of editors alive scales
+ * with the amount of visible cells rather than with the amount of Options.
+ *
+ * @author Jose
+ */
+public abstract class OptionEditor {
+
+  private final Runnable refresher;
+
+  private Option option;
+  private RawArgumentForm form;
+
+  protected OptionEditor() {
+    this.refresher = () -> {
+      if (option != null) {
+        refresh(option, form);
+      }
+    };
+  }
+
+  /**
+   * @return the Node that holds the graphics of this editor
+   */
+  public abstract Node getNode();
+
+  /**
+   * Updates the graphics of this editor to show the bound Option and its current argument
+   * @param option - the bound Option
+   * @param form - the RawArgumentForm the bound Option is filling out
+   */
+  protected abstract void refresh(Option option, RawArgumentForm form);
+
+  /**
+   * Binds this editor to an Option, replacing the Option it's currently bound to
+   * @param option - the Option to edit
+   * @param form - the RawArgumentForm that the Option is filling out
+   */
+  public void bind(Option option, RawArgumentForm form) {
+    unbind();
+
+    this.option = option;
+    this.form = form;
+    option.getHolder().setListener(refresher);
+    refresh(option, form);
+  }
+
+  /**
+   * Unbinds this editor from its Option. Pending verifications of
+   * the Option still update its Value, but no longer update this editor.
+   */
+  public void unbind() {
+    if (option != null && option.getHolder().getListener() == refresher) {
+      option.getHolder().setListener(null);
+    }
+
+    this.option = null;
+    this.form = null;
+  }
+
+  /**
+   * @return the Option this editor is bound to, or null if it's unbound
+   */
+  public Option getOption() {
+    return option;
+  }
+
+  /**
+   * @return the RawArgumentForm of the bound Option, or null if this editor is unbound
+   */
+  public RawArgumentForm getForm() {
+    return form;
+  }
+}
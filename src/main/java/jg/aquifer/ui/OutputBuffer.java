@@ -0,0 +1,291 @@
+package jg.aquifer.ui;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Writer;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * A bounded, thread-safe ring buffer of characters that sits between the Writers handed
+ * to an Intake and the generated UI.
+ *
+ * Producers (the backing application) write into the buffer from any Thread. A single consumer
+ * periodically calls drain(), which hands all pending text to the sink.
+ * The Visualizer drives drain() once per JavaFX pulse, so any amount of output results
+ * in at most one UI update per frame.
+ *
+ * Each write is stamped with a number taken from a sequence, which may be shared with other
+ * OutputBuffers. Consecutive writes are handed to the sink as a single segment
+ * as long as no other OutputBuffer sharing the sequence has been written to in between.
+ * This allows output from separate buffers to be merged back in the order it was written.
+ *
+ * When the buffer is full, producers block until the consumer drains it. If the consumer
+ * Thread itself writes to a full buffer (ex: an Intake running on the JavaFX Application Thread),
+ * the pending text is drained inline instead, as blocking there would never be released.
+ *
+ * @author Jose
+ */
+public class OutputBuffer {
+
+  /**
+   * Receives drained segments of text from an OutputBuffer
+   * @author Jose
+   */
+  @FunctionalInterface
+  public static interface Sink {
+
+    /**
+     * Accepts a segment of text
+     * @param sequence - the sequence number of the segment's first write
+     * @param text - the text written
+     */
+    public void accept(long sequence, String text);
+  }
+
+  /**
+   * The default capacity, in characters, of an OutputBuffer
+   */
+  public static final int DEFAULT_CAPACITY = 1 << 20;
+
+  /**
+   * The maximum amount of segments tracked at once. Past this, new writes are
+   * folded into the latest segment.
+   */
+  private static final int MAX_SEGMENTS = 4096;
+
+  private final char [] ring;
+  private final AtomicLong sequence;
+  private final Sink sink;
+
+  private int head;
+  private int size;
+
+  private final long [] segmentSequences;
+  private final int [] segmentLengths;
+  private int segmentHead;
+  private int segmentCount;
+  private long lastSequence;
+
+  private volatile Thread consumer;
+
+  private long charsWritten;
+  private long linesWritten;
+
+  /**
+   * Constructs an OutputBuffer with a capacity of DEFAULT_CAPACITY characters
+   * @param sink - the Consumer that receives drained text
+   */
+  public OutputBuffer(Consumer<String> sink) {
+    this(DEFAULT_CAPACITY, new AtomicLong(), (seq, text) -> sink.accept(text));
+  }
+
+  /**
+   * Constructs an OutputBuffer
+   * @param capacity - the maximum amount of characters that can be pending at once
+   * @param sequence - the sequence to stamp writes with
+   * @param sink - the Sink that receives drained text
+   */
+  public OutputBuffer(int capacity, AtomicLong sequence, Sink sink) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("Capacity must be positive: "+capacity);
+    }
+    this.ring = new char[capacity];
+    this.sequence = sequence;
+    this.sink = sink;
+    this.segmentSequences = new long[MAX_SEGMENTS];
+    this.segmentLengths = new int[MAX_SEGMENTS];
+    this.lastSequence = -1;
+  }
+
+  /**
+   * Copies the given range of characters into this buffer, blocking while it's full.
+   * @param cbuf - the characters to write
+   * @param off - the offset to start at
+   * @param len - the amount of characters to write
+   * @throws InterruptedIOException - if the writing Thread is interrupted while waiting for space
+   */
+  public void write(char [] cbuf, int off, int len) throws InterruptedIOException {
+    while (len > 0) {
+      boolean drainInline = false;
+
+      synchronized (this) {
+        while (size == ring.length) {
+          if (Thread.currentThread() == consumer) {
+            drainInline = true;
+            break;
+          }
+
+          try {
+            wait();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for output to drain");
+          }
+        }
+
+        if (!drainInline) {
+          final int copied = put(cbuf, off, len);
+          off += copied;
+          len -= copied;
+        }
+      }
+
+      if (drainInline) {
+        drain();
+      }
+    }
+  }
+
+  /**
+   * Hands all pending text to this buffer's sink, one segment at a time.
+   *
+   * The calling Thread becomes this buffer's consumer. Only one Thread should call this method.
+   * @return the amount of characters drained
+   */
+  public int drain() {
+    consumer = Thread.currentThread();
+
+    final String pending;
+    final long [] sequences;
+    final int [] lengths;
+    synchronized (this) {
+      if (size == 0) {
+        return 0;
+      }
+
+      sequences = new long[segmentCount];
+      lengths = new int[segmentCount];
+      for (int i = 0; i < segmentCount; i++) {
+        sequences[i] = segmentSequences[(segmentHead + i) % MAX_SEGMENTS];
+        lengths[i] = segmentLengths[(segmentHead + i) % MAX_SEGMENTS];
+      }
+      segmentHead = 0;
+      segmentCount = 0;
+      lastSequence = -1;
+
+      pending = takePending();
+    }
+
+    if (sequences.length == 1) {
+      sink.accept(sequences[0], pending);
+    }
+    else {
+      int start = 0;
+      for (int i = 0; i < sequences.length; i++) {
+        sink.accept(sequences[i], pending.substring(start, start + lengths[i]));
+        start += lengths[i];
+      }
+    }
+
+    return pending.length();
+  }
+
+  /**
+   * Returns a Writer that writes into this buffer.
+   *
+   * The returned Writer holds no state of its own, so flush() and close() do nothing.
+   * @return a Writer backed by this OutputBuffer
+   */
+  public Writer newWriter() {
+    return new Writer() {
+      @Override
+      public void write(char[] cbuf, int off, int len) throws IOException {
+        OutputBuffer.this.write(cbuf, off, len);
+      }
+
+      @Override
+      public void flush() throws IOException {}
+
+      @Override
+      public void close() throws IOException {}
+    };
+  }
+
+  /**
+   * Copies as much of the given range as fits. Must be called while holding this buffer's lock.
+   * @return the amount of characters copied
+   */
+  private int put(char [] cbuf, int off, int len) {
+    final int toCopy = Math.min(len, ring.length - size);
+    final int tail = (head + size) % ring.length;
+    final int firstRun = Math.min(toCopy, ring.length - tail);
+
+    System.arraycopy(cbuf, off, ring, tail, firstRun);
+    System.arraycopy(cbuf, off + firstRun, ring, 0, toCopy - firstRun);
+    size += toCopy;
+
+    mark(toCopy);
+
+    for (int i = off; i < off + toCopy; i++) {
+      if (cbuf[i] == '\n') {
+        linesWritten++;
+      }
+    }
+    charsWritten += toCopy;
+
+    return toCopy;
+  }
+
+  /**
+   * Records the given amount of newly written characters as a segment, folding them into
+   * the latest segment if nothing else has taken from the sequence since.
+   * Must be called while holding this buffer's lock.
+   */
+  private void mark(int length) {
+    final long current = sequence.get();
+
+    if (segmentCount > 0 && (current == lastSequence || segmentCount == MAX_SEGMENTS)) {
+      segmentLengths[(segmentHead + segmentCount - 1) % MAX_SEGMENTS] += length;
+    }
+    else {
+      lastSequence = sequence.incrementAndGet();
+
+      final int index = (segmentHead + segmentCount) % MAX_SEGMENTS;
+      segmentSequences[index] = lastSequence;
+      segmentLengths[index] = length;
+      segmentCount++;
+    }
+  }
+
+  /**
+   * Empties this buffer into a String. Must be called while holding this buffer's lock.
+   */
+  private String takePending() {
+    final int firstRun = Math.min(size, ring.length - head);
+    final StringBuilder builder = new StringBuilder(size);
+    builder.append(ring, head, firstRun);
+    builder.append(ring, 0, size - firstRun);
+
+    head = 0;
+    size = 0;
+    notifyAll();
+
+    return builder.toString();
+  }
+
+  /**
+   * @return the amount of characters currently waiting to be drained
+   */
+  public synchronized int getPending() {
+    return size;
+  }
+
+  /**
+   * @return the total amount of characters written into this buffer
+   */
+  public synchronized long getCharsWritten() {
+    return charsWritten;
+  }
+
+  /**
+   * @return the total amount of newline-terminated lines written into this buffer
+   */
+  public synchronized long getLinesWritten() {
+    return linesWritten;
+  }
+
+  public int getCapacity() {
+    return ring.length;
+  }
+}
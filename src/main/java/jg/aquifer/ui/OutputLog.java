@@ -0,0 +1,141 @@
+package jg.aquifer.ui;
+
+import javafx.collections.ObservableListBase;
+
+/**
+ * A read-only ObservableList of output lines, backed by a LineStore.
+ *
+ * Text appended to an OutputLog is split into lines. Text that doesn't end with a newline
+ * is kept as an open last line, which the next append to the same channel continues. Lines beyond
+ * the LineStore's scrollback limits are evicted from the front.
+ *
+ * Each line is tagged with the channel (MergedOutput.STDOUT or MergedOutput.STDERR) it was written to.
+ *
+ * An OutputLog is also a MergedOutput.Sink: everything a MergedOutput drains in one go is
+ * published to listeners as a single change.
+ *
+ * Meant to be given to a ListView, which only builds cells for the lines currently visible.
+ * An OutputLog must only be modified on the JavaFX Application Thread.
+ *
+ * @author Jose
+ */
+public class OutputLog extends ObservableListBase<String> implements MergedOutput.Sink {
+
+  private final LineStore store;
+  private boolean lastLineOpen;
+  private int lastChannel;
+
+  /**
+   * Constructs an OutputLog
+   * @param store - the LineStore to keep lines in
+   */
+  public OutputLog(LineStore store) {
+    this.store = store;
+  }
+
+  /**
+   * Appends the given text to this log as standard output, evicting old lines as needed.
+   * @param text - the text to append
+   */
+  public void append(String text) {
+    append(MergedOutput.STDOUT, text);
+  }
+
+  /**
+   * Appends the given text to this log, evicting old lines as needed.
+   * 
+   * If the last line was left open by a different channel, it's closed first.
+   * @param channel - the channel the text was written to
+   * @param text - the text to append
+   */
+  public void append(int channel, String text) {
+    if (text.isEmpty()) {
+      return;
+    }
+    
+    if (channel != lastChannel) {
+      lastLineOpen = false;
+      lastChannel = channel;
+    }
+
+    beginChange();
+    try {
+      int lineStart = 0;
+      while (lineStart <= text.length()) {
+        int lineEnd = text.indexOf('\n', lineStart);
+        final boolean terminated = lineEnd >= 0;
+        if (!terminated) {
+          lineEnd = text.length();
+          if (lineStart == lineEnd) {
+            break;
+          }
+        }
+
+        String line = text.substring(lineStart, lineEnd);
+        if (lastLineOpen) {
+          line = store.get(store.size() - 1) + line;
+        }
+        if (terminated && line.endsWith("\r")) {
+          line = line.substring(0, line.length() - 1);
+        }
+
+        if (lastLineOpen) {
+          nextSet(store.size() - 1, store.setLast(line));
+        }
+        else {
+          store.add(line, channel);
+          nextAdd(store.size() - 1, store.size());
+        }
+
+        lastLineOpen = !terminated;
+        lineStart = lineEnd + 1;
+      }
+
+      while (store.isOverLimit()) {
+        nextRemove(0, store.removeFirst());
+      }
+    } finally {
+      endChange();
+    }
+  }
+
+  @Override
+  public void accept(int channel, String text) {
+    append(channel, text);
+  }
+
+  /**
+   * Opens a change that the appends up to the matching endDrain() are folded into
+   */
+  @Override
+  public void beginDrain() {
+    beginChange();
+  }
+
+  @Override
+  public void endDrain() {
+    endChange();
+  }
+
+  @Override
+  public String get(int index) {
+    return store.get(index);
+  }
+
+  @Override
+  public int size() {
+    return store.size();
+  }
+
+  /**
+   * @param index - the index of a line in this log
+   * @return the channel the line was written to
+   */
+  public int getChannel(int index) {
+    return store.getTag(index);
+  }
+
+  public LineStore getStore() {
+    return store;
+  }
+}
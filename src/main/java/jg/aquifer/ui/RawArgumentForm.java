@@ -1,54 +1,386 @@
 package jg.aquifer.ui;
 
-import java.util.HashMap;
-import java.util.HashSet;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
+import javafx.application.Platform;
 import jg.aquifer.commands.Subcommand;
-import jg.aquifer.commands.options.Flag;
+import jg.aquifer.commands.SubcommandSchema;
+import jg.aquifer.commands.VerificationResult;
 import jg.aquifer.commands.options.Option;
 
 /**
  * Houses the supplied arguments from the generated UI.
+ *
+ * Arguments are kept in slots indexed by the ids of the Subcommand's compiled schema
+ * (see Subcommand.getSchema()), as of when the form was created.
+ *
+ * A form keeps track of which Options hold a verified, non-empty argument as their Values change,
+ * so whether it's complete - all required Options are satisfied - is known without rescanning it.
+ *
+ * When the argument of an Option changes, the Options that depend on it (see Subcommand.addDependency())
+ * are re-verified. Changes made within the same pulse are batched, so each dependent is re-verified once,
+ * after the Options it depends on.
+ *
+ * As Verifiers are run off of the JavaFX Application Thread, a RawArgumentForm
+ * may be read from several Threads at once.
+ *
  * @author Jose Guaro
  */
 public class RawArgumentForm {
-  
-  private Subcommand subcommand;
-  private Map<Option, Value> rawArguments;
 
+  private final Subcommand subcommand;
+  private final SubcommandSchema schema;
+  private final AtomicReferenceArray<Value> values;
+  private final VerificationEngine verificationEngine;
+  private final Map<Option, Value> rawArguments;
+
+  private final long [] satisfied;
+  private int missingCount;
+  private volatile Runnable completionListener;
+
+  /**
+   * Options whose dependencies changed since the last re-verification. Only accessed on the JavaFX Application Thread.
+   */
+  private final long [] stale;
+  private boolean reverifyScheduled;
+
+  /**
+   * Constructs a RawArgumentForm that verifies arguments with the shared VerificationEngine.getDefault()
+   * @param subcommand - the Subcommand whose arguments this form holds
+   */
   public RawArgumentForm(Subcommand subcommand) {
+    this(subcommand, VerificationEngine.getDefault());
+  }
+
+  /**
+   * Constructs a RawArgumentForm
+   * @param subcommand - the Subcommand whose arguments this form holds
+   * @param verificationEngine - the VerificationEngine to verify arguments with
+   */
+  public RawArgumentForm(Subcommand subcommand, VerificationEngine verificationEngine) {
     this.subcommand = subcommand;
-    this.rawArguments = new HashMap<>();
+    this.schema = subcommand.getSchema();
+    this.values = new AtomicReferenceArray<>(schema.size());
+    this.verificationEngine = verificationEngine;
+    this.rawArguments = new RawArguments();
+    this.satisfied = SubcommandSchema.newBitSet(schema.size());
+    this.missingCount = schema.getRequiredCount();
+    this.stale = SubcommandSchema.newBitSet(schema.hasDependencies() ? schema.size() : 0);
+  }
+
+  /**
+   * Sets the Value holding the argument to an Option.
+   * 
+   * Only Options of the form's schema have a slot, so unlike earlier versions of this form,
+   * Options added to the Subcommand after the form was created are rejected.
+   * @param option - the Option the argument is for
+   * @param newValue - the Value holding the argument
+   * @throws IllegalArgumentException - if the Option isn't part of this form's schema
+   */
+  public void setOptionArgument(Option option, Value newValue) throws IllegalArgumentException {
+    final int id = schema.getId(option);
+    if (id < 0) {
+      throw new IllegalArgumentException("'"+option.getOptName()+"' isn't an option of '"+subcommand.getName()+"'");
+    }
+
+    final Value old = values.getAndSet(id, newValue);
+    if (old != newValue) {
+      if (old != null) {
+        old.detach(this);
+      }
+      newValue.attach(this, id);
+    }
+    valueChanged(id, newValue);
+  }
+
+  /**
+   * Updates whether an Option is satisfied, once its Value has changed
+   * @param id - the id of the Option
+   * @param value - the changed Value
+   */
+  void valueChanged(int id, Value value) {
+    synchronized (this) {
+      if (values.get(id) != value) {
+        return;
+      }
+
+      final String arg = value.getValue();
+      final boolean isSatisfied = arg != null && !arg.isEmpty() && value.isVerified();
+      if (isSatisfied == SubcommandSchema.isSet(satisfied, id)) {
+        return;
+      }
+
+      satisfied[id >>> 6] ^= 1L << id;
+      if (!schema.isRequired(id)) {
+        return;
+      }
+      missingCount += isSatisfied ? -1 : 1;
+    }
+
+    final Runnable listener = completionListener;
+    if (listener != null) {
+      listener.run();
+    }
+  }
+
+  /**
+   * Schedules the re-verification of the Options that depend on an Option, once its argument has changed.
+   * 
+   * Note: This must be called on the JavaFX Application Thread
+   * @param option - the Option whose argument changed
+   */
+  public void argumentChanged(Option option) {
+    final int id = schema.getId(option);
+    if (id < 0) {
+      return;
+    }
+
+    final int [] dependents = schema.getDependents(id);
+    if (dependents.length == 0) {
+      return;
+    }
+
+    for (int dependent : dependents) {
+      SubcommandSchema.set(stale, dependent);
+    }
+
+    //Wait for the rest of this pulse's changes
+    if (!reverifyScheduled) {
+      reverifyScheduled = true;
+      Platform.runLater(this::reverifyStale);
+    }
+  }
+
+  /**
+   * Re-verifies the Options whose dependencies changed, in topological order.
+   * Until their re-verification comes back, their arguments aren't verified - and their Values' listeners are told so.
+   */
+  private void reverifyStale() {
+    reverifyScheduled = false;
+
+    final int [] ids = schema.inTopologicalOrder(stale);
+    Arrays.fill(stale, 0);
+
+    final List<Option> options = new ArrayList<>(ids.length);
+    for (int id : ids) {
+      final Value value = values.get(id);
+      if (value == null || value.getValue() == null || value.getValue().isEmpty()) {
+        continue;
+      }
+
+      //Let the Option's editor show that the argument is pending re-verification
+      value.unverify();
+      value.notifyListener();
+      options.add(schema.getOption(id));
+    }
+
+    if (!options.isEmpty()) {
+      verificationEngine.submitInOrder(this, options);
+    }
+  }
+
+  /**
+   * Verifies every non-empty argument held by this form on the calling Thread, in dependency order,
+   * recording each outcome in its Value - for front-ends that verify a whole submission at once
+   * rather than as arguments are entered (ex: CommandLineRunner).
+   * @return the messages of the rejected arguments, keyed by Option name, in the order they were verified
+   */
+  public Map<String, String> verifyAll() {
+    final long [] held = SubcommandSchema.newBitSet(schema.size());
+    for (int id = 0; id < schema.size(); id++) {
+      final Value value = values.get(id);
+      if (value != null && value.getValue() != null && !value.getValue().isEmpty()) {
+        SubcommandSchema.set(held, id);
+      }
+    }
+
+    final Map<String, String> rejections = new LinkedHashMap<>();
+    final VerificationResult result = new VerificationResult();
+    for (int id : schema.inTopologicalOrder(held)) {
+      final Option option = schema.getOption(id);
+      final Value value = values.get(id);
+
+      result.reset();
+      try {
+        option.getVerifier().check(option, this, value.getValue(), result);
+      } catch (RuntimeException e) {
+        result.fail("Verification failed: "+e);
+      }
+
+      if (result.isPassed()) {
+        value.setParsed(result).verify();
+      }
+      else {
+        value.unverify().setMessage(result.getMessage());
+        rejections.put(option.getOptName(), result.getMessage());
+      }
+    }
+    return rejections;
+  }
+
+  /**
+   * @return whether every required Option holds a verified, non-empty argument
+   */
+  public synchronized boolean isComplete() {
+    return missingCount == 0;
+  }
+
+  /**
+   * @return the amount of required Options that don't hold a verified, non-empty argument
+   */
+  public synchronized int getMissingCount() {
+    return missingCount;
+  }
+
+  /**
+   * @return the names of the required Options that don't hold a verified, non-empty argument
+   */
+  public Set<String> getMissing() {
+    final long [] snapshot;
+    synchronized (this) {
+      snapshot = satisfied.clone();
+    }
+    return schema.getMissing(snapshot);
   }
-  
-  public void setOptionArgument(Option option, Value newValue) {
-    rawArguments.put(option, newValue);
+
+  /**
+   * Sets the listener to notify whenever the amount of missing required Options changes.
+   * The listener is run on the Thread that changed a Value - normally the JavaFX Application Thread.
+   * @param completionListener - the listener, or null to remove the current one
+   */
+  public void setCompletionListener(Runnable completionListener) {
+    this.completionListener = completionListener;
   }
-  
+
   public Value getOptionArgument(Option option) {
-    return rawArguments.get(option);
+    final int id = schema.getId(option);
+    return id < 0 ? null : values.get(id);
   }
-  
+
+  /**
+   * @param id - the id of an Option in this form's schema
+   * @return the Value holding the argument to that Option, or null if it has none
+   */
+  public Value getValue(int id) {
+    return values.get(id);
+  }
+
   public boolean hasOption(Option option) {
-    return rawArguments.containsKey(option);
+    return getOptionArgument(option) != null;
   }
-  
+
   public Map<Option, Value> getSubcommandOptions(Subcommand subcommand){
-    return rawArguments;
+    return getRawArguments();
   }
-  
+
+  /**
+   * Returns a live view of the arguments held by this form, keyed by Option, in schema order.
+   * 
+   * Putting an argument into the view sets it through setOptionArgument(). As arguments 
+   * are kept in slots, they can't be removed from the view.
+   * @return the arguments held by this form
+   */
   public Map<Option, Value> getRawArguments() {
     return rawArguments;
   }
-  
+
+  public SubcommandSchema getSchema() {
+    return schema;
+  }
+
+  public VerificationEngine getVerificationEngine() {
+    return verificationEngine;
+  }
+
   public Subcommand getSubcommand() {
     return subcommand;
   }
-  
+
   @Override
   public String toString() {
     return "Subcommand: "+subcommand.getName()+" | "+rawArguments.toString();
   }
+
+  /**
+   * The view of this form's slots returned by getRawArguments()
+   */
+  private final class RawArguments extends AbstractMap<Option, Value> {
+
+    private final Set<Entry<Option, Value>> entries = new AbstractSet<Entry<Option, Value>>() {
+      @Override
+      public Iterator<Entry<Option, Value>> iterator() {
+        return new Iterator<Entry<Option, Value>>() {
+          private int next = advance(0);
+
+          @Override
+          public boolean hasNext() {
+            return next < schema.size();
+          }
+
+          @Override
+          public Entry<Option, Value> next() {
+            if (!hasNext()) {
+              throw new NoSuchElementException();
+            }
+            final Entry<Option, Value> entry = new SimpleImmutableEntry<>(schema.getOption(next), values.get(next));
+            next = advance(next + 1);
+            return entry;
+          }
+        };
+      }
+
+      @Override
+      public int size() {
+        int size = 0;
+        for (int id = 0; id < schema.size(); id++) {
+          if (values.get(id) != null) {
+            size++;
+          }
+        }
+        return size;
+      }
+    };
+
+    /**
+     * @return the id of the first slot from the given one that holds a Value, or the schema's size if there's none
+     */
+    private int advance(int id) {
+      while (id < schema.size() && values.get(id) == null) {
+        id++;
+      }
+      return id;
+    }
+
+    @Override
+    public Value get(Object key) {
+      return key instanceof Option ? getOptionArgument((Option) key) : null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+      return get(key) != null;
+    }
+
+    @Override
+    public Value put(Option option, Value value) {
+      final Value old = getOptionArgument(option);
+      setOptionArgument(option, value);
+      return old;
+    }
+
+    @Override
+    public Set<Entry<Option, Value>> entrySet() {
+      return entries;
+    }
+  }
 }
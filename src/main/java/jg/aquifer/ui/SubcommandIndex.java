@@ -0,0 +1,126 @@
+package jg.aquifer.ui;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+
+import jg.aquifer.commands.Subcommand;
+
+/**
+ * A prebuilt, case-insensitive search index over the names and descriptions of Subcommands.
+ *
+ * Matches are ranked in three tiers: Subcommands whose name starts with the query, then those whose name
+ * contains the query, then those whose description contains the query. Within a tier, Subcommands
+ * are ordered by name.
+ *
+ * Searches are incremental: when a query extends the previous query (as it does while the user types),
+ * only the previous matches are scanned again.
+ *
+ * Note: An index isn't thread-safe, and doesn't reflect Subcommands added after it was built.
+ *
+ * @author Jose
+ */
+public class SubcommandIndex {
+
+  private final Subcommand [] subcommands;
+  private final String [] names;
+  private final String [] descriptions;
+
+  private String lastQuery;
+  private int [] lastCandidates;
+
+  /**
+   * Builds an index over the given Subcommands
+   * @param subcommands - the Subcommands to index
+   */
+  public SubcommandIndex(Collection<Subcommand> subcommands) {
+    this.subcommands = subcommands.toArray(new Subcommand[subcommands.size()]);
+    Arrays.sort(this.subcommands, (a, b) -> a.getName().compareToIgnoreCase(b.getName()));
+
+    this.names = new String[this.subcommands.length];
+    this.descriptions = new String[this.subcommands.length];
+    for (int i = 0; i < this.subcommands.length; i++) {
+      names[i] = this.subcommands[i].getName().toLowerCase(Locale.ROOT);
+
+      final String description = this.subcommands[i].getDescription();
+      descriptions[i] = description == null ? "" : description.toLowerCase(Locale.ROOT);
+    }
+
+    this.lastQuery = "";
+    this.lastCandidates = new int[this.subcommands.length];
+    for (int i = 0; i < lastCandidates.length; i++) {
+      lastCandidates[i] = i;
+    }
+  }
+
+  /**
+   * Searches for Subcommands whose name or description contains the given query
+   * @param query - the text to search for. An empty query matches every Subcommand.
+   * @return the matching Subcommands, ranked
+   */
+  public List<Subcommand> search(String query) {
+    final String lowered = query.trim().toLowerCase(Locale.ROOT);
+
+    /*
+     * Anything matching the new query also matched the previous one if it extends it,
+     * so only the previous candidates need to be scanned again.
+     */
+    final int [] candidates = lowered.startsWith(lastQuery) ? lastCandidates : null;
+    final int candidateCount = candidates == null ? subcommands.length : candidates.length;
+
+    final int [] prefixMatches = new int[candidateCount];
+    final int [] nameMatches = new int[candidateCount];
+    final int [] descriptionMatches = new int[candidateCount];
+    int prefixCount = 0;
+    int nameCount = 0;
+    int descriptionCount = 0;
+
+    for (int c = 0; c < candidateCount; c++) {
+      final int i = candidates == null ? c : candidates[c];
+
+      if (names[i].startsWith(lowered)) {
+        prefixMatches[prefixCount++] = i;
+      }
+      else if (names[i].contains(lowered)) {
+        nameMatches[nameCount++] = i;
+      }
+      else if (descriptions[i].contains(lowered)) {
+        descriptionMatches[descriptionCount++] = i;
+      }
+    }
+
+    final int [] ranked = new int[prefixCount + nameCount + descriptionCount];
+    System.arraycopy(prefixMatches, 0, ranked, 0, prefixCount);
+    System.arraycopy(nameMatches, 0, ranked, prefixCount, nameCount);
+    System.arraycopy(descriptionMatches, 0, ranked, prefixCount + nameCount, descriptionCount);
+
+    /*
+     * Candidates are kept in index (name) order, which is what each tier is sorted by
+     */
+    final int [] nextCandidates = Arrays.copyOf(ranked, ranked.length);
+    Arrays.sort(nextCandidates);
+    lastQuery = lowered;
+    lastCandidates = nextCandidates;
+
+    return new AbstractList<Subcommand>() {
+      @Override
+      public Subcommand get(int index) {
+        return subcommands[ranked[index]];
+      }
+
+      @Override
+      public int size() {
+        return ranked.length;
+      }
+    };
+  }
+
+  /**
+   * @return the amount of indexed Subcommands
+   */
+  public int size() {
+    return subcommands.length;
+  }
+}
@@ -0,0 +1,274 @@
+package jg.aquifer.ui;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import jg.aquifer.Diagnostics;
+import jg.aquifer.Diagnostics.Level;
+import jg.aquifer.commands.ParsedValue;
+import jg.aquifer.commands.Subcommand;
+import jg.aquifer.commands.SubcommandSchema;
+import jg.aquifer.commands.options.Flag;
+import jg.aquifer.commands.options.Option;
+
+/**
+ * The verified arguments of a submitted RawArgumentForm, along with what their Verifiers parsed them into.
+ *
+ * Arguments are looked up by Option name. Parsed values are kept in arrays indexed by the ids of
+ * the Subcommand's schema, with primitives unboxed, so reading a parsed number or boolean neither allocates
+ * nor parses the argument again. Arguments whose Verifier doesn't parse them are parsed on demand instead
+ * (ex: getLong() on an Option verified by Verifier.STR_VERIFIER).
+ *
+ * A TypedArguments is never changed once handed to an Intake.
+ *
+ * @author Jose
+ */
+public class TypedArguments {
+
+  private final SubcommandSchema schema;
+  private final String [] raw;
+  private final int [] kinds;
+  private final long [] bits;
+  private final Object [] objects;
+
+  private int size;
+
+  TypedArguments(SubcommandSchema schema) {
+    this.schema = schema;
+    this.raw = new String[schema.size()];
+    this.kinds = new int[schema.size()];
+    this.bits = new long[schema.size()];
+    this.objects = new Object[schema.size()];
+  }
+
+  /**
+   * Collects the verified arguments of a RawArgumentForm, along with their parsed values
+   * @param form - the RawArgumentForm to collect from
+   * @return the verified arguments of the form
+   * @throws IncompleteException if a required Option wasn't given a verified argument
+   */
+  public static TypedArguments from(RawArgumentForm form) throws IncompleteException {
+    final SubcommandSchema schema = form.getSchema();
+    final TypedArguments args = new TypedArguments(schema);
+    final long [] given = SubcommandSchema.newBitSet(schema.size());
+    
+    for (int id = 0; id < schema.size(); id++) {
+      final Value value = form.getValue(id);
+      
+      Diagnostics.log(Level.TRACE, "TypedArguments", "Processing {} <-> {}", schema.getOption(id), value);
+      
+      if (value == null) {
+        continue;
+      }
+      
+      final String arg = value.getValue();
+      if (arg != null && !arg.isEmpty() && value.isVerified()) {
+        args.put(id, value);
+        SubcommandSchema.set(given, id);
+      }
+    }
+    
+    if (!schema.isSatisfiedBy(given)) {
+      final Set<String> missing = schema.getMissing(given);
+      Diagnostics.log(Level.DEBUG, "TypedArguments", "Missing required options {}", missing);
+      
+      throw new IncompleteException(form.getSubcommand(), missing);
+    }
+    
+    return args;
+  }
+
+  /**
+   * Wraps arguments given as strings only, such as those submitted through Intake.submitArguments().
+   * 
+   * As no Verifier has parsed them, every argument is parsed on demand, and getObject() returns null.
+   * Arguments equal to Flag.VALUE_PLACE_HOLDER are taken as selected Flags, and are true.
+   * @param subcommand - the subcommand being invoked
+   * @param arguments - a mapping of Options (as their name) to their arguments
+   * @return the wrapped arguments
+   */
+  public static TypedArguments of(String subcommand, Map<String, String> arguments) {
+    final Subcommand stringOnly = new Subcommand(subcommand);
+    for (String optName : arguments.keySet()) {
+      stringOnly.addOption(new Option(optName, ""));
+    }
+    
+    final SubcommandSchema schema = stringOnly.getSchema();
+    final TypedArguments args = new TypedArguments(schema);
+    for (Map.Entry<String, String> argument : arguments.entrySet()) {
+      final int id = schema.getId(argument.getKey());
+      args.size++;
+      args.raw[id] = argument.getValue();
+      if (Flag.VALUE_PLACE_HOLDER.equals(argument.getValue())) {
+        args.kinds[id] = ParsedValue.BOOLEAN;
+        args.bits[id] = 1;
+      }
+    }
+    return args;
+  }
+
+  /**
+   * Adds the argument held by a Value
+   * @param id - the id of the Option the argument is for
+   * @param value - the Value holding the argument
+   */
+  void put(int id, Value value) {
+    if (raw[id] == null) {
+      size++;
+    }
+
+    raw[id] = value.getValue();
+
+    //Read the kind first, as it's written last
+    final int kind = value.getParsedKind();
+    kinds[id] = kind;
+    if (kind == ParsedValue.OBJECT) {
+      objects[id] = value.getParsedObject();
+    }
+    else if (kind != ParsedValue.NONE) {
+      bits[id] = value.getParsedLong();
+    }
+  }
+
+  /**
+   * @param optName - the name of an Option
+   * @return whether the Option was given an argument
+   */
+  public boolean has(String optName) {
+    final int id = schema.getId(optName);
+    return id >= 0 && raw[id] != null;
+  }
+
+  /**
+   * Returns the argument to an Option, as it was entered
+   * @param optName - the name of the Option
+   * @return the argument to the Option
+   * @throws NoSuchElementException if the Option wasn't given an argument
+   */
+  public String getString(String optName) throws NoSuchElementException {
+    return raw[idOf(optName)];
+  }
+
+  /**
+   * Returns the argument to an Option as a whole number
+   * @param optName - the name of the Option
+   * @return the argument, as parsed by the Option's Verifier or else by Long.parseLong()
+   * @throws NoSuchElementException if the Option wasn't given an argument
+   * @throws NumberFormatException if the argument isn't a whole number
+   */
+  public long getLong(String optName) throws NoSuchElementException, NumberFormatException {
+    final int id = idOf(optName);
+    return kinds[id] == ParsedValue.LONG ? bits[id] : Long.parseLong(raw[id]);
+  }
+
+  /**
+   * Returns the argument to an Option as a decimal number
+   * @param optName - the name of the Option
+   * @return the argument, as parsed by the Option's Verifier or else by Double.parseDouble()
+   * @throws NoSuchElementException if the Option wasn't given an argument
+   * @throws NumberFormatException if the argument isn't a number
+   */
+  public double getDouble(String optName) throws NoSuchElementException, NumberFormatException {
+    final int id = idOf(optName);
+    switch (kinds[id]) {
+    case ParsedValue.DOUBLE:
+      return Double.longBitsToDouble(bits[id]);
+    case ParsedValue.LONG:
+      return bits[id];
+    default:
+      return Double.parseDouble(raw[id]);
+    }
+  }
+
+  /**
+   * Returns the argument to an Option as a boolean. Selected Flags are true.
+   * @param optName - the name of the Option
+   * @return the argument, as parsed by the Option's Verifier or else by Boolean.parseBoolean()
+   * @throws NoSuchElementException if the Option wasn't given an argument
+   */
+  public boolean getBoolean(String optName) throws NoSuchElementException {
+    final int id = idOf(optName);
+    return kinds[id] == ParsedValue.BOOLEAN ? bits[id] != 0 : Boolean.parseBoolean(raw[id].trim());
+  }
+
+  /**
+   * Returns the argument to an Option as a file path
+   * @param optName - the name of the Option
+   * @return the argument, as parsed by the Option's Verifier or else by Paths.get()
+   * @throws NoSuchElementException if the Option wasn't given an argument
+   */
+  public Path getPath(String optName) throws NoSuchElementException {
+    final int id = idOf(optName);
+    return objects[id] instanceof Path ? (Path) objects[id] : Paths.get(raw[id]);
+  }
+
+  /**
+   * Returns the argument to an Option as an enum constant (ex: the choice made on a RadioOption built from an enum)
+   * @param optName - the name of the Option
+   * @param type - the enum's class
+   * @return the argument, as parsed by the Option's Verifier or else by Enum.valueOf()
+   * @throws NoSuchElementException if the Option wasn't given an argument
+   * @throws IllegalArgumentException if the argument isn't the name of one of the enum's constants
+   */
+  public <E extends Enum<E>> E getEnum(String optName, Class<E> type) throws NoSuchElementException, IllegalArgumentException {
+    final int id = idOf(optName);
+    return type.isInstance(objects[id]) ? type.cast(objects[id]) : Enum.valueOf(type, raw[id]);
+  }
+
+  /**
+   * Returns what the argument to an Option was parsed into, if it was parsed into an object
+   * @param optName - the name of the Option
+   * @param type - the class of the parsed object
+   * @return the parsed object, or null if the argument wasn't parsed into an object of the given class
+   * @throws NoSuchElementException if the Option wasn't given an argument
+   */
+  public <T> T getObject(String optName, Class<T> type) throws NoSuchElementException {
+    final Object object = objects[idOf(optName)];
+    return type.isInstance(object) ? type.cast(object) : null;
+  }
+
+  /**
+   * @return a mapping of Options (as their name) to their arguments, as they were entered
+   */
+  public Map<String, String> asMap() {
+    final Map<String, String> map = new LinkedHashMap<>(size * 4 / 3 + 1);
+    for (int id = 0; id < raw.length; id++) {
+      if (raw[id] != null) {
+        map.put(schema.getOption(id).getOptName(), raw[id]);
+      }
+    }
+    return map;
+  }
+
+  /**
+   * @return the amount of Options that were given an argument
+   */
+  public int size() {
+    return size;
+  }
+
+  public Subcommand getSubcommand() {
+    return schema.getSubcommand();
+  }
+
+  public SubcommandSchema getSchema() {
+    return schema;
+  }
+
+  private int idOf(String optName) throws NoSuchElementException {
+    final int id = schema.getId(optName);
+    if (id < 0 || raw[id] == null) {
+      throw new NoSuchElementException("No argument was given to '"+optName+"'");
+    }
+    return id;
+  }
+
+  @Override
+  public String toString() {
+    return "Subcommand: "+schema.getSubcommand().getName()+" | "+asMap();
+  }
+}
@@ -1,13 +1,37 @@
 package jg.aquifer.ui;
 
+import jg.aquifer.commands.ParseTarget;
+import jg.aquifer.commands.ParsedValue;
+
 /**
  * Wrapper class for an argument to an Option
+ * 
+ * A Value holds the latest argument entered on the UI - whether verified or not - along with 
+ * the message of its latest failed verification, so that the argument can be redisplayed 
+ * whenever the Option is scrolled back into view.
+ * 
+ * A Value placed in a RawArgumentForm reports its changes to that form, 
+ * which keeps track of whether all required Options are satisfied.
+ * 
+ * A Value also holds what its argument was parsed into by the Option's Verifier, if anything 
+ * (see ParsedValue for the kinds of parsed values). Primitives are kept unboxed. 
+ * Setting a new argument clears the parsed value.
+ * 
  * @author Jose Guaro
  */
-public class Value {
+public class Value implements ParseTarget {
+  
+  private volatile String value;
+  private volatile boolean verified;
+  private volatile String message;
+  private Runnable listener;
+  
+  private volatile int parsedKind;
+  private long parsedBits;
+  private Object parsedObject;
   
-  private String value;
-  private boolean verified;
+  private volatile RawArgumentForm form;
+  private volatile int formId;
   
   public Value() {
     this.verified = false;
@@ -15,6 +39,8 @@ public class Value {
   
   public Value setValue(String value) {
     this.value = value;
+    setParsed(ParsedValue.NONE, 0, null);
+    changed();
     return this;
   }
   
@@ -28,14 +54,151 @@ public class Value {
   
   public Value verify() {
     this.verified = true;
+    this.message = null;
+    changed();
     return this;
   }
   
   public Value unverify() {
     this.verified = false;
+    changed();
+    return this;
+  }
+  
+  /**
+   * Sets the message of the latest failed verification of this Value's argument
+   * @param message - the message, or null if there's none
+   * @return this Value
+   */
+  public Value setMessage(String message) {
+    this.message = message;
     return this;
   }
   
+  /**
+   * @return the message of the latest failed verification of this Value's argument, or null if there's none
+   */
+  public String getMessage() {
+    return message;
+  }
+  
+  /**
+   * Sets the parsed form of this Value's argument
+   * @param parsed - what the argument was parsed into
+   * @return this Value
+   */
+  public Value setParsed(ParsedValue parsed) {
+    switch (parsed.getKind()) {
+    case ParsedValue.OBJECT:
+      setParsed(ParsedValue.OBJECT, 0, parsed.getObject());
+      break;
+    default:
+      setParsed(parsed.getKind(), parsed.getLong(), null);
+      break;
+    }
+    return this;
+  }
+  
+  @Override
+  public void setLong(long value) {
+    setParsed(ParsedValue.LONG, value, null);
+  }
+  
+  @Override
+  public void setDouble(double value) {
+    setParsed(ParsedValue.DOUBLE, Double.doubleToRawLongBits(value), null);
+  }
+  
+  @Override
+  public void setBoolean(boolean value) {
+    setParsed(ParsedValue.BOOLEAN, value ? 1 : 0, null);
+  }
+  
+  @Override
+  public void setObject(Object value) {
+    setParsed(value == null ? ParsedValue.NONE : ParsedValue.OBJECT, 0, value);
+  }
+  
+  private void setParsed(int kind, long bits, Object object) {
+    this.parsedBits = bits;
+    this.parsedObject = object;
+    //Written last, so that readers checking the kind first see the matching value
+    this.parsedKind = kind;
+  }
+  
+  /**
+   * @return the kind of value this Value's argument was parsed into - 
+   *         one of ParsedValue's kinds, or ParsedValue.NONE if it wasn't parsed
+   */
+  public int getParsedKind() {
+    return parsedKind;
+  }
+  
+  public long getParsedLong() {
+    return parsedBits;
+  }
+  
+  public double getParsedDouble() {
+    return Double.longBitsToDouble(parsedBits);
+  }
+  
+  public boolean getParsedBoolean() {
+    return parsedBits != 0;
+  }
+  
+  public Object getParsedObject() {
+    return parsedObject;
+  }
+  
+  /**
+   * Sets the listener to notify - on the JavaFX Application Thread - whenever this Value changes
+   * outside of direct user input (ex: once its argument has been verified)
+   * @param listener - the listener, or null to remove the current one
+   */
+  public void setListener(Runnable listener) {
+    this.listener = listener;
+  }
+  
+  public Runnable getListener() {
+    return listener;
+  }
+  
+  /**
+   * Notifies this Value's listener, if there's one
+   */
+  public void notifyListener() {
+    final Runnable current = listener;
+    if (current != null) {
+      current.run();
+    }
+  }
+  
+  /**
+   * Attaches this Value to a slot of a RawArgumentForm, which is then told whenever this Value changes
+   * @param form - the RawArgumentForm
+   * @param id - the id of the slot
+   */
+  void attach(RawArgumentForm form, int id) {
+    this.formId = id;
+    this.form = form;
+  }
+  
+  /**
+   * Detaches this Value from the given RawArgumentForm, if it's attached to it
+   */
+  void detach(RawArgumentForm form) {
+    if (this.form == form) {
+      this.form = null;
+    }
+  }
+  
+  private void changed() {
+    final RawArgumentForm current = form;
+    if (current != null) {
+      current.valueChanged(formId, this);
+    }
+  }
+  
   @Override
   public String toString() {
     return "|"+value+"|  isVerified? "+verified;
@@ -0,0 +1,282 @@
+package jg.aquifer.ui;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javafx.application.Platform;
+import jg.aquifer.commands.VerificationCache;
+import jg.aquifer.commands.VerificationResult;
+import jg.aquifer.commands.options.Option;
+import jg.aquifer.metrics.Metrics;
+
+/**
+ * Runs the Verifiers of Options off of the JavaFX Application Thread.
+ *
+ * Arguments are verified once the user has stopped editing an Option for a short while (the debounce delay).
+ * Submitting a new argument for an Option cancels any verification still pending or running for that Option,
+ * and results of stale verifications are never delivered. Results are delivered on the JavaFX Application Thread.
+ *
+ * Optionally, verifications can go through a VerificationCache, so that repeated arguments
+ * reuse the results of cacheable Verifiers.
+ *
+ * Options that depend on a changed Option are re-verified in order through submitInOrder() (see RawArgumentForm).
+ *
+ * Note: submit(), submitInOrder() and cancel() must be called on the JavaFX Application Thread.
+ *
+ * @author Jose
+ */
+public class VerificationEngine {
+
+  /**
+   * Receives the result of a verification, on the JavaFX Application Thread
+   * @author Jose
+   */
+  @FunctionalInterface
+  public static interface Callback {
+
+    /**
+     * Called once an argument has been verified
+     * @param arg - the argument that was verified
+     * @param result - whether the argument passed, the failure messages if it didn't and - if the Verifier 
+     *                 parses arguments - what the argument was parsed into
+     */
+    public void verified(String arg, VerificationResult result);
+  }
+
+  /**
+   * The default delay, in milliseconds, between the last edit of an Option and its verification
+   */
+  public static final long DEFAULT_DEBOUNCE_MILLIS = 150;
+
+  private final ScheduledExecutorService service;
+  private final Map<Option, Pending> pending;
+
+  private volatile long debounceMillis;
+  private volatile VerificationCache cache;
+  private volatile Metrics metrics;
+
+  /**
+   * Constructs a VerificationEngine with a debounce delay of DEFAULT_DEBOUNCE_MILLIS
+   * and one verification Thread per available processor (at most 4)
+   */
+  public VerificationEngine() {
+    this(Math.min(4, Runtime.getRuntime().availableProcessors()), DEFAULT_DEBOUNCE_MILLIS);
+  }
+
+  /**
+   * Constructs a VerificationEngine
+   * @param threads - the amount of Threads to run Verifiers on
+   * @param debounceMillis - the delay, in milliseconds, between the last edit of an Option and its verification
+   */
+  public VerificationEngine(int threads, long debounceMillis) {
+    final AtomicInteger threadCount = new AtomicInteger();
+    final ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(threads, (runnable) -> {
+      final Thread thread = new Thread(runnable, "aquifer-verifier-"+threadCount.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+    executor.setRemoveOnCancelPolicy(true);
+
+    this.service = executor;
+    this.pending = new IdentityHashMap<>();
+    this.debounceMillis = debounceMillis;
+    this.metrics = Metrics.NONE;
+  }
+
+  /**
+   * @return the VerificationEngine shared by RawArgumentForms constructed without one,
+   *         created with the default debounce delay and amount of Threads on first use
+   */
+  public static VerificationEngine getDefault() {
+    return DefaultHolder.INSTANCE;
+  }
+
+  /**
+   * Schedules the verification of an argument to an Option,
+   * cancelling any verification of that Option that's still pending.
+   * @param option - the Option the argument is for
+   * @param form - the RawArgumentForm the Option is filling out
+   * @param arg - the argument to verify
+   * @param callback - the Callback to deliver the result to
+   */
+  public void submit(Option option, RawArgumentForm form, String arg, Callback callback) {
+    final Pending current = new Pending(false);
+    replacePending(option, current);
+
+    current.future = service.schedule(() -> {
+      final VerificationResult result = verify(option, form, arg);
+      if (result != null) {
+        deliver(option, current, arg, result, callback);
+      }
+    }, debounceMillis, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Schedules the re-verification of the arguments held by several Options, one after the other,
+   * cancelling any verification of those Options that's still pending.
+   * 
+   * Each Option's argument is read from the form once its turn comes, and its result is recorded
+   * through Option.recordVerification(). Options whose argument is empty by then are skipped.
+   * @param form - the RawArgumentForm the Options are filling out
+   * @param options - the Options to re-verify, in the order to re-verify them in
+   */
+  public void submitInOrder(RawArgumentForm form, List<Option> options) {
+    final Pending current = new Pending(true);
+    for (Option option : options) {
+      replacePending(option, current);
+    }
+
+    current.future = service.schedule(() -> {
+      for (Option option : options) {
+        final Value value = form.getOptionArgument(option);
+        final String arg = value == null ? null : value.getValue();
+        if (arg == null || arg.isEmpty()) {
+          continue;
+        }
+
+        final VerificationResult result = verify(option, form, arg);
+        if (result == null) {
+          return;
+        }
+        deliver(option, current, arg, result, (verifiedArg, verified) -> option.recordVerification(verified));
+      }
+    }, debounceMillis, TimeUnit.MILLISECONDS);
+  }
+
+  private void replacePending(Option option, Pending current) {
+    final Pending previous = pending.put(option, current);
+    if (previous != null) {
+      previous.cancel();
+    }
+  }
+
+  /**
+   * Verifies an argument, reporting its latency to the Metrics
+   * @return the result of the verification, or null if the verifying Thread was interrupted
+   */
+  private VerificationResult verify(Option option, RawArgumentForm form, String arg) {
+    final VerificationResult result = new VerificationResult();
+    final long start = System.nanoTime();
+    try {
+      final VerificationCache currentCache = cache;
+      if (currentCache != null) {
+        currentCache.check(option.getVerifier(), option, form, arg, result);
+      }
+      else {
+        option.getVerifier().check(option, form, arg, result);
+      }
+    } catch (RuntimeException e) {
+      result.fail("Verification failed: "+e);
+    }
+    
+    if (!result.isPassed()) {
+      result.clear();
+    }
+
+    if (Thread.currentThread().isInterrupted()) {
+      return null;
+    }
+    
+    metrics.verified(form.getSubcommand().getName(), option.getOptName(), System.nanoTime() - start, result.isPassed());
+    return result;
+  }
+
+  private void deliver(Option option, Pending current, String arg, VerificationResult result, Callback callback) {
+    Platform.runLater(() -> {
+      //Only deliver the result if no newer argument has been submitted since
+      if (pending.get(option) == current) {
+        pending.remove(option);
+        callback.verified(arg, result);
+      }
+    });
+  }
+
+  /**
+   * Cancels any pending verification of an Option
+   * @param option - the Option whose verification to cancel
+   */
+  public void cancel(Option option) {
+    final Pending previous = pending.remove(option);
+    if (previous != null) {
+      previous.cancel();
+    }
+  }
+
+  /**
+   * @param option - the Option to check
+   * @return whether a verification of the given Option is pending
+   */
+  public boolean isPending(Option option) {
+    return pending.containsKey(option);
+  }
+
+  /**
+   * Sets the VerificationCache to verify through. Verifiers that declare 
+   * a cache lifetime then reuse their previous results.
+   * @param cache - the VerificationCache to use, or null to always run Verifiers (the default)
+   */
+  public void setCache(VerificationCache cache) {
+    this.cache = cache;
+  }
+
+  public VerificationCache getCache() {
+    return cache;
+  }
+
+  /**
+   * Sets the Metrics that verification latencies are reported to
+   * @param metrics - the Metrics to report to, or Metrics.NONE to report nothing (the default)
+   */
+  public void setMetrics(Metrics metrics) {
+    this.metrics = metrics;
+  }
+  
+  public Metrics getMetrics() {
+    return metrics;
+  }
+  
+  public void setDebounceMillis(long debounceMillis) {
+    this.debounceMillis = debounceMillis;
+  }
+
+  public long getDebounceMillis() {
+    return debounceMillis;
+  }
+
+  /**
+   * Stops all verification Threads. Pending verifications are dropped.
+   */
+  public void shutdown() {
+    service.shutdownNow();
+  }
+
+  private static class Pending {
+    private volatile Future<?> future;
+
+    /**
+     * Whether the verification is shared by several Options (see submitInOrder()),
+     * in which case replacing one of them only drops its result
+     */
+    private final boolean shared;
+
+    private Pending(boolean shared) {
+      this.shared = shared;
+    }
+
+    private void cancel() {
+      if (!shared) {
+        future.cancel(true);
+      }
+    }
+  }
+
+  private static class DefaultHolder {
+    private static final VerificationEngine INSTANCE = new VerificationEngine();
+  }
+}
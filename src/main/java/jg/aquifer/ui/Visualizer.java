@@ -1,15 +1,10 @@
 package jg.aquifer.ui;
 
-import java.io.IOException;
-import java.io.PrintWriter;
-import java.io.Writer;
-import java.util.Arrays;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Map;
-import java.util.Set;
-import java.util.Map.Entry;
+import java.util.concurrent.CancellationException;
 
+import javafx.animation.AnimationTimer;
 import javafx.application.Platform;
 import javafx.beans.value.ChangeListener;
 import javafx.beans.value.ObservableValue;
@@ -22,11 +17,12 @@ import javafx.scene.control.ButtonType;
 import javafx.scene.control.Label;
 import javafx.scene.control.ListCell;
 import javafx.scene.control.ListView;
-import javafx.scene.control.ScrollPane;
+import javafx.scene.control.ProgressBar;
 import javafx.scene.control.SelectionMode;
+import javafx.scene.control.SplitPane;
 import javafx.scene.control.Tab;
 import javafx.scene.control.TabPane;
-import javafx.scene.control.TextArea;
+import javafx.scene.control.TextField;
 import javafx.scene.control.TitledPane;
 import javafx.scene.control.Alert.AlertType;
 import javafx.scene.image.ImageView;
@@ -34,8 +30,10 @@ import javafx.scene.layout.AnchorPane;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.Pane;
 import javafx.scene.layout.Priority;
+import javafx.scene.layout.Region;
 import javafx.scene.layout.StackPane;
 import javafx.scene.layout.VBox;
+import javafx.scene.paint.Color;
 import javafx.scene.text.Font;
 import javafx.scene.text.FontPosture;
 import javafx.scene.text.FontWeight;
@@ -43,12 +41,17 @@ import javafx.scene.text.Text;
 import javafx.scene.text.TextFlow;
 import javafx.stage.Stage;
 import javafx.util.Callback;
+import jg.aquifer.Diagnostics;
+import jg.aquifer.Diagnostics.Level;
 import jg.aquifer.Intake;
+import jg.aquifer.IntakeExecutor;
+import jg.aquifer.IntakeHandle;
 import jg.aquifer.Output;
 import jg.aquifer.commands.Program;
 import jg.aquifer.commands.Subcommand;
 import jg.aquifer.commands.options.Flag;
 import jg.aquifer.commands.options.Option;
+import jg.aquifer.metrics.Metrics;
 import jg.aquifer.ui.Value;
 
 /**
@@ -58,6 +61,19 @@ import jg.aquifer.ui.Value;
  */
 public class Visualizer {
   
+  /**
+   * The default amount of Tabs following the selected Tab whose panes are generated ahead of time
+   */
+  public static final int DEFAULT_PREFETCHED_TABS = 1;
+  
+  private static final double OUTPUT_LINE_HEIGHT = 20;
+  private static final double NAVIGATOR_CELL_HEIGHT = 24;
+  
+  /**
+   * The time between JavaFX pulses, which are scheduled 60 times per second
+   */
+  private static final long PULSE_INTERVAL_NANOS = 1_000_000_000L / 60;
+  
   private Program program;
   private Intake intake;
   
@@ -65,6 +81,30 @@ public class Visualizer {
   private Scene optionsScene;
   private Scene outputScene;
   private Output outputStreams;
+  private MergedOutput mergedOutput;
+  private AnimationTimer outputDrain;
+  
+  private ProgressBar runProgress;
+  private Button runButton;
+  private Label missingLabel;
+  private Button outputCancelButton;
+  
+  private final VerificationEngine verificationEngine;
+  
+  private IntakeExecutor intakeExecutor;
+  private volatile IntakeHandle currentRun;
+  
+  private volatile Metrics metrics;
+  private long submittedAt;
+  private String submittedSubcommand;
+  private long lastPulse;
+  
+  private int prefetchedTabs;
+  private boolean searchableNavigator;
+  private final Map<String, Pane> subcommandPanes;
+  
+  private int scrollbackLines;
+  private long scrollbackChars;
         
   private Map<String, RawArgumentForm> rawArguments;
   private volatile RawArgumentForm currentForm;
@@ -82,6 +122,105 @@ public class Visualizer {
     this.intake = intake;
     this.rawArguments = new HashMap<>();    
     this.content = new Stage();
+    this.verificationEngine = new VerificationEngine();
+    this.subcommandPanes = new HashMap<>();
+    this.metrics = Metrics.NONE;
+    this.prefetchedTabs = DEFAULT_PREFETCHED_TABS;
+    this.scrollbackLines = LineStore.DEFAULT_MAX_LINES;
+    this.scrollbackChars = LineStore.DEFAULT_MAX_CHARS;
+  }
+  
+  /**
+   * Sets the IntakeExecutor to submit arguments through. 
+   * 
+   * With an IntakeExecutor, the Intake is run off of the JavaFX Application Thread, 
+   * its progress is shown on the output pane and the output pane's "Cancel" button cancels the run.
+   * Without one (the default), the Intake is called directly on the JavaFX Application Thread.
+   * 
+   * @param intakeExecutor - the IntakeExecutor to use, or null to call the Intake directly
+   */
+  public void setIntakeExecutor(IntakeExecutor intakeExecutor) {
+    this.intakeExecutor = intakeExecutor;
+  }
+  
+  /**
+   * Sets the Metrics that this Visualizer - and its VerificationEngine - report timings to
+   * @param metrics - the Metrics to report to, or Metrics.NONE to report nothing (the default)
+   */
+  public void setMetrics(Metrics metrics) {
+    this.metrics = metrics;
+    verificationEngine.setMetrics(metrics);
+  }
+  
+  public Metrics getMetrics() {
+    return metrics;
+  }
+  
+  /**
+   * @return the VerificationEngine that verifies arguments entered on the generated UI
+   */
+  public VerificationEngine getVerificationEngine() {
+    return verificationEngine;
+  }
+  
+  /**
+   * @return the handle of the latest asynchronous run, or null if there's none
+   */
+  public IntakeHandle getCurrentRun() {
+    return currentRun;
+  }
+  
+  /**
+   * Sets whether Subcommands are navigated through a searchable list rather than Tabs.
+   * 
+   * The searchable list is meant for Programs with many Subcommands: it only creates cells 
+   * for the Subcommands on screen, and filters Subcommands by name and description as the user types.
+   * 
+   * Must be called prior to initialize().
+   * @param searchableNavigator - true to use a searchable list, false to use Tabs (the default)
+   * @throws IllegalStateException - if this Visualizer has already been initialized
+   */
+  public void setSearchableNavigator(boolean searchableNavigator) throws IllegalStateException {
+    if (isInitialized) {
+      throw new IllegalStateException("Visualizer has already been initialized!");
+    }
+    this.searchableNavigator = searchableNavigator;
+  }
+  
+  /**
+   * Sets how many Tabs following the selected Tab have their panes generated ahead of time,
+   * while the UI is otherwise idle. 
+   * 
+   * A Subcommand's pane is always generated once its Tab is selected. 
+   * Prefetching makes switching to the next Tabs instant.
+   * @param prefetchedTabs - the amount of Tabs to prefetch, or 0 to disable prefetching
+   */
+  public void setPrefetchedTabs(int prefetchedTabs) {
+    if (prefetchedTabs < 0) {
+      throw new IllegalArgumentException("Amount of prefetched tabs can't be negative");
+    }
+    this.prefetchedTabs = prefetchedTabs;
+  }
+  
+  /**
+   * Sets how much application output is retained on the output pane.
+   * Once either limit is exceeded, the oldest lines are discarded.
+   * 
+   * Must be called prior to initialize().
+   * @param maxLines - the maximum amount of lines to retain
+   * @param maxChars - the maximum amount of characters to retain
+   * @throws IllegalStateException - if this Visualizer has already been initialized
+   */
+  public void setScrollback(int maxLines, long maxChars) throws IllegalStateException {
+    if (isInitialized) {
+      throw new IllegalStateException("Visualizer has already been initialized!");
+    }
+    else if (maxLines <= 0 || maxChars <= 0) {
+      throw new IllegalArgumentException("Scrollback limits must be positive");
+    }
+    
+    this.scrollbackLines = maxLines;
+    this.scrollbackChars = maxChars;
   }
   
   /**
@@ -90,11 +229,15 @@ public class Visualizer {
    */
   public void initialize() {
     if (!isInitialized) {
+      long start = System.nanoTime();
       Pane contentPane = generate();
       optionsScene = new Scene(contentPane);
+      metrics.sceneBuilt("options", System.nanoTime() - start);
       
+      start = System.nanoTime();
       Pane outputPane = generateOutputScene();
       outputScene = new Scene(outputPane);    
+      metrics.sceneBuilt("output", System.nanoTime() - start);
             
       isInitialized = true;
     }
@@ -132,7 +275,7 @@ public class Visualizer {
     final VBox mainContentVBox = new VBox();
     
     final Pane header = generateHeader();
-    final TabPane body = generateBody();
+    final Region body = searchableNavigator ? generateNavigatorBody() : generateBody();
     final Pane footer = generateFooter();
     
     VBox.setVgrow(body, Priority.ALWAYS);
@@ -142,21 +285,42 @@ public class Visualizer {
     contentPane.getChildren().add(mainContentVBox);
     
     //Sets the initial size of the content pane
-    contentPane.setPrefSize(400, 600);
+    contentPane.setPrefSize(searchableNavigator ? 700 : 400, 600);
     
     return contentPane;
   }
   
   private void callIntake() {
-    System.out.println("current intake: "+currentForm.getRawArguments().keySet());
-    System.out.println(rawArguments);
+    Diagnostics.log(Level.DEBUG, "Visualizer", "Submitting {}", currentForm);
+        
+    final String subcommand = currentForm.getSubcommand().getName();
         
     try {
-      Map<String, String> processedForm = processArgs(currentForm);
+      final long processStart = System.nanoTime();
+      final TypedArguments processedForm = processArgs(currentForm);
+      metrics.argumentsProcessed(subcommand, processedForm.size(), System.nanoTime() - processStart);
+      
+      metrics.intakeSubmitted(subcommand);
+      submittedSubcommand = subcommand;
+      submittedAt = System.nanoTime();
           
-      intake.submitArguments(currentForm.getSubcommand().getName(), 
-                             processedForm, 
-                             outputStreams);
+      if (intakeExecutor != null) {
+        startRun(intakeExecutor.submit(intake, 
+                                       subcommand, 
+                                       processedForm, 
+                                       outputStreams));
+      }
+      else {
+        boolean failed = true;
+        try {
+          intake.submitTypedArguments(subcommand, 
+                                      processedForm, 
+                                      outputStreams);
+          failed = false;
+        } finally {
+          metrics.intakeFinished(subcommand, System.nanoTime() - submittedAt, failed);
+        }
+      }
       content.setScene(outputScene);
       content.centerOnScreen();
     } catch (IncompleteException e) {
@@ -167,25 +331,71 @@ public class Visualizer {
     }
   }
   
-  private Output generateOutputStreams(TextArea outputArea) {
-    final Writer stOut = new Writer() {
-      
+  private void startRun(IntakeHandle run) {
+    currentRun = run;
+    runProgress.setVisible(true);
+    runProgress.setProgress(ProgressBar.INDETERMINATE_PROGRESS);
+    outputCancelButton.setText("Cancel");
+    
+    final long start = System.nanoTime();
+    run.getCompletion().whenComplete((result, error) -> {
+      metrics.intakeFinished(run.getSubcommand(), System.nanoTime() - start, error != null);
+      Platform.runLater(() -> finishRun(run, error));
+    });
+  }
+  
+  private void finishRun(IntakeHandle run, Throwable error) {
+    if (error instanceof CancellationException) {
+      outputStreams.err.println("***Run cancelled***");
+    }
+    else if (error != null) {
+      error.printStackTrace(outputStreams.err);
+    }
+    
+    runProgress.setProgress(run.getProgress() < 0 ? 1 : run.getProgress());
+    outputCancelButton.setText("Back");
+    outputCancelButton.setDisable(false);
+  }
+  
+  private Output generateOutputStreams(ListView<String> outputView, OutputLog outputLog) {
+    mergedOutput = new MergedOutput(outputLog);
+    
+    /*
+     * Drain whatever the backing application has written once per pulse,
+     * rather than scheduling a separate runLater() for every write.
+     */
+    outputDrain = new AnimationTimer() {
       @Override
-      public void write(char[] cbuf, int off, int len) throws IOException {
-        char [] range = Arrays.copyOfRange(cbuf, off, off + len);        
-        Platform.runLater(() -> {outputArea.appendText(String.valueOf(range));});
+      public void handle(long now) {
+        final int drained = mergedOutput.drain();
+        if (drained > 0) {
+          metrics.outputDrained(drained);
+          if (submittedAt != 0) {
+            metrics.firstOutput(submittedSubcommand, System.nanoTime() - submittedAt);
+            submittedAt = 0;
+          }
+          
+          if (outputView.getSelectionModel().isEmpty()) {
+            //Follow new output unless the user has selected a line to look at
+            outputView.scrollTo(outputLog.size() - 1);
+          }
+        }
+        
+        if (lastPulse != 0) {
+          metrics.pulse(Math.max(0, now - lastPulse - PULSE_INTERVAL_NANOS));
+        }
+        lastPulse = now;
+        
+        final IntakeHandle run = currentRun;
+        if (run != null && !run.isDone()) {
+          runProgress.setProgress(run.getProgress() < 0 ? ProgressBar.INDETERMINATE_PROGRESS : run.getProgress());
+        }
       }
-      
-      @Override
-      public void flush() throws IOException {}
-      
-      @Override
-      public void close() throws IOException {}
     };
+    mergedOutput.drain();
+    outputDrain.start();
     
-    final PrintWriter stdPrintOut = new PrintWriter(stOut);
-    
-    return new Output(stdPrintOut, stdPrintOut);   
+    return mergedOutput.newOutput();   
   }
   
   private Pane generateOutputScene() {   
@@ -194,52 +404,72 @@ public class Visualizer {
     mainContentVBox.getChildren().add(header);
     
     final AnchorPane bodyPane = new AnchorPane();
-    final TextArea outputArea = new TextArea("***Application Output:***"+System.lineSeparator());
-    outputArea.setWrapText(true);
-    outputArea.setEditable(false);
-    
-    outputStreams = generateOutputStreams(outputArea);
     
     /*
-    this.outputAppendFunc = new Callback<String, Void>() {
+     * Output is kept in a bounded LineStore and shown through a ListView,
+     * which only builds cells for the lines currently on screen.
+     */
+    final OutputLog outputLog = new OutputLog(new LineStore(scrollbackLines, scrollbackChars));
+    outputLog.append("***Application Output:***"+System.lineSeparator());
+    
+    final ListView<String> outputView = new ListView<>(outputLog);
+    outputView.setFixedCellSize(OUTPUT_LINE_HEIGHT);
+    outputView.setCellFactory(new Callback<ListView<String>, ListCell<String>>() {
       @Override
-      public Void call(String param) {
-        int caretPosition = outputArea.caretPositionProperty().get();
-        outputArea.appendText(param+System.lineSeparator());
-        outputArea.positionCaret(caretPosition);
-        return null;
+      public ListCell<String> call(ListView<String> param) {
+        return new ListCell<String>() {
+          @Override
+          protected void updateItem(String item, boolean empty) {
+            super.updateItem(item, empty);
+            
+            if (empty || item == null) {
+              setText(null);
+              setTextFill(Color.BLACK);
+            }
+            else {
+              setText(item);
+              setTextFill(outputLog.getChannel(getIndex()) == MergedOutput.STDERR ? Color.FIREBRICK : Color.BLACK);
+            }
+          }
+        };
       }
-    };
-    */
+    });
     
-    final ScrollPane scrollPane = new ScrollPane(outputArea);
-    scrollPane.setFitToHeight(true);
-    scrollPane.setFitToWidth(true);
+    outputStreams = generateOutputStreams(outputView, outputLog);
     
     //Set starting height
-    scrollPane.setPrefHeight(500);
+    outputView.setPrefHeight(500);
     
-    outputArea.setScrollTop(25);
-
-    AnchorPane.setBottomAnchor(outputArea, 0.0);
-    AnchorPane.setTopAnchor(outputArea, 0.0);
-    AnchorPane.setLeftAnchor(outputArea, 0.0);
-    AnchorPane.setRightAnchor(outputArea, 0.0);
-    
-    AnchorPane.setBottomAnchor(scrollPane, 0.0);
-    AnchorPane.setTopAnchor(scrollPane, 0.0);
-    AnchorPane.setLeftAnchor(scrollPane, 0.0);
-    AnchorPane.setRightAnchor(scrollPane, 0.0);
+    AnchorPane.setBottomAnchor(outputView, 10.0);
+    AnchorPane.setTopAnchor(outputView, 10.0);
+    AnchorPane.setLeftAnchor(outputView, 10.0);
+    AnchorPane.setRightAnchor(outputView, 10.0);
     
     VBox.setVgrow(bodyPane, Priority.ALWAYS);
     
-    scrollPane.setPadding(new Insets(10));
-    bodyPane.getChildren().add(scrollPane);
+    bodyPane.getChildren().add(outputView);
                 
     mainContentVBox.getChildren().add(bodyPane);
     
+    runProgress = new ProgressBar();
+    runProgress.setVisible(false);
+    HBox.setMargin(runProgress, new Insets(10));
+    
     final Button cancelButton = new Button("Cancel");
     cancelButton.setOnAction((event) -> {
+      final IntakeHandle run = currentRun;
+      
+      /*
+       * Once an asynchronous run is over, this button takes the user back to the options
+       */
+      if (run != null && run.isDone()) {
+        currentRun = null;
+        runProgress.setVisible(false);
+        content.setScene(optionsScene);
+        content.centerOnScreen();
+        return;
+      }
+      
       Alert alert = new Alert(AlertType.CONFIRMATION, 
                               "Are you sure you want to cancel?", 
                               ButtonType.YES, ButtonType.NO);
@@ -248,15 +478,26 @@ public class Visualizer {
       alert.showAndWait();
       
       if (alert.getResult() == ButtonType.YES) {
-        Platform.exit();
-        System.exit(1);
+        if (run != null) {
+          if (run.cancel()) {
+            //The run stays in progress until the Intake actually returns
+            cancelButton.setText("Cancelling");
+            cancelButton.setDisable(true);
+          }
+        }
+        else {
+          //Without an IntakeExecutor, there's no handle on the run to cancel it with
+          Platform.exit();
+          System.exit(1);
+        }
       }
     });
     cancelButton.setPrefWidth(60);
     HBox.setMargin(cancelButton, new Insets(10));
     HBox.setHgrow(cancelButton, Priority.ALWAYS);
+    outputCancelButton = cancelButton;
     
-    final HBox footer = new HBox(cancelButton);
+    final HBox footer = new HBox(runProgress, cancelButton);
     footer.setAlignment(Pos.CENTER);
     
     mainContentVBox.getChildren().add(footer);
@@ -264,47 +505,20 @@ public class Visualizer {
     return mainContentVBox;
   }
   
-  private Map<String, String> processArgs(RawArgumentForm formToProcess) throws IncompleteException {
-    final Map<String, String> args = new HashMap<>();
-    final Set<String> givenRequiredOptions = new HashSet<>();
-    
-    for (Entry<Option, Value> argVal: formToProcess.getRawArguments().entrySet()) {
-      
-      System.out.println("--- processing: "+argVal.getKey()+" <-> "+argVal.getValue());
-      
-      if (argVal.getValue().getValue() != null && 
-          !argVal.getValue().getValue().isEmpty() && 
-          !argVal.getValue().isVerified()) {
-        args.put(argVal.getKey().getOptName(), argVal.getValue().getValue());
-        
-        System.out.println("    -> valid :D");
-        
-        if (argVal.getKey().isRequired()) {
-          givenRequiredOptions.add(argVal.getKey().getOptName());
-        }
-      }
-    }
-    
-    final Set<String> requiredOptions = new HashSet<>(formToProcess.getSubcommand().getRequiredOptions().keySet());
-    System.out.println("---  given required options "+givenRequiredOptions);
-    if (!givenRequiredOptions.equals(requiredOptions)) {
-      
-      System.out.println(givenRequiredOptions);
-      
-      requiredOptions.removeAll(givenRequiredOptions);
-      throw new IncompleteException(formToProcess.getSubcommand(), requiredOptions);
-    }
-    
-    return args;
+  /**
+   * Collects the verified arguments of a RawArgumentForm, along with their parsed values.
+   * @param formToProcess - the RawArgumentForm to process
+   * @return the verified arguments of the form
+   * @throws IncompleteException if a required Option wasn't given a verified argument
+   */
+  private TypedArguments processArgs(RawArgumentForm formToProcess) throws IncompleteException {
+    return TypedArguments.from(formToProcess);
   }
   
   private Pane generateHeader() {
     
     final HBox header = new HBox(10);
     
-    System.out.println("---header");
-    System.out.println(header.getStyle()+"||");
-    
     header.setStyle("-fx-background-color: white");
     header.setAlignment(Pos.CENTER);
     
@@ -342,36 +556,130 @@ public class Visualizer {
   private TabPane generateBody() {
     final TabPane bodyPane = new TabPane();
     
+    /*
+     * Tabs start out empty. The pane of a Subcommand is only generated once 
+     * its Tab is first selected, or prefetched after a neighbouring Tab is selected.
+     */
+    
     //Add the Program's Subcommand instance first
-    final Tab programTab = generateSubcommandPane(program.getProgramOptions());
-    bodyPane.getTabs().add(programTab);
-    bodyPane.requestLayout();
+    bodyPane.getTabs().add(generateSubcommandTab(program.getProgramOptions()));
 
     for (Subcommand subcommand : program.getSubcommands().values()) {
       if (subcommand != program.getProgramOptions()) {
-        final Tab tab = generateSubcommandPane(subcommand);
-        bodyPane.getTabs().add(tab);
-        bodyPane.requestLayout();
+        bodyPane.getTabs().add(generateSubcommandTab(subcommand));
       }
     }
     
     bodyPane.getSelectionModel().selectedItemProperty().addListener(new ChangeListener<Tab>() { 
       @Override 
       public void changed(ObservableValue<? extends Tab> observable, Tab oldTab, Tab newTab) {
-        currentForm = rawArguments.get(newTab.getText());
+        if (newTab != null) {
+          setCurrentForm(materializeTab(newTab));
+          prefetchTabs(bodyPane, bodyPane.getTabs().indexOf(newTab));
+        }
       }
     });
     
     /*
      * Set currentForm to be the corresponding RawArgumentForm of the currently selected Tab 
      */
-    currentForm = rawArguments.get(bodyPane.getSelectionModel().selectedItemProperty().get().getText());
+    setCurrentForm(materializeTab(bodyPane.getSelectionModel().selectedItemProperty().get()));
+    prefetchTabs(bodyPane, bodyPane.getSelectionModel().getSelectedIndex());
     
     return bodyPane;
   }
   
-  private Tab generateSubcommandPane(Subcommand subcommand) {
-    final Tab tab = new Tab(subcommand.getName());   
+  /**
+   * Generates a navigator for Programs with many Subcommands: a searchable list of Subcommands
+   * next to the pane of the selected Subcommand.
+   */
+  private Region generateNavigatorBody() {
+    final SubcommandIndex index = new SubcommandIndex(program.getSubcommands().values());
+    
+    final TextField searchField = new TextField();
+    searchField.setPromptText("Search subcommands");
+    
+    final ListView<Subcommand> subcommandList = new ListView<>();
+    subcommandList.setFixedCellSize(NAVIGATOR_CELL_HEIGHT);
+    subcommandList.getItems().setAll(index.search(""));
+    
+    final StackPane selectedPane = new StackPane();
+    
+    searchField.textProperty().addListener((observable, oldValue, newValue) -> {
+      subcommandList.getItems().setAll(index.search(newValue));
+    });
+    
+    subcommandList.getSelectionModel().selectedItemProperty().addListener(new ChangeListener<Subcommand>() {
+      @Override
+      public void changed(ObservableValue<? extends Subcommand> observable, Subcommand oldSub, Subcommand newSub) {
+        if (newSub != null) {
+          selectedPane.getChildren().setAll(materializePane(newSub));
+          setCurrentForm(rawArguments.get(newSub.getName()));
+        }
+      }
+    });
+    
+    //Select the Program's Subcommand instance first
+    subcommandList.getSelectionModel().select(program.getProgramOptions());
+    subcommandList.scrollTo(program.getProgramOptions());
+    
+    final VBox navigator = new VBox(5, searchField, subcommandList);
+    navigator.setPadding(new Insets(5));
+    VBox.setVgrow(subcommandList, Priority.ALWAYS);
+    
+    final SplitPane bodyPane = new SplitPane(navigator, selectedPane);
+    bodyPane.setDividerPositions(0.3);
+    SplitPane.setResizableWithParent(navigator, false);
+    
+    return bodyPane;
+  }
+  
+  private Tab generateSubcommandTab(Subcommand subcommand) {
+    final Tab tab = new Tab(subcommand.getName());
+    tab.setUserData(subcommand);
+    return tab;
+  }
+  
+  /**
+   * Generates the pane of the Subcommand behind the given Tab, if it hasn't been generated yet
+   * @param tab - the Tab to materialize
+   * @return the RawArgumentForm of the Tab's Subcommand
+   */
+  private RawArgumentForm materializeTab(Tab tab) {
+    if (tab.getContent() == null) {
+      tab.setContent(materializePane((Subcommand) tab.getUserData()));
+    }
+    return rawArguments.get(tab.getText());
+  }
+  
+  /**
+   * Returns the pane of the given Subcommand, generating it if it hasn't been generated yet
+   */
+  private Pane materializePane(Subcommand subcommand) {
+    Pane pane = subcommandPanes.get(subcommand.getName());
+    if (pane == null) {
+      final long start = System.nanoTime();
+      pane = generateSubcommandPane(subcommand);
+      metrics.sceneBuilt("subcommand:"+subcommand.getName(), System.nanoTime() - start);
+      subcommandPanes.put(subcommand.getName(), pane);
+    }
+    return pane;
+  }
+  
+  /**
+   * Schedules the Tabs following the selected Tab to be materialized, 
+   * one per event so that each only takes up a small slice of the JavaFX Application Thread.
+   */
+  private void prefetchTabs(TabPane bodyPane, int selectedIndex) {
+    for (int i = selectedIndex + 1; i <= selectedIndex + prefetchedTabs && i < bodyPane.getTabs().size(); i++) {
+      final Tab tab = bodyPane.getTabs().get(i);
+      if (tab.getContent() == null) {
+        Platform.runLater(() -> materializeTab(tab));
+      }
+    }
+  }
+  
+  private Pane generateSubcommandPane(Subcommand subcommand) {
     final VBox paneVBox = new VBox();
     paneVBox.setPrefHeight(300);
     paneVBox.setAlignment(Pos.CENTER);
@@ -382,14 +690,24 @@ public class Visualizer {
       paneVBox.getChildren().add(subcommandDescLabel);
     }
     
-    final RawArgumentForm subcommandForm = new RawArgumentForm(subcommand);
+    final RawArgumentForm subcommandForm = new RawArgumentForm(subcommand, verificationEngine);
+    subcommandForm.setCompletionListener(() -> {
+      if (subcommandForm == currentForm) {
+        if (Platform.isFxApplicationThread()) {
+          updateRunButton();
+        }
+        else {
+          Platform.runLater(this::updateRunButton);
+        }
+      }
+    });
     rawArguments.put(subcommand.getName(), subcommandForm);
     
     final ListView<Option> requiredArgsFlow = new ListView<>();
     requiredArgsFlow.setCellFactory(new Callback<ListView<Option>, ListCell<Option>>() {  
       @Override
       public ListCell<Option> call(ListView<Option> param) {
-        System.out.println("---returning new view");
+        Diagnostics.log(Level.TRACE, "Visualizer", "Creating an argument cell for {}", subcommand);
         return new ArgumentCell(subcommand, subcommandForm);
       }
     });
@@ -403,7 +721,7 @@ public class Visualizer {
     optionalArgsFlow.setCellFactory(new Callback<ListView<Option>, ListCell<Option>>() {  
       @Override
       public ListCell<Option> call(ListView<Option> param) {
-        System.out.println("---returning new view");
+        Diagnostics.log(Level.TRACE, "Visualizer", "Creating an argument cell for {}", subcommand);
         return new ArgumentCell(subcommand, subcommandForm);
       }
     });
@@ -418,7 +736,7 @@ public class Visualizer {
     flagsFlow.setCellFactory(new Callback<ListView<Option>, ListCell<Option>>() {  
       @Override
       public ListCell<Option> call(ListView<Option> param) {
-        System.out.println("---returning new view");
+        Diagnostics.log(Level.TRACE, "Visualizer", "Creating an argument cell for {}", subcommand);
         return new ArgumentCell(subcommand, subcommandForm);
       }
     });
@@ -430,7 +748,7 @@ public class Visualizer {
 
     
     for(Option option : subcommand.getOptions().values()) {      
-      System.out.println(option.getOptName()+" | "+option.isRequired());
+      Diagnostics.log(Level.TRACE, "Visualizer", "Adding option {} (required: {})", option.getOptName(), option.isRequired());
       
       subcommandForm.setOptionArgument(option, option.getHolder());
       
@@ -456,15 +774,41 @@ public class Visualizer {
     //anchoredPane.prefHeightProperty().bind(bodyPane.prefHeightProperty());
 
     
-    tab.setContent(anchoredPane);
-    return tab;
+    return anchoredPane;
+  }
+  
+  private void setCurrentForm(RawArgumentForm form) {
+    currentForm = form;
+    updateRunButton();
+  }
+  
+  /**
+   * Enables the Run button only while the current form is complete, 
+   * and tells the user how many required Options are still missing
+   */
+  private void updateRunButton() {
+    if (runButton == null) {
+      //The footer hasn't been generated yet
+      return;
+    }
+    
+    final RawArgumentForm form = currentForm;
+    final int missing = form == null ? 0 : form.getMissingCount();
+    
+    runButton.setDisable(form == null || missing > 0);
+    missingLabel.setText(missing == 0 ? "" : 
+                         missing == 1 ? "1 required option missing" : 
+                                        missing+" required options missing");
   }
   
   private Pane generateFooter() {
     final HBox footerBox = new HBox(10);
     footerBox.setAlignment(Pos.CENTER);
     
-    final Button runButton = new Button("Run");
+    missingLabel = new Label();
+    missingLabel.setTextFill(Color.FIREBRICK);
+    
+    runButton = new Button("Run");
     runButton.setPrefWidth(60);
     HBox.setMargin(runButton, new Insets(10));
     HBox.setHgrow(runButton, Priority.ALWAYS);
@@ -478,7 +822,8 @@ public class Visualizer {
     HBox.setHgrow(cancelButton, Priority.ALWAYS);
     cancelButton.setOnAction((event) -> {Platform.exit();});
    
-    footerBox.getChildren().addAll(runButton, cancelButton);
+    footerBox.getChildren().addAll(missingLabel, runButton, cancelButton);
+    updateRunButton();
     
     return footerBox;
   }
@@ -491,6 +836,10 @@ public class Visualizer {
    * they will be affected.
    */
   public void close() {
+    if (outputDrain != null) {
+      outputDrain.stop();
+      mergedOutput.drain();
+    }
     content.close();
     isShowing = false;
   }
@@ -502,4 +851,20 @@ public class Visualizer {
   public boolean isInitialized() {
     return content != null;
   }
+  
+  /*
+   * Package-private accessors for the UI performance harness
+   */
+  
+  Scene getOptionsScene() {
+    return optionsScene;
+  }
+  
+  Scene getOutputScene() {
+    return outputScene;
+  }
+  
+  Output getOutputStreams() {
+    return outputStreams;
+  }
 }
@@ -0,0 +1,60 @@
+package jg.aquifer.ui.web;
+
+/**
+ * Escapes text for the HTML and JSON the WebVisualizer writes
+ *
+ * @author Jose
+ */
+final class Escape {
+
+  private Escape() {}
+
+  /**
+   * Escapes text for HTML content and quoted attribute values
+   */
+  static String html(String text) {
+    final StringBuilder escaped = new StringBuilder(text.length() + 16);
+    for (int i = 0; i < text.length(); i++) {
+      final char c = text.charAt(i);
+      switch (c) {
+      case '&':  escaped.append("&amp;");  break;
+      case '<':  escaped.append("&lt;");   break;
+      case '>':  escaped.append("&gt;");   break;
+      case '"':  escaped.append("&quot;"); break;
+      case '\'': escaped.append("&#39;");  break;
+      default:   escaped.append(c);
+      }
+    }
+    return escaped.toString();
+  }
+
+  /**
+   * Appends text as a quoted JSON string. Besides control characters, '<', '>' and '&' are
+   * escaped so that the string can be embedded in a script element.
+   */
+  static StringBuilder json(StringBuilder builder, String text) {
+    builder.append('"');
+    for (int i = 0; i < text.length(); i++) {
+      final char c = text.charAt(i);
+      switch (c) {
+      case '"':  builder.append("\\\""); break;
+      case '\\': builder.append("\\\\"); break;
+      case '\n': builder.append("\\n");  break;
+      case '\r': builder.append("\\r");  break;
+      case '\t': builder.append("\\t");  break;
+      default:
+        if (c < 0x20 || c == '<' || c == '>' || c == '&' || c == '\u2028' || c == '\u2029') {
+          builder.append(String.format("\\u%04x", (int) c));
+        }
+        else {
+          builder.append(c);
+        }
+      }
+    }
+    return builder.append('"');
+  }
+
+  static String json(String text) {
+    return json(new StringBuilder(text.length() + 8), text).toString();
+  }
+}
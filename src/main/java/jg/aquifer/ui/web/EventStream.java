@@ -0,0 +1,71 @@
+package jg.aquifer.ui.web;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A response streaming Server-Sent Events to a client.
+ *
+ * Events may be sent from any Thread. They're written in the order they're sent, as the client
+ * reads them - a client falling too far behind is dropped (see HttpConnection.MAX_QUEUED_BYTES),
+ * and reconnects from the id of the last event it read.
+ *
+ * @author Jose
+ */
+final class EventStream {
+
+  private final HttpServer server;
+  private final HttpConnection connection;
+
+  EventStream(HttpServer server, HttpConnection connection) {
+    this.server = server;
+    this.connection = connection;
+  }
+
+  /**
+   * Sends an event
+   * @param event - the event's name
+   * @param id - the event's id, or a non-positive value to send it without one
+   * @param data - the event's data, on a single line (ex: JSON)
+   */
+  void send(String event, long id, String data) {
+    final StringBuilder builder = new StringBuilder(data.length() + 32);
+    builder.append("event: ").append(event).append('\n');
+    if (id > 0) {
+      builder.append("id: ").append(id).append('\n');
+    }
+    builder.append("data: ").append(data).append("\n\n");
+
+    final ByteBuffer bytes = ByteBuffer.wrap(builder.toString().getBytes(StandardCharsets.UTF_8));
+    server.execute(() -> connection.enqueue(bytes));
+  }
+
+  /**
+   * Closes this stream once the events sent so far are written
+   */
+  void close() {
+    server.execute(() -> {
+      connection.closeAfterWrite = true;
+      connection.flush();
+    });
+  }
+
+  /**
+   * Sets a Runnable to run once this stream is closed, by either end.
+   * It's run right away if the stream already is.
+   */
+  void setCloseListener(Runnable listener) {
+    server.execute(() -> {
+      if (connection.closed) {
+        listener.run();
+      }
+      else {
+        connection.setCloseListener(listener);
+      }
+    });
+  }
+
+  boolean isClosed() {
+    return connection.closed;
+  }
+}
@@ -0,0 +1,266 @@
+package jg.aquifer.ui.web;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+
+/**
+ * The state of one client connection to an HttpServer: its partially read request, and the bytes still
+ * waiting to be written to it.
+ *
+ * Only the HttpServer's event loop Thread touches a connection, except for the closed flag.
+ * Requests are handled one at a time - while one is being handled (see busy), further pipelined
+ * requests wait in the input buffer.
+ *
+ * @author Jose
+ */
+final class HttpConnection {
+
+  /**
+   * The largest request line and headers accepted
+   */
+  static final int MAX_HEAD_BYTES = 16 * 1024;
+
+  /**
+   * The largest request body accepted
+   */
+  static final int MAX_BODY_BYTES = 1024 * 1024;
+
+  /**
+   * The most bytes allowed to wait for a slow client before the connection is dropped
+   */
+  static final long MAX_QUEUED_BYTES = 4L * 1024 * 1024;
+
+  private static final byte [] CONTINUE = "HTTP/1.1 100 Continue\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+
+  final SocketChannel channel;
+  final SelectionKey key;
+
+  /**
+   * Whether a request of this connection is being handled, and not yet responded to
+   */
+  boolean busy;
+
+  /**
+   * Whether this connection is closed once its queued bytes are written
+   */
+  boolean closeAfterWrite;
+
+  /**
+   * Time, in milliseconds, of the last byte read from or written to this connection
+   */
+  long lastActive;
+
+  volatile boolean closed;
+
+  private ByteBuffer input;
+  private final ArrayDeque<ByteBuffer> output;
+  private long queued;
+
+  private Runnable closeListener;
+
+  //The head of the request being read, once all of it is
+  private int headEnd;
+  private int scanned;
+  private HttpRequest pending;
+  private boolean continued;
+
+  HttpConnection(SocketChannel channel, SelectionKey key) {
+    this.channel = channel;
+    this.key = key;
+    this.input = ByteBuffer.allocate(4096);
+    this.output = new ArrayDeque<>();
+    this.headEnd = -1;
+    this.lastActive = System.currentTimeMillis();
+  }
+
+  /**
+   * Reads what's available from the channel
+   * @return false if the client closed its end of the connection, or sent more than can be held
+   */
+  boolean read() throws IOException {
+    if (!input.hasRemaining()) {
+      if (input.capacity() >= MAX_HEAD_BYTES + MAX_BODY_BYTES) {
+        //Only a client sending past what it's been asked for gets here (ex: while its event stream is open)
+        return false;
+      }
+      grow(input.capacity() * 2);
+    }
+    final int read = channel.read(input);
+    if (read > 0) {
+      lastActive = System.currentTimeMillis();
+    }
+    return read >= 0;
+  }
+
+  /**
+   * Parses the next complete request out of what's been read
+   * @return the request, or null if it hasn't been fully read yet
+   * @throws HttpException if the request is malformed or too large
+   */
+  HttpRequest nextRequest() throws HttpException {
+    if (pending == null) {
+      final int end = findHeadEnd();
+      if (end < 0) {
+        if (input.position() > MAX_HEAD_BYTES) {
+          throw new HttpException(431, "Request head too large");
+        }
+        return null;
+      }
+      pending = HttpRequest.parseHead(input.array(), end);
+      headEnd = end;
+
+      if (pending.getHeader("transfer-encoding") != null) {
+        throw new HttpException(501, "Chunked request bodies aren't supported");
+      }
+      final int length = pending.getContentLength();
+      if (length > MAX_BODY_BYTES) {
+        throw new HttpException(413, "Request body too large");
+      }
+      if (input.capacity() < headEnd + length) {
+        grow(headEnd + length);
+      }
+    }
+
+    final int length = pending.getContentLength();
+    if (input.position() - headEnd < length) {
+      if (!continued && "100-continue".equalsIgnoreCase(pending.getHeader("expect"))) {
+        continued = true;
+        enqueue(ByteBuffer.wrap(CONTINUE));
+      }
+      return null;
+    }
+
+    final HttpRequest request = pending;
+    final byte [] body = new byte[length];
+    System.arraycopy(input.array(), headEnd, body, 0, length);
+    request.setBody(body);
+
+    //Keep what follows (a pipelined request) at the start of the buffer
+    final int consumed = headEnd + length;
+    System.arraycopy(input.array(), consumed, input.array(), 0, input.position() - consumed);
+    ((Buffer) input).position(input.position() - consumed);
+
+    pending = null;
+    headEnd = -1;
+    scanned = 0;
+    continued = false;
+    return request;
+  }
+
+  /**
+   * @return the index past the blank line ending the request head, or -1 if it hasn't been read yet
+   */
+  private int findHeadEnd() {
+    final byte [] bytes = input.array();
+    final int limit = input.position();
+    for (int i = Math.max(scanned, 3); i < limit; i++) {
+      if (bytes[i] == '\n' && bytes[i - 1] == '\r' && bytes[i - 2] == '\n' && bytes[i - 3] == '\r') {
+        return i + 1;
+      }
+    }
+    scanned = limit;
+    return -1;
+  }
+
+  private void grow(int capacity) {
+    final ByteBuffer grown = ByteBuffer.allocate(Math.max(capacity, input.capacity() * 2));
+    ((Buffer) input).flip();
+    grown.put(input);
+    input = grown;
+  }
+
+  /**
+   * Queues bytes to be written, writing what the channel accepts right away.
+   * A client falling too far behind is dropped.
+   */
+  void enqueue(ByteBuffer bytes) {
+    if (closed) {
+      return;
+    }
+    output.add(bytes);
+    queued += bytes.remaining();
+    if (queued > MAX_QUEUED_BYTES) {
+      close();
+      return;
+    }
+    flush();
+  }
+
+  /**
+   * Writes queued bytes until the channel stops accepting them.
+   * Interest in writability is kept only while bytes remain.
+   */
+  void flush() {
+    try {
+      while (!output.isEmpty()) {
+        final ByteBuffer head = output.peek();
+        queued -= channel.write(head);
+        if (head.hasRemaining()) {
+          key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+          return;
+        }
+        output.poll();
+        lastActive = System.currentTimeMillis();
+      }
+      key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+    } catch (IOException e) {
+      close();
+      return;
+    }
+
+    if (closeAfterWrite) {
+      close();
+    }
+  }
+
+  /**
+   * @return whether all queued bytes have been written
+   */
+  boolean isFlushed() {
+    return output.isEmpty();
+  }
+
+  /**
+   * Sets a Runnable to run, on the event loop Thread, once this connection closes
+   */
+  void setCloseListener(Runnable closeListener) {
+    this.closeListener = closeListener;
+  }
+
+  void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    output.clear();
+    key.cancel();
+    try {
+      channel.close();
+    } catch (IOException e) {
+      //Nothing more to do with it
+    }
+    if (closeListener != null) {
+      closeListener.run();
+    }
+  }
+
+  /**
+   * A malformed or unacceptable request, answered with its status before closing the connection
+   */
+  static final class HttpException extends Exception {
+
+    private static final long serialVersionUID = 1L;
+
+    final int status;
+
+    HttpException(int status, String reason) {
+      super(reason);
+      this.status = status;
+    }
+  }
+}
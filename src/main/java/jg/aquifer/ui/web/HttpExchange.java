@@ -0,0 +1,67 @@
+package jg.aquifer.ui.web;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A request handed to an HttpServer's Handler, and the means to respond to it.
+ *
+ * An exchange is responded to exactly once - with a complete response, or by opening an EventStream -
+ * from any Thread. Later responses are ignored.
+ *
+ * @author Jose
+ */
+final class HttpExchange {
+
+  private static final byte [] EVENT_STREAM_HEAD = ("HTTP/1.1 200 OK\r\n"
+                                                   + "Content-Type: text/event-stream; charset=utf-8\r\n"
+                                                   + "Cache-Control: no-store\r\n"
+                                                   + "X-Content-Type-Options: nosniff\r\n"
+                                                   + "Connection: close\r\n"
+                                                   + "\r\n").getBytes(StandardCharsets.US_ASCII);
+
+  private final HttpServer server;
+  private final HttpConnection connection;
+  private final HttpRequest request;
+
+  HttpExchange(HttpServer server, HttpConnection connection, HttpRequest request) {
+    this.server = server;
+    this.connection = connection;
+    this.request = request;
+  }
+
+  HttpRequest getRequest() {
+    return request;
+  }
+
+  /**
+   * Responds with a complete body
+   * @param status - the status code
+   * @param contentType - the type of the body
+   * @param body - the body
+   * @param headers - further headers, each as "Name: value"
+   */
+  void respond(int status, String contentType, byte [] body, String ... headers) {
+    final boolean keepAlive = request.isKeepAlive();
+    final ByteBuffer response = HttpServer.response(status, contentType, body, keepAlive, headers);
+    server.execute(() -> server.complete(connection, response, keepAlive));
+  }
+
+  /**
+   * Responds with a UTF-8 text body
+   */
+  void respond(int status, String contentType, String body, String ... headers) {
+    respond(status, contentType+"; charset=utf-8", body.getBytes(StandardCharsets.UTF_8), headers);
+  }
+
+  /**
+   * Responds with an event stream, which stays open until it's closed by either end.
+   * No further requests are read from the connection.
+   * @return the opened EventStream
+   */
+  EventStream openEventStream() {
+    final ByteBuffer head = ByteBuffer.wrap(EVENT_STREAM_HEAD);
+    server.execute(() -> connection.enqueue(head));
+    return new EventStream(server, connection);
+  }
+}
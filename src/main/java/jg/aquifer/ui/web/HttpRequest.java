@@ -0,0 +1,156 @@
+package jg.aquifer.ui.web;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import jg.aquifer.ui.web.HttpConnection.HttpException;
+
+/**
+ * An HTTP/1.1 request read by an HttpServer
+ *
+ * Header names are held in lower case. Only the parts of HTTP the WebVisualizer relies on are parsed:
+ * the request line, headers and a body delimited by Content-Length.
+ *
+ * @author Jose
+ */
+final class HttpRequest {
+
+  private final String method;
+  private final String path;
+  private final String query;
+  private final boolean http10;
+  private final Map<String, String> headers;
+  private final int contentLength;
+
+  private byte [] body;
+
+  private HttpRequest(String method, String path, String query, boolean http10, Map<String, String> headers, int contentLength) {
+    this.method = method;
+    this.path = path;
+    this.query = query;
+    this.http10 = http10;
+    this.headers = headers;
+    this.contentLength = contentLength;
+  }
+
+  /**
+   * Parses the request line and headers of a request
+   * @param bytes - the bytes read from the connection
+   * @param end - the index past the blank line ending the head
+   * @return the parsed request, without its body
+   * @throws HttpException if the head is malformed
+   */
+  static HttpRequest parseHead(byte [] bytes, int end) throws HttpException {
+    final String [] lines = new String(bytes, 0, end - 4, StandardCharsets.ISO_8859_1).split("\r\n");
+
+    final String [] requestLine = lines[0].split(" ");
+    if (requestLine.length != 3 || !requestLine[2].startsWith("HTTP/1.") || !requestLine[1].startsWith("/")) {
+      throw new HttpException(400, "Malformed request line");
+    }
+
+    final Map<String, String> headers = new HashMap<>();
+    for (int i = 1; i < lines.length; i++) {
+      final int colon = lines[i].indexOf(':');
+      if (colon <= 0) {
+        throw new HttpException(400, "Malformed header");
+      }
+      headers.put(lines[i].substring(0, colon).trim().toLowerCase(), lines[i].substring(colon + 1).trim());
+    }
+
+    int contentLength = 0;
+    final String length = headers.get("content-length");
+    if (length != null) {
+      try {
+        contentLength = Integer.parseInt(length);
+      } catch (NumberFormatException e) {
+        contentLength = -1;
+      }
+      if (contentLength < 0) {
+        throw new HttpException(400, "Malformed Content-Length");
+      }
+    }
+
+    final String target = requestLine[1];
+    final int question = target.indexOf('?');
+    return new HttpRequest(requestLine[0],
+                           question < 0 ? target : target.substring(0, question),
+                           question < 0 ? "" : target.substring(question + 1),
+                           requestLine[2].equals("HTTP/1.0"),
+                           headers,
+                           contentLength);
+  }
+
+  void setBody(byte [] body) {
+    this.body = body;
+  }
+
+  String getMethod() {
+    return method;
+  }
+
+  /**
+   * @return the path of the request target, without its query
+   */
+  String getPath() {
+    return path;
+  }
+
+  /**
+   * @return the value of a header, or null if the request has none
+   */
+  String getHeader(String lowerCaseName) {
+    return headers.get(lowerCaseName);
+  }
+
+  int getContentLength() {
+    return contentLength;
+  }
+
+  /**
+   * @return whether the connection may be reused for further requests after this one
+   */
+  boolean isKeepAlive() {
+    final String connection = headers.get("connection");
+    return http10 ? "keep-alive".equalsIgnoreCase(connection) : !"close".equalsIgnoreCase(connection);
+  }
+
+  /**
+   * @return the fields of the request's url-encoded body, or of its query if it has no body
+   * @throws HttpException if they're malformed
+   */
+  Map<String, String> getForm() throws HttpException {
+    return parseForm(body != null && body.length > 0 ? new String(body, StandardCharsets.UTF_8) : query);
+  }
+
+  /**
+   * Parses application/x-www-form-urlencoded fields. Of repeated fields, the last is kept.
+   */
+  static Map<String, String> parseForm(String encoded) throws HttpException {
+    final Map<String, String> form = new HashMap<>();
+    if (encoded.isEmpty()) {
+      return form;
+    }
+
+    try {
+      for (String pair : encoded.split("&")) {
+        if (pair.isEmpty()) {
+          continue;
+        }
+        final int equals = pair.indexOf('=');
+        form.put(URLDecoder.decode(equals < 0 ? pair : pair.substring(0, equals), "UTF-8"),
+                 equals < 0 ? "" : URLDecoder.decode(pair.substring(equals + 1), "UTF-8"));
+      }
+    } catch (IllegalArgumentException | UnsupportedEncodingException e) {
+      throw new HttpException(400, "Malformed form encoding");
+    }
+    return form;
+  }
+
+  @Override
+  public String toString() {
+    return method+" "+path;
+  }
+}
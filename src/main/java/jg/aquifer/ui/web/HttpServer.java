@@ -0,0 +1,333 @@
+package jg.aquifer.ui.web;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import jg.aquifer.Diagnostics;
+import jg.aquifer.Diagnostics.Level;
+import jg.aquifer.ui.web.HttpConnection.HttpException;
+
+/**
+ * A minimal HTTP/1.1 server running on a single, non-blocking event loop Thread.
+ *
+ * The event loop accepts connections, reads and parses requests and writes responses - it never blocks
+ * on a client, so a single Thread serves any number of connections, including long-lived event streams.
+ * Requests are handed to a Handler on the event loop, which must hand any lengthy work off to another Thread.
+ * Responses may be given from any Thread (see HttpExchange); they're queued to the event loop, which writes them.
+ *
+ * @author Jose
+ */
+final class HttpServer {
+
+  /**
+   * Handles the requests of an HttpServer, on its event loop Thread
+   */
+  interface Handler {
+
+    /**
+     * Handles a request. The exchange must eventually be responded to, from any Thread.
+     * @param exchange - the request, and the means to respond to it
+     */
+    void handle(HttpExchange exchange);
+
+    /**
+     * Called periodically (see TICK_MILLIS) on the event loop
+     */
+    void tick();
+  }
+
+  /**
+   * Period, in milliseconds, of the Handler's tick()
+   */
+  static final long TICK_MILLIS = 250;
+
+  /**
+   * Time, in milliseconds, after which a connection with no request in progress, nor bytes moving, is closed
+   */
+  static final long IDLE_TIMEOUT_MILLIS = 60_000;
+
+  private final Handler handler;
+  private final ConcurrentLinkedQueue<Runnable> tasks;
+  private final Set<HttpConnection> connections;
+
+  private Selector selector;
+  private ServerSocketChannel server;
+  private Thread loop;
+  private volatile boolean running;
+
+  HttpServer(Handler handler) {
+    this.handler = handler;
+    this.tasks = new ConcurrentLinkedQueue<>();
+    this.connections = new HashSet<>();
+  }
+
+  /**
+   * Binds this server and starts its event loop
+   * @param address - the address to listen on
+   * @param threadName - the name of the event loop Thread
+   * @return the address listened on
+   * @throws IOException if the address couldn't be bound
+   */
+  InetSocketAddress start(InetSocketAddress address, String threadName) throws IOException {
+    selector = Selector.open();
+    server = ServerSocketChannel.open();
+    try {
+      server.bind(address);
+      server.configureBlocking(false);
+      server.register(selector, SelectionKey.OP_ACCEPT);
+    } catch (IOException e) {
+      server.close();
+      selector.close();
+      throw e;
+    }
+
+    running = true;
+    loop = new Thread(this::loop, threadName);
+    loop.setDaemon(true);
+    loop.start();
+    return (InetSocketAddress) server.getLocalAddress();
+  }
+
+  /**
+   * Stops the event loop, closing every connection, and waits for it to finish
+   */
+  void stop() {
+    running = false;
+    selector.wakeup();
+    try {
+      loop.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Runs a task on the event loop Thread, after the current iteration
+   * @param task - the task to run
+   */
+  void execute(Runnable task) {
+    tasks.add(task);
+    selector.wakeup();
+  }
+
+  private void loop() {
+    long nextTick = System.currentTimeMillis() + TICK_MILLIS;
+    try {
+      while (running) {
+        selector.select(TICK_MILLIS);
+
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+          try {
+            task.run();
+          } catch (RuntimeException e) {
+            Diagnostics.log(Level.ERROR, "WebVisualizer", "Event loop task failed: {}", e);
+          }
+        }
+
+        final Iterator<SelectionKey> selected = selector.selectedKeys().iterator();
+        while (selected.hasNext()) {
+          final SelectionKey key = selected.next();
+          selected.remove();
+          if (!key.isValid()) {
+            continue;
+          }
+
+          if (key.isAcceptable()) {
+            accept();
+            continue;
+          }
+
+          final HttpConnection connection = (HttpConnection) key.attachment();
+          if (key.isWritable()) {
+            connection.flush();
+          }
+          if (key.isValid() && key.isReadable()) {
+            read(connection);
+          }
+        }
+
+        final long now = System.currentTimeMillis();
+        if (now >= nextTick) {
+          nextTick = now + TICK_MILLIS;
+          handler.tick();
+          sweep(now);
+        }
+      }
+    } catch (IOException | RuntimeException e) {
+      Diagnostics.log(Level.ERROR, "WebVisualizer", "Event loop failed: {}", e);
+    } finally {
+      for (HttpConnection connection : connections) {
+        connection.close();
+      }
+      connections.clear();
+      try {
+        server.close();
+        selector.close();
+      } catch (IOException e) {
+        //Closing anyways
+      }
+    }
+  }
+
+  private void accept() {
+    while (true) {
+      SocketChannel channel = null;
+      try {
+        channel = server.accept();
+        if (channel == null) {
+          return;
+        }
+        channel.configureBlocking(false);
+        channel.socket().setTcpNoDelay(true);
+        final SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+        final HttpConnection connection = new HttpConnection(channel, key);
+        key.attach(connection);
+        connections.add(connection);
+      } catch (IOException e) {
+        Diagnostics.log(Level.WARN, "WebVisualizer", "Failed to accept a connection: {}", e);
+        if (channel == null) {
+          return;
+        }
+        try {
+          channel.close();
+        } catch (IOException ignored) {
+          //Already failed
+        }
+      }
+    }
+  }
+
+  private void read(HttpConnection connection) {
+    try {
+      if (!connection.read()) {
+        connection.close();
+        return;
+      }
+    } catch (IOException e) {
+      connection.close();
+      return;
+    }
+    serve(connection);
+  }
+
+  /**
+   * Hands the requests read from a connection to the Handler, one at a time
+   */
+  private void serve(HttpConnection connection) {
+    while (!connection.busy && !connection.closed && !connection.closeAfterWrite) {
+      final HttpRequest request;
+      try {
+        request = connection.nextRequest();
+      } catch (HttpException e) {
+        connection.closeAfterWrite = true;
+        connection.enqueue(response(e.status, "text/plain; charset=utf-8", e.getMessage().getBytes(StandardCharsets.UTF_8), false));
+        return;
+      }
+      if (request == null) {
+        return;
+      }
+
+      connection.busy = true;
+      Diagnostics.log(Level.TRACE, "WebVisualizer", "Handling {}", request);
+      try {
+        handler.handle(new HttpExchange(this, connection, request));
+      } catch (RuntimeException e) {
+        Diagnostics.log(Level.ERROR, "WebVisualizer", "Failed to handle {}: {}", request, e);
+        complete(connection, response(500, "text/plain; charset=utf-8", new byte[0], false), false);
+      }
+    }
+  }
+
+  /**
+   * Writes the response to a connection's current request, then moves on to its next request.
+   * Must be called on the event loop.
+   */
+  void complete(HttpConnection connection, ByteBuffer response, boolean keepAlive) {
+    if (connection.closed || !connection.busy) {
+      return;
+    }
+    connection.busy = false;
+    connection.closeAfterWrite = !keepAlive;
+    connection.enqueue(response);
+    serve(connection);
+  }
+
+  /**
+   * Closes idle connections, and forgets closed ones
+   */
+  private void sweep(long now) {
+    final Iterator<HttpConnection> iterator = connections.iterator();
+    while (iterator.hasNext()) {
+      final HttpConnection connection = iterator.next();
+      if (!connection.closed && !connection.busy && connection.isFlushed() && now - connection.lastActive > IDLE_TIMEOUT_MILLIS) {
+        connection.close();
+      }
+      if (connection.closed) {
+        iterator.remove();
+      }
+    }
+  }
+
+  /**
+   * Encodes a response with a complete body
+   * @param status - the status code
+   * @param contentType - the type of the body
+   * @param body - the body
+   * @param keepAlive - whether the connection is kept open after this response
+   * @param headers - further headers, each as "Name: value"
+   * @return the encoded response
+   */
+  static ByteBuffer response(int status, String contentType, byte [] body, boolean keepAlive, String ... headers) {
+    final StringBuilder head = new StringBuilder(256);
+    head.append("HTTP/1.1 ").append(status).append(' ').append(reason(status)).append("\r\n")
+        .append("Content-Type: ").append(contentType).append("\r\n")
+        .append("Content-Length: ").append(body.length).append("\r\n")
+        .append("Cache-Control: no-store\r\n")
+        .append("X-Content-Type-Options: nosniff\r\n");
+    for (String header : headers) {
+      head.append(header).append("\r\n");
+    }
+    if (!keepAlive) {
+      head.append("Connection: close\r\n");
+    }
+    head.append("\r\n");
+
+    final byte [] headBytes = head.toString().getBytes(StandardCharsets.ISO_8859_1);
+    final ByteBuffer response = ByteBuffer.allocate(headBytes.length + body.length);
+    response.put(headBytes).put(body);
+    //Called through Buffer, as ByteBuffer's covariant overrides don't exist on Java 8
+    ((Buffer) response).flip();
+    return response;
+  }
+
+  private static String reason(int status) {
+    switch (status) {
+    case 200: return "OK";
+    case 204: return "No Content";
+    case 400: return "Bad Request";
+    case 403: return "Forbidden";
+    case 404: return "Not Found";
+    case 405: return "Method Not Allowed";
+    case 409: return "Conflict";
+    case 413: return "Payload Too Large";
+    case 422: return "Unprocessable Entity";
+    case 431: return "Request Header Fields Too Large";
+    case 500: return "Internal Server Error";
+    case 501: return "Not Implemented";
+    case 503: return "Service Unavailable";
+    default:  return status < 400 ? "OK" : "Error";
+    }
+  }
+}
@@ -0,0 +1,201 @@
+package jg.aquifer.ui.web;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import jg.aquifer.commands.Program;
+import jg.aquifer.commands.Subcommand;
+import jg.aquifer.commands.options.FileOption;
+import jg.aquifer.commands.options.Flag;
+import jg.aquifer.commands.options.Option;
+import jg.aquifer.commands.options.RadioOption;
+
+/**
+ * Renders a Program as a single HTML page: a form per Subcommand, and the script that verifies
+ * its arguments on the server as they're entered, submits them and streams the run's output.
+ *
+ * Fields are named "o.&lt;option name&gt;", next to a hidden "s" field naming the form's Subcommand.
+ * Arguments to FileOptions are typed in as paths on the server's file system. Every post carries the
+ * server's session token in the X-Aquifer-Token header, which the page is rendered with.
+ *
+ * @author Jose
+ */
+final class PageRenderer {
+
+  private static final String STYLE =
+      "body{font-family:sans-serif;margin:0;color:#222}"
+    + "header{background:#2b3a4a;color:#fff;padding:12px 20px}header h1{margin:0;font-size:1.4em}"
+    + "header p{margin:4px 0 0;opacity:.8}"
+    + "nav{display:flex;flex-wrap:wrap;gap:4px;padding:8px 20px;background:#eef1f4}"
+    + "nav button{border:1px solid #b8c2cc;background:#fff;padding:4px 10px;cursor:pointer}"
+    + "nav button.selected{background:#2b3a4a;color:#fff}"
+    + "main{padding:12px 20px}section{display:none}section.selected{display:block}"
+    + ".option{margin:10px 0}.option label.name{font-weight:bold;display:block}"
+    + ".option input[type=text]{width:min(40em,100%)}.required{color:#b00}"
+    + ".description{color:#666;font-size:.9em}.message{color:#b00;font-size:.9em;min-height:1em}"
+    + ".controls{margin:12px 0;display:flex;gap:8px;align-items:center}"
+    + "pre.output{background:#111;color:#ddd;padding:8px;min-height:4em;max-height:30em;overflow:auto;white-space:pre-wrap}"
+    + "pre.output .err{color:#f77}";
+
+  private static final String SCRIPT =
+      "'use strict';"
+    + "document.querySelectorAll('nav button').forEach(function(tab){"
+    +   "tab.addEventListener('click',function(){"
+    +     "document.querySelectorAll('.selected').forEach(function(e){e.classList.remove('selected');});"
+    +     "tab.classList.add('selected');"
+    +     "document.getElementById(tab.dataset.section).classList.add('selected');"
+    +   "});"
+    + "});"
+    + "var token=document.querySelector('meta[name=aquifer-token]').content;"
+    + "function post(url,body){return fetch(url,{method:'POST',headers:{'X-Aquifer-Token':token},body:body});}"
+    + "document.querySelectorAll('form').forEach(function(form){"
+    +   "var timer=null,sequence=0,source=null,run=null;"
+    +   "var submit=form.querySelector('.run'),cancel=form.querySelector('.cancel'),"
+    +       "status=form.querySelector('.status'),progress=form.querySelector('progress'),"
+    +       "output=form.querySelector('.output');"
+    +   "function body(){return new URLSearchParams(new FormData(form));}"
+    +   "function show(result){"
+    +     "form.querySelectorAll('.option').forEach(function(option){"
+    +       "option.querySelector('.message').textContent=result.messages[option.dataset.option]||'';"
+    +     "});"
+    +     "submit.disabled=!result.complete||running();"
+    +   "}"
+    +   "function running(){return source!==null;}"
+    //Errors the server rejects a request with (ex: a 403 or a 503) are plain text, not JSON
+    +   "function reply(r){"
+    +     "if((r.headers.get('Content-Type')||'').indexOf('application/json')===0){return r.json();}"
+    +     "return r.text().then(function(text){status.textContent=text||r.status+' '+r.statusText;return null;});"
+    +   "}"
+    +   "function verify(){"
+    +     "var current=++sequence;"
+    +     "post('verify',body()).then(reply)"
+    +       ".then(function(result){if(result&&current===sequence){show(result);}});"
+    +   "}"
+    +   "function append(text,type){"
+    +     "var span=document.createElement('span');span.className=type;span.textContent=text;"
+    +     "output.appendChild(span);output.scrollTop=output.scrollHeight;"
+    +   "}"
+    +   "form.addEventListener('input',function(){clearTimeout(timer);timer=setTimeout(verify,150);});"
+    +   "form.addEventListener('submit',function(event){"
+    +     "event.preventDefault();"
+    +     "post('run',body()).then(function(r){"
+    +       "return reply(r).then(function(result){"
+    +         "if(!result){return;}"
+    +         "if(!r.ok){show(result);return;}"
+    +         "run=result.run;output.textContent='';status.textContent='Running';"
+    +         "progress.removeAttribute('value');progress.hidden=false;"
+    +         "submit.disabled=true;cancel.disabled=false;"
+    +         "source=new EventSource('runs/'+run+'/events');"
+    +         "source.addEventListener('out',function(e){append(JSON.parse(e.data),'out');});"
+    +         "source.addEventListener('err',function(e){append(JSON.parse(e.data),'err');});"
+    +         "source.addEventListener('progress',function(e){"
+    +           "var value=parseFloat(e.data);if(value>=0){progress.value=value;}"
+    +         "});"
+    +         "source.addEventListener('end',function(e){"
+    +           "var end=JSON.parse(e.data);"
+    +           "status.textContent=end.status+(end.message?': '+end.message:'');"
+    +           "source.close();source=null;progress.hidden=true;cancel.disabled=true;verify();"
+    +         "});"
+    +       "});"
+    +     "});"
+    +   "});"
+    +   "cancel.addEventListener('click',function(){if(run){post('runs/'+run+'/cancel');}});"
+    +   "verify();"
+    + "});";
+
+  private PageRenderer() {}
+
+  /**
+   * Renders the page of a Program
+   * @param program - the Program to render
+   * @param token - the session token posts must carry
+   * @return the page's HTML
+   */
+  static String render(Program program, String token) {
+    final List<Subcommand> subcommands = new ArrayList<>(program.getSubcommands().values());
+    subcommands.remove(program.getProgramOptions());
+    subcommands.sort((a, b) -> a.getName().compareTo(b.getName()));
+    subcommands.add(0, program.getProgramOptions());
+
+    final StringBuilder html = new StringBuilder(4096);
+    html.append("<!DOCTYPE html>\n<html><head><meta charset=\"utf-8\">")
+        .append("<meta name=\"viewport\" content=\"width=device-width,initial-scale=1\">")
+        .append("<meta name=\"aquifer-token\" content=\"").append(Escape.html(token)).append("\">")
+        .append("<title>").append(Escape.html(program.getName())).append("</title>")
+        .append("<style>").append(STYLE).append("</style></head><body>")
+        .append("<header><h1>").append(Escape.html(program.getName())).append("</h1>");
+    if (program.getDescription() != null && !program.getDescription().isEmpty()) {
+      html.append("<p>").append(Escape.html(program.getDescription())).append("</p>");
+    }
+    html.append("</header><nav>");
+
+    for (int i = 0; i < subcommands.size(); i++) {
+      html.append("<button type=\"button\" data-section=\"s").append(i).append('"')
+          .append(i == 0 ? " class=\"selected\"" : "").append('>')
+          .append(Escape.html(subcommands.get(i).getName())).append("</button>");
+    }
+    html.append("</nav><main>");
+
+    for (int i = 0; i < subcommands.size(); i++) {
+      renderSubcommand(html, subcommands.get(i), i);
+    }
+
+    return html.append("</main><script>").append(SCRIPT).append("</script></body></html>\n").toString();
+  }
+
+  private static void renderSubcommand(StringBuilder html, Subcommand subcommand, int index) {
+    html.append("<section id=\"s").append(index).append('"').append(index == 0 ? " class=\"selected\"" : "").append('>');
+    if (subcommand.getDescription() != null && !subcommand.getDescription().isEmpty()) {
+      html.append("<p>").append(Escape.html(subcommand.getDescription())).append("</p>");
+    }
+    html.append("<form autocomplete=\"off\"><input type=\"hidden\" name=\"s\" value=\"")
+        .append(Escape.html(subcommand.getName())).append("\">");
+
+    //Required Options first, as on the command line
+    final List<Option> options = new ArrayList<>(subcommand.getOptions().values());
+    options.sort((a, b) -> a.isRequired() != b.isRequired() ? (a.isRequired() ? -1 : 1) : a.getOptName().compareTo(b.getOptName()));
+
+    int field = 0;
+    for (Option option : options) {
+      final String name = Escape.html(option.getOptName());
+      final String id = "f"+index+"_"+(field++);
+
+      html.append("<div class=\"option\" data-option=\"").append(name).append("\">");
+      if (option instanceof Flag) {
+        html.append("<label class=\"name\"><input type=\"checkbox\" name=\"o.").append(name)
+            .append("\" value=\"").append(Flag.VALUE_PLACE_HOLDER).append("\"> ").append(name).append("</label>");
+      }
+      else if (option instanceof RadioOption) {
+        html.append("<label class=\"name\">").append(name);
+        appendRequired(html, option);
+        html.append("</label>");
+        for (String choice : ((RadioOption) option).getChoices()) {
+          html.append("<label><input type=\"radio\" name=\"o.").append(name).append("\" value=\"")
+              .append(Escape.html(choice)).append("\"> ").append(Escape.html(choice)).append("</label> ");
+        }
+      }
+      else {
+        html.append("<label class=\"name\" for=\"").append(id).append("\">").append(name);
+        appendRequired(html, option);
+        html.append("</label><input type=\"text\" id=\"").append(id).append("\" name=\"o.").append(name).append('"');
+        if (option instanceof FileOption) {
+          html.append(" placeholder=\"Path on the server\"");
+        }
+        html.append('>');
+      }
+      html.append("<div class=\"description\">").append(Escape.html(option.getDescription())).append("</div>")
+          .append("<div class=\"message\"></div></div>");
+    }
+
+    html.append("<div class=\"controls\"><button type=\"submit\" class=\"run\" disabled>Run</button>")
+        .append("<button type=\"button\" class=\"cancel\" disabled>Cancel</button>")
+        .append("<progress hidden></progress><span class=\"status\"></span></div>")
+        .append("<pre class=\"output\"></pre></form></section>");
+  }
+
+  private static void appendRequired(StringBuilder html, Option option) {
+    if (option.isRequired()) {
+      html.append("<span class=\"required\" title=\"Required\">*</span>");
+    }
+  }
+}
@@ -0,0 +1,255 @@
+package jg.aquifer.ui.web;
+
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+
+import jg.aquifer.IntakeHandle;
+import jg.aquifer.Output;
+
+/**
+ * A submission made through a WebVisualizer, and the events it has streamed so far.
+ *
+ * What the Intake prints is published as "out" and "err" events, each holding a chunk of text
+ * (flushed at line ends), and the run finishes with an "end" event. Every subscriber is first sent
+ * the events it missed - the whole run for a new one, or what followed the last event it read for
+ * a reconnecting one - from a bounded history. Progress is sent as "progress" events without ids,
+ * as only the latest matters.
+ *
+ * @author Jose
+ */
+final class WebRun {
+
+  /**
+   * The most characters of output kept for replay. Older events are dropped past it.
+   */
+  static final int MAX_HISTORY_CHARS = 1024 * 1024;
+
+  /**
+   * The most characters of a line held back before publishing it anyways
+   */
+  static final int MAX_CHUNK_CHARS = 8192;
+
+  private final String id;
+  private final ArrayDeque<Event> history;
+  private final List<EventStream> subscribers;
+  private final EventWriter out;
+  private final EventWriter err;
+
+  private IntakeHandle handle;
+  private long lastId;
+  private int historyChars;
+  private double progress;
+  private boolean ended;
+  private long endedAt;
+
+  WebRun(String id) {
+    this.id = id;
+    this.history = new ArrayDeque<>();
+    this.subscribers = new ArrayList<>();
+    this.out = new EventWriter("out");
+    this.err = new EventWriter("err");
+    this.progress = -1;
+  }
+
+  /**
+   * @return an Output publishing what's printed to it as events of this run
+   */
+  Output newOutput() {
+    return new Output(new PrintWriter(out), new PrintWriter(err));
+  }
+
+  /**
+   * Ties this run to its submission, finishing it once the submission completes
+   */
+  void setHandle(IntakeHandle handle) {
+    synchronized (this) {
+      this.handle = handle;
+    }
+    handle.getCompletion().whenComplete((result, failure) -> finish(failure));
+  }
+
+  /**
+   * Sends a stream the events of this run following an id, then keeps it subscribed until the run ends
+   * @param stream - the subscribing EventStream
+   * @param lastEventId - the id of the last event the stream's client read, or 0 if it's read none
+   */
+  synchronized void subscribe(EventStream stream, long lastEventId) {
+    for (Event event : history) {
+      if (event.id > lastEventId) {
+        stream.send(event.name, event.id, event.data);
+      }
+    }
+    if (progress >= 0) {
+      stream.send("progress", 0, Double.toString(progress));
+    }
+
+    if (ended) {
+      stream.close();
+      return;
+    }
+    subscribers.add(stream);
+    stream.setCloseListener(() -> unsubscribe(stream));
+  }
+
+  private synchronized void unsubscribe(EventStream stream) {
+    subscribers.remove(stream);
+  }
+
+  /**
+   * Publishes an event to the history and every subscriber
+   */
+  private synchronized void publish(String name, String data) {
+    if (ended) {
+      //Output printed after a cancellation
+      return;
+    }
+
+    final Event event = new Event(++lastId, name, data);
+    history.add(event);
+    historyChars += data.length();
+    while (historyChars > MAX_HISTORY_CHARS && history.size() > 1) {
+      historyChars -= history.poll().data.length();
+    }
+
+    for (EventStream subscriber : subscribers) {
+      subscriber.send(name, event.id, data);
+    }
+  }
+
+  /**
+   * Sends the latest progress of the run to its subscribers, if it changed
+   */
+  synchronized void updateProgress() {
+    if (handle == null || ended || handle.getProgress() == progress) {
+      return;
+    }
+    progress = handle.getProgress();
+    for (EventStream subscriber : subscribers) {
+      subscriber.send("progress", 0, Double.toString(progress));
+    }
+  }
+
+  private void finish(Throwable failure) {
+    final Throwable cause = failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+
+    final StringBuilder end = new StringBuilder("{\"status\":");
+    if (cause == null) {
+      end.append("\"completed\"");
+    }
+    else if (cause instanceof CancellationException) {
+      end.append("\"cancelled\"");
+    }
+    else {
+      end.append("\"failed\",\"message\":");
+      Escape.json(end, String.valueOf(cause));
+    }
+    end.append('}');
+
+    //The run may complete before its Output is flushed
+    out.flushLocked();
+    err.flushLocked();
+
+    synchronized (this) {
+      publish("end", end.toString());
+      ended = true;
+      endedAt = System.currentTimeMillis();
+      for (EventStream subscriber : subscribers) {
+        subscriber.close();
+      }
+      subscribers.clear();
+    }
+  }
+
+  /**
+   * Cancels the run
+   * @return whether this call cancelled it
+   */
+  boolean cancel() {
+    final IntakeHandle currentHandle;
+    synchronized (this) {
+      currentHandle = handle;
+    }
+    return currentHandle != null && currentHandle.cancel();
+  }
+
+  /**
+   * @return whether the run ended before a time, in milliseconds
+   */
+  synchronized boolean endedBefore(long time) {
+    return ended && endedAt < time;
+  }
+
+  String getId() {
+    return id;
+  }
+
+  private static final class Event {
+
+    final long id;
+    final String name;
+    final String data;
+
+    Event(long id, String name, String data) {
+      this.id = id;
+      this.name = name;
+      this.data = data;
+    }
+  }
+
+  /**
+   * Publishes what's written to it as events, at line ends, when flushed and when lines grow too long.
+   * Its PrintWriter serializes writes to it, by locking on it.
+   */
+  private final class EventWriter extends Writer {
+
+    private final String name;
+    private final StringBuilder pending;
+
+    EventWriter(String name) {
+      this.name = name;
+      this.pending = new StringBuilder();
+    }
+
+    @Override
+    public void write(char [] chars, int offset, int length) {
+      pending.append(chars, offset, length);
+      if (pending.length() >= MAX_CHUNK_CHARS) {
+        flush();
+        return;
+      }
+      for (int i = offset + length - 1; i >= offset; i--) {
+        if (chars[i] == '\n') {
+          flush();
+          return;
+        }
+      }
+    }
+
+    @Override
+    public void flush() {
+      if (pending.length() > 0) {
+        publish(name, Escape.json(pending.toString()));
+        pending.setLength(0);
+      }
+    }
+
+    @Override
+    public void close() {
+      flush();
+    }
+
+    /**
+     * Flushes from outside of the PrintWriter, which locks on this Writer
+     */
+    void flushLocked() {
+      synchronized (lock) {
+        flush();
+      }
+    }
+  }
+}
@@ -0,0 +1,488 @@
+package jg.aquifer.ui.web;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import jg.aquifer.Diagnostics;
+import jg.aquifer.Diagnostics.Level;
+import jg.aquifer.Intake;
+import jg.aquifer.IntakeExecutor;
+import jg.aquifer.IntakeHandle;
+import jg.aquifer.commands.Program;
+import jg.aquifer.commands.Subcommand;
+import jg.aquifer.commands.SubcommandSchema;
+import jg.aquifer.commands.options.Flag;
+import jg.aquifer.commands.options.Option;
+import jg.aquifer.ui.IncompleteException;
+import jg.aquifer.ui.RawArgumentForm;
+import jg.aquifer.ui.TypedArguments;
+import jg.aquifer.ui.Value;
+import jg.aquifer.ui.web.HttpConnection.HttpException;
+
+/**
+ * Renders a Program as HTML forms served by an embedded HTTP server - the browser-based counterpart of Visualizer.
+ *
+ * Arguments are verified on the server by the Program's Verifiers as they're entered, submitted to the Intake
+ * through an IntakeExecutor, and the run's Output is streamed back to the browser as Server-Sent Events.
+ * The server runs on a single non-blocking event loop Thread, so any amount of browser sessions - each
+ * with its own form and runs - can be served at once, with Verifiers and Intakes run on their own Threads.
+ *
+ * By default, the server only listens on the loopback interface and only answers requests addressed to
+ * "localhost", "127.0.0.1" or "[::1]" (guarding against DNS rebinding), and rejects form posts from other origins.
+ * Whatever the address, every post must also carry the token of the server's session, which is only
+ * handed out within the Program's page (see TOKEN_HEADER):
+ * <pre>
+ * final WebVisualizer visualizer = new WebVisualizer(program, intake);
+ * visualizer.start(8080);
+ * System.out.println("Open "+visualizer.getUri());
+ * </pre>
+ *
+ * Like CommandLineRunner, a WebVisualizer never touches JavaFX.
+ *
+ * @author Jose
+ */
+public class WebVisualizer {
+
+  /**
+   * Time, in milliseconds, a run is kept around for its output to be read once it has ended
+   */
+  public static final long RUN_RETENTION_MILLIS = 5 * 60_000;
+
+  /**
+   * Header in which posts carry the session token. Being a custom header, it also keeps other origins
+   * from posting without a CORS preflight, which the server never grants.
+   */
+  public static final String TOKEN_HEADER = "X-Aquifer-Token";
+
+  private static final String PAGE_SECURITY_POLICY = "Content-Security-Policy: default-src 'none'; "
+                                                    + "script-src 'unsafe-inline'; style-src 'unsafe-inline'; "
+                                                    + "connect-src 'self'; form-action 'self'; frame-ancestors 'none'";
+
+  private final Program program;
+  private final Intake intake;
+  private final Map<String, WebRun> runs;
+  private final SecureRandom random;
+
+  private IntakeExecutor intakeExecutor;
+  private ExecutorService verificationService;
+  private boolean ownsIntakeExecutor;
+  private boolean ownsVerificationService;
+
+  private HttpServer server;
+  private InetSocketAddress address;
+  private boolean loopbackOnly;
+  private String token;
+  private byte [] page;
+
+  /**
+   * Constructs a WebVisualizer
+   * @param program - the Program to render
+   * @param intake - the Intake to submit arguments to
+   */
+  public WebVisualizer(Program program, Intake intake) {
+    this.program = program;
+    this.intake = intake;
+    this.runs = new ConcurrentHashMap<>();
+    this.random = new SecureRandom();
+  }
+
+  /**
+   * Sets the IntakeExecutor runs are submitted through. By default, one is created by IntakeExecutor.create()
+   * when the server starts, and shut down when it stops.
+   * @param intakeExecutor - the IntakeExecutor to use
+   */
+  public void setIntakeExecutor(IntakeExecutor intakeExecutor) {
+    this.intakeExecutor = intakeExecutor;
+  }
+
+  /**
+   * Sets the ExecutorService Verifiers are run on. By default, a pool of daemon Threads
+   * (one per available processor) is created when the server starts, and shut down when it stops.
+   * @param verificationService - the ExecutorService to use
+   */
+  public void setVerificationService(ExecutorService verificationService) {
+    this.verificationService = verificationService;
+  }
+
+  /**
+   * Starts serving on the loopback interface
+   * @param port - the port to listen on, or 0 for any free port (see getPort())
+   * @throws IOException if the port couldn't be bound
+   */
+  public void start(int port) throws IOException {
+    start(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+  }
+
+  /**
+   * Starts serving on an address.
+   *
+   * Note: Anyone who can reach the address can run the Program. Unless it's a loopback address,
+   * requests are accepted whatever host they're addressed to.
+   * @param address - the address to listen on
+   * @throws IOException if the address couldn't be bound
+   */
+  public synchronized void start(InetSocketAddress address) throws IOException {
+    if (server != null) {
+      throw new IllegalStateException("The WebVisualizer has already been started");
+    }
+
+    token = newToken(16);
+    page = PageRenderer.render(program, token).getBytes(StandardCharsets.UTF_8);
+    loopbackOnly = address.getAddress() != null && address.getAddress().isLoopbackAddress();
+
+    ownsIntakeExecutor = intakeExecutor == null;
+    if (ownsIntakeExecutor) {
+      intakeExecutor = IntakeExecutor.create();
+    }
+    ownsVerificationService = verificationService == null;
+    if (ownsVerificationService) {
+      final AtomicInteger threadCount = new AtomicInteger();
+      verificationService = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), (runnable) -> {
+        final Thread thread = new Thread(runnable, "aquifer-web-verifier-"+threadCount.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
+
+    server = new HttpServer(new HttpServer.Handler() {
+      @Override
+      public void handle(HttpExchange exchange) {
+        WebVisualizer.this.handle(exchange);
+      }
+
+      @Override
+      public void tick() {
+        WebVisualizer.this.tick();
+      }
+    });
+    this.address = server.start(address, "aquifer-web-"+program.getName());
+    Diagnostics.log(Level.INFO, "WebVisualizer", "Serving '{}' on {}", program.getName(), getUri());
+  }
+
+  /**
+   * Stops serving, closing every connection. Runs in progress are left to finish.
+   */
+  public synchronized void stop() {
+    if (server == null) {
+      return;
+    }
+    server.stop();
+    server = null;
+
+    if (ownsIntakeExecutor) {
+      intakeExecutor.shutdown();
+      intakeExecutor = null;
+    }
+    if (ownsVerificationService) {
+      verificationService.shutdown();
+      verificationService = null;
+    }
+  }
+
+  /**
+   * @return the port being listened on
+   */
+  public int getPort() {
+    return address.getPort();
+  }
+
+  /**
+   * @return the URI of the Program's page
+   */
+  public URI getUri() {
+    final String host = loopbackOnly ? "localhost" : address.getAddress().isAnyLocalAddress() ?
+                                                     InetAddress.getLoopbackAddress().getHostAddress() :
+                                                     address.getHostString();
+    return URI.create("http://"+(host.contains(":") ? "["+host+"]" : host)+":"+address.getPort()+"/");
+  }
+
+  private void handle(HttpExchange exchange) {
+    final HttpRequest request = exchange.getRequest();
+    if (!isAllowed(request)) {
+      exchange.respond(403, "text/plain", "Forbidden");
+      return;
+    }
+
+    final String path = request.getPath();
+    final boolean isPost = request.getMethod().equals("POST");
+    if (isPost && !hasToken(request)) {
+      exchange.respond(403, "text/plain", "Missing or wrong session token");
+      return;
+    }
+    if (path.equals("/")) {
+      if (!request.getMethod().equals("GET")) {
+        exchange.respond(405, "text/plain", "Method not allowed", "Allow: GET");
+        return;
+      }
+      exchange.respond(200, "text/html; charset=utf-8", page, PAGE_SECURITY_POLICY);
+    }
+    else if (path.equals("/verify") && isPost) {
+      dispatch(exchange, () -> verify(exchange));
+    }
+    else if (path.equals("/run") && isPost) {
+      dispatch(exchange, () -> run(exchange));
+    }
+    else if (path.startsWith("/runs/")) {
+      handleRun(exchange, path.substring("/runs/".length()), isPost);
+    }
+    else {
+      exchange.respond(404, "text/plain", "Not found");
+    }
+  }
+
+  /**
+   * @return whether a request may be served - when only serving the loopback interface, it must be addressed to it,
+   *         and posts must come from its own pages
+   */
+  private boolean isAllowed(HttpRequest request) {
+    if (!loopbackOnly) {
+      return true;
+    }
+
+    final String host = request.getHeader("host");
+    if (host == null || !isLoopbackHost(host)) {
+      return false;
+    }
+
+    final String origin = request.getHeader("origin");
+    return origin == null || origin.equals("http://"+host);
+  }
+
+  /**
+   * @return whether a Host header names the loopback interface - exactly, as a name merely starting
+   *         with "127." (ex: 127.attacker.com) may resolve anywhere
+   */
+  static boolean isLoopbackHost(String host) {
+    final int portStart = host.startsWith("[") ? host.indexOf(']') + 1 : host.indexOf(':');
+    final String name = portStart <= 0 ? host : host.substring(0, portStart);
+    if (portStart > 0 && portStart < host.length()) {
+      final String port = host.substring(portStart);
+      if (port.length() < 2 || port.charAt(0) != ':' || !isDigits(port.substring(1))) {
+        return false;
+      }
+    }
+    return name.equalsIgnoreCase("localhost") || name.equals("127.0.0.1") || name.equals("[::1]");
+  }
+
+  private static boolean isDigits(String string) {
+    for (int i = 0; i < string.length(); i++) {
+      if (string.charAt(i) < '0' || string.charAt(i) > '9') {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @return whether a request carries the session token, compared in constant time
+   */
+  private boolean hasToken(HttpRequest request) {
+    final String given = request.getHeader(TOKEN_HEADER.toLowerCase(Locale.ROOT));
+    return given != null && MessageDigest.isEqual(given.getBytes(StandardCharsets.UTF_8), token.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private void handleRun(HttpExchange exchange, String rest, boolean isPost) {
+    final int slash = rest.indexOf('/');
+    final WebRun run = slash < 0 ? null : runs.get(rest.substring(0, slash));
+    if (run == null) {
+      exchange.respond(404, "text/plain", "Unknown run");
+      return;
+    }
+
+    final String action = rest.substring(slash + 1);
+    if (action.equals("events") && !isPost) {
+      long lastEventId = 0;
+      final String header = exchange.getRequest().getHeader("last-event-id");
+      if (header != null) {
+        try {
+          lastEventId = Long.parseLong(header);
+        } catch (NumberFormatException e) {
+          //Replay everything
+        }
+      }
+      run.subscribe(exchange.openEventStream(), lastEventId);
+    }
+    else if (action.equals("cancel") && isPost) {
+      run.cancel();
+      exchange.respond(204, "text/plain", new byte[0]);
+    }
+    else {
+      exchange.respond(404, "text/plain", "Not found");
+    }
+  }
+
+  /**
+   * Runs the handling of a request off of the event loop, as Verifiers may take their time
+   */
+  private void dispatch(HttpExchange exchange, Runnable handling) {
+    try {
+      verificationService.execute(() -> {
+        try {
+          handling.run();
+        } catch (RuntimeException e) {
+          Diagnostics.log(Level.ERROR, "WebVisualizer", "Failed to handle {}: {}", exchange.getRequest(), e);
+          exchange.respond(500, "text/plain", "Internal error");
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      exchange.respond(503, "text/plain", "Shutting down");
+    }
+  }
+
+  /**
+   * Verifies a form's arguments, responding with the messages of rejected ones and whether the form is complete
+   */
+  private void verify(HttpExchange exchange) {
+    final RawArgumentForm form;
+    try {
+      form = readForm(exchange.getRequest());
+    } catch (HttpException e) {
+      exchange.respond(e.status, "text/plain", e.getMessage());
+      return;
+    }
+
+    final Map<String, String> rejections = form.verifyAll();
+    exchange.respond(200, "application/json", verification(form, rejections).append('}').toString());
+  }
+
+  /**
+   * Verifies a form's arguments and submits them to the Intake, responding with the id of the run
+   */
+  private void run(HttpExchange exchange) {
+    final RawArgumentForm form;
+    try {
+      form = readForm(exchange.getRequest());
+    } catch (HttpException e) {
+      exchange.respond(e.status, "text/plain", e.getMessage());
+      return;
+    }
+
+    final Map<String, String> rejections = form.verifyAll();
+    TypedArguments arguments = null;
+    if (rejections.isEmpty()) {
+      try {
+        arguments = TypedArguments.from(form);
+      } catch (IncompleteException e) {
+        //Responded to below, along with the missing Options
+      }
+    }
+    if (arguments == null) {
+      exchange.respond(422, "application/json", verification(form, rejections).append('}').toString());
+      return;
+    }
+
+    final WebRun run = new WebRun(newToken(12));
+    runs.put(run.getId(), run);
+
+    final String subcommand = form.getSubcommand().getName();
+    Diagnostics.log(Level.DEBUG, "WebVisualizer", "Submitting {} as run {}", arguments, run.getId());
+    final IntakeHandle handle;
+    try {
+      handle = intakeExecutor.submit(intake, subcommand, arguments, run.newOutput());
+    } catch (RejectedExecutionException e) {
+      runs.remove(run.getId());
+      exchange.respond(503, "text/plain", "Shutting down");
+      return;
+    }
+    run.setHandle(handle);
+
+    exchange.respond(200, "application/json", "{\"run\":"+Escape.json(run.getId())+"}");
+  }
+
+  /**
+   * Reads the arguments of a posted form: its Subcommand's name as "s", and its arguments as "o.&lt;option name&gt;"
+   */
+  private RawArgumentForm readForm(HttpRequest request) throws HttpException {
+    final Map<String, String> fields = request.getForm();
+    final String name = fields.get("s");
+    final Subcommand subcommand = name == null ? null : program.getSubcommands().get(name);
+    if (subcommand == null) {
+      throw new HttpException(400, "Unknown subcommand");
+    }
+
+    final SubcommandSchema schema = subcommand.getSchema();
+    final RawArgumentForm form = new RawArgumentForm(subcommand, null);
+    for (Map.Entry<String, String> field : fields.entrySet()) {
+      if (!field.getKey().startsWith("o.") || field.getValue().isEmpty()) {
+        continue;
+      }
+
+      final int id = schema.getId(field.getKey().substring(2));
+      if (id < 0) {
+        throw new HttpException(400, "Unknown option '"+field.getKey().substring(2)+"'");
+      }
+      final Option option = schema.getOption(id);
+      form.setOptionArgument(option, new Value().setValue(option instanceof Flag ? Flag.VALUE_PLACE_HOLDER : field.getValue()));
+    }
+    return form;
+  }
+
+  /**
+   * Writes the outcome of a verification as an unterminated JSON object
+   */
+  private static StringBuilder verification(RawArgumentForm form, Map<String, String> rejections) {
+    final StringBuilder json = new StringBuilder("{\"messages\":{");
+    for (Map.Entry<String, String> rejection : rejections.entrySet()) {
+      if (json.charAt(json.length() - 1) != '{') {
+        json.append(',');
+      }
+      Escape.json(json, rejection.getKey()).append(':');
+      Escape.json(json, rejection.getValue() == null ? "Invalid argument" : rejection.getValue());
+    }
+
+    json.append("},\"missing\":[");
+    final Set<String> missing = form.getMissing();
+    for (String optName : missing) {
+      if (json.charAt(json.length() - 1) != '[') {
+        json.append(',');
+      }
+      Escape.json(json, optName);
+    }
+    return json.append("],\"complete\":").append(rejections.isEmpty() && missing.isEmpty());
+  }
+
+  /**
+   * @return a random, unguessable hexadecimal string of the given amount of bytes
+   */
+  private String newToken(int length) {
+    final byte [] bytes = new byte[length];
+    random.nextBytes(bytes);
+
+    final StringBuilder id = new StringBuilder(bytes.length * 2);
+    for (byte b : bytes) {
+      id.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+    }
+    return id.toString();
+  }
+
+  /**
+   * Forgets runs that ended long ago, and streams the progress of the others
+   */
+  private void tick() {
+    final long expiry = System.currentTimeMillis() - RUN_RETENTION_MILLIS;
+    final Iterator<WebRun> iterator = runs.values().iterator();
+    while (iterator.hasNext()) {
+      final WebRun run = iterator.next();
+      if (run.endedBefore(expiry)) {
+        iterator.remove();
+      }
+      else {
+        run.updateProgress();
+      }
+    }
+  }
+}
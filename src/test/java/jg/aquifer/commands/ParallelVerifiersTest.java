@@ -0,0 +1,159 @@
+package jg.aquifer.commands;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Checks that Verifier.checkAllParallel() and Verifier.allParallel() report as their sequential counterparts do,
+ * and how they handle timeouts, cancellation and interrupts
+ * @author Jose
+ */
+public class ParallelVerifiersTest {
+
+  private static final long TIMEOUT = 5000;
+
+  private final ExecutorService executor = Executors.newCachedThreadPool();
+
+  /**
+   * Counted down by Verifiers from blocking() once they're interrupted
+   */
+  private final CountDownLatch interrupted = new CountDownLatch(1);
+
+  @After
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void checkAllParallelKeepsTheOrderOfCheckAll() {
+    //Later Verifiers finish first
+    final Verifier [] verifiers = {
+        failing("first", 0), failing("second", 200), passing(0), failing("third", 100), failing("fourth", 0)
+    };
+
+    final VerificationResult sequential = new VerificationResult();
+    final VerificationResult parallel = new VerificationResult();
+
+    assertFalse(Verifier.checkAll(verifiers).check(null, null, "arg", sequential));
+    assertFalse(Verifier.checkAllParallel(executor, TIMEOUT, verifiers).check(null, null, "arg", parallel));
+    assertEquals(sequential.getMessage(), parallel.getMessage());
+    assertFalse(parallel.isTransient());
+  }
+
+  @Test
+  public void checkAllParallelPassesWhenAllPass() {
+    final VerificationResult result = new VerificationResult();
+
+    assertTrue(Verifier.checkAllParallel(executor, TIMEOUT, passing(0), Verifier.WHOLE_NUM, passing(50)).check(null, null, "12", result));
+    assertTrue(result.isPassed());
+    assertEquals(12, result.getLong());
+  }
+
+  @Test
+  public void timesOutTransiently() {
+    final VerificationResult result = new VerificationResult();
+
+    assertFalse(Verifier.checkAllParallel(executor, 100, passing(0), blocking()).check(null, null, "arg", result));
+    assertEquals(ParallelVerifiers.TIMED_OUT, result.getMessage());
+    assertTrue(result.isTransient());
+  }
+
+  @Test
+  public void timeoutsArentCached() {
+    final AtomicInteger calls = new AtomicInteger();
+    final Verifier counted = Verifier.pure((op, form, arg) -> calls.incrementAndGet());
+    final Verifier timingOut = Verifier.checkAllParallel(executor, 100, counted, Verifier.pure(blocking()));
+    final VerificationCache cache = new VerificationCache();
+
+    assertFalse(cache.check(timingOut, null, null, "arg", new VerificationResult()));
+    assertFalse(cache.check(timingOut, null, null, "arg", new VerificationResult()));
+    assertEquals(2, calls.get());
+    assertEquals(0, cache.size());
+  }
+
+  @Test
+  public void allParallelCancelsTheRestOnTheFirstFailure() throws InterruptedException {
+    final VerificationResult result = new VerificationResult();
+
+    assertFalse(Verifier.allParallel(executor, TIMEOUT, passing(0), blocking(), failing("failed", 50)).check(null, null, "arg", result));
+    assertEquals("failed", result.getMessage());
+    assertFalse(result.isTransient());
+    assertTrue("The blocked Verifier wasn't cancelled", interrupted.await(TIMEOUT, TimeUnit.MILLISECONDS));
+  }
+
+  @Test
+  public void allParallelTimesOutTransiently() {
+    final VerificationResult result = new VerificationResult();
+
+    assertFalse(Verifier.allParallel(executor, 100, passing(0), blocking()).check(null, null, "arg", result));
+    assertEquals(ParallelVerifiers.TIMED_OUT, result.getMessage());
+    assertTrue(result.isTransient());
+  }
+
+  @Test
+  public void interruptsFailTransiently() {
+    //The first Verifier runs on the verifying Thread, so interrupting from it interrupts the wait for the others
+    final Verifier interrupting = Verifier.checking((op, form, arg, result) -> {
+      Thread.currentThread().interrupt();
+      return true;
+    });
+
+    final VerificationResult checkAll = new VerificationResult();
+    assertFalse(Verifier.checkAllParallel(executor, TIMEOUT, interrupting, blocking()).check(null, null, "arg", checkAll));
+    assertTrue("The interrupt wasn't restored", Thread.interrupted());
+    assertEquals("Verification was interrupted", checkAll.getMessage());
+    assertTrue(checkAll.isTransient());
+
+    final VerificationResult all = new VerificationResult();
+    assertFalse(Verifier.allParallel(executor, TIMEOUT, interrupting, blocking()).check(null, null, "arg", all));
+    assertTrue("The interrupt wasn't restored", Thread.interrupted());
+    assertEquals("Verification was interrupted", all.getMessage());
+    assertTrue(all.isTransient());
+  }
+
+  private static Verifier passing(long delayMillis) {
+    return Verifier.checking((op, form, arg, result) -> {
+      sleep(delayMillis);
+      return true;
+    });
+  }
+
+  private static Verifier failing(String message, long delayMillis) {
+    return Verifier.checking((op, form, arg, result) -> {
+      sleep(delayMillis);
+      return result.fail(message);
+    });
+  }
+
+  /**
+   * @return a Verifier that blocks until it's interrupted
+   */
+  private Verifier blocking() {
+    return Verifier.checking((op, form, arg, result) -> {
+      try {
+        Thread.sleep(Long.MAX_VALUE);
+      } catch (InterruptedException e) {
+        interrupted.countDown();
+      }
+      return result.fail("Interrupted");
+    });
+  }
+
+  private static void sleep(long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,139 @@
+package jg.aquifer.commands;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Checks that the hand-written Parsers accept exactly what - and parse exactly as - their java.lang counterparts do
+ * @author Jose
+ */
+public class ParsersTest {
+
+  private static final String [] LONGS = {
+      "0", "-0", "+0", "7", "-7", "+7", "007", "-007",
+      "2147483647", "2147483648", "-2147483648", "-2147483649",
+      "9223372036854775807", "9223372036854775808", "-9223372036854775808", "-9223372036854775809",
+      "92233720368547758070", "-92233720368547758080", "99999999999999999999",
+      "", "-", "+", "--1", "+-1", "-+1", "1-", "1+", "1 ", " 1", "1_000", "1.0", "1e3", "0x10", "a", "١٢٣"
+  };
+
+  private static final String [] DOUBLES = {
+      "0", "-0", "+0", "0.0", "-0.0", "1", "1.", ".5", "-.5", "+.5", ".", "-.", "1.5", "001.500",
+      "1e3", "1E3", "1e+3", "1e-3", "1.5e10", ".5e1", "1.e1", "1e", "1e+", "1e-", "e1", ".e1", "1e1.5", "1e1e1",
+      "1e400", "-1e400", "1e-400", "4.9e-324", "1.7976931348623157e308", "1.7976931348623159e308",
+      "NaN", "-NaN", "+NaN", "nan", "Infinity", "-Infinity", "+Infinity", "infinity", "Inf", "NaNd", "Infinityf",
+      "1f", "1F", "1d", "1D", "1.5f", "1e3d", "1ff", "1fd", "f", "d", ".f", "1L",
+      "0x1p3", "0X1P3", "0x1.8p1", "-0x1p-2", "0x.8p1", "0x1.p1", "0xp1", "0x1", "0x1.8", "0x1p", "0x1pf", "0x1p3f", "0xg1p1",
+      " 1", "1 ", "\t1.5\n", " NaN ", "\u00001\u0000", " ", "", "1 1", "- 1", "+-1", "--1", "1,5", "١.٥"
+  };
+
+  private static final String [] BOOLEANS = {
+      "true", "false", "TRUE", "False", " true ", "\ttrue\n", "tru", "truee", "yes", "1", "", " "
+  };
+
+  @Test
+  public void parseLongMatchesLongParseLong() {
+    for (String arg : LONGS) {
+      assertLong(arg);
+    }
+  }
+
+  @Test
+  public void parseLongMatchesIntegerParseIntWithinTheIntRange() {
+    for (String arg : LONGS) {
+      final Integer expected = parseIntOrNull(arg);
+      if (expected != null) {
+        final ParsedValue parsed = new ParsedValue();
+        assertTrue(arg, Parsers.parseLong(arg, parsed));
+        assertEquals(arg, expected.longValue(), parsed.getLong());
+      }
+    }
+  }
+
+  @Test
+  public void parseDoubleMatchesDoubleParseDouble() {
+    for (String arg : DOUBLES) {
+      assertDouble(arg);
+    }
+  }
+
+  @Test
+  public void parseBooleanOnlyAcceptsTrueOrFalse() {
+    for (String arg : BOOLEANS) {
+      final ParsedValue parsed = new ParsedValue();
+      final String trimmed = arg.trim();
+      final boolean isBoolean = trimmed.equalsIgnoreCase("true") || trimmed.equalsIgnoreCase("false");
+
+      assertEquals(arg, isBoolean, Parsers.parseBoolean(arg, parsed));
+      if (isBoolean) {
+        assertEquals(arg, Boolean.parseBoolean(trimmed), parsed.getBoolean());
+      }
+    }
+  }
+
+  @Test
+  public void parsersMatchTheJdkOnRandomArguments() {
+    final Random random = new Random(42);
+    final char [] alphabet = "0123456789+-.eEpPxXfFdDaAN yI\t".toCharArray();
+    final StringBuilder builder = new StringBuilder();
+
+    for (int i = 0; i < 200_000; i++) {
+      builder.setLength(0);
+      final int length = random.nextInt(12);
+      for (int c = 0; c < length; c++) {
+        builder.append(alphabet[random.nextInt(alphabet.length)]);
+      }
+      final String arg = builder.toString();
+
+      assertLong(arg);
+      assertDouble(arg);
+    }
+
+    for (int i = 0; i < 100_000; i++) {
+      assertLong(Long.toString(random.nextLong()));
+      assertLong(Integer.toString(random.nextInt()));
+      assertDouble(Double.toString(Double.longBitsToDouble(random.nextLong())));
+      assertDouble(Double.toHexString(random.nextDouble() * 1e10));
+    }
+  }
+
+  private static void assertLong(String arg) {
+    final ParsedValue parsed = new ParsedValue();
+    final boolean accepted = Parsers.parseLong(arg, parsed);
+
+    try {
+      final long expected = Long.parseLong(arg);
+      assertTrue("Rejected '"+arg+"'", accepted);
+      assertEquals(arg, expected, parsed.getLong());
+    } catch (NumberFormatException e) {
+      assertFalse("Accepted '"+arg+"'", accepted);
+    }
+  }
+
+  private static void assertDouble(String arg) {
+    final ParsedValue parsed = new ParsedValue();
+    final boolean accepted = Parsers.parseDouble(arg, parsed);
+    assertEquals(arg, accepted, Parsers.isDouble(arg));
+
+    try {
+      final double expected = Double.parseDouble(arg);
+      assertTrue("Rejected '"+arg+"'", accepted);
+      assertEquals(arg, Double.doubleToLongBits(expected), Double.doubleToLongBits(parsed.getDouble()));
+    } catch (NumberFormatException e) {
+      assertFalse("Accepted '"+arg+"'", accepted);
+    }
+  }
+
+  private static Integer parseIntOrNull(String arg) {
+    try {
+      return Integer.parseInt(arg);
+    } catch (NumberFormatException e) {
+      return null;
+    }
+  }
+}
@@ -0,0 +1,153 @@
+package jg.aquifer.commands;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import jg.aquifer.commands.options.Option;
+
+/**
+ * Checks how a SubcommandSchema compiles the dependencies between Options
+ * @author Jose
+ */
+public class SubcommandSchemaTest {
+
+  @Test
+  public void ordersOptionsAfterTheOptionsTheyDependOn() {
+    final Subcommand subcommand = subcommand("report", "output", "format", "input", "encoding");
+    subcommand.addDependency("report", "output", "format");
+    subcommand.addDependency("output", "input");
+    subcommand.addDependency("format", "encoding");
+    subcommand.addDependency("input", "encoding");
+    final SubcommandSchema schema = subcommand.getSchema();
+
+    final int [] order = schema.inTopologicalOrder(all(schema));
+    assertEquals(5, order.length);
+    assertBefore(schema, order, "encoding", "input");
+    assertBefore(schema, order, "encoding", "format");
+    assertBefore(schema, order, "input", "output");
+    assertBefore(schema, order, "output", "report");
+    assertBefore(schema, order, "format", "report");
+  }
+
+  @Test
+  public void collectsTransitiveDependentsInOrder() {
+    final Subcommand subcommand = subcommand("a", "b", "c", "d", "unrelated");
+    subcommand.addDependency("b", "a");
+    subcommand.addDependency("c", "b");
+    subcommand.addDependency("d", "a", "c");
+    final SubcommandSchema schema = subcommand.getSchema();
+
+    assertArrayEquals(ids(schema, "b", "c", "d"), schema.getDependents(schema.getId("a")));
+    assertArrayEquals(ids(schema, "c", "d"), schema.getDependents(schema.getId("b")));
+    assertArrayEquals(ids(schema, "d"), schema.getDependents(schema.getId("c")));
+    assertEquals(0, schema.getDependents(schema.getId("d")).length);
+    assertEquals(0, schema.getDependents(schema.getId("unrelated")).length);
+  }
+
+  @Test
+  public void breaksCyclesById() {
+    //ex: mutually exclusive Options, each re-verified when the other changes
+    final Subcommand subcommand = subcommand("quiet", "verbose", "log");
+    subcommand.addDependency("quiet", "verbose");
+    subcommand.addDependency("verbose", "quiet");
+    subcommand.addDependency("log", "verbose");
+    final SubcommandSchema schema = subcommand.getSchema();
+
+    //The lower id of the cycle is ranked first, as if its dependency were met
+    final int quiet = schema.getId("quiet");
+    final int verbose = schema.getId("verbose");
+    final int [] order = schema.inTopologicalOrder(all(schema));
+    assertArrayEquals(new int [] {Math.min(quiet, verbose), Math.max(quiet, verbose), schema.getId("log")}, order);
+
+    //Neither is its own dependent, however long the cycle
+    assertArrayEquals(ids(schema, "verbose", "log"), schema.getDependents(quiet));
+    assertArrayEquals(ids(schema, "quiet", "log"), schema.getDependents(verbose));
+  }
+
+  @Test
+  public void ordersOptionsThatDependOnACycleAfterAllOfIt() {
+    //Whichever ids the names end up with
+    for (char name = 'a'; name <= 'z'; name++) {
+      final String dependent = String.valueOf(name);
+      final Subcommand subcommand = subcommand("left", "right", dependent);
+      subcommand.addDependency("left", "right");
+      subcommand.addDependency("right", "left");
+      subcommand.addDependency(dependent, "right");
+      final SubcommandSchema schema = subcommand.getSchema();
+
+      final int [] order = schema.inTopologicalOrder(all(schema));
+      assertEquals(dependent, schema.getId(dependent), order[2]);
+    }
+  }
+
+  @Test
+  public void ignoresSelfAndUnknownDependencies() {
+    final Subcommand subcommand = subcommand("a", "b");
+    subcommand.addDependency("a", "a", "missing");
+    subcommand.addDependency("missing", "b");
+
+    assertFalse(subcommand.getSchema().hasDependencies());
+  }
+
+  @Test
+  public void readsDependenciesDeclaredByOptions() {
+    final Subcommand subcommand = subcommand("a");
+    subcommand.addOption(Option.create("b", "").dependsOn("a").build());
+    final SubcommandSchema schema = subcommand.getSchema();
+
+    assertTrue(schema.hasDependencies());
+    assertArrayEquals(ids(schema, "b"), schema.getDependents(schema.getId("a")));
+  }
+
+  @Test
+  public void recompilesOnceADependencyIsAdded() {
+    final Subcommand subcommand = subcommand("a", "b");
+    final SubcommandSchema before = subcommand.getSchema();
+    subcommand.addDependency("b", "a");
+
+    assertFalse(before.hasDependencies());
+    assertTrue(subcommand.getSchema().hasDependencies());
+  }
+
+  private static Subcommand subcommand(String ... optNames) {
+    final Subcommand subcommand = new Subcommand("test");
+    for (String optName : optNames) {
+      subcommand.addOption(new Option(optName, ""));
+    }
+    return subcommand;
+  }
+
+  private static long [] all(SubcommandSchema schema) {
+    final long [] bitSet = SubcommandSchema.newBitSet(schema.size());
+    for (int id = 0; id < schema.size(); id++) {
+      SubcommandSchema.set(bitSet, id);
+    }
+    return bitSet;
+  }
+
+  private static int [] ids(SubcommandSchema schema, String ... optNames) {
+    final int [] ids = new int[optNames.length];
+    for (int i = 0; i < optNames.length; i++) {
+      ids[i] = schema.getId(optNames[i]);
+    }
+    return ids;
+  }
+
+  private static void assertBefore(SubcommandSchema schema, int [] order, String first, String second) {
+    int firstIndex = -1;
+    int secondIndex = -1;
+    for (int i = 0; i < order.length; i++) {
+      if (order[i] == schema.getId(first)) {
+        firstIndex = i;
+      }
+      else if (order[i] == schema.getId(second)) {
+        secondIndex = i;
+      }
+    }
+    assertTrue(first+" should come before "+second, firstIndex >= 0 && firstIndex < secondIndex);
+  }
+}
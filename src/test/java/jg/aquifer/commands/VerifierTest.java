@@ -0,0 +1,65 @@
+package jg.aquifer.commands;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import jg.aquifer.commands.options.VerificationException;
+
+/**
+ * Checks that checking Verifiers report the same outcome through check() and verify()
+ * @author Jose
+ */
+public class VerifierTest {
+
+  private static final Verifier SILENT = Verifier.checking((op, form, arg, result) -> false);
+
+  @Test
+  public void failsSilentRejectionsThroughCheck() {
+    final VerificationResult result = new VerificationResult();
+
+    assertFalse(SILENT.check(null, null, "arg", result));
+    assertFalse(result.isPassed());
+    assertEquals("Invalid argument", result.getMessage());
+  }
+
+  @Test
+  public void failsSilentRejectionsThroughVerify() {
+    try {
+      SILENT.verify(null, null, "arg");
+      fail("A rejected argument was verified");
+    } catch (VerificationException e) {
+      assertEquals("Invalid argument", e.getMessage());
+    }
+  }
+
+  @Test
+  public void keepsRecordedFailures() {
+    final Verifier described = Verifier.checking((op, form, arg, result) -> result.fail("Expected something else"));
+    final VerificationResult result = new VerificationResult();
+
+    assertFalse(described.check(null, null, "arg", result));
+    assertEquals("Expected something else", result.getMessage());
+  }
+
+  @Test
+  public void keepsEarlierFailuresAlone() {
+    final VerificationResult result = new VerificationResult();
+    result.fail("Failed earlier");
+
+    assertFalse(SILENT.check(null, null, "arg", result));
+    assertEquals("Failed earlier", result.getMessage());
+  }
+
+  @Test
+  public void passesAcceptedArguments() throws VerificationException {
+    final VerificationResult result = new VerificationResult();
+
+    assertTrue(Verifier.WHOLE_NUM.check(null, null, "12", result));
+    assertTrue(result.isPassed());
+    Verifier.WHOLE_NUM.verify(null, null, "12");
+  }
+}
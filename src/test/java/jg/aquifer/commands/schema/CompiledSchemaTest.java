@@ -0,0 +1,107 @@
+package jg.aquifer.commands.schema;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import jg.aquifer.commands.Program;
+
+/**
+ * Checks that a compiled schema reads back as the declarative schema it was compiled from
+ * @author Jose
+ */
+public class CompiledSchemaTest {
+
+  @Rule
+  public final TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void readsBackTheDeclarationsItWasCompiledFrom() throws IOException {
+    final Path source = write("schema.json", SchemaParserTest.SCHEMA);
+    final Path compiled = folder.getRoot().toPath().resolve("schema.aqs");
+    ProgramLoader.compile(source, compiled);
+
+    final RecordingHandler parsed = new RecordingHandler();
+    SchemaParser.parse(new StringReader(SchemaParserTest.SCHEMA), parsed);
+    final RecordingHandler read = new RecordingHandler();
+    CompiledSchema.read(compiled, read);
+
+    assertEquals(parsed.declarations, read.declarations);
+    assertTrue(CompiledSchema.isCompiledFrom(compiled, Files.readAllBytes(source)));
+  }
+
+  @Test
+  public void recompilesEditsThatKeepTheSizeAndModificationTime() throws IOException {
+    final Path source = write("schema.json", schema("first"));
+    final Path compiled = folder.getRoot().toPath().resolve("schema.aqs");
+    final ProgramLoader loader = new ProgramLoader();
+    assertEquals("first", loader.load(source, compiled).getName());
+
+    final FileTime modified = Files.getLastModifiedTime(source);
+    write("schema.json", schema("other"));
+    Files.setLastModifiedTime(source, modified);
+    assertFalse(CompiledSchema.isCompiledFrom(compiled, Files.readAllBytes(source)));
+
+    final Program program = loader.load(source, compiled);
+    assertEquals("other", program.getName());
+    assertEquals("other", loader.loadCompiled(compiled).getName());
+  }
+
+  @Test
+  public void rejectsTruncatedFiles() throws IOException {
+    final Path source = write("schema.json", SchemaParserTest.SCHEMA);
+    final Path compiled = folder.getRoot().toPath().resolve("schema.aqs");
+    ProgramLoader.compile(source, compiled);
+
+    final byte [] bytes = Files.readAllBytes(compiled);
+    final Path truncated = folder.getRoot().toPath().resolve("truncated.aqs");
+    Files.write(truncated, Arrays.copyOf(bytes, bytes.length / 2));
+    try {
+      CompiledSchema.read(truncated, new RecordingHandler());
+      fail("A truncated compiled schema was read");
+    } catch (SchemaException e) {
+      //Expected
+    }
+  }
+
+  @Test
+  public void rejectsCorruptedStringLengths() throws IOException {
+    final Path source = write("schema.json", SchemaParserTest.SCHEMA);
+    final Path compiled = folder.getRoot().toPath().resolve("schema.aqs");
+    ProgramLoader.compile(source, compiled);
+
+    //The first string's length follows the header and the string count
+    final ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(compiled));
+    bytes.putInt(CompiledSchema.HEADER_SIZE + 4, Integer.MAX_VALUE);
+    final Path corrupted = folder.getRoot().toPath().resolve("corrupted.aqs");
+    Files.write(corrupted, bytes.array());
+    try {
+      CompiledSchema.read(corrupted, new RecordingHandler());
+      fail("A compiled schema with a corrupted string length was read");
+    } catch (SchemaException e) {
+      //Expected
+    }
+  }
+
+  private static String schema(String name) {
+    return "{ \"name\": \""+name+"\", \"options\": [ { \"name\": \"input\", \"verifier\": \"FILE_READ\" } ] }";
+  }
+
+  private Path write(String name, String content) throws IOException {
+    return Files.write(folder.getRoot().toPath().resolve(name), content.getBytes(StandardCharsets.UTF_8));
+  }
+}
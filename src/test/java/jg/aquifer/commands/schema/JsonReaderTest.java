@@ -0,0 +1,119 @@
+package jg.aquifer.commands.schema;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import org.junit.Test;
+
+/**
+ * Checks how a JsonReader tokenizes JSON
+ * @author Jose
+ */
+public class JsonReaderTest {
+
+  @Test
+  public void readsNestedValues() throws IOException {
+    final JsonReader reader = reader("{ \"name\": \"git\", \"required\": true, \"list\": [\"a\", null, false] }");
+
+    assertEquals(JsonReader.BEGIN_OBJECT, reader.peek());
+    reader.beginObject();
+    assertEquals("name", reader.nextName());
+    assertEquals("git", reader.nextString());
+    assertEquals("required", reader.nextName());
+    assertTrue(reader.nextBoolean());
+    assertEquals("list", reader.nextName());
+
+    reader.beginArray();
+    assertEquals("a", reader.nextString());
+    assertNull(reader.nextString());
+    assertFalse(reader.nextBoolean());
+    assertFalse(reader.hasNext());
+    reader.endArray();
+
+    assertFalse(reader.hasNext());
+    reader.endObject();
+    assertEquals(JsonReader.END_DOCUMENT, reader.peek());
+  }
+
+  @Test
+  public void decodesEscapes() throws IOException {
+    final JsonReader reader = reader("[\"tab\\there\", \"quote\\\" slash\\/ back\\\\\", \"\\u00e9\\n\"]");
+
+    reader.beginArray();
+    assertEquals("tab\there", reader.nextString());
+    assertEquals("quote\" slash/ back\\", reader.nextString());
+    assertEquals("\u00e9\n", reader.nextString());
+    reader.endArray();
+  }
+
+  @Test
+  public void readsStringsLongerThanItsBuffer() throws IOException {
+    final StringBuilder builder = new StringBuilder();
+    for (int i = 0; i < 10000; i++) {
+      builder.append((char) ('a' + i % 26));
+    }
+
+    final JsonReader reader = reader("[\""+builder+"\"]");
+    reader.beginArray();
+    assertEquals(builder.toString(), reader.nextString());
+    reader.endArray();
+  }
+
+  @Test
+  public void skipsWholeValues() throws IOException {
+    final JsonReader reader = reader("{ \"skipped\": { \"a\": [1, -2.5e3, {\"b\": null}], \"c\": true }, \"kept\": \"yes\" }");
+
+    reader.beginObject();
+    assertEquals("skipped", reader.nextName());
+    reader.skipValue();
+    assertEquals("kept", reader.nextName());
+    assertEquals("yes", reader.nextString());
+    reader.endObject();
+  }
+
+  @Test
+  public void locatesErrors() throws IOException {
+    final JsonReader reader = reader("{\n  \"name\" \"git\"\n}");
+
+    reader.beginObject();
+    assertEquals("name", reader.nextName());
+    try {
+      reader.nextString();
+      fail("A missing ':' was accepted");
+    } catch (SchemaException e) {
+      assertTrue(e.getMessage(), e.getMessage().contains("Expected ':'"));
+      assertTrue(e.getMessage(), e.getMessage().contains("line 2"));
+    }
+  }
+
+  @Test
+  public void rejectsMalformedDocuments() throws IOException {
+    assertRejected("{\"name\": \"unterminated}");
+    assertRejected("[\"bad escape \\q\"]");
+    assertRejected("[\"control \u0001 character\"]");
+    assertRejected("[tru]");
+    assertRejected("[\"a\" \"b\"]");
+    assertRejected("[\"a\"] [\"b\"]");
+  }
+
+  private static void assertRejected(String json) throws IOException {
+    final JsonReader reader = reader(json);
+    try {
+      reader.skipValue();
+      reader.peek();
+      fail("Accepted "+json);
+    } catch (SchemaException e) {
+      //Expected
+    }
+  }
+
+  private static JsonReader reader(String json) {
+    return new JsonReader(new StringReader(json));
+  }
+}
@@ -0,0 +1,56 @@
+package jg.aquifer.commands.schema;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A SchemaHandler recording the declarations it receives as readable lines, for comparison in tests
+ * @author Jose
+ */
+class RecordingHandler implements SchemaHandler {
+
+  final List<String> declarations = new ArrayList<>();
+
+  @Override
+  public void program(String name, String description) {
+    declarations.add("program "+name+" : "+description);
+  }
+
+  @Override
+  public void subcommand(String name, String description) {
+    declarations.add("subcommand "+name+" : "+description);
+  }
+
+  @Override
+  public void endSubcommand() {
+    declarations.add("endSubcommand");
+  }
+
+  @Override
+  public void option(OptionSpec option) {
+    final StringBuilder patterns = new StringBuilder();
+    for (String [] pattern : option.extensionPatterns) {
+      patterns.append(Arrays.toString(pattern));
+    }
+
+    declarations.add("option "+option.name+" : "+option.description+
+                     " type="+option.type+
+                     " required="+option.required+
+                     " verifiers="+Arrays.toString(option.verifiers)+
+                     " choices="+Arrays.toString(option.choices)+
+                     " directory="+option.directory+
+                     " extensions="+Arrays.toString(option.extensionDescriptions)+patterns+
+                     " dependsOn="+Arrays.toString(option.dependsOn));
+  }
+
+  @Override
+  public void dependency(String optName, String [] dependencies) {
+    declarations.add("dependency "+optName+" "+Arrays.toString(dependencies));
+  }
+
+  @Override
+  public void end() {
+    declarations.add("end");
+  }
+}
@@ -0,0 +1,92 @@
+package jg.aquifer.commands.schema;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Checks the declarations a SchemaParser streams out of a declarative schema
+ * @author Jose
+ */
+public class SchemaParserTest {
+
+  static final String SCHEMA =
+      "{\n"+
+      "  \"name\": \"git\",\n"+
+      "  \"description\": \"The stupid content tracker\",\n"+
+      "  \"options\": [ { \"name\": \"verbose\", \"type\": \"flag\" } ],\n"+
+      "  \"subcommands\": [\n"+
+      "    {\n"+
+      "      \"name\": \"log\",\n"+
+      "      \"description\": \"Shows commit logs\",\n"+
+      "      \"options\": [\n"+
+      "        { \"name\": \"max-count\", \"verifier\": \"NON_NEG_WHOLE\" },\n"+
+      "        { \"name\": \"oneline\", \"type\": \"flag\" },\n"+
+      "        { \"name\": \"format\", \"type\": \"radio\", \"choices\": [\"short\", \"full\"], \"required\": true },\n"+
+      "        { \"name\": \"output\", \"type\": \"file\", \"directory\": \".\", \"verifier\": [\"FILE_WRITE\", \"custom\"],\n"+
+      "          \"extensions\": { \"Logs\": [\"*.log\", \"*.txt\"] }, \"dependsOn\": [\"format\"] }\n"+
+      "      ],\n"+
+      "      \"dependencies\": { \"format\": [\"oneline\"] }\n"+
+      "    }\n"+
+      "  ]\n"+
+      "}";
+
+  @Test
+  public void streamsDeclarationsInOrder() throws IOException {
+    final List<String> expected = Arrays.asList(
+        "program git : The stupid content tracker",
+        "option verbose :  type=1 required=false verifiers=[] choices=[] directory=null extensions=[] dependsOn=[]",
+        "subcommand log : Shows commit logs",
+        "option max-count :  type=0 required=false verifiers=[NON_NEG_WHOLE] choices=[] directory=null extensions=[] dependsOn=[]",
+        "option oneline :  type=1 required=false verifiers=[] choices=[] directory=null extensions=[] dependsOn=[]",
+        "option format :  type=2 required=true verifiers=[] choices=[short, full] directory=null extensions=[] dependsOn=[]",
+        "option output :  type=3 required=false verifiers=[FILE_WRITE, custom] choices=[] directory=. "+
+            "extensions=[Logs][*.log, *.txt] dependsOn=[format]",
+        "dependency format [oneline]",
+        "endSubcommand",
+        "end");
+
+    assertEquals(expected, parse(SCHEMA));
+  }
+
+  @Test
+  public void rejectsUnknownKeys() throws IOException {
+    assertRejected("{ \"name\": \"git\", \"optoins\": [] }", "Unknown key 'optoins'");
+    assertRejected("{ \"name\": \"git\", \"options\": [ { \"name\": \"a\", \"requried\": true } ] }", "Unknown key 'requried'");
+  }
+
+  @Test
+  public void requiresNamesBeforeOptions() throws IOException {
+    assertRejected("{ \"options\": [], \"name\": \"git\" }", "must precede");
+    assertRejected("{ \"name\": \"git\", \"subcommands\": [ { \"options\": [], \"name\": \"log\" } ] }", "must precede");
+  }
+
+  @Test
+  public void rejectsIncompleteOptions() throws IOException {
+    assertRejected("{ \"name\": \"git\", \"options\": [ { \"type\": \"flag\" } ] }", "without a 'name'");
+    assertRejected("{ \"name\": \"git\", \"options\": [ { \"name\": \"a\", \"type\": \"radio\" } ] }", "without 'choices'");
+    assertRejected("{ \"name\": \"git\", \"options\": [ { \"name\": \"a\", \"type\": \"slider\" } ] }", "Unknown option type");
+  }
+
+  private static List<String> parse(String schema) throws IOException {
+    final RecordingHandler handler = new RecordingHandler();
+    SchemaParser.parse(new StringReader(schema), handler);
+    return handler.declarations;
+  }
+
+  private static void assertRejected(String schema, String message) throws IOException {
+    try {
+      parse(schema);
+      fail("Accepted "+schema);
+    } catch (SchemaException e) {
+      assertTrue(e.getMessage(), e.getMessage().contains(message));
+    }
+  }
+}
@@ -0,0 +1,248 @@
+package jg.aquifer.daemon;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import jg.aquifer.Intake;
+import jg.aquifer.Output;
+
+/**
+ * Checks round trips between a SocketIntake and an IntakeDaemon serving a stand-in Intake
+ * @author Jose
+ */
+public class IntakeDaemonTest {
+
+  @Rule
+  public final TemporaryFolder folder = new TemporaryFolder();
+
+  private final CountDownLatch waiting = new CountDownLatch(1);
+  private final CountDownLatch cancelled = new CountDownLatch(1);
+
+  private IntakeDaemon daemon;
+  private SocketIntake intake;
+
+  @After
+  public void stop() {
+    if (intake != null) {
+      intake.close();
+    }
+    if (daemon != null) {
+      daemon.stop();
+    }
+  }
+
+  @Test
+  public void relaysOutputAndFailures() throws IOException {
+    intake = new SocketIntake(start(new IntakeDaemon(new StandIn()), loopback(0)));
+
+    final StringWriter out = new StringWriter();
+    final StringWriter err = new StringWriter();
+    intake.submitArguments("greet", Collections.singletonMap("name", "Jose"), output(out, err));
+    assertEquals("Hello, Jose"+System.lineSeparator(), out.toString());
+    assertEquals("greeted"+System.lineSeparator(), err.toString());
+
+    try {
+      intake.submitArguments("fail", Collections.<String, String>emptyMap(), output(new StringWriter(), new StringWriter()));
+      fail("A failed run wasn't thrown");
+    } catch (RemoteIntakeException e) {
+      assertTrue(e.getMessage(), e.getMessage().contains("boom"));
+    }
+
+    //The connection carries the next run, once the failed one ended
+    final StringWriter again = new StringWriter();
+    intake.submitArguments("greet", Collections.singletonMap("name", "again"), output(again, new StringWriter()));
+    assertEquals("Hello, again"+System.lineSeparator(), again.toString());
+  }
+
+  @Test
+  public void cancelsRunsOnTheDaemon() throws IOException, InterruptedException {
+    intake = new SocketIntake(start(new IntakeDaemon(new StandIn()), loopback(0)));
+
+    final Thread submitter = new Thread(() -> intake.submitArguments("wait", Collections.<String, String>emptyMap(),
+                                                                      output(new StringWriter(), new StringWriter())));
+    submitter.start();
+    assertTrue(waiting.await(5, TimeUnit.SECONDS));
+
+    //Interrupting the submitting Thread is how an IntakeHandle cancels a run
+    submitter.interrupt();
+    assertTrue(cancelled.await(5, TimeUnit.SECONDS));
+    submitter.join(5000);
+    assertFalse(submitter.isAlive());
+  }
+
+  @Test
+  public void reconnectsToARestartedDaemon() throws IOException {
+    final SocketAddress address = start(new IntakeDaemon(new StandIn()), loopback(0));
+    intake = new SocketIntake(address);
+    intake.submitArguments("greet", Collections.singletonMap("name", "first"), output(new StringWriter(), new StringWriter()));
+
+    //The connection kept from the first run is dropped along with the daemon
+    daemon.stop();
+    start(new IntakeDaemon(new StandIn()), address);
+
+    final StringWriter out = new StringWriter();
+    intake.submitArguments("greet", Collections.singletonMap("name", "second"), output(out, new StringWriter()));
+    assertEquals("Hello, second"+System.lineSeparator(), out.toString());
+  }
+
+  @Test
+  public void listensOnLoopbackAddressesOnly() throws IOException {
+    final IntakeDaemon daemon = new IntakeDaemon(new StandIn());
+    try {
+      assertRejected(daemon, new InetSocketAddress(0));
+      assertRejected(daemon, InetSocketAddress.createUnresolved("localhost", 0));
+    } finally {
+      daemon.stop();
+    }
+  }
+
+  @Test
+  public void requiresTheSecret() throws IOException {
+    final IntakeDaemon guarded = new IntakeDaemon(new StandIn());
+    guarded.setSecret("let me in");
+    intake = new SocketIntake(start(guarded, loopback(0)));
+
+    assertRefused(intake);
+    intake.setSecret("let me out");
+    assertRefused(intake);
+
+    intake.setSecret("let me in");
+    final StringWriter out = new StringWriter();
+    intake.submitArguments("greet", Collections.singletonMap("name", "friend"), output(out, new StringWriter()));
+    assertEquals("Hello, friend"+System.lineSeparator(), out.toString());
+  }
+
+  @Test
+  public void keepsUnixSocketsToTheirOwner() throws IOException {
+    final SocketAddress address;
+    try {
+      address = SocketIntake.unixSocket(folder.getRoot().toPath().resolve("daemon.sock"));
+    } catch (UnsupportedOperationException e) {
+      Assume.assumeNoException(e);
+      return;
+    }
+    final Path path = LocalSockets.pathOf(address);
+    assertEquals(address, start(new IntakeDaemon(new StandIn()), address));
+
+    Assume.assumeTrue(Files.getFileStore(path.getParent()).supportsFileAttributeView("posix"));
+    assertEquals(EnumSet.of(PosixFilePermission.OWNER_READ, PosixFilePermission.OWNER_WRITE), Files.getPosixFilePermissions(path));
+    //The private directory the socket was bound in is gone
+    try (Stream<Path> files = Files.list(path.getParent())) {
+      assertEquals(Collections.singletonList(path), files.collect(Collectors.toList()));
+    }
+
+    intake = new SocketIntake(address);
+    final StringWriter out = new StringWriter();
+    intake.submitArguments("greet", Collections.singletonMap("name", "neighbour"), output(out, new StringWriter()));
+    assertEquals("Hello, neighbour"+System.lineSeparator(), out.toString());
+  }
+
+  @Test
+  public void keepsTakenUnixSocketPaths() throws IOException {
+    final SocketAddress address;
+    try {
+      address = SocketIntake.unixSocket(folder.getRoot().toPath().resolve("daemon.sock"));
+    } catch (UnsupportedOperationException e) {
+      Assume.assumeNoException(e);
+      return;
+    }
+    final Path path = LocalSockets.pathOf(address);
+    Files.write(path, new byte[] {1});
+
+    try {
+      start(new IntakeDaemon(new StandIn()), address);
+      fail("Listened on a taken path");
+    } catch (IOException e) {
+      //Expected
+    }
+    assertEquals(1, Files.size(path));
+    try (Stream<Path> files = Files.list(path.getParent())) {
+      assertEquals(1, files.count());
+    }
+  }
+
+  private SocketAddress start(IntakeDaemon started, SocketAddress address) throws IOException {
+    daemon = started;
+    return started.start(address);
+  }
+
+  private static void assertRejected(IntakeDaemon daemon, SocketAddress address) throws IOException {
+    try {
+      daemon.start(address);
+      fail("Listened on "+address);
+    } catch (IllegalArgumentException e) {
+      //Expected
+    }
+  }
+
+  private static void assertRefused(SocketIntake intake) {
+    try {
+      intake.submitArguments("greet", Collections.singletonMap("name", "stranger"), output(new StringWriter(), new StringWriter()));
+      fail("A connection without the secret was served");
+    } catch (UncheckedIOException e) {
+      //Expected
+    }
+  }
+
+  private static InetSocketAddress loopback(int port) {
+    return new InetSocketAddress(InetAddress.getLoopbackAddress(), port);
+  }
+
+  private static Output output(StringWriter out, StringWriter err) {
+    return new Output(new PrintWriter(out), new PrintWriter(err));
+  }
+
+  /**
+   * Greets, fails or waits to be cancelled, depending on the subcommand
+   */
+  private class StandIn implements Intake {
+
+    @Override
+    public void submitArguments(String subcommand, Map<String, String> arguments, Output output) {
+      switch (subcommand) {
+      case "greet":
+        output.out.println("Hello, "+arguments.get("name"));
+        output.err.println("greeted");
+        break;
+      case "fail":
+        throw new IllegalStateException("boom");
+      case "wait":
+        waiting.countDown();
+        try {
+          Thread.sleep(60_000);
+        } catch (InterruptedException e) {
+          cancelled.countDown();
+        }
+        break;
+      default:
+        throw new IllegalArgumentException(subcommand);
+      }
+    }
+  }
+}
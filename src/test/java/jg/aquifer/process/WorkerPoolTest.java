@@ -0,0 +1,269 @@
+package jg.aquifer.process;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import jg.aquifer.Output;
+import jg.aquifer.commands.Program;
+import jg.aquifer.commands.Subcommand;
+import jg.aquifer.commands.options.Option;
+import jg.aquifer.metrics.Metrics;
+
+/**
+ * Checks how arguments are handed to the workers of a WorkerPool, and how a WorkerPool keeps
+ * its workers - driving it against StandIn, a worker started as a separate JVM
+ * @author Jose
+ */
+public class WorkerPoolTest {
+
+  /**
+   * How long to wait for workers to start or exit, in milliseconds
+   */
+  private static final long PATIENCE = 20_000;
+
+  @Rule
+  public final TemporaryFolder folder = new TemporaryFolder();
+
+  private final List<Boolean> acquired = Collections.synchronizedList(new ArrayList<>());
+
+  private WorkerPool pool;
+
+  @After
+  public void shutdown() {
+    if (pool != null) {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  public void handsArgumentsOver() throws IOException {
+    final String [] tokens = {"log", "--max-count", "5", "--format", "café", "--oneline"};
+    final byte [] handed = WorkerPool.encode(Arrays.asList(tokens), StandardCharsets.UTF_8);
+
+    assertArrayEquals(tokens, WorkerPool.awaitArguments(new ByteArrayInputStream(handed), StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void handsNoArgumentsOver() throws IOException {
+    final byte [] handed = WorkerPool.encode(Collections.<String>emptyList(), StandardCharsets.UTF_8);
+
+    assertEquals(0, WorkerPool.awaitArguments(new ByteArrayInputStream(handed), StandardCharsets.UTF_8).length);
+  }
+
+  @Test
+  public void returnsOnceTheHandOffIsComplete() throws IOException {
+    final byte [] handed = WorkerPool.encode(Arrays.asList("--flag"), StandardCharsets.UTF_8);
+    final byte [] followed = Arrays.copyOf(handed, handed.length + 3);
+    final ByteArrayInputStream input = new ByteArrayInputStream(followed);
+
+    assertArrayEquals(new String[] {"--flag"}, WorkerPool.awaitArguments(input, StandardCharsets.UTF_8));
+    assertEquals(3, input.available());
+  }
+
+  @Test
+  public void rejectsInputEndingBeforeTheHandOff() throws IOException {
+    final byte [] handed = WorkerPool.encode(Arrays.asList("--input", "file"), StandardCharsets.UTF_8);
+
+    //An orphaned worker's input ends without anything, and must not run as if given no arguments
+    assertEndsEarly(new byte[0]);
+    assertEndsEarly(Arrays.copyOf(handed, handed.length - 1));
+    assertEndsEarly(Arrays.copyOf(handed, WorkerPool.HANDOFF_HEADER.length() + 1));
+  }
+
+  @Test
+  public void rejectsOtherInput() {
+    try {
+      WorkerPool.awaitArguments(new ByteArrayInputStream("--input\0file\0".getBytes(StandardCharsets.UTF_8)), StandardCharsets.UTF_8);
+      fail("Input without the header was taken as arguments");
+    } catch (EOFException e) {
+      fail("Input without the header was taken as ending early");
+    } catch (IOException e) {
+      //Expected
+    }
+  }
+
+  @Test
+  public void handsSubmissionsToIdleWorkers() throws Exception {
+    pool = newPool(1);
+    pool.start();
+    waitFor("the pool to fill", () -> pool.getIdleCount() == 1);
+
+    assertEquals("greet --name Ada", submit("Ada"));
+    assertEquals(1, pool.getWarmHits());
+    assertEquals(0, pool.getColdStarts());
+
+    //The worker taken is replaced in the background
+    waitFor("the pool to refill", () -> pool.getIdleCount() == 1);
+    assertEquals("greet --name Grace", submit("Grace"));
+    assertEquals(2, pool.getWarmHits());
+    assertEquals(0, pool.getColdStarts());
+    assertEquals(Arrays.asList(true, true), acquired);
+  }
+
+  @Test
+  public void startsWorkersWhenNoneIsIdle() throws Exception {
+    pool = newPool(0);
+    pool.start();
+
+    assertEquals("greet --name Ada", submit("Ada"));
+    assertEquals(0, pool.getWarmHits());
+    assertEquals(1, pool.getColdStarts());
+    assertEquals(Arrays.asList(false), acquired);
+  }
+
+  @Test
+  public void staysColdOnceIdleWorkersAreLetGo() throws Exception {
+    pool = newPool(1);
+    pool.setIdleTimeout(300, TimeUnit.MILLISECONDS);
+    pool.start();
+    waitFor("the pool to fill", () -> pool.getIdleCount() == 1);
+    waitFor("the idle worker to be let go", () -> pool.getIdleCount() == 0);
+
+    //Not refilled until the next submission
+    Thread.sleep(500);
+    assertEquals(0, pool.getIdleCount());
+
+    assertEquals("greet --name Ada", submit("Ada"));
+    assertEquals(1, pool.getColdStarts());
+    waitFor("the pool to refill", () -> pool.getIdleCount() == 1);
+  }
+
+  @Test
+  public void skipsWorkersThatExitedWhileIdle() throws Exception {
+    pool = newPool(2);
+    pool.start();
+    waitFor("the pool to fill", () -> pool.getIdleCount() == 2);
+
+    final Path exit = folder.getRoot().toPath().resolve(StandIn.EXIT);
+    Files.createFile(exit);
+    waitFor("the idle workers to exit", () -> exitedWorkers() == 2);
+    Files.delete(exit);
+    //The EXITED files are left just before exiting
+    Thread.sleep(500);
+
+    assertEquals("greet --name Ada", submit("Ada"));
+    assertEquals(0, pool.getWarmHits());
+    assertEquals(1, pool.getColdStarts());
+    assertEquals(Arrays.asList(false), acquired);
+  }
+
+  private WorkerPool newPool(int size) {
+    final Program program = new Program("tool", "A test tool");
+    final Subcommand greet = new Subcommand("greet");
+    greet.addOption(new Option("name", "Who to greet", true));
+    program.addSubcommand(greet);
+
+    final String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+    final String classPath = location(StandIn.class)+File.pathSeparator+location(WorkerPool.class);
+    final ProcessIntake backend = new ProcessIntake(program, java, "-cp", classPath, StandIn.class.getName(), folder.getRoot().toString());
+    backend.setCharset(StandardCharsets.UTF_8);
+
+    final WorkerPool pool = new WorkerPool(backend, size);
+    pool.setMetrics(new Metrics() {
+      @Override
+      public void workerAcquired(String subcommand, boolean warm, long nanos) {
+        acquired.add(warm);
+      }
+    });
+    return pool;
+  }
+
+  private String submit(String name) {
+    final Map<String, String> arguments = new HashMap<>();
+    arguments.put("name", name);
+
+    final StringWriter out = new StringWriter();
+    pool.submitArguments("greet", arguments, new Output(new PrintWriter(out), new PrintWriter(new StringWriter())));
+    return out.toString();
+  }
+
+  private int exitedWorkers() {
+    try (Stream<Path> files = Files.list(folder.getRoot().toPath())) {
+      return (int) files.filter(file -> file.getFileName().toString().startsWith(StandIn.EXITED)).count();
+    } catch (IOException e) {
+      throw new AssertionError(e);
+    }
+  }
+
+  private static String location(Class<?> type) {
+    try {
+      return Paths.get(type.getProtectionDomain().getCodeSource().getLocation().toURI()).toString();
+    } catch (Exception e) {
+      throw new AssertionError(e);
+    }
+  }
+
+  private static void waitFor(String description, BooleanSupplier condition) throws InterruptedException {
+    final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(PATIENCE);
+    while (!condition.getAsBoolean()) {
+      assertTrue("Timed out waiting for "+description, System.nanoTime() < deadline);
+      Thread.sleep(20);
+    }
+  }
+
+  private static void assertEndsEarly(byte [] input) throws IOException {
+    try {
+      WorkerPool.awaitArguments(new ByteArrayInputStream(input), StandardCharsets.UTF_8);
+      fail("Arguments were taken from an incomplete hand-off");
+    } catch (EOFException e) {
+      //Expected
+    }
+  }
+
+  /**
+   * A worker that prints the arguments it's handed. While idle, it exits once the
+   * folder it's given holds an EXIT file, leaving an EXITED file behind.
+   */
+  public static class StandIn {
+
+    static final String EXIT = "exit";
+    static final String EXITED = "exited";
+
+    /**
+     * How long a StandIn waits for its arguments before giving up, should its pool never hand them over
+     */
+    private static final long LIFETIME_MILLIS = 60_000;
+
+    public static void main(String[] args) throws Exception {
+      final Path folder = Paths.get(args[0]);
+      final long deadline = System.currentTimeMillis() + LIFETIME_MILLIS;
+      while (System.in.available() == 0) {
+        if (Files.exists(folder.resolve(EXIT)) || System.currentTimeMillis() > deadline) {
+          Files.createTempFile(folder, EXITED, "");
+          System.exit(3);
+        }
+        Thread.sleep(10);
+      }
+
+      System.out.print(String.join(" ", WorkerPool.awaitArguments(System.in, StandardCharsets.UTF_8)));
+      System.out.flush();
+    }
+  }
+}
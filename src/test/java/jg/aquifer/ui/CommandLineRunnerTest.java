@@ -0,0 +1,149 @@
+package jg.aquifer.ui;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import org.junit.Test;
+
+import jg.aquifer.Intake;
+import jg.aquifer.Output;
+import jg.aquifer.commands.Program;
+import jg.aquifer.commands.Subcommand;
+import jg.aquifer.commands.Verifier;
+import jg.aquifer.commands.options.Flag;
+import jg.aquifer.commands.options.Option;
+import jg.aquifer.commands.options.RadioOption;
+
+/**
+ * Checks how a CommandLineRunner parses command line arguments, and that it runs without JavaFX
+ * @author Jose
+ */
+public class CommandLineRunnerTest {
+
+  @Test
+  public void submitsVerifiedArguments() {
+    final Recorder recorder = new Recorder();
+    assertEquals(CommandLineRunner.SUCCESS, recorder.run("grep", "--pattern", "a.*", "--count=3", "-ignore-case", "--mode", "fast"));
+
+    assertEquals("grep", recorder.subcommand);
+    assertEquals("a.*", recorder.arguments.getString("pattern"));
+    assertEquals(3, recorder.arguments.getLong("count"));
+    assertTrue(recorder.arguments.getBoolean("ignore-case"));
+  }
+
+  @Test
+  public void printsUsageWhereAnOptionIsExpected() {
+    final Recorder recorder = new Recorder();
+    assertEquals(CommandLineRunner.SUCCESS, recorder.run("grep", "--pattern", "a", "--help"));
+    assertEquals(null, recorder.subcommand);
+    assertTrue(recorder.out.toString(), recorder.out.toString().startsWith("Usage: tool grep [options]"));
+
+    //After a flag, an option is expected
+    final Recorder afterFlag = new Recorder();
+    assertEquals(CommandLineRunner.SUCCESS, afterFlag.run("grep", "--ignore-case", "--help"));
+    assertEquals(null, afterFlag.subcommand);
+  }
+
+  @Test
+  public void takesHelpAsTheArgumentOfAnOption() {
+    final Recorder recorder = new Recorder();
+    assertEquals(CommandLineRunner.SUCCESS, recorder.run("grep", "--pattern", "--help", "--mode", "slow"));
+
+    assertEquals("grep", recorder.subcommand);
+    assertEquals("--help", recorder.arguments.getString("pattern"));
+    assertEquals("", recorder.out.toString());
+  }
+
+  @Test
+  public void rejectsInvalidArguments() {
+    assertEquals(CommandLineRunner.USAGE, new Recorder().run("grep", "--pattern", "a", "--count", "many", "--mode", "fast"));
+    assertEquals(CommandLineRunner.USAGE, new Recorder().run("grep", "--count", "3"));
+    assertEquals(CommandLineRunner.USAGE, new Recorder().run("grep", "--pattern", "a", "--mode", "fast", "--unknown"));
+    assertEquals(CommandLineRunner.USAGE, new Recorder().run("sed"));
+  }
+
+  @Test
+  public void loadsNoJavaFxClasses() throws Exception {
+    final List<URL> classPath = new ArrayList<>();
+    classPath.add(CommandLineRunner.class.getProtectionDomain().getCodeSource().getLocation());
+    classPath.add(CommandLineRunnerTest.class.getProtectionDomain().getCodeSource().getLocation());
+
+    final List<String> requested = Collections.synchronizedList(new ArrayList<>());
+    try (URLClassLoader isolated = new URLClassLoader(classPath.toArray(new URL[0]), ClassLoader.getSystemClassLoader().getParent()) {
+      @Override
+      protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+        if (name.startsWith("javafx.") || name.startsWith("com.sun.javafx.")) {
+          requested.add(name);
+          throw new ClassNotFoundException(name);
+        }
+        return super.loadClass(name, resolve);
+      }
+    }) {
+      @SuppressWarnings("unchecked")
+      final Callable<Integer> run = (Callable<Integer>) isolated.loadClass(HeadlessRun.class.getName()).getDeclaredConstructor().newInstance();
+      assertEquals(Integer.valueOf(CommandLineRunner.SUCCESS), run.call());
+    }
+
+    assertEquals(Collections.emptyList(), requested);
+  }
+
+  /**
+   * Runs the test Program headlessly. Loaded apart from JavaFX by loadsNoJavaFxClasses().
+   */
+  public static class HeadlessRun implements Callable<Integer> {
+    @Override
+    public Integer call() {
+      final Recorder recorder = new Recorder();
+      final int status = recorder.run("grep", "--pattern", "a", "--ignore-case", "--mode", "fast");
+      recorder.run("--help");
+      return recorder.arguments == null ? -1 : status;
+    }
+  }
+
+  /**
+   * Runs a small grep-like Program, recording what its Intake was submitted
+   */
+  static class Recorder implements Intake {
+
+    final StringWriter out = new StringWriter();
+    final StringWriter err = new StringWriter();
+
+    String subcommand;
+    TypedArguments arguments;
+
+    int run(String ... argv) {
+      final Program program = new Program("tool", "A test tool");
+      final Subcommand grep = new Subcommand("grep");
+      grep.addOption(new Option("pattern", "What to look for", true));
+      grep.addOption(new Option("count", "How many matches to print", false, Verifier.WHOLE_NUM));
+      grep.addOption(new Flag("ignore-case", "Whether case is ignored"));
+      grep.addOption(new RadioOption("mode", "How to search", true, "fast", "slow"));
+      program.addSubcommand(grep);
+
+      final CommandLineRunner runner = new CommandLineRunner(program, this);
+      runner.setOutput(new PrintWriter(out), new PrintWriter(err));
+      return runner.run(argv);
+    }
+
+    @Override
+    public void submitArguments(String subcommand, Map<String, String> arguments, Output output) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void submitTypedArguments(String subcommand, TypedArguments arguments, Output output) {
+      this.subcommand = subcommand;
+      this.arguments = arguments;
+    }
+  }
+}
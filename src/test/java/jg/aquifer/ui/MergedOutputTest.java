@@ -0,0 +1,82 @@
+package jg.aquifer.ui;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+
+/**
+ * Checks that a MergedOutput hands text over in the order it was written
+ * @author Jose
+ */
+public class MergedOutputTest {
+
+  private static final int WRITES = 200_000;
+
+  @Test
+  public void mergesSequentialWrites() throws IOException {
+    final List<String> merged = new ArrayList<>();
+    final MergedOutput output = new MergedOutput(64, (channel, text) -> merged.add(channel+":"+text));
+    final Writer out = output.getStdOut().newWriter();
+    final Writer err = output.getStdErr().newWriter();
+
+    out.write("a");
+    out.write("b");
+    err.write("c");
+    out.write("d");
+    output.drain();
+
+    assertEquals(3, merged.size());
+    assertEquals(MergedOutput.STDOUT+":ab", merged.get(0));
+    assertEquals(MergedOutput.STDERR+":c", merged.get(1));
+    assertEquals(MergedOutput.STDOUT+":d", merged.get(2));
+  }
+
+  @Test
+  public void keepsOrderWhileDrainingConcurrently() throws Exception {
+    final StringBuilder merged = new StringBuilder();
+    final MergedOutput output = new MergedOutput(1 << 12, (channel, text) -> merged.append(text));
+    final Writer out = output.getStdOut().newWriter();
+    final Writer err = output.getStdErr().newWriter();
+
+    final AtomicBoolean done = new AtomicBoolean();
+    final Throwable [] failure = new Throwable[1];
+    final Thread writer = new Thread(() -> {
+      final Random random = new Random(42);
+      try {
+        for (int i = 0; i < WRITES; i++) {
+          (random.nextBoolean() ? out : err).write(i+";");
+        }
+      } catch (Throwable e) {
+        failure[0] = e;
+      } finally {
+        done.set(true);
+      }
+    }, "merged-output-writer");
+
+    //Writes land between - and during - the drains of the two buffers
+    writer.start();
+    while (!done.get()) {
+      output.drain();
+    }
+    writer.join();
+    output.drain();
+
+    if (failure[0] != null) {
+      throw new AssertionError("Writer failed", failure[0]);
+    }
+
+    final String [] tokens = merged.toString().split(";");
+    assertEquals(WRITES, tokens.length);
+    for (int i = 0; i < tokens.length; i++) {
+      assertTrue("Write "+i+" was handed over as "+tokens[i], tokens[i].equals(String.valueOf(i)));
+    }
+  }
+}
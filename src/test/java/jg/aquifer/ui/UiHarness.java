@@ -0,0 +1,322 @@
+package jg.aquifer.ui;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BooleanSupplier;
+
+import javafx.animation.AnimationTimer;
+import javafx.application.Application;
+import javafx.application.Platform;
+import javafx.scene.Node;
+import javafx.scene.Parent;
+import javafx.scene.Scene;
+import javafx.scene.control.ListView;
+import javafx.scene.control.Tab;
+import javafx.scene.control.TabPane;
+import javafx.scene.control.TextField;
+import javafx.stage.Stage;
+import jg.aquifer.commands.Program;
+import jg.aquifer.commands.Subcommand;
+import jg.aquifer.commands.Verifier;
+import jg.aquifer.commands.options.Option;
+
+/**
+ * Drives a generated Program end to end and fails when the UI's performance regresses.
+ *
+ * The harness records:
+ * - the time Visualizer.initialize() takes to build the scene graph, and the amount of Nodes it creates
+ * - the time it takes to switch to - and lay out - each Tab
+ * - the latency between entering an argument and its verification being delivered
+ * - the longest interval between pulses while the above runs
+ * - the throughput of lines printed to the output pane
+ *
+ * Every figure is printed, and compared to a threshold given as a system property
+ * (ex: -Dharness.threshold.initMillis=500). The process exits with status 1 if any threshold is exceeded.
+ *
+ * By default, JavaFX is run headless through Monocle (set -Dharness.headless=false to use a display).
+ * The size of the generated Program is set with -Dharness.subcommands and -Dharness.options (per Subcommand).
+ *
+ * Every wait on the UI gives up after -Dharness.timeoutSeconds (60 by default), so a hung UI
+ * fails the harness - with status 2 - rather than stalling it.
+ *
+ * The harness runs in the verify phase of the ui-harness profile (from the project root):
+ *   mvn verify -Pui-harness -Dharness.jvmArgs="-Dharness.threshold.initMillis=500"
+ *
+ * Note: This lives in the test sources of jg.aquifer.ui as it reads the scenes of the Visualizer 
+ * through package-private accessors.
+ *
+ * @author Jose
+ */
+public class UiHarness {
+
+  private static final String [] DEFAULT_THRESHOLDS = {
+      "initMillis", "2000",
+      "nodes", "5000",
+      "tabSwitchMillis", "250",
+      "verifyLatencyMillis", "100",
+      "pulseMillis", "250",
+      "minOutputLinesPerSec", "100000"
+  };
+
+  private static final long TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(Long.getLong("harness.timeoutSeconds", 60));
+
+  private final List<String> failures = new ArrayList<>();
+
+  private long maxPulseInterval;
+  private long lastPulse;
+
+  public static void main(String[] args) {
+    if (Boolean.parseBoolean(System.getProperty("harness.headless", "true"))) {
+      setIfAbsent("glass.platform", "Monocle");
+      setIfAbsent("monocle.platform", "Headless");
+      setIfAbsent("prism.order", "sw");
+    }
+    Application.launch(HarnessApplication.class, args);
+  }
+
+  /**
+   * The JavaFX Application the harness runs in. It's kept apart from UiHarness, as the java launcher
+   * refuses main classes that extend Application when JavaFX isn't on the module path.
+   */
+  public static class HarnessApplication extends Application {
+    @Override
+    public void start(Stage primaryStage) {
+      new UiHarness().begin();
+    }
+  }
+
+  private void begin() {
+    //Measure pulses for as long as the harness runs
+    new AnimationTimer() {
+      @Override
+      public void handle(long now) {
+        if (lastPulse != 0) {
+          maxPulseInterval = Math.max(maxPulseInterval, now - lastPulse);
+        }
+        lastPulse = now;
+      }
+    }.start();
+
+    final Thread driver = new Thread(() -> {
+      int status;
+      try {
+        run();
+        status = failures.isEmpty() ? 0 : 1;
+      } catch (Throwable e) {
+        e.printStackTrace();
+        status = 2;
+      }
+
+      if (!failures.isEmpty()) {
+        System.out.println("Regressions:");
+        for (String failure : failures) {
+          System.out.println("  "+failure);
+        }
+      }
+
+      Platform.exit();
+      System.exit(status);
+    }, "aquifer-harness");
+    driver.setDaemon(true);
+    driver.start();
+  }
+
+  private void run() throws Exception {
+    final int subcommands = Integer.getInteger("harness.subcommands", 20);
+    final int options = Integer.getInteger("harness.options", 200);
+    final int outputLines = Integer.getInteger("harness.outputLines", 200_000);
+
+    final Program program = createProgram(subcommands, options);
+    final Visualizer visualizer = onFx(() -> new Visualizer(program, (subcommand, args, output) -> {}));
+
+    System.out.println("Program: "+subcommands+" subcommands x "+options+" options");
+
+    //Scene graph build
+    final long initNanos = onFx(() -> {
+      final long start = System.nanoTime();
+      visualizer.initialize();
+      visualizer.show();
+      layout(visualizer.getOptionsScene());
+      return System.nanoTime() - start;
+    });
+    report("initMillis", millis(initNanos), true);
+    report("nodes", onFx(() -> countNodes(visualizer.getOptionsScene().getRoot())), true);
+
+    //Tab switching
+    final TabPane tabPane = onFx(() -> (TabPane) visualizer.getOptionsScene().getRoot().lookup(".tab-pane"));
+    long slowestSwitch = 0;
+    final int tabs = onFx(() -> tabPane.getTabs().size());
+    for (int i = 0; i < tabs; i++) {
+      final int index = i;
+      slowestSwitch = Math.max(slowestSwitch, onFx(() -> {
+        final long start = System.nanoTime();
+        tabPane.getSelectionModel().select(index);
+        layout(visualizer.getOptionsScene());
+        return System.nanoTime() - start;
+      }));
+    }
+    report("tabSwitchMillis", millis(slowestSwitch), true);
+
+    //Keystroke to verification
+    visualizer.getVerificationEngine().setDebounceMillis(0);
+    final TextField entry = onFx(() -> findEntry(tabPane.getSelectionModel().getSelectedItem()));
+    final Option option = onFx(() -> ((ArgumentCell) findCell(entry)).getItem());
+
+    long slowestVerify = 0;
+    for (int i = 0; i < 50; i++) {
+      final String arg = String.valueOf(i);
+      final long start = onFx(() -> {
+        final long typed = System.nanoTime();
+        entry.setText(arg);
+        return typed;
+      });
+
+      final Value holder = option.getHolder();
+      await("the verification of '"+arg+"'", () -> holder.isVerified() && arg.equals(holder.getValue()), 100_000);
+      slowestVerify = Math.max(slowestVerify, System.nanoTime() - start);
+    }
+    report("verifyLatencyMillis", millis(slowestVerify), true);
+
+    report("pulseMillis", millis(onFx(() -> maxPulseInterval)), true);
+
+    //Output throughput
+    onFx(() -> {
+      visualizer.getOptionsScene().getWindow().hide();
+      ((Stage) visualizer.getOptionsScene().getWindow()).setScene(visualizer.getOutputScene());
+      ((Stage) visualizer.getOutputScene().getWindow()).show();
+      return null;
+    });
+
+    @SuppressWarnings("unchecked")
+    final ListView<String> outputView = onFx(() -> (ListView<String>) visualizer.getOutputScene().getRoot().lookup(".list-view"));
+    final PrintWriter out = visualizer.getOutputStreams().getStdOut();
+    final String lastLine = "line "+(outputLines - 1);
+
+    final long start = System.nanoTime();
+    for (int i = 0; i < outputLines; i++) {
+      out.println("line "+i);
+    }
+    await("the last line of output", () -> {
+      try {
+        return onFx(() -> lastLine.equals(outputView.getItems().get(outputView.getItems().size() - 1)));
+      } catch (InterruptedException | ExecutionException | TimeoutException e) {
+        throw new IllegalStateException(e);
+      }
+    }, 1_000_000);
+    final double seconds = (System.nanoTime() - start) / 1e9;
+    report("minOutputLinesPerSec", (long) (outputLines / seconds), false);
+  }
+
+  private static Program createProgram(int subcommands, int options) {
+    final Program program = new Program("harness", "A generated Program for the UI performance harness");
+    for (int s = 0; s < subcommands; s++) {
+      final Subcommand subcommand = new Subcommand("sub"+s);
+      subcommand.setDescription("Subcommand number "+s);
+      for (int o = 0; o < options; o++) {
+        subcommand.addOption(new Option("option"+o, "Option number "+o, o % 10 == 0, Verifier.WHOLE_NUM));
+      }
+      program.addSubcommand(subcommand);
+    }
+    return program;
+  }
+
+  private static TextField findEntry(Tab tab) {
+    for (Node node : tab.getContent().lookupAll(".text-field")) {
+      if (node instanceof TextField && findCell(node) != null) {
+        return (TextField) node;
+      }
+    }
+    throw new IllegalStateException("No argument entry on tab "+tab.getText());
+  }
+
+  private static Node findCell(Node node) {
+    while (node != null && !(node instanceof ArgumentCell)) {
+      node = node.getParent();
+    }
+    return node;
+  }
+
+  private static void layout(Scene scene) {
+    scene.getRoot().applyCss();
+    scene.getRoot().layout();
+  }
+
+  private static int countNodes(Node node) {
+    int count = 1;
+    if (node instanceof Parent) {
+      for (Node child : ((Parent) node).getChildrenUnmodifiable()) {
+        count += countNodes(child);
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Prints a figure and records a failure if it exceeds its threshold
+   * @param name - the name of the figure, and of its threshold
+   * @param value - the measured value
+   * @param isMaximum - whether the threshold is a maximum (or else a minimum)
+   */
+  private void report(String name, long value, boolean isMaximum) {
+    final long threshold = Long.getLong("harness.threshold."+name, Long.parseLong(defaultThreshold(name)));
+    final boolean regressed = isMaximum ? value > threshold : value < threshold;
+
+    System.out.println(String.format(Locale.ROOT, "  %-22s %12d   (threshold %d)%s",
+                                     name, value, threshold, regressed ? "  REGRESSED" : ""));
+    if (regressed) {
+      failures.add(name+": "+value+" against a threshold of "+threshold);
+    }
+  }
+
+  private static String defaultThreshold(String name) {
+    final int index = Arrays.asList(DEFAULT_THRESHOLDS).indexOf(name);
+    return DEFAULT_THRESHOLDS[index + 1];
+  }
+
+  private static long millis(long nanos) {
+    return TimeUnit.NANOSECONDS.toMillis(nanos);
+  }
+
+  /**
+   * Polls a condition until it holds
+   * @param what - what's awaited, for the failure message
+   * @param condition - the condition to poll
+   * @param pollNanos - the time to sleep between polls
+   * @throws TimeoutException if the condition doesn't hold within the harness' timeout
+   */
+  private static void await(String what, BooleanSupplier condition, int pollNanos) throws InterruptedException, TimeoutException {
+    final long deadline = System.nanoTime() + TIMEOUT_NANOS;
+    while (!condition.getAsBoolean()) {
+      if (System.nanoTime() - deadline > 0) {
+        throw new TimeoutException("Gave up waiting for "+what+" after "+TimeUnit.NANOSECONDS.toSeconds(TIMEOUT_NANOS)+"s");
+      }
+      Thread.sleep(pollNanos / 1_000_000, pollNanos % 1_000_000);
+    }
+  }
+
+  private static <T> T onFx(Callable<T> task) throws InterruptedException, ExecutionException, TimeoutException {
+    final CompletableFuture<T> result = new CompletableFuture<>();
+    Platform.runLater(() -> {
+      try {
+        result.complete(task.call());
+      } catch (Throwable e) {
+        result.completeExceptionally(e);
+      }
+    });
+    return result.get(TIMEOUT_NANOS, TimeUnit.NANOSECONDS);
+  }
+
+  private static void setIfAbsent(String key, String value) {
+    if (System.getProperty(key) == null) {
+      System.setProperty(key, value);
+    }
+  }
+}
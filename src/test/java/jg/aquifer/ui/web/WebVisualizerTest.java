@@ -0,0 +1,161 @@
+package jg.aquifer.ui.web;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import jg.aquifer.Intake;
+import jg.aquifer.Output;
+import jg.aquifer.commands.Program;
+import jg.aquifer.commands.Subcommand;
+import jg.aquifer.commands.options.Option;
+
+/**
+ * Checks which requests a WebVisualizer serving the loopback interface accepts
+ * @author Jose
+ */
+public class WebVisualizerTest {
+
+  private final CountDownLatch submitted = new CountDownLatch(1);
+
+  private WebVisualizer visualizer;
+  private String host;
+  private String token;
+
+  @Before
+  public void start() throws IOException {
+    final Program program = new Program("tool", "A test tool");
+    final Subcommand greet = new Subcommand("greet");
+    greet.addOption(new Option("name", "Who to greet", true));
+    program.addSubcommand(greet);
+
+    visualizer = new WebVisualizer(program, new Intake() {
+      @Override
+      public void submitArguments(String subcommand, Map<String, String> arguments, Output output) {
+        submitted.countDown();
+      }
+    });
+    visualizer.start(0);
+    host = "localhost:"+visualizer.getPort();
+
+    final String page = request("GET", "/", host, null, null, null);
+    assertEquals(200, status(page));
+    final Matcher matcher = Pattern.compile("<meta name=\"aquifer-token\" content=\"([0-9a-f]+)\">").matcher(page);
+    assertTrue(matcher.find());
+    token = matcher.group(1);
+  }
+
+  @After
+  public void stop() {
+    visualizer.stop();
+  }
+
+  @Test
+  public void acceptsOnlyExactLoopbackHosts() {
+    assertTrue(WebVisualizer.isLoopbackHost("localhost"));
+    assertTrue(WebVisualizer.isLoopbackHost("LOCALHOST:8080"));
+    assertTrue(WebVisualizer.isLoopbackHost("127.0.0.1:8080"));
+    assertTrue(WebVisualizer.isLoopbackHost("[::1]:8080"));
+
+    assertFalse(WebVisualizer.isLoopbackHost("127.evil.com"));
+    assertFalse(WebVisualizer.isLoopbackHost("127.0.0.1.evil.com:8080"));
+    assertFalse(WebVisualizer.isLoopbackHost("localhost.evil.com"));
+    assertFalse(WebVisualizer.isLoopbackHost("localhost:80@evil.com"));
+    assertFalse(WebVisualizer.isLoopbackHost("[::1].evil.com"));
+    assertFalse(WebVisualizer.isLoopbackHost("evil.com"));
+  }
+
+  @Test
+  public void rejectsRequestsToOtherHosts() throws IOException {
+    final int port = visualizer.getPort();
+    assertEquals(200, status(request("GET", "/", "127.0.0.1:"+port, null, null, null)));
+    assertEquals(200, status(request("GET", "/", "[::1]:"+port, null, null, null)));
+
+    assertEquals(403, status(request("GET", "/", "127.evil.com:"+port, null, null, null)));
+    assertEquals(403, status(request("GET", "/", "evil.com", null, null, null)));
+    assertEquals(403, status(request("POST", "/verify", "127.evil.com:"+port, "http://127.evil.com:"+port, token, "s=greet")));
+  }
+
+  @Test
+  public void rejectsPostsFromOtherOrigins() throws IOException {
+    assertEquals(200, status(request("POST", "/verify", host, "http://"+host, token, "s=greet")));
+    assertEquals(403, status(request("POST", "/verify", host, "http://evil.com", token, "s=greet")));
+    assertEquals(403, status(request("POST", "/run", host, "http://127.evil.com:"+visualizer.getPort(), token, "s=greet&o.name=x")));
+  }
+
+  @Test
+  public void requiresTheSessionTokenToPost() throws IOException, InterruptedException {
+    assertEquals(403, status(request("POST", "/run", host, null, null, "s=greet&o.name=x")));
+    assertEquals(403, status(request("POST", "/run", host, null, token.substring(1)+(token.charAt(0) == 'a' ? 'b' : 'a'), "s=greet&o.name=x")));
+    assertEquals(1, submitted.getCount());
+
+    final String response = request("POST", "/run", host, "http://"+host, token, "s=greet&o.name=x");
+    assertEquals(200, status(response));
+    assertTrue(submitted.await(5, TimeUnit.SECONDS));
+
+    final Matcher run = Pattern.compile("\\{\"run\":\"([0-9a-f]+)\"\\}").matcher(response);
+    assertTrue(response, run.find());
+    assertEquals(403, status(request("POST", "/runs/"+run.group(1)+"/cancel", host, null, null, null)));
+    assertEquals(204, status(request("POST", "/runs/"+run.group(1)+"/cancel", host, null, token, null)));
+  }
+
+  /**
+   * Sends a request over a new connection
+   * @return the whole response
+   */
+  private String request(String method, String path, String hostHeader, String origin, String token, String body) throws IOException {
+    final byte [] content = body == null ? new byte[0] : body.getBytes(StandardCharsets.UTF_8);
+    final StringBuilder request = new StringBuilder();
+    request.append(method).append(' ').append(path).append(" HTTP/1.1\r\n")
+           .append("Host: ").append(hostHeader).append("\r\n")
+           .append("Connection: close\r\n");
+    if (origin != null) {
+      request.append("Origin: ").append(origin).append("\r\n");
+    }
+    if (token != null) {
+      request.append(WebVisualizer.TOKEN_HEADER).append(": ").append(token).append("\r\n");
+    }
+    if (method.equals("POST")) {
+      request.append("Content-Type: application/x-www-form-urlencoded\r\n")
+             .append("Content-Length: ").append(content.length).append("\r\n");
+    }
+    request.append("\r\n");
+
+    try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), visualizer.getPort())) {
+      socket.setSoTimeout(5000);
+      final OutputStream out = socket.getOutputStream();
+      out.write(request.toString().getBytes(StandardCharsets.US_ASCII));
+      out.write(content);
+      out.flush();
+
+      final InputStream in = socket.getInputStream();
+      final ByteArrayOutputStream response = new ByteArrayOutputStream();
+      final byte [] buffer = new byte[4096];
+      for (int read; (read = in.read(buffer)) >= 0; ) {
+        response.write(buffer, 0, read);
+      }
+      return new String(response.toByteArray(), StandardCharsets.UTF_8);
+    }
+  }
+
+  private static int status(String response) {
+    return Integer.parseInt(response.substring(response.indexOf(' ') + 1, response.indexOf(' ') + 4));
+  }
+}